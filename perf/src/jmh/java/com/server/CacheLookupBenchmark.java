@@ -0,0 +1,70 @@
+package com.server;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Acierto en FileCache con la clave que arma loadCached (ruta + "_" + codificación) frente a una
+// clave ya construida, con varios hilos leyendo a la vez como en una carga de página
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class CacheLookupBenchmark {
+	private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+	@Param({ "64" })
+	public int entries;
+
+	private FileCache cache;
+	private String[] paths;
+	private String[] keys;
+
+	@Setup
+	public void setUp() {
+		cache = new FileCache(64L * 1024 * 1024);
+		paths = new String[entries];
+		keys = new String[entries];
+		byte[] content = BenchmarkData.viteBundle(16 * 1024);
+		for (int i = 0; i < entries; i++) {
+			paths[i] = "assets/chunk-" + Integer.toHexString(0x10000000 + i * 7919) + ".js";
+			keys[i] = paths[i] + "_gzip";
+			CachedFile cached = new CachedFile(content, LAST_MODIFIED);
+			cached.response = new HttpResponse("200 OK").body(content).prebuild();
+			cached.notModified = new HttpResponse("304 Not Modified").prebuild();
+			cache.put(keys[i], cached);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		int next;
+	}
+
+	@Benchmark
+	public CachedFile buildKeyAndGet(Cursor cursor) {
+		int index = cursor.next++ & (entries - 1);
+		String encoding = "gzip";
+		return cache.get(paths[index] + "_" + (encoding != null ? encoding : "plain"), LAST_MODIFIED);
+	}
+
+	@Benchmark
+	public CachedFile prebuiltKeyGet(Cursor cursor) {
+		int index = cursor.next++ & (entries - 1);
+		return cache.get(keys[index], LAST_MODIFIED);
+	}
+}
@@ -0,0 +1,65 @@
+package com.server;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// Compresión gzip al vuelo de un chunk de Vite (lo que hace loadCached sin variante .gz) con
+// distintos niveles (GZIPOutputStream usa el 6 por defecto); el tamaño resultante se imprime en el setup para comparar la ganancia
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+	@Param({ "65536", "524288" })
+	public int size;
+
+	@Param({ "1", "6", "9" })
+	public int level;
+
+	private byte[] bundle;
+
+	@Setup
+	public void setUp() throws IOException {
+		bundle = BenchmarkData.viteBundle(size);
+		System.out.println("\ntamaño " + size + " -> " + gzip().length + " bytes con nivel " + level);
+	}
+
+	@Benchmark
+	public byte[] gzip() throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(bundle.length / 3);
+		try (GZIPOutputStream out = new LeveledGZIPOutputStream(buffer, level)) {
+			byte[] chunk = new byte[4096];
+			// Igual que loadCached: bloques de 4 KB
+			for (int offset = 0; offset < bundle.length; offset += chunk.length) {
+				int length = Math.min(chunk.length, bundle.length - offset);
+				System.arraycopy(bundle, offset, chunk, 0, length);
+				out.write(chunk, 0, length);
+			}
+		}
+		return buffer.toByteArray();
+	}
+
+	private static class LeveledGZIPOutputStream extends GZIPOutputStream {
+		LeveledGZIPOutputStream(ByteArrayOutputStream out, int level) throws IOException {
+			super(out);
+			def.setLevel(level);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package com.server;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Lectura de cabeceras tal como la hacen los dos motores: RequestInput sobre el flujo del socket
+// (handleClient) y HttpRequest.parse sobre el buffer ya recibido (NIO)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestParsingBenchmark {
+	// Solicitudes encadenadas en una misma conexión, como al cargar una página
+	private static final int PIPELINED = 16;
+
+	private byte[] single;
+	private byte[] pipelined;
+	private final HttpRequest request = new HttpRequest();
+
+	@Setup
+	public void setUp() {
+		single = BenchmarkData.webViewRequest("/assets/index-B4x9kQ2a.js");
+		pipelined = new byte[single.length * PIPELINED];
+		for (int i = 0; i < PIPELINED; i++) {
+			System.arraycopy(single, 0, pipelined, i * single.length, single.length);
+		}
+	}
+
+	@Benchmark
+	public void parseBuffer(Blackhole blackhole) throws IOException {
+		request.parse(single, 0, single.length);
+		blackhole.consume(request.getPath());
+		blackhole.consume(request.isKeepAlive());
+		blackhole.consume(request.negotiateEncoding(true, true));
+	}
+
+	// Una conexión keep-alive completa: un RequestInput y un HttpRequest para todas las solicitudes
+	@Benchmark
+	@OperationsPerInvocation(PIPELINED)
+	public void readPipelined(Blackhole blackhole) throws IOException {
+		RequestInput input = new RequestInput(new ByteArrayInputStream(pipelined));
+		HttpRequest connectionRequest = new HttpRequest();
+		while (input.readRequest(connectionRequest)) {
+			blackhole.consume(connectionRequest.getPath());
+			blackhole.consume(connectionRequest.isKeepAlive());
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package com.server;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Camino completo de un acierto en caché (respond: enrutado, índice, caché, métricas) frente a
+// armar y codificar a mano las cabeceras de la misma respuesta en cada solicitud
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseBenchmark {
+	private static final String ASSET = "assets/index-4f2a9c1e.js";
+
+	private File root;
+	private MyServer server;
+	private HttpRequest request;
+	private byte[] body;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("server-perf").toFile();
+		File assets = new File(root, "assets");
+		if (!assets.mkdirs()) throw new IOException("No se pudo crear " + assets);
+		body = BenchmarkData.viteBundle(48 * 1024);
+		try (OutputStream out = new FileOutputStream(new File(root, ASSET))) {
+			out.write(body);
+		}
+		ServerConfig config = new ServerConfig();
+		config.port = 0;
+		server = new MyServer(null, root, message -> { }, config);
+		request = new HttpRequest();
+		byte[] raw = BenchmarkData.webViewRequest("/" + ASSET);
+		if (!request.parse(raw, 0, raw.length)) throw new IllegalStateException("Solicitud vacía");
+		// La primera solicitud comprime y llena la caché
+		int status = server.respond(request, null).getStatusCode();
+		if (status != 200) throw new IllegalStateException("Estado inesperado " + status);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		server.stopServer();
+		File[] files = { new File(root, ASSET), new File(root, "assets"), root };
+		for (File file : files) {
+			file.delete();
+		}
+	}
+
+	@Benchmark
+	public HttpResponse cachedHit() throws IOException {
+		return server.respond(request, null);
+	}
+
+	@Benchmark
+	public byte[] buildHeaders() {
+		return new HttpResponse("200 OK")
+			.header("Access-Control-Allow-Origin", "*")
+			.header("Content-Type", "application/javascript; charset=utf-8")
+			.header("Cache-Control", "public, max-age=31536000, immutable")
+			.header("ETag", "\"4f2a9c1e-c000\"")
+			.header("Last-Modified", HttpValidators.formatDate(1_700_000_000_000L))
+			.header("Vary", "Accept-Encoding")
+			.header("Content-Encoding", "gzip")
+			.body(body)
+			.encodeHead();
+	}
+}
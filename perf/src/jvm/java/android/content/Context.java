@@ -0,0 +1,5 @@
+package android.content;
+
+// Sustituto vacío para compilar el servidor fuera de Android; MyServer solo lo pasa a FileUtil
+public class Context {
+}
@@ -0,0 +1,4 @@
+package android.provider;
+
+public class MediaStore {
+}
@@ -0,0 +1,48 @@
+package com.server;
+
+import android.content.Context;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// Sustituto de FileUtil para la JVM de escritorio: en lugar de MediaStore guarda cada
+// inventario en el directorio de la propiedad perf.uploadDir, o lo descarta si no está definida.
+public class FileUtil {
+
+	private static final int BUFFER_SIZE = 16 * 1024;
+
+	public static boolean saveJsonToPublicDocuments(Context context, String content, String filename) {
+		try {
+			return saveJsonToPublicDocuments(context, new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), filename);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	public static boolean saveJsonToPublicDocuments(Context context, InputStream content, String filename) throws IOException {
+		String dir = System.getProperty("perf.uploadDir");
+		byte[] buffer = new byte[BUFFER_SIZE];
+		if (dir == null) {
+			while (content.read(buffer) != -1) {
+				// Solo se consume, como si se escribiera
+			}
+			return true;
+		}
+		File target = File.createTempFile(filename.replace(':', '-').replace(".json", "-"), ".json", new File(dir));
+		try (OutputStream out = new FileOutputStream(target)) {
+			int read;
+			while ((read = content.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+		} catch (IOException e) {
+			target.delete();
+			throw e;
+		}
+		return true;
+	}
+}
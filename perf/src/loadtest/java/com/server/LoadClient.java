@@ -0,0 +1,172 @@
+package com.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+// Cliente HTTP/1.1 mínimo con una conexión persistente, como las que abre el WebView. Vuelve a
+// conectar cuando el servidor pide cerrar; el cuerpo de la respuesta solo se cuenta, no se guarda.
+final class LoadClient implements AutoCloseable {
+	private static final int TIMEOUT_MS = 30_000;
+
+	private final InetSocketAddress address;
+	private final String host;
+	private final byte[] skip = new byte[16 * 1024];
+	private final StringBuilder line = new StringBuilder(128);
+	private Socket socket;
+	private InputStream in;
+	private OutputStream out;
+
+	// Resultado de la última respuesta
+	int status;
+	long bodyBytes;
+
+	LoadClient(InetSocketAddress address) {
+		this.address = address;
+		this.host = address.getHostString() + ":" + address.getPort();
+	}
+
+	// GET path; devuelve el código de estado
+	int get(String path, boolean gzip) throws IOException {
+		connect();
+		String request = "GET " + path + " HTTP/1.1\r\n" +
+			"Host: " + host + "\r\n" +
+			"Accept: */*\r\n" +
+			(gzip ? "Accept-Encoding: gzip, deflate, br\r\n" : "") +
+			"\r\n";
+		out.write(request.getBytes(StandardCharsets.ISO_8859_1));
+		out.flush();
+		return readResponse();
+	}
+
+	// POST /upload con el inventario como cuerpo (Content-Length)
+	int upload(byte[] json) throws IOException {
+		connect();
+		String head = "POST /upload HTTP/1.1\r\n" +
+			"Host: " + host + "\r\n" +
+			"Content-Type: application/json\r\n" +
+			"Content-Length: " + json.length + "\r\n" +
+			"\r\n";
+		out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+		out.write(json);
+		out.flush();
+		return readResponse();
+	}
+
+	private void connect() throws IOException {
+		if (socket != null) return;
+		Socket connection = new Socket();
+		connection.setTcpNoDelay(true);
+		connection.setSoTimeout(TIMEOUT_MS);
+		connection.connect(address, TIMEOUT_MS);
+		socket = connection;
+		in = new BufferedInputStream(connection.getInputStream(), 16 * 1024);
+		out = new BufferedOutputStream(connection.getOutputStream(), 8 * 1024);
+	}
+
+	private int readResponse() throws IOException {
+		try {
+			String statusLine = readLine();
+			if (!statusLine.startsWith("HTTP/1.1 ") || statusLine.length() < 12) {
+				throw new ProtocolException("Línea de estado inválida: " + statusLine);
+			}
+			status = Integer.parseInt(statusLine.substring(9, 12));
+			long contentLength = -1;
+			boolean chunked = false;
+			boolean close = false;
+			String header;
+			while (!(header = readLine()).isEmpty()) {
+				int colon = header.indexOf(':');
+				if (colon < 0) continue;
+				String name = header.substring(0, colon).trim();
+				String value = header.substring(colon + 1).trim();
+				if (name.equalsIgnoreCase("Content-Length")) {
+					contentLength = Long.parseLong(value);
+				} else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+					chunked = value.equalsIgnoreCase("chunked");
+				} else if (name.equalsIgnoreCase("Connection")) {
+					close = value.equalsIgnoreCase("close");
+				}
+			}
+			if (chunked) {
+				bodyBytes = readChunked();
+			} else if (contentLength >= 0) {
+				skipFully(contentLength);
+				bodyBytes = contentLength;
+			} else {
+				// Sin longitud el cuerpo termina al cerrar la conexión
+				bodyBytes = skipToEnd();
+				close = true;
+			}
+			if (close) close();
+			return status;
+		} catch (IOException | RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	private long readChunked() throws IOException {
+		long total = 0;
+		while (true) {
+			String size = readLine();
+			int extension = size.indexOf(';');
+			long length = Long.parseLong((extension >= 0 ? size.substring(0, extension) : size).trim(), 16);
+			if (length == 0) {
+				// Trailers hasta la línea vacía
+				while (!readLine().isEmpty()) {
+				}
+				return total;
+			}
+			skipFully(length);
+			total += length;
+			readLine();
+		}
+	}
+
+	private String readLine() throws IOException {
+		line.setLength(0);
+		int b;
+		while ((b = in.read()) != '\n') {
+			if (b == -1) throw new EOFException("Conexión cerrada por el servidor");
+			if (b != '\r') line.append((char) b);
+		}
+		return line.toString();
+	}
+
+	private void skipFully(long length) throws IOException {
+		while (length > 0) {
+			int read = in.read(skip, 0, (int) Math.min(skip.length, length));
+			if (read == -1) throw new EOFException("Cuerpo incompleto");
+			length -= read;
+		}
+	}
+
+	private long skipToEnd() throws IOException {
+		long total = 0;
+		int read;
+		while ((read = in.read(skip)) != -1) {
+			total += read;
+		}
+		return total;
+	}
+
+	@Override
+	public void close() {
+		if (socket == null) return;
+		try {
+			socket.close();
+		} catch (IOException ignored) {
+		}
+		socket = null;
+		in = null;
+		out = null;
+	}
+}
@@ -0,0 +1,409 @@
+package com.server;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Prueba de carga de extremo a extremo por loopback. Levanta un MyServer en esta misma JVM (o
+// apunta a uno externo con --target) y ejecuta dos escenarios:
+//  - spa: repite la carga de una página (index.html y después todos sus chunks en paralelo por
+//    varias conexiones, como el WebView), con y sin gzip.
+//  - mixed: tráfico sostenido de GET y POST /upload con una concurrencia fija durante un tiempo.
+// Informa p50/p99/p999, rendimiento, errores y la RSS y los hilos máximos del proceso.
+public final class LoadTest {
+	private static final String USAGE = String.join("\n",
+		"Uso: gradle -p perf loadtest -PloadArgs=\"[opciones]\"",
+		"  --scenario=spa|mixed|all   escenarios a ejecutar (all)",
+		"  --target=host:puerto       servidor externo; por defecto uno local en esta JVM",
+		"  --engine=BLOCKING|NIO      motor del servidor local (BLOCKING)",
+		"  --storage=MEDIASTORE|JOURNAL  almacenamiento de las subidas (MEDIASTORE)",
+		"  --upload-dir=dir           guarda las subidas MEDIASTORE ahí (por defecto se descartan)",
+		"  --static=dir               dist de Vite a servir; por defecto uno sintético",
+		"  --paths=archivo            carga grabada: una ruta por línea, la primera es el documento",
+		"  --chunks=N --chunk-kb=K    tamaño del dist sintético (24 chunks de ~48 KB)",
+		"  --pages=N                  cargas de página por variante (50)",
+		"  --parallel=N               conexiones por carga de página (6)",
+		"  --concurrency=N            clientes del escenario mixed (32)",
+		"  --duration=S               segundos del escenario mixed (20)",
+		"  --upload-ratio=R           fracción de subidas en mixed (0.1)",
+		"  --upload-kb=K              tamaño de cada inventario (64)",
+		"  --verbose                  muestra el log del servidor");
+
+	private final Map<String, String> options;
+	private InetSocketAddress address;
+	private List<String> paths;
+
+	private LoadTest(Map<String, String> options) {
+		this.options = options;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new HashMap<>();
+		for (String arg : args) {
+			if (!arg.startsWith("--")) {
+				System.err.println(USAGE);
+				System.exit(2);
+			}
+			int equals = arg.indexOf('=');
+			if (equals < 0) {
+				options.put(arg.substring(2), "true");
+			} else {
+				options.put(arg.substring(2, equals), arg.substring(equals + 1));
+			}
+		}
+		if (options.containsKey("help")) {
+			System.out.println(USAGE);
+			return;
+		}
+		boolean failed = new LoadTest(options).run();
+		System.exit(failed ? 1 : 0);
+	}
+
+	// Devuelve true si alguna solicitud falló
+	private boolean run() throws Exception {
+		String scenario = option("scenario", "all");
+		String target = options.get("target");
+		File siteDir = null;
+		File tempDir = null;
+		MyServer server = null;
+		Thread serverThread = null;
+		boolean failed = false;
+
+		try {
+			if (target != null) {
+				int colon = target.lastIndexOf(':');
+				address = new InetSocketAddress(target.substring(0, colon), Integer.parseInt(target.substring(colon + 1)));
+				if (options.containsKey("static")) siteDir = new File(options.get("static"));
+			} else {
+				tempDir = Files.createTempDirectory("server-load").toFile();
+				siteDir = options.containsKey("static") ? new File(options.get("static")) : writeSyntheticSite(new File(tempDir, "dist"));
+				if (options.containsKey("upload-dir")) System.setProperty("perf.uploadDir", options.get("upload-dir"));
+				ServerConfig config = new ServerConfig();
+				config.port = freePort();
+				config.engine = ServerConfig.Engine.valueOf(option("engine", "BLOCKING").toUpperCase(Locale.ROOT));
+				config.storage = ServerConfig.Storage.valueOf(option("storage", "MEDIASTORE").toUpperCase(Locale.ROOT));
+				config.journalDir = new File(tempDir, "inventarios");
+				boolean verbose = options.containsKey("verbose");
+				server = new MyServer(null, siteDir, message -> {
+					if (verbose) System.err.println("[servidor] " + message);
+				}, config);
+				serverThread = new Thread(server, "server");
+				serverThread.start();
+				address = new InetSocketAddress("127.0.0.1", config.port);
+				waitForServer();
+				System.out.println("Servidor local " + config.engine + " en " + address + " sirviendo " + siteDir);
+			}
+			paths = loadPaths(siteDir);
+			System.out.println("Carga de página: " + paths.get(0) + " + " + (paths.size() - 1) + " archivos");
+
+			ProcessStats stats = new ProcessStats();
+			try {
+				if (scenario.equals("spa") || scenario.equals("all")) {
+					failed |= replaySpa(false);
+					failed |= replaySpa(true);
+				}
+				if (scenario.equals("mixed") || scenario.equals("all")) {
+					failed |= mixed();
+				}
+			} finally {
+				stats.close();
+			}
+			// Los máximos se leen con el muestreo ya detenido
+			if (server != null) {
+				System.out.println();
+				System.out.println("Caché: " + server.getCache().getStats());
+				System.out.println(String.format(Locale.ROOT, "Proceso (servidor y generador en la misma JVM): %s máxima %.1f MB, %d hilos como máximo",
+					ProcessStats.hasProcRss() ? "RSS" : "heap", stats.getPeakRssBytes() / (1024.0 * 1024), stats.getPeakThreads()));
+			}
+		} finally {
+			if (server != null) {
+				server.stopServer();
+				serverThread.join(TimeUnit.SECONDS.toMillis(5));
+			}
+			if (tempDir != null) deleteTree(tempDir.toPath());
+		}
+		return failed;
+	}
+
+	// Cargas de página completas: el documento y después los chunks repartidos entre varias
+	// conexiones nuevas, como una carga en frío del WebView. La primera carga no se mide (llena la caché).
+	private boolean replaySpa(boolean gzip) throws Exception {
+		int pages = intOption("pages", 50);
+		int parallel = intOption("parallel", 6);
+		LatencyHistogram pageLatency = new LatencyHistogram();
+		Result requests = new Result();
+		ExecutorService pool = Executors.newFixedThreadPool(parallel);
+		try {
+			loadPage(pool, parallel, gzip, new Result());
+			long start = System.nanoTime();
+			for (int i = 0; i < pages; i++) {
+				long pageStart = System.nanoTime();
+				loadPage(pool, parallel, gzip, requests);
+				pageLatency.recordNanos(System.nanoTime() - pageStart);
+			}
+			requests.elapsedNanos = System.nanoTime() - start;
+		} finally {
+			pool.shutdownNow();
+		}
+		System.out.println();
+		System.out.println("== SPA " + (gzip ? "con" : "sin") + " gzip: " + pages + " cargas, " + parallel + " conexiones ==");
+		System.out.println("  página      " + percentiles(pageLatency));
+		requests.print("solicitudes");
+		return requests.failed();
+	}
+
+	private void loadPage(ExecutorService pool, int parallel, boolean gzip, Result result) throws Exception {
+		try (LoadClient document = new LoadClient(address)) {
+			timedGet(document, paths.get(0), gzip, result);
+		}
+		AtomicInteger next = new AtomicInteger(1);
+		List<Future<?>> connections = new ArrayList<>(parallel);
+		for (int i = 0; i < parallel; i++) {
+			connections.add(pool.submit(() -> {
+				try (LoadClient client = new LoadClient(address)) {
+					int index;
+					while ((index = next.getAndIncrement()) < paths.size()) {
+						timedGet(client, paths.get(index), gzip, result);
+					}
+				}
+				return null;
+			}));
+		}
+		for (Future<?> connection : connections) {
+			connection.get();
+		}
+	}
+
+	// Clientes con conexión persistente que durante un tiempo fijo alternan GET de archivos de la
+	// página y subidas de inventarios
+	private boolean mixed() throws Exception {
+		int concurrency = intOption("concurrency", 32);
+		long durationNanos = TimeUnit.SECONDS.toNanos(intOption("duration", 20));
+		double uploadRatio = Double.parseDouble(option("upload-ratio", "0.1"));
+		int uploadBytes = intOption("upload-kb", 64) * 1024;
+		byte[][] inventories = new byte[8][];
+		for (int i = 0; i < inventories.length; i++) {
+			inventories[i] = BenchmarkData.inventoryJson(uploadBytes, i);
+		}
+
+		Result gets = new Result();
+		Result uploads = new Result();
+		ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+		long start = System.nanoTime();
+		long deadline = start + durationNanos;
+		try {
+			List<Future<?>> clients = new ArrayList<>(concurrency);
+			for (int i = 0; i < concurrency; i++) {
+				clients.add(pool.submit(() -> {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					try (LoadClient client = new LoadClient(address)) {
+						while (System.nanoTime() < deadline) {
+							if (random.nextDouble() < uploadRatio) {
+								timedUpload(client, inventories[random.nextInt(inventories.length)], uploads);
+							} else {
+								timedGet(client, paths.get(random.nextInt(paths.size())), true, gets);
+							}
+						}
+					}
+					return null;
+				}));
+			}
+			for (Future<?> client : clients) {
+				client.get();
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		long elapsed = System.nanoTime() - start;
+		gets.elapsedNanos = elapsed;
+		uploads.elapsedNanos = elapsed;
+		System.out.println();
+		System.out.println("== Mixto: " + concurrency + " clientes, " + TimeUnit.NANOSECONDS.toSeconds(durationNanos)
+			+ " s, " + Math.round(uploadRatio * 100) + "% subidas de " + uploadBytes / 1024 + " KB ==");
+		gets.print("GET");
+		uploads.print("subidas");
+		return gets.failed() || uploads.failed();
+	}
+
+	private void timedGet(LoadClient client, String path, boolean gzip, Result result) {
+		long start = System.nanoTime();
+		try {
+			int status = client.get(path, gzip);
+			result.record(status, client.bodyBytes, System.nanoTime() - start);
+		} catch (IOException | RuntimeException e) {
+			result.ioError(e);
+		}
+	}
+
+	private void timedUpload(LoadClient client, byte[] inventory, Result result) {
+		long start = System.nanoTime();
+		try {
+			int status = client.upload(inventory);
+			result.record(status, inventory.length, System.nanoTime() - start);
+		} catch (IOException | RuntimeException e) {
+			result.ioError(e);
+		}
+	}
+
+	// Rutas de la carga grabada: --paths, o index.html y todo lo que hay en assets/ del dist
+	private List<String> loadPaths(File siteDir) throws IOException {
+		List<String> recorded = new ArrayList<>();
+		if (options.containsKey("paths")) {
+			for (String line : Files.readAllLines(new File(options.get("paths")).toPath(), StandardCharsets.UTF_8)) {
+				line = line.trim();
+				if (!line.isEmpty() && !line.startsWith("#")) recorded.add(line);
+			}
+		} else if (siteDir != null) {
+			recorded.add("/index.html");
+			Path root = siteDir.toPath();
+			Path assets = root.resolve("assets");
+			if (Files.isDirectory(assets)) {
+				List<String> found = new ArrayList<>();
+				try (Stream<Path> files = Files.walk(assets)) {
+					files.filter(Files::isRegularFile)
+						.filter(file -> !file.toString().endsWith(".gz") && !file.toString().endsWith(".br"))
+						.forEach(file -> found.add("/" + root.relativize(file).toString().replace(File.separatorChar, '/')));
+				}
+				Collections.sort(found);
+				recorded.addAll(found);
+			}
+		}
+		if (recorded.isEmpty()) {
+			throw new IllegalArgumentException("Sin rutas: con --target hace falta --paths o --static");
+		}
+		return recorded;
+	}
+
+	// Dist con la forma del de Vite: index.html que referencia los chunks de assets/
+	private File writeSyntheticSite(File dir) throws IOException {
+		int chunks = intOption("chunks", 24);
+		int chunkBytes = intOption("chunk-kb", 48) * 1024;
+		File assets = new File(dir, "assets");
+		if (!assets.mkdirs()) throw new IOException("No se pudo crear " + assets);
+		Random random = new Random(7);
+		StringBuilder html = new StringBuilder("<!doctype html>\n<html lang=\"es\">\n<head>\n<meta charset=\"UTF-8\">\n<title>Inventario</title>\n");
+		for (int i = 0; i < chunks; i++) {
+			boolean css = i % 8 == 7;
+			String name = (i == 0 ? "index" : "chunk" + i) + "-" + Integer.toHexString(0x10000000 + random.nextInt(0x0fffffff)) + (css ? ".css" : ".js");
+			// Tamaños entre la mitad y el doble del indicado
+			int size = Math.max(1024, (int) (chunkBytes * (0.5 + random.nextDouble() * 1.5)));
+			writeFile(new File(assets, name), BenchmarkData.viteBundle(size, i));
+			html.append(css
+				? "<link rel=\"stylesheet\" href=\"/assets/" + name + "\">\n"
+				: "<script type=\"module\" crossorigin src=\"/assets/" + name + "\"></script>\n");
+		}
+		html.append("</head>\n<body>\n<div id=\"root\"></div>\n</body>\n</html>\n");
+		writeFile(new File(dir, "index.html"), html.toString().getBytes(StandardCharsets.UTF_8));
+		return dir;
+	}
+
+	private static void writeFile(File file, byte[] content) throws IOException {
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(content);
+		}
+	}
+
+	private void waitForServer() throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (System.nanoTime() < deadline) {
+			try (Socket probe = new Socket()) {
+				probe.connect(address, 200);
+				return;
+			} catch (IOException e) {
+				Thread.sleep(20);
+			}
+		}
+		throw new IllegalStateException("El servidor no aceptó conexiones en " + address);
+	}
+
+	private static int freePort() throws IOException {
+		try (ServerSocket probe = new ServerSocket(0)) {
+			return probe.getLocalPort();
+		}
+	}
+
+	private static void deleteTree(Path root) throws IOException {
+		try (Stream<Path> files = Files.walk(root)) {
+			files.sorted(Collections.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	private String option(String name, String fallback) {
+		String value = options.get(name);
+		return value != null ? value : fallback;
+	}
+
+	private int intOption(String name, int fallback) {
+		String value = options.get(name);
+		return value != null ? Integer.parseInt(value) : fallback;
+	}
+
+	private static String percentiles(LatencyHistogram histogram) {
+		return String.format(Locale.ROOT, "n=%d  p50 %s  p99 %s  p999 %s  máx %s", histogram.getCount(),
+			millis(histogram.getPercentileMicros(0.50)), millis(histogram.getPercentileMicros(0.99)),
+			millis(histogram.getPercentileMicros(0.999)), millis(histogram.getMaxMicros()));
+	}
+
+	private static String millis(long micros) {
+		return String.format(Locale.ROOT, "%.2f ms", micros / 1000.0);
+	}
+
+	// Latencias y contadores de un grupo de solicitudes; lo comparten todos los hilos del escenario
+	private static final class Result {
+		final LatencyHistogram latency = new LatencyHistogram();
+		final AtomicLong bytes = new AtomicLong();
+		final AtomicLong httpErrors = new AtomicLong();
+		final AtomicLong ioErrors = new AtomicLong();
+		volatile String lastError;
+		long elapsedNanos;
+
+		void record(int status, long bodyBytes, long nanos) {
+			latency.recordNanos(nanos);
+			bytes.addAndGet(bodyBytes);
+			if (status >= 400) {
+				httpErrors.incrementAndGet();
+				lastError = "HTTP " + status;
+			}
+		}
+
+		void ioError(Exception e) {
+			ioErrors.incrementAndGet();
+			lastError = e.toString();
+		}
+
+		boolean failed() {
+			return httpErrors.get() + ioErrors.get() > 0;
+		}
+
+		void print(String label) {
+			double seconds = elapsedNanos / 1e9;
+			System.out.println(String.format(Locale.ROOT, "  %-11s %s", label, percentiles(latency)));
+			System.out.println(String.format(Locale.ROOT, "  %-11s %.0f sol/s, %.1f MB/s, errores %d (HTTP %d, red %d)%s", "",
+				seconds > 0 ? latency.getCount() / seconds : 0, seconds > 0 ? bytes.get() / seconds / (1024 * 1024) : 0,
+				httpErrors.get() + ioErrors.get(), httpErrors.get(), ioErrors.get(),
+				lastError != null ? "; último: " + lastError : ""));
+		}
+	}
+}
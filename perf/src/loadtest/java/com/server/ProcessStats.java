@@ -0,0 +1,82 @@
+package com.server;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+// Muestrea la memoria residente y los hilos del proceso mientras dura una prueba. En Linux la RSS
+// sale de /proc/self/status; en otros sistemas se usa el heap ocupado como aproximación.
+final class ProcessStats implements AutoCloseable {
+	private static final long INTERVAL_MS = 50;
+
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	private final Thread sampler;
+	private volatile boolean running = true;
+	private volatile long peakRssBytes;
+
+	ProcessStats() {
+		threads.resetPeakThreadCount();
+		sample();
+		sampler = new Thread(() -> {
+			while (running) {
+				sample();
+				try {
+					Thread.sleep(INTERVAL_MS);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}, "load-stats");
+		sampler.setDaemon(true);
+		sampler.start();
+	}
+
+	private void sample() {
+		long rss = readRssBytes();
+		if (rss > peakRssBytes) peakRssBytes = rss;
+	}
+
+	long getPeakRssBytes() {
+		return peakRssBytes;
+	}
+
+	int getPeakThreads() {
+		return threads.getPeakThreadCount();
+	}
+
+	static boolean hasProcRss() {
+		return readStatus("VmRSS:") >= 0;
+	}
+
+	private static long readRssBytes() {
+		long rss = readStatus("VmRSS:");
+		if (rss >= 0) return rss;
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	// Valor en bytes de una línea "Clave:   1234 kB" de /proc/self/status; -1 si no existe
+	private static long readStatus(String key) {
+		try (BufferedReader reader = new BufferedReader(new FileReader("/proc/self/status"))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith(key)) {
+					String value = line.substring(key.length()).trim();
+					int space = value.indexOf(' ');
+					return Long.parseLong(space >= 0 ? value.substring(0, space) : value) * 1024;
+				}
+			}
+		} catch (IOException | NumberFormatException ignored) {
+		}
+		return -1;
+	}
+
+	@Override
+	public void close() {
+		running = false;
+		sampler.interrupt();
+		sample();
+	}
+}
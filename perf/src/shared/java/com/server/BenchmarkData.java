@@ -0,0 +1,81 @@
+package com.server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+// Datos de entrada comunes a los benchmarks y a la prueba de carga: solicitudes como las que
+// envía el WebView, bundles de JavaScript con la forma de los que genera Vite e inventarios JSON
+final class BenchmarkData {
+
+	private BenchmarkData() {
+	}
+
+	static byte[] webViewRequest(String path) {
+		return ("GET " + path + " HTTP/1.1\r\n" +
+			"Host: 127.0.0.1:8080\r\n" +
+			"Connection: keep-alive\r\n" +
+			"sec-ch-ua: \"Chromium\";v=\"118\", \"Android WebView\";v=\"118\", \"Not=A?Brand\";v=\"99\"\r\n" +
+			"sec-ch-ua-mobile: ?1\r\n" +
+			"User-Agent: Mozilla/5.0 (Linux; Android 12; SM-A125M Build/SP1A.210812.016; wv) AppleWebKit/537.36 (KHTML, like Gecko) Version/4.0 Chrome/118.0.5993.111 Mobile Safari/537.36\r\n" +
+			"sec-ch-ua-platform: \"Android\"\r\n" +
+			"Accept: */*\r\n" +
+			"X-Requested-With: com.server\r\n" +
+			"Sec-Fetch-Site: same-origin\r\n" +
+			"Sec-Fetch-Mode: no-cors\r\n" +
+			"Sec-Fetch-Dest: script\r\n" +
+			"Referer: http://127.0.0.1:8080/index.html\r\n" +
+			"Accept-Encoding: gzip, deflate, br\r\n" +
+			"Accept-Language: es-ES,es;q=0.9\r\n" +
+			"\r\n").getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	// JavaScript minificado sintético: identificadores cortos, literales y llamadas repetidas
+	// con variaciones, para que la compresión se parezca a la de un chunk real
+	static byte[] viteBundle(int size) {
+		return viteBundle(size, 42);
+	}
+
+	static byte[] viteBundle(int size, long seed) {
+		String[] words = { "function", "return", "const", "let", "this", "props", "state", "useState",
+			"useEffect", "createElement", "children", "className", "onClick", "value", "length",
+			"undefined", "Object", "assign", "prototype", "Promise", "then", "catch", "inventario" };
+		Random random = new Random(seed);
+		StringBuilder js = new StringBuilder(size + 64);
+		while (js.length() < size) {
+			switch (random.nextInt(5)) {
+				case 0:
+					js.append("function ").append((char) ('a' + random.nextInt(26))).append(random.nextInt(100))
+						.append("(e,t){return ");
+					break;
+				case 1:
+					js.append(words[random.nextInt(words.length)]).append('.').append(words[random.nextInt(words.length)]).append('(');
+					break;
+				case 2:
+					js.append("\"").append(words[random.nextInt(words.length)]).append('-').append(random.nextInt(10000)).append("\",");
+					break;
+				case 3:
+					js.append("}),");
+					break;
+				default:
+					js.append(random.nextInt(1 << 16)).append(';');
+			}
+		}
+		js.setLength(size);
+		return js.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	// Inventario como el que sube la aplicación web: una lista de artículos con código y cantidad
+	static byte[] inventoryJson(int size, long seed) {
+		Random random = new Random(seed);
+		StringBuilder json = new StringBuilder(size + 128);
+		json.append("{\"tienda\":\"IPV\",\"articulos\":[");
+		while (json.length() < size) {
+			json.append("{\"codigo\":\"").append(7500000000000L + random.nextInt(1_000_000))
+				.append("\",\"descripcion\":\"Artículo ").append(random.nextInt(5000))
+				.append("\",\"cantidad\":").append(random.nextInt(500)).append("},");
+		}
+		json.setCharAt(json.length() - 1, ']');
+		json.append('}');
+		return json.toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
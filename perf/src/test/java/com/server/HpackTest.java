@@ -0,0 +1,206 @@
+package com.server;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.ProtocolException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Ejemplos del apéndice C de la RFC 7541 (cada secuencia comparte decodificador, como los bloques
+// de una misma conexión) e ida y vuelta del codificador
+public class HpackTest {
+
+	@Test
+	public void literalWithIndexing() throws ProtocolException {
+		// C.2.1
+		Hpack.Decoder decoder = new Hpack.Decoder();
+		assertHeaders(decode(decoder, "400a637573746f6d2d6b65790d637573746f6d2d686561646572"),
+			"custom-key", "custom-header");
+		// La entrada quedó en la tabla dinámica (índice 62)
+		assertHeaders(decode(decoder, "be"), "custom-key", "custom-header");
+	}
+
+	@Test
+	public void literalWithoutIndexing() throws ProtocolException {
+		// C.2.2 y C.2.3 (nunca indexado): ninguno entra en la tabla
+		Hpack.Decoder decoder = new Hpack.Decoder();
+		assertHeaders(decode(decoder, "040c2f73616d706c652f70617468"), ":path", "/sample/path");
+		assertHeaders(decode(decoder, "100870617373776f726406736563726574"), "password", "secret");
+		expectCompressionError(decoder, "be");
+	}
+
+	@Test
+	public void indexedStatic() throws ProtocolException {
+		// C.2.4
+		assertHeaders(decode(new Hpack.Decoder(), "82"), ":method", "GET");
+	}
+
+	@Test
+	public void requestsWithoutHuffman() throws ProtocolException {
+		// C.3
+		Hpack.Decoder decoder = new Hpack.Decoder();
+		assertHeaders(decode(decoder, "828684410f7777772e6578616d706c652e636f6d"),
+			":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com");
+		assertHeaders(decode(decoder, "828684be58086e6f2d6361636865"),
+			":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com",
+			"cache-control", "no-cache");
+		assertHeaders(decode(decoder, "828785bf400a637573746f6d2d6b65790c637573746f6d2d76616c7565"),
+			":method", "GET", ":scheme", "https", ":path", "/index.html", ":authority", "www.example.com",
+			"custom-key", "custom-value");
+	}
+
+	@Test
+	public void requestsWithHuffman() throws ProtocolException {
+		// C.4
+		Hpack.Decoder decoder = new Hpack.Decoder();
+		assertHeaders(decode(decoder, "828684418cf1e3c2e5f23a6ba0ab90f4ff"),
+			":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com");
+		assertHeaders(decode(decoder, "828684be5886a8eb10649cbf"),
+			":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com",
+			"cache-control", "no-cache");
+		assertHeaders(decode(decoder, "828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf"),
+			":method", "GET", ":scheme", "https", ":path", "/index.html", ":authority", "www.example.com",
+			"custom-key", "custom-value");
+	}
+
+	@Test
+	public void responsesWithoutHuffman() throws ProtocolException {
+		// C.5, con la tabla de 256 bytes del ejemplo anunciada al principio del primer bloque
+		Hpack.Decoder decoder = new Hpack.Decoder();
+		assertHeaders(decode(decoder, "3fe101" +
+				"4803333032580770726976617465611d4d6f6e2c203231204f637420323031332032303a31333a323120474d54" +
+				"6e1768747470733a2f2f7777772e6578616d706c652e636f6d"),
+			":status", "302", "cache-control", "private", "date", "Mon, 21 Oct 2013 20:13:21 GMT",
+			"location", "https://www.example.com");
+		// ":status: 302" se desaloja para hacer sitio a ":status: 307"
+		assertHeaders(decode(decoder, "4803333037c1c0bf"),
+			":status", "307", "cache-control", "private", "date", "Mon, 21 Oct 2013 20:13:21 GMT",
+			"location", "https://www.example.com");
+		assertHeaders(decode(decoder, "88c1611d4d6f6e2c203231204f637420323031332032303a31333a323220474d54" +
+				"c05a04677a69707738666f6f3d4153444a4b48514b425a584f5157454f50495541585157454f49553b206d61782d" +
+				"6167653d333630303b2076657273696f6e3d31"),
+			":status", "200", "cache-control", "private", "date", "Mon, 21 Oct 2013 20:13:22 GMT",
+			"location", "https://www.example.com", "content-encoding", "gzip",
+			"set-cookie", "foo=ASDJKHQKBZXOQWEOPIUAXQWEOIU; max-age=3600; version=1");
+		// Solo quedan las tres entradas de C.5.3
+		expectCompressionError(decoder, "c1");
+	}
+
+	@Test
+	public void responsesWithHuffman() throws ProtocolException {
+		// C.6
+		Hpack.Decoder decoder = new Hpack.Decoder();
+		assertHeaders(decode(decoder, "3fe101" +
+				"488264025885aec3771a4b6196d07abe941054d444a8200595040b8166e082a62d1bff6e919d29ad171863c78f0b97c8e9ae82ae43d3"),
+			":status", "302", "cache-control", "private", "date", "Mon, 21 Oct 2013 20:13:21 GMT",
+			"location", "https://www.example.com");
+		assertHeaders(decode(decoder, "4883640effc1c0bf"),
+			":status", "307", "cache-control", "private", "date", "Mon, 21 Oct 2013 20:13:21 GMT",
+			"location", "https://www.example.com");
+		assertHeaders(decode(decoder, "88c16196d07abe941054d444a8200595040b8166e084a62d1bffc05a839bd9ab" +
+				"77ad94e7821dd7f2e6c7b335dfdfcd5b3960d5af27087f3672c1ab270fb5291f9587316065c003ed4ee5b1063d5007"),
+			":status", "200", "cache-control", "private", "date", "Mon, 21 Oct 2013 20:13:22 GMT",
+			"location", "https://www.example.com", "content-encoding", "gzip",
+			"set-cookie", "foo=ASDJKHQKBZXOQWEOPIUAXQWEOIU; max-age=3600; version=1");
+	}
+
+	@Test
+	public void encoderRoundTrip() throws ProtocolException {
+		String[] response = {
+			":status", "200", "content-type", "application/javascript", "access-control-allow-origin", "*",
+			"cache-control", "public, max-age=31536000, immutable", "vary", "Accept-Encoding",
+			"content-encoding", "gzip", "etag", "\"4f2a9c1e\"", "content-length", "12345",
+			"x-custom", "Ñandú"
+		};
+		Hpack.Encoder encoder = new Hpack.Encoder();
+		Hpack.Decoder decoder = new Hpack.Decoder();
+		byte[] first = encode(encoder, response);
+		assertHeaders(decode(decoder, first), response);
+		// Las cabeceras repetidas salen de la tabla dinámica; etag y content-length no se indexan
+		String[] next = response.clone();
+		next[15] = "\"77aa0b13\"";
+		next[17] = "678";
+		byte[] second = encode(encoder, next);
+		assertHeaders(decode(decoder, second), next);
+		assertTrue(second.length + " >= " + first.length, second.length < first.length / 2);
+	}
+
+	@Test
+	public void encoderAnnouncesSmallerTable() throws ProtocolException {
+		Hpack.Encoder encoder = new Hpack.Encoder();
+		Hpack.Decoder decoder = new Hpack.Decoder();
+		String[] headers = { ":status", "200", "content-type", "text/html; charset=utf-8" };
+		assertHeaders(decode(decoder, encode(encoder, headers)), headers);
+		// SETTINGS_HEADER_TABLE_SIZE = 0: la tabla se vacía y el siguiente bloque empieza con el cambio
+		encoder.setMaxTableSize(0);
+		byte[] block = encode(encoder, headers);
+		assertEquals(0x20, block[0] & 0xff);
+		assertHeaders(decode(decoder, block), headers);
+	}
+
+	@Test
+	public void huffmanDecoding() throws ProtocolException {
+		byte[] encoded = hex("f1e3c2e5f23a6ba0ab90f4ff");
+		assertEquals("www.example.com", Hpack.decodeHuffman(encoded, 0, encoded.length));
+	}
+
+	@Test
+	public void rejectsMalformedBlocks() {
+		// Índice 0, entero sin terminar, cadena más larga que el bloque, tabla mayor que la anunciada
+		expectCompressionError(new Hpack.Decoder(), "80");
+		expectCompressionError(new Hpack.Decoder(), "ffff");
+		expectCompressionError(new Hpack.Decoder(), "400a6375");
+		expectCompressionError(new Hpack.Decoder(), "3fe21f");
+		// Valor Huffman con relleno de más de 7 bits
+		expectCompressionError(new Hpack.Decoder(), "000161" + "82ffff");
+	}
+
+	private static List<String> decode(Hpack.Decoder decoder, String hex) throws ProtocolException {
+		return decode(decoder, hex(hex));
+	}
+
+	private static List<String> decode(Hpack.Decoder decoder, byte[] block) throws ProtocolException {
+		List<String> headers = new ArrayList<>();
+		decoder.decode(block, 0, block.length, (name, value) -> {
+			headers.add(name);
+			headers.add(value);
+		});
+		return headers;
+	}
+
+	private static byte[] encode(Hpack.Encoder encoder, String... headers) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (int i = 0; i < headers.length; i += 2) {
+			encoder.encode(out, headers[i], headers[i + 1]);
+		}
+		return out.toByteArray();
+	}
+
+	private static void assertHeaders(List<String> actual, String... expected) {
+		assertEquals(Arrays.asList(expected), actual);
+	}
+
+	private static void expectCompressionError(Hpack.Decoder decoder, String hex) {
+		try {
+			decode(decoder, hex);
+			fail("Bloque aceptado: " + hex);
+		} catch (Hpack.CompressionException expected) {
+		} catch (ProtocolException e) {
+			fail("Error inesperado: " + e);
+		}
+	}
+
+	private static byte[] hex(String hex) {
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+		}
+		return bytes;
+	}
+}
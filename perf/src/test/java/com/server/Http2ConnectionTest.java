@@ -0,0 +1,325 @@
+package com.server;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ProtocolException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+// Conexión h2c completa sobre flujos en memoria: el cliente escribe de antemano todos sus frames
+// y se comprueban los que responde el servidor hasta que la entrada se agota
+public class Http2ConnectionTest {
+	private static final int DATA = 0x0;
+	private static final int HEADERS = 0x1;
+	private static final int SETTINGS = 0x4;
+	private static final int PING = 0x6;
+	private static final int GOAWAY = 0x7;
+	private static final int WINDOW_UPDATE = 0x8;
+	private static final int CONTINUATION = 0x9;
+	private static final int END_STREAM = 0x1;
+	private static final int ACK = 0x1;
+	private static final int END_HEADERS = 0x4;
+	private static final int ENHANCE_YOUR_CALM = 0xb;
+
+	private static final byte[] PAGE = "<!doctype html><title>IPV</title>".getBytes(StandardCharsets.UTF_8);
+
+	private File root;
+	private MyServer server;
+	private ServerConfig config;
+	private byte[] video;
+
+	@Before
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("server-h2").toFile();
+		write("index.html", PAGE);
+		// Mayor que la ventana inicial de 65535 bytes
+		video = new byte[100 * 1024];
+		new Random(7).nextBytes(video);
+		write("video.bin", video);
+		config = new ServerConfig();
+		config.port = 0;
+		server = new MyServer(null, root, message -> { }, config);
+	}
+
+	@After
+	public void tearDown() {
+		server.stopServer();
+		File[] files = root.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		root.delete();
+	}
+
+	@Test
+	public void servesRequestOnStream() throws IOException {
+		Client client = new Client();
+		client.request(1, "/index.html");
+		List<Frame> frames = serve(client);
+
+		Frame settings = frames.get(0);
+		assertEquals(SETTINGS, settings.type);
+		assertEquals(0, settings.flags);
+		assertNotNull(find(frames, SETTINGS, ACK, 0));
+
+		Map<String, String> headers = client.headers(find(frames, HEADERS, -1, 1));
+		assertEquals("200", headers.get(":status"));
+		assertEquals("text/html", headers.get("content-type"));
+		// Sin cabeceras propias de HTTP/1.1
+		assertTrue(!headers.containsKey("connection") && !headers.containsKey("keep-alive"));
+		assertArrayEquals(PAGE, body(frames, 1));
+		assertEquals(END_STREAM, last(frames, DATA, 1).flags & END_STREAM);
+	}
+
+	@Test
+	public void multiplexesStreamsWithSharedHeaderTable() throws IOException {
+		Client client = new Client();
+		client.request(1, "/index.html");
+		client.request(3, "/assets/none.js");
+		client.request(5, "/index.html");
+		List<Frame> frames = serve(client);
+
+		assertEquals("200", client.headers(find(frames, HEADERS, -1, 1)).get(":status"));
+		assertEquals("404", client.headers(find(frames, HEADERS, -1, 3)).get(":status"));
+		Frame repeated = find(frames, HEADERS, -1, 5);
+		assertEquals("200", client.headers(repeated).get(":status"));
+		// La misma respuesta por segunda vez sale de la tabla dinámica, salvo ETag y fechas
+		assertTrue(repeated.payload.length < find(frames, HEADERS, -1, 1).payload.length);
+		assertArrayEquals(PAGE, body(frames, 5));
+	}
+
+	@Test
+	public void respectsInitialWindow() throws IOException {
+		Client client = new Client();
+		client.request(1, "/video.bin");
+		List<Frame> frames = serve(client);
+
+		// Sin WINDOW_UPDATE del cliente solo se envía la ventana inicial, sin terminar el stream
+		assertEquals(65535, body(frames, 1).length);
+		assertEquals(0, last(frames, DATA, 1).flags & END_STREAM);
+	}
+
+	@Test
+	public void resumesAfterWindowUpdate() throws IOException {
+		Client client = new Client();
+		client.request(1, "/video.bin");
+		client.windowUpdate(0, video.length);
+		client.windowUpdate(1, video.length);
+		List<Frame> frames = serve(client);
+
+		assertArrayEquals(video, body(frames, 1));
+		for (Frame frame : frames) {
+			assertTrue(frame.payload.length <= 16384);
+		}
+		assertEquals(END_STREAM, last(frames, DATA, 1).flags & END_STREAM);
+	}
+
+	@Test
+	public void answersPing() throws IOException {
+		Client client = new Client();
+		byte[] opaque = { 1, 2, 3, 4, 5, 6, 7, 8 };
+		client.frame(PING, 0, 0, opaque);
+		Frame pong = find(serve(client), PING, ACK, 0);
+		assertArrayEquals(opaque, pong.payload);
+	}
+
+	@Test
+	public void dataOnStreamZeroIsConnectionError() throws IOException {
+		Client client = new Client();
+		client.frame(DATA, 0, 0, new byte[4]);
+		client.request(1, "/index.html");
+		List<Frame> frames = serve(client);
+
+		Frame goAway = find(frames, GOAWAY, -1, 0);
+		assertEquals(1, readInt(goAway.payload, 4));
+		// Nada después del GOAWAY
+		assertEquals(goAway, frames.get(frames.size() - 1));
+	}
+
+	@Test
+	public void endlessContinuationIsRefused() throws IOException {
+		Client client = new Client();
+		// HEADERS sin END_HEADERS y CONTINUATION que nunca terminan el bloque
+		client.frame(HEADERS, END_STREAM, 1, new byte[] { (byte) 0x82 });
+		byte[] filler = new byte[16384];
+		for (int i = 0; i < 64; i++) {
+			client.frame(CONTINUATION, 0, 1, filler);
+		}
+		List<Frame> frames = serve(client);
+
+		Frame goAway = find(frames, GOAWAY, -1, 0);
+		assertEquals(ENHANCE_YOUR_CALM, readInt(goAway.payload, 4));
+		assertEquals(goAway, frames.get(frames.size() - 1));
+	}
+
+	@Test
+	public void expandingHeaderListIsRefused() throws IOException {
+		Client client = new Client();
+		// Un valor de 4000 bytes que entra en la tabla dinámica y se repite por índice (62)
+		ByteArrayOutputStream block = new ByteArrayOutputStream();
+		block.write(new byte[] { 0x40, 0x01, 'x', 0x7f, (byte) 0xa1, 0x1e }, 0, 6);
+		for (int i = 0; i < 4000; i++) {
+			block.write('a');
+		}
+		for (int i = 0; i < 1000; i++) {
+			block.write(0xbe);
+		}
+		client.frame(HEADERS, END_HEADERS | END_STREAM, 1, block.toByteArray());
+		List<Frame> frames = serve(client);
+
+		assertEquals(ENHANCE_YOUR_CALM, readInt(find(frames, GOAWAY, -1, 0).payload, 4));
+		for (Frame frame : frames) {
+			assertTrue(frame.type != HEADERS);
+		}
+	}
+
+	private List<Frame> serve(Client client) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Http2Connection connection = new Http2Connection(server, config,
+			new ByteArrayInputStream(client.input.toByteArray()), out);
+		connection.serveAfterPreface();
+		return frames(out.toByteArray());
+	}
+
+	private void write(String name, byte[] content) throws IOException {
+		try (OutputStream out = new FileOutputStream(new File(root, name))) {
+			out.write(content);
+		}
+	}
+
+	// Lo que envía el cliente a continuación de "PRI * HTTP/2.0\r\n\r\n", ya leído como solicitud
+	private static final class Client {
+		final ByteArrayOutputStream input = new ByteArrayOutputStream();
+		private final Hpack.Encoder encoder = new Hpack.Encoder();
+		private final Hpack.Decoder decoder = new Hpack.Decoder();
+
+		Client() {
+			byte[] preface = Http2Connection.PREFACE;
+			input.write(preface, preface.length - Http2Connection.PREFACE_TAIL, Http2Connection.PREFACE_TAIL);
+			frame(SETTINGS, 0, 0, new byte[0]);
+		}
+
+		void request(int streamId, String path) {
+			ByteArrayOutputStream block = new ByteArrayOutputStream();
+			encoder.encode(block, ":method", "GET");
+			encoder.encode(block, ":scheme", "http");
+			encoder.encode(block, ":authority", "127.0.0.1:8080");
+			encoder.encode(block, ":path", path);
+			frame(HEADERS, END_HEADERS | END_STREAM, streamId, block.toByteArray());
+		}
+
+		void windowUpdate(int streamId, int increment) {
+			byte[] payload = new byte[4];
+			putInt(payload, increment);
+			frame(WINDOW_UPDATE, 0, streamId, payload);
+		}
+
+		void frame(int type, int flags, int streamId, byte[] payload) {
+			int length = payload.length;
+			input.write(length >>> 16);
+			input.write(length >>> 8);
+			input.write(length);
+			input.write(type);
+			input.write(flags);
+			byte[] id = new byte[4];
+			putInt(id, streamId);
+			input.write(id, 0, 4);
+			input.write(payload, 0, length);
+		}
+
+		// Los bloques se decodifican en el orden en que se piden, igual que los recibiría el cliente
+		Map<String, String> headers(Frame frame) throws ProtocolException {
+			Map<String, String> headers = new HashMap<>();
+			decoder.decode(frame.payload, 0, frame.payload.length, headers::put);
+			return headers;
+		}
+	}
+
+	private static final class Frame {
+		final int type;
+		final int flags;
+		final int streamId;
+		final byte[] payload;
+
+		Frame(int type, int flags, int streamId, byte[] payload) {
+			this.type = type;
+			this.flags = flags;
+			this.streamId = streamId;
+			this.payload = payload;
+		}
+	}
+
+	private static List<Frame> frames(byte[] output) {
+		List<Frame> frames = new ArrayList<>();
+		int position = 0;
+		while (position < output.length) {
+			int length = ((output[position] & 0xff) << 16) | ((output[position + 1] & 0xff) << 8) | (output[position + 2] & 0xff);
+			int type = output[position + 3] & 0xff;
+			int flags = output[position + 4] & 0xff;
+			int streamId = readInt(output, position + 5) & 0x7fffffff;
+			byte[] payload = new byte[length];
+			System.arraycopy(output, position + 9, payload, 0, length);
+			frames.add(new Frame(type, flags, streamId, payload));
+			position += 9 + length;
+		}
+		assertEquals(output.length, position);
+		return frames;
+	}
+
+	// flags = -1: cualquiera
+	private static Frame find(List<Frame> frames, int type, int flags, int streamId) {
+		for (Frame frame : frames) {
+			if (frame.type == type && frame.streamId == streamId && (flags < 0 || frame.flags == flags)) return frame;
+		}
+		throw new AssertionError("Sin frame " + type + " en el stream " + streamId);
+	}
+
+	private static Frame last(List<Frame> frames, int type, int streamId) {
+		Frame last = null;
+		for (Frame frame : frames) {
+			if (frame.type == type && frame.streamId == streamId) last = frame;
+		}
+		assertNotNull(last);
+		return last;
+	}
+
+	private static byte[] body(List<Frame> frames, int streamId) {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		for (Frame frame : frames) {
+			if (frame.type == DATA && frame.streamId == streamId) body.write(frame.payload, 0, frame.payload.length);
+		}
+		return body.toByteArray();
+	}
+
+	private static int readInt(byte[] data, int offset) {
+		return ((data[offset] & 0xff) << 24) | ((data[offset + 1] & 0xff) << 16)
+			| ((data[offset + 2] & 0xff) << 8) | (data[offset + 3] & 0xff);
+	}
+
+	private static void putInt(byte[] target, int value) {
+		target[0] = (byte) (value >>> 24);
+		target[1] = (byte) (value >>> 16);
+		target[2] = (byte) (value >>> 8);
+		target[3] = (byte) value;
+	}
+}
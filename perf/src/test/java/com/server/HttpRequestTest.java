@@ -0,0 +1,59 @@
+package com.server;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Nombres de cabecera sin distinguir mayúsculas y delimitación del cuerpo por Content-Length
+public class HttpRequestTest {
+
+	@Test
+	public void headerNamesFoldOnlyLetters() throws IOException {
+		HttpRequest request = parse("CONTENT-Length: 5", "Accept-Encoding: gzip");
+		assertEquals(5, request.getContentLength());
+		assertEquals("gzip", request.getHeader("accept-encoding"));
+
+		// \r, @ y [ no son variantes en mayúsculas de -, ` y {
+		request = parse("Content\rLength: 5", "Accept@Encoding: gzip", "X[a: 1");
+		assertEquals(-1, request.getContentLength());
+		assertFalse(request.hasBody());
+		assertFalse(request.hasHeader("accept`encoding"));
+		assertFalse(request.hasHeader("x{a"));
+	}
+
+	@Test
+	public void repeatedEqualContentLengthIsAccepted() throws IOException {
+		HttpRequest request = parse("Content-Length: 12", "content-length: 12");
+		assertEquals(12, request.getContentLength());
+		assertTrue(request.hasBody());
+	}
+
+	@Test
+	public void conflictingContentLengthIsRejected() throws IOException {
+		try {
+			parse("Content-Length: 12", "Content-Length: 0");
+			fail("Se esperaba ProtocolException");
+		} catch (ProtocolException e) {
+			// malformedRequest responde 400, no 431
+			assertFalse(e instanceof HttpRequest.HeaderTooLargeException);
+		}
+	}
+
+	private static HttpRequest parse(String... headers) throws IOException {
+		StringBuilder head = new StringBuilder("POST /upload HTTP/1.1\r\n");
+		for (String header : headers) {
+			head.append(header).append("\r\n");
+		}
+		byte[] bytes = head.append("\r\n").toString().getBytes(StandardCharsets.ISO_8859_1);
+		HttpRequest request = new HttpRequest();
+		request.parse(bytes, 0, bytes.length);
+		return request;
+	}
+}
@@ -0,0 +1,201 @@
+package com.server;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// Indexado de subidas a través de indexing() y consultas paginadas, también tras reabrir
+public class InventoryIndexTest {
+	private File dir;
+	private ServerConfig config;
+	private InventoryIndex index;
+	private InventoryStore store;
+	// Lo que llegó al almacenamiento envuelto
+	private final List<String> saved = new ArrayList<>();
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("inventory-index").toFile();
+		config = new ServerConfig();
+		open();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		index.close();
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void indexesUploadWhileSaving() throws IOException {
+		String json = "{\"tienda\":\"Centro\",\"articulos\":["
+			+ "{\"codigo\":\"750\",\"cantidad\":3},"
+			+ "{\"codigo\":\"751\",\"cantidad\":\"2,5\"},"
+			+ "{\"codigo\":\"750\",\"cantidad\":4},"
+			+ "{\"codigo\":\"752\"}]}";
+		upload("IPV_1.json", json);
+		// El almacenamiento recibe los bytes sin cambios
+		assertEquals(json, saved.get(0));
+		assertEquals(1, index.getInventoryCount());
+
+		InventoryIndex.Inventory inventory = index.inventories(Long.MIN_VALUE, Long.MAX_VALUE, null, -1, 10).items.get(0);
+		assertEquals("IPV_1.json", inventory.name);
+		assertEquals("Centro", inventory.location);
+		// Las líneas repetidas se suman; sin cantidad cuenta una unidad
+		assertEquals(3, inventory.lines);
+		assertEquals(10.5, inventory.quantity, 0);
+
+		List<InventoryIndex.Line> lines = index.lines(inventory.id, -1, 10).items;
+		assertEquals(3, lines.size());
+		assertLine(lines.get(0), "750", "Centro", 7);
+		assertLine(lines.get(1), "751", "Centro", 2.5);
+		assertLine(lines.get(2), "752", "Centro", 1);
+		assertNull(index.lines(5, -1, 10));
+	}
+
+	@Test
+	public void invalidJsonIsSavedButNotIndexed() throws IOException {
+		upload("roto.json", "{\"codigo\":\"750\",");
+		upload("vacio.json", "{\"tienda\":\"Centro\",\"articulos\":[]}");
+		assertEquals(2, saved.size());
+		assertEquals(0, index.getInventoryCount());
+	}
+
+	@Test
+	public void paginatesNewestFirst() throws IOException {
+		for (int i = 0; i < 5; i++) {
+			upload("IPV_" + i + ".json", inventory(i % 2 == 0 ? "Centro" : "Norte", "750", i + 1));
+		}
+		List<String> names = new ArrayList<>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			InventoryIndex.Page<InventoryIndex.Inventory> page = index.inventories(Long.MIN_VALUE, Long.MAX_VALUE, null,
+				cursor != null ? Long.parseLong(cursor) : -1, 2);
+			for (InventoryIndex.Inventory inventory : page.items) {
+				names.add(inventory.name);
+			}
+			cursor = page.next;
+			pages++;
+		} while (cursor != null);
+		assertEquals(3, pages);
+		assertEquals("[IPV_4.json, IPV_3.json, IPV_2.json, IPV_1.json, IPV_0.json]", names.toString());
+
+		// Por ubicación se sigue la cadena de esa ubicación
+		List<InventoryIndex.Inventory> norte = index.inventories(Long.MIN_VALUE, Long.MAX_VALUE, "Norte", -1, 10).items;
+		assertEquals(2, norte.size());
+		assertEquals("IPV_3.json", norte.get(0).name);
+		assertEquals("IPV_1.json", norte.get(1).name);
+		assertTrue(index.inventories(Long.MIN_VALUE, Long.MAX_VALUE, "Sur", -1, 10).items.isEmpty());
+	}
+
+	@Test
+	public void historyAndTotals() throws IOException {
+		upload("a.json", "{\"tienda\":\"Centro\",\"articulos\":[{\"sku\":\"A\",\"qty\":1},{\"sku\":\"B\",\"qty\":5}]}");
+		upload("b.json", "{\"tienda\":\"Norte\",\"articulos\":[{\"sku\":\"A\",\"qty\":2}]}");
+		upload("c.json", "{\"tienda\":\"Centro\",\"articulos\":[{\"sku\":\"A\",\"qty\":4},{\"sku\":\"C\",\"qty\":1}]}");
+
+		List<InventoryIndex.Line> history = index.history("A", Long.MIN_VALUE, Long.MAX_VALUE, null, -1, 10).items;
+		assertEquals(3, history.size());
+		assertLine(history.get(0), "A", "Centro", 4);
+		assertLine(history.get(1), "A", "Norte", 2);
+		assertLine(history.get(2), "A", "Centro", 1);
+		assertEquals(2, index.history("A", Long.MIN_VALUE, Long.MAX_VALUE, "Centro", -1, 10).items.size());
+		// Página de uno con cursor
+		InventoryIndex.Page<InventoryIndex.Line> first = index.history("A", Long.MIN_VALUE, Long.MAX_VALUE, null, -1, 1);
+		InventoryIndex.Page<InventoryIndex.Line> second = index.history("A", Long.MIN_VALUE, Long.MAX_VALUE, null,
+			Long.parseLong(first.next), 1);
+		assertLine(second.items.get(0), "A", "Norte", 2);
+
+		List<InventoryIndex.Totals> totals = index.totals(null, Long.MIN_VALUE, Long.MAX_VALUE, null, 10).items;
+		assertEquals(3, totals.size());
+		assertTotals(totals.get(0), "A", 7, 3, 4);
+		assertTotals(totals.get(1), "B", 5, 1, 5);
+		assertTotals(totals.get(2), "C", 1, 1, 1);
+		List<InventoryIndex.Totals> centro = index.totals("Centro", Long.MIN_VALUE, Long.MAX_VALUE, null, 10).items;
+		assertTotals(centro.get(0), "A", 5, 2, 4);
+		InventoryIndex.Page<InventoryIndex.Totals> page = index.totals(null, Long.MIN_VALUE, Long.MAX_VALUE, null, 2);
+		assertEquals("B", page.next);
+		assertEquals("C", index.totals(null, Long.MIN_VALUE, Long.MAX_VALUE, page.next, 2).items.get(0).sku);
+
+		// Con un rango de fechas se recorren las filas en lugar de los totales en memoria
+		long now = System.currentTimeMillis();
+		assertTotals(index.totals(null, 0, now + 1000, null, 10).items.get(0), "A", 7, 3, 4);
+		assertTrue(index.totals(null, now + 1000, Long.MAX_VALUE, null, 10).items.isEmpty());
+	}
+
+	@Test
+	public void reopensFromDisk() throws IOException {
+		upload("a.json", inventory("Centro", "750", 2));
+		upload("b.json", inventory("Norte", "750", 3));
+		index.close();
+		open();
+
+		assertEquals(2, index.getInventoryCount());
+		assertTotals(index.totals(null, Long.MIN_VALUE, Long.MAX_VALUE, null, 10).items.get(0), "750", 5, 2, 3);
+		assertEquals("b.json", index.inventories(Long.MIN_VALUE, Long.MAX_VALUE, "Norte", -1, 10).items.get(0).name);
+		// Los diccionarios y cadenas siguen donde estaban
+		upload("c.json", inventory("Centro", "750", 1));
+		assertEquals(3, index.history("750", Long.MIN_VALUE, Long.MAX_VALUE, null, -1, 10).items.size());
+		assertEquals(2, index.inventories(Long.MIN_VALUE, Long.MAX_VALUE, "Centro", -1, 10).items.size());
+	}
+
+	private void open() throws IOException {
+		index = new InventoryIndex(dir, config);
+		store = index.indexing((content, filename) -> {
+			saved.add(new String(readAll(content), StandardCharsets.UTF_8));
+			return true;
+		}, message -> { });
+	}
+
+	private void upload(String filename, String json) throws IOException {
+		assertTrue(store.save(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), filename));
+	}
+
+	private static String inventory(String location, String sku, double quantity) {
+		return "{\"tienda\":\"" + location + "\",\"articulos\":[{\"codigo\":\"" + sku + "\",\"cantidad\":" + quantity + "}]}";
+	}
+
+	private static void assertLine(InventoryIndex.Line line, String sku, String location, double quantity) {
+		assertEquals(sku, line.sku);
+		assertEquals(location, line.location);
+		assertEquals(quantity, line.quantity, 0);
+	}
+
+	private static void assertTotals(InventoryIndex.Totals totals, String sku, double sum, long count, double last) {
+		assertEquals(sku, totals.sku);
+		assertEquals(sum, totals.sum, 0);
+		assertEquals(count, totals.count);
+		assertEquals(last, totals.last, 0);
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+}
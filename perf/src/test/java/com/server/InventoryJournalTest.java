@@ -0,0 +1,206 @@
+package com.server;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Escritura, recuperación tras un corte (registro a medias o dañado al final del último segmento)
+// y exportación sin duplicados
+public class InventoryJournalTest {
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("journal").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void exportsRecordsInOrder() throws IOException {
+		try (InventoryJournal journal = new InventoryJournal(dir, 1024 * 1024, true)) {
+			for (int i = 0; i < 3; i++) {
+				assertTrue(journal.save(content(i), "IPV_" + i + ".json"));
+			}
+			assertEquals(3, journal.getRecordCount());
+
+			List<String> exported = export(journal, Integer.MAX_VALUE);
+			assertEquals(3, exported.size());
+			for (int i = 0; i < 3; i++) {
+				assertEquals(i + ":IPV_" + i + ".json:" + text(i), exported.get(i));
+			}
+			assertEquals(0, journal.getRecordCount());
+		}
+	}
+
+	@Test
+	public void recoveryTruncatesTornRecord() throws IOException {
+		try (InventoryJournal journal = new InventoryJournal(dir, 1024 * 1024, false)) {
+			journal.save(content(0), "IPV_0.json");
+			journal.save(content(1), "IPV_1.json");
+		}
+		File segment = onlySegment();
+		long intact = segment.length();
+		// Corte en mitad del tercer registro: cabecera completa y parte del nombre
+		byte[] torn = recordBytes(2);
+		try (FileOutputStream out = new FileOutputStream(segment, true)) {
+			out.write(torn, 0, 40);
+		}
+
+		try (InventoryJournal journal = new InventoryJournal(dir, 1024 * 1024, false)) {
+			assertEquals(2, journal.getRecordCount());
+			assertEquals(intact, segment.length());
+			// Lo siguiente se añade detrás de los registros íntegros, con la secuencia siguiente
+			journal.save(content(2), "IPV_2.json");
+			List<String> exported = export(journal, Integer.MAX_VALUE);
+			assertEquals(3, exported.size());
+			assertEquals("2:IPV_2.json:" + text(2), exported.get(2));
+		}
+	}
+
+	@Test
+	public void recoveryDropsRecordWithBadChecksum() throws IOException {
+		long first;
+		try (InventoryJournal journal = new InventoryJournal(dir, 1024 * 1024, false)) {
+			journal.save(content(0), "IPV_0.json");
+			first = onlySegment().length();
+			journal.save(content(1), "IPV_1.json");
+		}
+		File segment = onlySegment();
+		// Un byte cambiado en el contenido del último registro (escritura sin fsync a medias)
+		try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+			raf.seek(segment.length() - 1);
+			int last = raf.read();
+			raf.seek(segment.length() - 1);
+			raf.write(last ^ 0xff);
+		}
+
+		try (InventoryJournal journal = new InventoryJournal(dir, 1024 * 1024, false)) {
+			assertEquals(1, journal.getRecordCount());
+			assertEquals(first, segment.length());
+			assertEquals(1, export(journal, Integer.MAX_VALUE).size());
+		}
+	}
+
+	@Test
+	public void interruptedExportResumesWithoutDuplicates() throws IOException {
+		try (InventoryJournal journal = new InventoryJournal(dir, 1024 * 1024, true)) {
+			for (int i = 0; i < 3; i++) {
+				journal.save(content(i), "IPV_" + i + ".json");
+			}
+			assertEquals(1, export(journal, 1).size());
+		}
+		try (InventoryJournal journal = new InventoryJournal(dir, 1024 * 1024, true)) {
+			List<String> rest = export(journal, Integer.MAX_VALUE);
+			assertEquals(2, rest.size());
+			assertTrue(rest.get(0).startsWith("1:"));
+			assertTrue(rest.get(1).startsWith("2:"));
+			assertEquals(0, export(journal, Integer.MAX_VALUE).size());
+		}
+	}
+
+	@Test
+	public void rollsSegments() throws IOException {
+		try (InventoryJournal journal = new InventoryJournal(dir, 256, false)) {
+			for (int i = 0; i < 4; i++) {
+				journal.save(content(i), "IPV_" + i + ".json");
+			}
+			assertTrue(segments().size() > 1);
+			assertEquals(4, journal.getRecordCount());
+			assertEquals(4, export(journal, Integer.MAX_VALUE).size());
+			// Solo queda el segmento activo
+			assertEquals(1, segments().size());
+		}
+	}
+
+	// "secuencia:nombre:contenido" de cada registro exportado, como máximo limit
+	private static List<String> export(InventoryJournal journal, int limit) throws IOException {
+		List<String> exported = new ArrayList<>();
+		journal.export((record, content) -> {
+			if (exported.size() == limit) return false;
+			exported.add(record.sequence + ":" + record.name + ":" + new String(readAll(content), StandardCharsets.UTF_8));
+			return true;
+		});
+		return exported;
+	}
+
+	// Bytes de un registro sin comprimir tal como quedan en el segmento
+	private byte[] recordBytes(int i) throws IOException {
+		File scratch = Files.createTempDirectory("journal-scratch").toFile();
+		try {
+			try (InventoryJournal journal = new InventoryJournal(scratch, 1024 * 1024, false)) {
+				journal.save(content(i), "IPV_" + i + ".json");
+			}
+			File[] files = scratch.listFiles((parent, name) -> name.endsWith(".log"));
+			return Files.readAllBytes(files[0].toPath());
+		} finally {
+			File[] files = scratch.listFiles();
+			if (files != null) {
+				for (File file : files) {
+					file.delete();
+				}
+			}
+			scratch.delete();
+		}
+	}
+
+	private File onlySegment() {
+		List<File> segments = segments();
+		assertEquals(1, segments.size());
+		return segments.get(0);
+	}
+
+	private List<File> segments() {
+		List<File> segments = new ArrayList<>();
+		File[] files = dir.listFiles((parent, name) -> name.startsWith("journal-") && name.endsWith(".log"));
+		if (files != null) {
+			for (File file : files) {
+				segments.add(file);
+			}
+		}
+		return segments;
+	}
+
+	private static String text(int i) {
+		return "{\"tienda\":\"IPV\",\"articulos\":[{\"codigo\":\"75000" + i + "\",\"cantidad\":" + (i + 1) + "}]}";
+	}
+
+	private static InputStream content(int i) {
+		return new ByteArrayInputStream(text(i).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,127 @@
+package com.server;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+// Eventos del analizador incremental: deben ser los mismos llegue el documento entero o byte a
+// byte, con los cortes dentro de cadenas, escapes y números
+public class JsonScannerTest {
+
+	@Test
+	public void reportsStructure() throws IOException {
+		String json = "{\"tienda\":\"IPV\",\"articulos\":[{\"codigo\":\"750\",\"cantidad\":12.5},"
+			+ "{\"codigo\":\"751\",\"activo\":true,\"nota\":null}],\"vacio\":{},\"lista\":[]}";
+		assertEquals(Arrays.asList(
+			"{", "name:tienda", "string:IPV", "name:articulos", "[",
+			"{", "name:codigo", "string:750", "name:cantidad", "value:12.5", "}",
+			"{", "name:codigo", "string:751", "name:activo", "value:true", "name:nota", "value:null", "}",
+			"]", "name:vacio", "{", "}", "name:lista", "[", "]", "}"), scanWhole(json));
+	}
+
+	@Test
+	public void sameEventsByteByByte() throws IOException {
+		String json = " {\"descripción\" : \"Ñandú \\\"grande\\\" \\u00e9\\n\\ud83d\\ude00\",\r\n"
+			+ "\t\"n\":[-1.5e3, 0, 42 ,true,false,null], \"x\":{\"y\":[{}]}}\n";
+		List<String> whole = scanWhole(json);
+		assertEquals(whole, scanByteByByte(json));
+		assertEquals("string:Ñandú \"grande\" é\n\uD83D\uDE00", whole.get(2));
+		assertEquals("value:-1.5e3", whole.get(5));
+	}
+
+	@Test
+	public void topLevelScalars() throws IOException {
+		assertEquals(Arrays.asList("value:123"), scanWhole("123"));
+		assertEquals(Arrays.asList("string:a"), scanWhole(" \"a\" "));
+		assertEquals(Arrays.asList("value:false"), scanByteByByte("false"));
+	}
+
+	@Test
+	public void rejectsMalformedDocuments() {
+		String[] invalid = {
+			"", "{", "[1,2", "{\"a\":1}}", "{\"a\" 1}", "{\"a\":1,}x", "[1]]", "{]", "{1:2}",
+			"[tru]", "[\"a\nb\"]", "[\"\\x\"]", "[\"\\u12g4\"]", "{\"a\":1} {}", "@"
+		};
+		for (String json : invalid) {
+			try {
+				scanWhole(json);
+				fail("Documento aceptado: " + json);
+			} catch (IOException expected) {
+			}
+		}
+	}
+
+	@Test
+	public void limitsDepth() {
+		StringBuilder json = new StringBuilder();
+		for (int i = 0; i < 300; i++) {
+			json.append('[');
+		}
+		try {
+			scanWhole(json.toString());
+			fail("Anidamiento sin límite");
+		} catch (IOException expected) {
+		}
+	}
+
+	private static List<String> scanWhole(String json) throws IOException {
+		Recorder recorder = new Recorder();
+		JsonScanner scanner = new JsonScanner(recorder);
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		scanner.feed(bytes, 0, bytes.length);
+		scanner.finish();
+		return recorder.events;
+	}
+
+	private static List<String> scanByteByByte(String json) throws IOException {
+		Recorder recorder = new Recorder();
+		JsonScanner scanner = new JsonScanner(recorder);
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		for (int i = 0; i < bytes.length; i++) {
+			scanner.feed(bytes, i, 1);
+		}
+		scanner.finish();
+		return recorder.events;
+	}
+
+	private static final class Recorder implements JsonScanner.Handler {
+		final List<String> events = new ArrayList<>();
+
+		@Override
+		public void startObject() {
+			events.add("{");
+		}
+
+		@Override
+		public void endObject() {
+			events.add("}");
+		}
+
+		@Override
+		public void startArray() {
+			events.add("[");
+		}
+
+		@Override
+		public void endArray() {
+			events.add("]");
+		}
+
+		@Override
+		public void name(String name) {
+			events.add("name:" + name);
+		}
+
+		@Override
+		public void scalar(String text, boolean string) {
+			events.add((string ? "string:" : "value:") + text);
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package com.server;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// Variantes .gz generadas, marcas de "sin ganancia" y cómo las ve StaticIndex
+public class PrecompressorTest {
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("precompress").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void incompressibleFileIsNotRetried() throws IOException {
+		// Bytes aleatorios: el .gz siempre ocupa más
+		byte[] noise = new byte[4096];
+		new Random(1).nextBytes(noise);
+		File data = write("data.json", noise);
+
+		assertEquals(0, Precompressor.precompress(dir));
+		File marker = new File(dir, "data.json" + Precompressor.NO_GAIN_SUFFIX);
+		assertTrue(marker.isFile());
+		long marked = marker.lastModified();
+
+		assertEquals(0, Precompressor.precompress(dir));
+		assertEquals(marked, marker.lastModified());
+		assertFalse(new File(dir, "data.json.gz").exists());
+
+		// Si el archivo cambia y ya comprime, la marca desaparece
+		write("data.json", repeat("{\"a\":1}", 500));
+		data.setLastModified(marked + 2000);
+		assertEquals(1, Precompressor.precompress(dir));
+		assertTrue(new File(dir, "data.json.gz").isFile());
+		assertFalse(marker.exists());
+	}
+
+	@Test
+	public void leftoverTempFileIsRemoved() throws IOException {
+		write("app.js", repeat("var a = 1;\n", 100));
+		File temp = write("app.js" + Precompressor.TEMP_SUFFIX, new byte[] { 1, 2, 3 });
+
+		assertEquals(1, Precompressor.precompress(dir));
+		assertFalse(temp.exists());
+	}
+
+	@Test
+	public void variantsAreOnlyReachableThroughOriginal() {
+		StaticIndex index = new StaticIndex.Builder()
+			.add("app.js", 100, 1000, null)
+			.add("app.js.gz", 40, 1000, null)
+			.add("app.js.br", 30, 1000, null)
+			.add("app.js.gz.tmp", 10, 1000, null)
+			.add("app.js" + Precompressor.NO_GAIN_SUFFIX, 0, 1000, null)
+			.add("backup.tar.gz", 500, 1000, null)
+			.build();
+
+		StaticEntry app = index.get("app.js");
+		assertNotNull(app.gzip);
+		assertNotNull(app.brotli);
+		assertNull(index.get("app.js.gz"));
+		assertNull(index.get("app.js.br"));
+		assertNull(index.get("app.js.gz.tmp"));
+		assertNull(index.get("app.js" + Precompressor.NO_GAIN_SUFFIX));
+		// Un .gz sin original comprimible al lado es un archivo más
+		assertNotNull(index.get("backup.tar.gz"));
+		assertEquals(2, index.size());
+	}
+
+	@Test
+	public void changedVariantIsReported() {
+		StaticIndex before = new StaticIndex.Builder()
+			.add("app.js", 100, 1000, null)
+			.add("app.js.gz", 40, 1000, null)
+			.build();
+		StaticIndex after = new StaticIndex.Builder()
+			.add("app.js", 100, 1000, null)
+			.add("app.js.gz", 38, 2000, null)
+			.build();
+
+		assertEquals(java.util.Collections.singleton("app.js.gz"), after.changedSince(before));
+	}
+
+	private File write(String name, byte[] content) throws IOException {
+		File file = new File(dir, name);
+		Files.write(file.toPath(), content);
+		return file;
+	}
+
+	private static byte[] repeat(String text, int times) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < times; i++) {
+			builder.append(text);
+		}
+		return builder.toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
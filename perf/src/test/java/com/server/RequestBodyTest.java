@@ -0,0 +1,152 @@
+package com.server;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Cuerpos leídos de la conexión: cerrar el cuerpo libera lo que es suyo (el Inflater) sin cerrar
+// el flujo de la conexión, y lo no leído se descarta sin desalinear la siguiente solicitud,
+// también en métodos cuya ruta no usa el cuerpo
+public class RequestBodyTest {
+	private static final byte[] JSON = "{\"tienda\":\"IPV\",\"articulos\":[{\"codigo\":\"750\",\"cantidad\":3}]}"
+		.getBytes(StandardCharsets.UTF_8);
+	private static final byte[] NEXT = "GET / HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+	@Test
+	public void closingGzipBodyReleasesInflater() throws IOException {
+		byte[] gzip = gzip(JSON);
+		Connection connection = new Connection(concat(gzip, NEXT));
+		RequestBody body = RequestBody.open(upload("Content-Length: " + gzip.length, "Content-Encoding: gzip"),
+			connection, new ServerConfig());
+		assertEquals('{', body.read());
+		body.skipRemaining();
+		body.close();
+		// GZIPInputStream cerrado: el Inflater ya se liberó
+		try {
+			body.read();
+			fail("El flujo descomprimido sigue abierto");
+		} catch (IOException expected) {
+		}
+		assertFalse(connection.closed);
+		assertArrayEquals(NEXT, readAll(connection));
+	}
+
+	@Test
+	public void chunkedGzipBodyIsDecoded() throws IOException {
+		byte[] gzip = gzip(JSON);
+		String head = Integer.toHexString(gzip.length) + "\r\n";
+		byte[] chunked = concat(concat(head.getBytes(StandardCharsets.US_ASCII), gzip),
+			"\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+		Connection connection = new Connection(concat(chunked, NEXT));
+		try (RequestBody body = RequestBody.open(upload("Transfer-Encoding: chunked", "Content-Encoding: gzip"),
+			connection, new ServerConfig())) {
+			assertArrayEquals(JSON, readAll(body));
+			assertEquals(JSON.length, body.getBytesRead());
+			// El gzip termina antes que el último bloque, igual que en respondWithBody
+			body.skipRemaining();
+		}
+		assertFalse(connection.closed);
+		assertArrayEquals(NEXT, readAll(connection));
+	}
+
+	@Test
+	public void decodedLimitStopsExpansion() throws IOException {
+		ServerConfig config = new ServerConfig();
+		config.maxUploadDecodedBytes = 16;
+		byte[] gzip = gzip(JSON);
+		try (RequestBody body = RequestBody.open(upload("Content-Length: " + gzip.length, "Content-Encoding: gzip"),
+			new Connection(gzip), config)) {
+			readAll(body);
+			fail("Límite tras descomprimir ignorado");
+		} catch (RequestBody.TooLargeException expected) {
+		}
+	}
+
+	@Test
+	public void discardsUnreadBodyOfAnyMethod() throws IOException {
+		Connection connection = new Connection(concat(JSON, NEXT));
+		assertTrue(RequestBody.discard(request("GET", "Content-Length: " + JSON.length), connection, new ServerConfig()));
+		assertArrayEquals(NEXT, readAll(connection));
+
+		byte[] chunked = concat(("5\r\nhello\r\n0\r\n\r\n").getBytes(StandardCharsets.US_ASCII), NEXT);
+		connection = new Connection(chunked);
+		assertTrue(RequestBody.discard(request("OPTIONS", "Transfer-Encoding: chunked"), connection, new ServerConfig()));
+		assertArrayEquals(NEXT, readAll(connection));
+	}
+
+	@Test
+	public void bodiesThatCannotBeDelimitedCloseTheConnection() throws IOException {
+		ServerConfig config = new ServerConfig();
+		config.maxUploadBytes = 16;
+		assertFalse(RequestBody.discard(request("GET", "Transfer-Encoding: gzip"), new Connection(NEXT), config));
+		assertFalse(RequestBody.discard(request("GET", "Content-Length: abc"), new Connection(NEXT), config));
+		assertFalse(RequestBody.discard(request("PUT", "Content-Length: " + JSON.length), new Connection(JSON), config));
+		assertEquals(-1, RequestBody.discardLength(request("GET", "Transfer-Encoding: chunked"), config));
+	}
+
+	private static HttpRequest upload(String... headers) throws IOException {
+		return request("POST", headers);
+	}
+
+	private static HttpRequest request(String method, String... headers) throws IOException {
+		StringBuilder head = new StringBuilder(method + " /upload HTTP/1.1\r\n");
+		for (String header : headers) {
+			head.append(header).append("\r\n");
+		}
+		byte[] bytes = head.append("\r\n").toString().getBytes(StandardCharsets.US_ASCII);
+		HttpRequest request = new HttpRequest();
+		request.parse(bytes, 0, bytes.length);
+		return request;
+	}
+
+	private static byte[] gzip(byte[] content) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(content);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] concat(byte[] first, byte[] second) {
+		byte[] result = new byte[first.length + second.length];
+		System.arraycopy(first, 0, result, 0, first.length);
+		System.arraycopy(second, 0, result, first.length, second.length);
+		return result;
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+	// Flujo de la conexión, que sigue siendo de ella tras cada cuerpo
+	private static final class Connection extends FilterInputStream {
+		boolean closed;
+
+		Connection(byte[] data) {
+			super(new ByteArrayInputStream(data));
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.server;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Copia de una subida a su destino: el cierre forma parte de la escritura y los errores del
+// origen se distinguen de los del destino
+public class UploadCopyTest {
+	private static final byte[] CONTENT = "{\"tienda\":\"IPV\",\"articulos\":[]}".getBytes(StandardCharsets.UTF_8);
+
+	@Test
+	public void copiesAndCloses() throws IOException {
+		Target target = new Target(false);
+		UploadCopy.copyAndClose(new ByteArrayInputStream(CONTENT), target);
+		assertArrayEquals(CONTENT, target.toByteArray());
+		assertTrue(target.closed);
+	}
+
+	@Test
+	public void failedCloseIsAWriteError() {
+		Target target = new Target(true);
+		try {
+			UploadCopy.copyAndClose(new ByteArrayInputStream(CONTENT), target);
+			fail("Cierre fallido aceptado");
+		} catch (UploadCopy.ReadException e) {
+			fail("Error del destino tomado por uno del origen");
+		} catch (IOException expected) {
+			assertEquals("Cierre fallido", expected.getMessage());
+		}
+	}
+
+	@Test
+	public void readErrorClosesTarget() {
+		Target target = new Target(false);
+		InputStream broken = new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw new IOException("Conexión cortada");
+			}
+		};
+		try {
+			UploadCopy.copyAndClose(broken, target);
+			fail("Error de lectura ignorado");
+		} catch (UploadCopy.ReadException e) {
+			assertEquals("Conexión cortada", e.getReadError().getMessage());
+		} catch (IOException e) {
+			fail("Error del origen tomado por uno del destino");
+		}
+		assertTrue(target.closed);
+	}
+
+	// Destino que puede fallar justo al cerrar, como el flujo de MediaStore
+	private static final class Target extends ByteArrayOutputStream {
+		private final boolean failOnClose;
+		boolean closed;
+
+		Target(boolean failOnClose) {
+			this.failOnClose = failOnClose;
+		}
+
+		@Override
+		public void close() throws IOException {
+			closed = true;
+			if (failOnClose) throw new IOException("Cierre fallido");
+		}
+	}
+}
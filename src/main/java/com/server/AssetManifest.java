@@ -0,0 +1,101 @@
+package com.server;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Manifiesto de assets generado en el build (tarea generateAssetManifest de build.gradle):
+// una línea "sha256<TAB>tamaño<TAB>ruta" por archivo, con rutas relativas separadas por "/"
+public class AssetManifest {
+	public static final String FILE_NAME = "asset-manifest.txt";
+
+	private final Map<String, Entry> entries;
+
+	AssetManifest(Map<String, Entry> entries) {
+		this.entries = entries;
+	}
+
+	public static class Entry {
+		public final String path;
+		public final String hash;
+		public final long size;
+
+		Entry(String path, String hash, long size) {
+			this.path = path;
+			this.hash = hash;
+			this.size = size;
+		}
+	}
+
+	public static AssetManifest read(InputStream in) throws IOException {
+		Map<String, Entry> entries = new LinkedHashMap<>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.isEmpty()) continue;
+			String[] fields = line.split("\t", 3);
+			if (fields.length != 3 || !isSafePath(fields[2])) {
+				throw new IOException("Línea de manifiesto inválida: " + line);
+			}
+			try {
+				entries.put(fields[2], new Entry(fields[2], fields[0], Long.parseLong(fields[1])));
+			} catch (NumberFormatException e) {
+				throw new IOException("Línea de manifiesto inválida: " + line);
+			}
+		}
+		return new AssetManifest(entries);
+	}
+
+	// Manifiesto vacío si el archivo no existe (primera instalación)
+	public static AssetManifest read(File file) throws IOException {
+		if (!file.isFile()) return new AssetManifest(new LinkedHashMap<>());
+		try (InputStream in = new FileInputStream(file)) {
+			return read(in);
+		}
+	}
+
+	// Se escribe en un temporal y se renombra: un manifiesto a medias forzaría a recopiarlo todo
+	void write(File file) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+			for (Entry entry : entries.values()) {
+				writer.write(entry.hash + "\t" + entry.size + "\t" + entry.path + "\n");
+			}
+		}
+		if (!temp.renameTo(file)) {
+			temp.delete();
+			throw new IOException("No se pudo guardar " + file.getName());
+		}
+	}
+
+	public Entry get(String path) {
+		return entries.get(path);
+	}
+
+	public Collection<Entry> getEntries() {
+		return entries.values();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	// Las rutas se resuelven dentro del directorio de destino: no se aceptan absolutas ni ".."
+	private static boolean isSafePath(String path) {
+		if (path.isEmpty() || path.startsWith("/")) return false;
+		for (String part : path.split("/")) {
+			if (part.isEmpty() || ".".equals(part) || "..".equals(part)) return false;
+		}
+		return true;
+	}
+}
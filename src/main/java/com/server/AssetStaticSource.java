@@ -0,0 +1,62 @@
+package com.server;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Contenido estático leído directamente de los assets del APK, sin copiarlo a stats. Los
+// assets no tienen fecha propia: se usa la de instalación del APK.
+public class AssetStaticSource implements StaticSource {
+	private final AssetManager assets;
+	private final String root;
+	private final long lastModified;
+
+	public AssetStaticSource(AssetManager assets, String root, long lastModified) {
+		this.assets = assets;
+		this.root = root;
+		this.lastModified = lastModified;
+	}
+
+	@Override
+	public StaticIndex buildIndex() throws IOException {
+		StaticIndex.Builder builder = new StaticIndex.Builder();
+		walk(root, "", builder);
+		return builder.build();
+	}
+
+	private void walk(String assetPath, String prefix, StaticIndex.Builder builder) throws IOException {
+		String[] names = assets.list(assetPath);
+		if (names == null) return;
+		for (String name : names) {
+			String fullAssetPath = assetPath.isEmpty() ? name : assetPath + "/" + name;
+			String[] children = assets.list(fullAssetPath);
+			if (children != null && children.length > 0) {
+				walk(fullAssetPath, prefix + name + "/", builder);
+			} else {
+				builder.add(prefix + name, length(fullAssetPath), lastModified, fullAssetPath);
+			}
+		}
+	}
+
+	// Solo los assets sin comprimir dentro del APK tienen tamaño sin leerlos; el resto queda en -1
+	private long length(String assetPath) {
+		try (AssetFileDescriptor descriptor = assets.openFd(assetPath)) {
+			return descriptor.getLength();
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	@Override
+	public InputStream open(StaticEntry entry) throws IOException {
+		return assets.open((String) entry.handle);
+	}
+
+	@Override
+	public File getFile(StaticEntry entry) {
+		return null;
+	}
+}
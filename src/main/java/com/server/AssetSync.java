@@ -0,0 +1,176 @@
+package com.server;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Sincroniza los assets del APK con el directorio servido comparando el manifiesto del build
+// con el de la última instalación: solo se copian los archivos nuevos o modificados (en
+// paralelo) y se borran los que ya no existen, de modo que tras una actualización no se
+// sirven chunks de JS obsoletos.
+public class AssetSync {
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	public interface AssetSource {
+		InputStream open(String path) throws IOException;
+	}
+
+	public static class Result {
+		public final int copied;
+		public final int deleted;
+		public final int unchanged;
+		public final int failed;
+
+		Result(int copied, int deleted, int unchanged, int failed) {
+			this.copied = copied;
+			this.deleted = deleted;
+			this.unchanged = unchanged;
+			this.failed = failed;
+		}
+
+		@Override
+		public String toString() {
+			return "copiados=" + copied + " borrados=" + deleted + " sin cambios=" + unchanged + " errores=" + failed;
+		}
+	}
+
+	// Devuelve null si el APK no incluye manifiesto (build sin la tarea de Gradle)
+	public static Result sync(AssetSource source, File targetDir, File installedManifest, int threads) throws IOException {
+		AssetManifest bundled;
+		try (InputStream in = source.open(AssetManifest.FILE_NAME)) {
+			bundled = AssetManifest.read(in);
+		} catch (FileNotFoundException e) {
+			return null;
+		}
+		AssetManifest installed = AssetManifest.read(installedManifest);
+
+		List<AssetManifest.Entry> changed = new ArrayList<>();
+		int unchanged = 0;
+		for (AssetManifest.Entry entry : bundled.getEntries()) {
+			AssetManifest.Entry previous = installed.get(entry.path);
+			File target = new File(targetDir, entry.path);
+			// El tamaño en disco detecta copias borradas o truncadas sin releer el archivo
+			if (previous != null && previous.hash.equals(entry.hash) && target.length() == entry.size) {
+				unchanged++;
+			} else {
+				changed.add(entry);
+			}
+		}
+
+		int deleted = 0;
+		if (!installedManifest.isFile()) {
+			// Instalación anterior sin manifiesto (copia completa): se eliminan los archivos que
+			// el APK actual ya no incluye
+			deleted = pruneUnknown(targetDir, "", bundled);
+		}
+		for (AssetManifest.Entry entry : installed.getEntries()) {
+			if (bundled.get(entry.path) == null) {
+				if (deleteAsset(targetDir, entry.path, bundled)) deleted++;
+			}
+		}
+
+		// Lo que falle no entra en el manifiesto instalado y se reintenta en el siguiente arranque
+		Map<String, AssetManifest.Entry> synced = new LinkedHashMap<>();
+		for (AssetManifest.Entry entry : bundled.getEntries()) {
+			synced.put(entry.path, entry);
+		}
+		int failed = 0;
+		if (!changed.isEmpty()) {
+			ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, changed.size())));
+			try {
+				List<Future<?>> copies = new ArrayList<>(changed.size());
+				for (AssetManifest.Entry entry : changed) {
+					copies.add(executor.submit(() -> {
+						copy(source, entry.path, new File(targetDir, entry.path));
+						return null;
+					}));
+				}
+				for (int i = 0; i < copies.size(); i++) {
+					try {
+						copies.get(i).get();
+					} catch (ExecutionException e) {
+						synced.remove(changed.get(i).path);
+						failed++;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Sincronización interrumpida");
+			} finally {
+				executor.shutdown();
+			}
+		}
+
+		new AssetManifest(synced).write(installedManifest);
+		return new Result(changed.size() - failed, deleted, unchanged, failed);
+	}
+
+	// Copia a un temporal y renombra para que el servidor nunca vea un archivo a medias
+	private static void copy(AssetSource source, String path, File target) throws IOException {
+		File parent = target.getParentFile();
+		if (!parent.isDirectory() && !parent.mkdirs()) {
+			throw new IOException("No se pudo crear " + parent);
+		}
+		File temp = new File(target.getPath() + ".sync");
+		byte[] buffer = new byte[BUFFER_SIZE];
+		try (InputStream in = source.open(path); OutputStream out = new FileOutputStream(temp)) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+		} catch (IOException e) {
+			temp.delete();
+			throw e;
+		}
+		if (!temp.renameTo(target)) {
+			temp.delete();
+			throw new IOException("No se pudo reemplazar " + path);
+		}
+	}
+
+	private static int pruneUnknown(File dir, String prefix, AssetManifest bundled) {
+		File[] files = dir.listFiles();
+		if (files == null) return 0;
+		int deleted = 0;
+		for (File file : files) {
+			String path = prefix + file.getName();
+			if (file.isDirectory()) {
+				deleted += pruneUnknown(file, path + "/", bundled);
+				file.delete();
+			} else if (bundled.get(path) == null
+				&& !(path.endsWith(".gz") && bundled.get(path.substring(0, path.length() - 3)) != null)
+				&& !(path.endsWith(Precompressor.NO_GAIN_SUFFIX)
+					&& bundled.get(path.substring(0, path.length() - Precompressor.NO_GAIN_SUFFIX.length())) != null)
+				&& file.delete()) {
+				deleted++;
+			}
+		}
+		return deleted;
+	}
+
+	// Borra el archivo, su variante .gz generada en el dispositivo (o su marca) y los directorios que queden vacíos
+	private static boolean deleteAsset(File targetDir, String path, AssetManifest bundled) {
+		File file = new File(targetDir, path);
+		boolean deleted = file.delete();
+		if (bundled.get(path + ".gz") == null) {
+			new File(targetDir, path + ".gz").delete();
+		}
+		new File(targetDir, path + Precompressor.NO_GAIN_SUFFIX).delete();
+		File parent = file.getParentFile();
+		while (parent != null && !parent.equals(targetDir) && parent.delete()) {
+			parent = parent.getParentFile();
+		}
+		return deleted;
+	}
+}
@@ -0,0 +1,266 @@
+package com.server;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Log del servidor fuera del camino de las solicitudes. Los hilos que atienden conexiones solo
+// dejan la entrada en un anillo sin bloqueos; si está lleno la entrada se descarta y se cuenta.
+// Un hilo propio vacía el anillo por lotes: escribe cada lote de una vez en un access log que
+// rota por tamaño y pasa los mensajes (no los accesos) al callback de la aplicación.
+public class AsyncLog implements MyServer.ServerLogCallback, Closeable {
+	public static final String FILE_NAME = "access.log";
+	private static final int DEFAULT_CAPACITY = 4096;
+	private static final int MAX_BATCH = 256;
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+	private final Ring ring;
+	private final File dir;
+	private final long maxFileBytes;
+	private final int maxFiles;
+	private final MyServer.ServerLogCallback delegate;
+	private final AtomicLong dropped = new AtomicLong();
+	private final Thread drainer;
+	private volatile boolean closed;
+
+	private OutputStream out;
+	private long fileBytes;
+	private long reportedDropped;
+	private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS", Locale.ROOT);
+	private final StringBuilder batch = new StringBuilder(16 * 1024);
+
+	// dir null desactiva el archivo; delegate recibe los mensajes en el hilo del log
+	public AsyncLog(File dir, long maxFileBytes, int maxFiles, MyServer.ServerLogCallback delegate) {
+		this(dir, maxFileBytes, maxFiles, DEFAULT_CAPACITY, delegate);
+	}
+
+	public AsyncLog(File dir, long maxFileBytes, int maxFiles, int capacity, MyServer.ServerLogCallback delegate) {
+		this.ring = new Ring(capacity);
+		this.dir = dir;
+		this.maxFileBytes = maxFileBytes;
+		this.maxFiles = Math.max(1, maxFiles);
+		this.delegate = delegate;
+		this.drainer = new Thread(this::drainLoop, "server-log");
+		drainer.setDaemon(true);
+		drainer.start();
+	}
+
+	@Override
+	public void log(String message) {
+		offer(new Entry(message, null, null, 0, 0, 0));
+	}
+
+	@Override
+	public void access(String method, String path, int status, long bytes, long nanos) {
+		offer(new Entry(null, method, path, status, bytes, nanos));
+	}
+
+	private void offer(Entry entry) {
+		if (closed || !ring.offer(entry)) {
+			dropped.incrementAndGet();
+		}
+	}
+
+	// Entradas descartadas porque el anillo estaba lleno
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	// Vacía lo pendiente y detiene el hilo del log
+	@Override
+	public void close() {
+		closed = true;
+		LockSupport.unpark(drainer);
+		try {
+			drainer.join(TimeUnit.SECONDS.toMillis(2));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void drainLoop() {
+		try {
+			while (true) {
+				boolean finished = closed;
+				int drained = drainBatch();
+				if (drained == 0) {
+					if (finished) break;
+					LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+				}
+			}
+		} finally {
+			closeFile();
+		}
+	}
+
+	private int drainBatch() {
+		int count = 0;
+		Entry entry;
+		while (count < MAX_BATCH && (entry = ring.poll()) != null) {
+			count++;
+			appendLine(entry);
+			if (entry.message != null && delegate != null) {
+				try {
+					delegate.log(entry.message);
+				} catch (RuntimeException ignored) {
+					// Un fallo de la interfaz no puede detener el log
+				}
+			}
+		}
+		long totalDropped = dropped.get();
+		if (totalDropped != reportedDropped) {
+			appendLine(new Entry("Entradas de log descartadas por saturación: " + (totalDropped - reportedDropped), null, null, 0, 0, 0));
+			reportedDropped = totalDropped;
+		}
+		writeBatch();
+		return count;
+	}
+
+	private void appendLine(Entry entry) {
+		if (dir == null) return;
+		batch.append(dateFormat.format(new Date(entry.time))).append(' ');
+		if (entry.message != null) {
+			batch.append("LOG ").append(entry.message);
+		} else {
+			batch.append(entry.method).append(' ').append(entry.path).append(' ').append(entry.status)
+				.append(' ').append(entry.bytes).append(' ')
+				.append(String.format(Locale.ROOT, "%.3fms", entry.nanos / 1_000_000.0));
+		}
+		batch.append('\n');
+	}
+
+	// Un lote, una escritura
+	private void writeBatch() {
+		if (batch.length() == 0) return;
+		byte[] bytes = batch.toString().getBytes(StandardCharsets.UTF_8);
+		batch.setLength(0);
+		try {
+			if (out == null) {
+				open();
+			} else if (fileBytes > 0 && fileBytes + bytes.length > maxFileBytes) {
+				rotate();
+			}
+			out.write(bytes);
+			out.flush();
+			fileBytes += bytes.length;
+		} catch (IOException e) {
+			// Sin disco el log se pierde, pero el servidor sigue atendiendo
+			closeFile();
+		}
+	}
+
+	private void open() throws IOException {
+		if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("No se pudo crear " + dir);
+		File current = new File(dir, FILE_NAME);
+		out = new FileOutputStream(current, true);
+		fileBytes = current.length();
+	}
+
+	// access.log -> access.log.1 -> ... -> access.log.(maxFiles - 1); el más antiguo se borra
+	private void rotate() throws IOException {
+		closeFile();
+		File oldest = new File(dir, FILE_NAME + "." + (maxFiles - 1));
+		if (maxFiles > 1 && oldest.exists() && !oldest.delete()) throw new IOException("No se pudo borrar " + oldest);
+		for (int i = maxFiles - 2; i >= 1; i--) {
+			File file = new File(dir, FILE_NAME + "." + i);
+			if (file.exists() && !file.renameTo(new File(dir, FILE_NAME + "." + (i + 1)))) {
+				throw new IOException("No se pudo rotar " + file);
+			}
+		}
+		File current = new File(dir, FILE_NAME);
+		boolean moved = maxFiles > 1 ? current.renameTo(new File(dir, FILE_NAME + ".1")) : current.delete();
+		if (!moved) throw new IOException("No se pudo rotar " + current);
+		open();
+	}
+
+	private void closeFile() {
+		if (out == null) return;
+		try {
+			out.close();
+		} catch (IOException ignored) {
+		}
+		out = null;
+	}
+
+	private static class Entry {
+		final long time = System.currentTimeMillis();
+		final String message;
+		final String method;
+		final String path;
+		final int status;
+		final long bytes;
+		final long nanos;
+
+		Entry(String message, String method, String path, int status, long bytes, long nanos) {
+			this.message = message;
+			this.method = method;
+			this.path = path;
+			this.status = status;
+			this.bytes = bytes;
+			this.nanos = nanos;
+		}
+	}
+
+	// Anillo acotado de varios productores y un consumidor (esquema de Vyukov): cada posición
+	// lleva un número de secuencia que indica si está libre para la vuelta actual o ya publicada
+	private static class Ring {
+		private final AtomicReferenceArray<Entry> slots;
+		private final AtomicLongArray sequences;
+		private final int mask;
+		private final AtomicLong tail = new AtomicLong();
+		// Solo lo usa el hilo consumidor
+		private long head;
+
+		Ring(int capacity) {
+			int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+			slots = new AtomicReferenceArray<>(size);
+			sequences = new AtomicLongArray(size);
+			mask = size - 1;
+			for (int i = 0; i < size; i++) {
+				sequences.set(i, i);
+			}
+		}
+
+		boolean offer(Entry entry) {
+			long position = tail.get();
+			while (true) {
+				int index = (int) (position & mask);
+				long difference = sequences.get(index) - position;
+				if (difference == 0) {
+					if (tail.compareAndSet(position, position + 1)) {
+						slots.lazySet(index, entry);
+						sequences.lazySet(index, position + 1);
+						return true;
+					}
+					position = tail.get();
+				} else if (difference < 0) {
+					// Lleno: el consumidor aún no liberó esta posición
+					return false;
+				} else {
+					position = tail.get();
+				}
+			}
+		}
+
+		Entry poll() {
+			int index = (int) (head & mask);
+			if (sequences.get(index) != head + 1) return null;
+			Entry entry = slots.get(index);
+			slots.lazySet(index, null);
+			sequences.lazySet(index, head + mask + 1);
+			head++;
+			return entry;
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package com.server;
+
+class CachedFile {
+	final byte[] content;
+	final long lastModified;
+	// Se calcula una sola vez, al crear la entrada
+	final String etag;
+	// Respuestas 200 y 304 ya codificadas; se asignan antes de guardar la entrada en la caché
+	HttpResponse response;
+	HttpResponse notModified;
+	// Valor de la cabecera Link de un HTML (ver PreloadHints): el grafo de precarga se calcula con
+	// la misma versión del contenido y se descarta con ella
+	String links;
+
+	CachedFile(byte[] content, long lastModified) {
+		this(content, lastModified, HttpValidators.etag(content));
+	}
+
+	// Con el ETag que ya se envió al producir el contenido (ver MyServer.streamCompressed)
+	CachedFile(byte[] content, long lastModified, String etag) {
+		this.content = content;
+		this.lastModified = lastModified;
+		this.etag = etag;
+	}
+
+	// Bytes que ocupa la entrada en la caché (contenido + sobrecarga aproximada del objeto)
+	long weight() {
+		return content.length + response.encodeHead().length + notModified.encodeHead().length
+			+ (links != null ? links.length() * 2 : 0) + 128;
+	}
+}
@@ -0,0 +1,124 @@
+package com.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConnectionExecutor {
+	private final ExecutorService executor;
+	private final Semaphore inFlight;
+	private final boolean virtualThreads;
+
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicInteger active = new AtomicInteger();
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+
+	public ConnectionExecutor(ServerConfig config, MyServer.ServerLogCallback logCallback) {
+		this.inFlight = new Semaphore(Math.max(1, config.maxInFlight));
+
+		ExecutorService virtual = null;
+		if (config.executionMode == ServerConfig.ExecutionMode.VIRTUAL) {
+			virtual = newVirtualThreadExecutor();
+			if (virtual == null) {
+				logCallback.log("Hilos virtuales no disponibles, usando pool de hilos");
+			}
+		}
+
+		if (virtual != null) {
+			this.executor = virtual;
+			this.virtualThreads = true;
+		} else {
+			int threads = Math.max(1, config.workerThreads);
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(
+				threads, threads,
+				30, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(Math.max(1, config.queueCapacity)),
+				new WorkerThreadFactory(),
+				new ThreadPoolExecutor.AbortPolicy());
+			pool.allowCoreThreadTimeOut(true);
+			this.executor = pool;
+			this.virtualThreads = false;
+		}
+	}
+
+	// false si se superó el límite de peticiones en curso o la cola está llena: el llamador responde 503
+	public boolean submit(Runnable task) {
+		if (!inFlight.tryAcquire()) {
+			rejected.incrementAndGet();
+			return false;
+		}
+		queued.incrementAndGet();
+		try {
+			executor.execute(() -> {
+				queued.decrementAndGet();
+				active.incrementAndGet();
+				try {
+					task.run();
+				} finally {
+					active.decrementAndGet();
+					completed.incrementAndGet();
+					inFlight.release();
+				}
+			});
+			return true;
+		} catch (RejectedExecutionException e) {
+			queued.decrementAndGet();
+			inFlight.release();
+			rejected.incrementAndGet();
+			return false;
+		}
+	}
+
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	public int getQueueDepth() {
+		return queued.get();
+	}
+
+	public int getActiveCount() {
+		return active.get();
+	}
+
+	public long getCompletedCount() {
+		return completed.get();
+	}
+
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	// Executors.newVirtualThreadPerTaskExecutor() solo existe en Java 21+; se resuelve por reflexión
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static class WorkerThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "http-worker-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com.server;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Contenido estático en un directorio (stats): se sirve desde disco sin copias
+public class DirectoryStaticSource implements StaticSource {
+	private final File root;
+
+	public DirectoryStaticSource(File root) {
+		this.root = root;
+	}
+
+	public File getRoot() {
+		return root;
+	}
+
+	@Override
+	public StaticIndex buildIndex() {
+		StaticIndex.Builder builder = new StaticIndex.Builder();
+		walk(root, "", builder);
+		return builder.build();
+	}
+
+	private static void walk(File dir, String prefix, StaticIndex.Builder builder) {
+		File[] files = dir.listFiles();
+		if (files == null) return;
+		for (File file : files) {
+			String path = prefix + file.getName();
+			if (file.isDirectory()) {
+				walk(file, path + "/", builder);
+			} else {
+				builder.add(path, file.length(), file.lastModified(), file);
+			}
+		}
+	}
+
+	@Override
+	public InputStream open(StaticEntry entry) throws IOException {
+		return new FileInputStream((File) entry.handle);
+	}
+
+	@Override
+	public File getFile(StaticEntry entry) {
+		return (File) entry.handle;
+	}
+}
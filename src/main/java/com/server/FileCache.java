@@ -0,0 +1,172 @@
+package com.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+// Caché de archivos con presupuesto total en bytes. Las lecturas no bloquean: cada acierto
+// solo actualiza la marca de último acceso de la entrada. Las inserciones que superan el
+// presupuesto desalojan las entradas usadas hace más tiempo (LRU).
+public class FileCache {
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+	private final AtomicLong clock = new AtomicLong();
+	private final Object evictionLock = new Object();
+	private volatile long maxBytes;
+	private final AtomicLong currentBytes = new AtomicLong();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+
+	public FileCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	// Devuelve la entrada si existe y corresponde a la versión indicada del archivo
+	CachedFile get(String key, long lastModified) {
+		return get(key, lastModified, true);
+	}
+
+	// recordMiss = false: un fallo que se volverá a consultar en otro hilo (motor NIO) y se
+	// contará allí
+	CachedFile get(String key, long lastModified, boolean recordMiss) {
+		Entry entry = entries.get(key);
+		if (entry == null || entry.file.lastModified != lastModified) {
+			if (recordMiss) misses.incrementAndGet();
+			return null;
+		}
+		entry.lastAccess = clock.incrementAndGet();
+		hits.incrementAndGet();
+		return entry.file;
+	}
+
+	void put(String key, CachedFile file) {
+		long weight = file.weight() + key.length() * 2L;
+		// Una sola entrada no puede ocupar más de un cuarto del presupuesto
+		if (weight > maxBytes / 4) {
+			rejected.incrementAndGet();
+			Entry stale = entries.remove(key);
+			if (stale != null) currentBytes.addAndGet(-stale.weight);
+			return;
+		}
+		Entry entry = new Entry(file, weight, clock.incrementAndGet());
+		Entry previous = entries.put(key, entry);
+		currentBytes.addAndGet(weight - (previous != null ? previous.weight : 0));
+		if (currentBytes.get() > maxBytes) {
+			evictTo(maxBytes);
+		}
+	}
+
+	// Si una entrada de este tamaño tiene sitio (put la rechazaría en otro caso)
+	boolean fits(long bytes) {
+		return bytes <= maxBytes / 4;
+	}
+
+	public void remove(String key) {
+		Entry entry = entries.remove(key);
+		if (entry != null) currentBytes.addAndGet(-entry.weight);
+	}
+
+	void removeIf(Predicate<String> key) {
+		for (String candidate : entries.keySet()) {
+			if (key.test(candidate)) remove(candidate);
+		}
+	}
+
+	public void clear() {
+		for (String key : entries.keySet()) {
+			remove(key);
+		}
+	}
+
+	// Reduce la ocupación ante presión de memoria (onTrimMemory); 0 vacía la caché
+	public void trimToFraction(float fraction) {
+		evictTo((long) (maxBytes * fraction));
+	}
+
+	public void setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+		evictTo(maxBytes);
+	}
+
+	private void evictTo(long targetBytes) {
+		synchronized (evictionLock) {
+			if (currentBytes.get() <= targetBytes) return;
+			List<Map.Entry<String, Entry>> candidates = new ArrayList<>(entries.entrySet());
+			Collections.sort(candidates, (a, b) -> Long.compare(a.getValue().lastAccess, b.getValue().lastAccess));
+			for (Map.Entry<String, Entry> candidate : candidates) {
+				if (currentBytes.get() <= targetBytes) break;
+				if (entries.remove(candidate.getKey(), candidate.getValue())) {
+					currentBytes.addAndGet(-candidate.getValue().weight);
+					evictions.incrementAndGet();
+				}
+			}
+		}
+	}
+
+	// Tamaño de cada entrada, de la más reciente a la más antigua
+	public Map<String, Long> getEntrySizes() {
+		List<Map.Entry<String, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+		Collections.sort(snapshot, (a, b) -> Long.compare(b.getValue().lastAccess, a.getValue().lastAccess));
+		Map<String, Long> sizes = new LinkedHashMap<>();
+		for (Map.Entry<String, Entry> entry : snapshot) {
+			sizes.put(entry.getKey(), entry.getValue().weight);
+		}
+		return sizes;
+	}
+
+	public Stats getStats() {
+		return new Stats(hits.get(), misses.get(), evictions.get(), rejected.get(),
+			entries.size(), currentBytes.get(), maxBytes);
+	}
+
+	private static class Entry {
+		final CachedFile file;
+		final long weight;
+		volatile long lastAccess;
+
+		Entry(CachedFile file, long weight, long lastAccess) {
+			this.file = file;
+			this.weight = weight;
+			this.lastAccess = lastAccess;
+		}
+	}
+
+	public static class Stats {
+		public final long hits;
+		public final long misses;
+		public final long evictions;
+		public final long rejected;
+		public final int entries;
+		public final long bytes;
+		public final long maxBytes;
+
+		Stats(long hits, long misses, long evictions, long rejected, int entries, long bytes, long maxBytes) {
+			this.hits = hits;
+			this.misses = misses;
+			this.evictions = evictions;
+			this.rejected = rejected;
+			this.entries = entries;
+			this.bytes = bytes;
+			this.maxBytes = maxBytes;
+		}
+
+		public double hitRatio() {
+			long total = hits + misses;
+			return total == 0 ? 0 : (double) hits / total;
+		}
+
+		@Override
+		public String toString() {
+			return "entradas=" + entries + " bytes=" + bytes + "/" + maxBytes
+				+ " aciertos=" + hits + " fallos=" + misses
+				+ " desalojos=" + evictions + " rechazos=" + rejected;
+		}
+	}
+}
@@ -7,14 +7,30 @@ import android.os.Environment;
 import android.provider.MediaStore;
 import android.util.Log;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 
 public class FileUtil {
 
 	public static boolean saveJsonToPublicDocuments(Context context, String content, String filename) {
-		OutputStream outputStream = null;
+		try {
+			return saveJsonToPublicDocuments(context, new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), filename);
+		} catch (IOException e) {
+			Log.e("FileUtil", "Error al guardar el archivo JSON: " + e.getMessage(), e);
+			return false;
+		}
+	}
+
+	// Copia el flujo tal cual, por bloques, sin cargar el archivo en memoria. Los errores al
+	// leer el flujo se propagan para que el llamante decida la respuesta; los de MediaStore
+	// devuelven false. En ambos casos se elimina el archivo a medio escribir.
+	public static boolean saveJsonToPublicDocuments(Context context, InputStream content, String filename) throws IOException {
 		Uri fileUri = null;
+		boolean complete = false;
+		IOException readError = null;
 
 		try {
 			ContentValues values = new ContentValues();
@@ -34,16 +50,20 @@ public class FileUtil {
 			}
 
 			// Abrimos un flujo de salida hacia la URI
-			outputStream = context.getContentResolver().openOutputStream(fileUri);
+			OutputStream outputStream = context.getContentResolver().openOutputStream(fileUri);
 			if (outputStream == null) {
 				Log.e("FileUtil", "Error: El flujo de salida es nulo para URI: " + fileUri);
 				return false;
 			}
 
-			// Escribimos el contenido
-			outputStream.write(content.getBytes());
-			outputStream.flush();
-
+			// Escribimos el contenido; solo se da por completo si el cierre también termina bien
+			try {
+				UploadCopy.copyAndClose(content, outputStream);
+			} catch (UploadCopy.ReadException e) {
+				readError = e.getReadError();
+				return false;
+			}
+			complete = true;
 			return true;
 
 		} catch (Exception e) {
@@ -51,12 +71,11 @@ public class FileUtil {
 			return false;
 
 		} finally {
-			if (outputStream != null) {
-				try {
-					outputStream.close();
-				} catch (IOException e) {
-					Log.e("FileUtil", "Error al cerrar el flujo de salida: " + e.getMessage(), e);
-				}
+			if (!complete && fileUri != null) {
+				context.getContentResolver().delete(fileUri, null, null);
+			}
+			if (readError != null) {
+				throw readError;
 			}
 		}
 	}
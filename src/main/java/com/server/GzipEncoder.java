@@ -0,0 +1,89 @@
+package com.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// Compresor gzip de lectura: entrega el archivo comprimido a medida que se le pide, con un buffer
+// de entrada de tamaño fijo. GZIPOutputStream empuja hacia un destino; aquí es el que envía la
+// respuesta quien tira de los datos, trozo a trozo, sin tener nunca el archivo entero en memoria.
+final class GzipEncoder extends InputStream {
+	// Cabecera mínima (RFC 1952), la misma que escribe GZIPOutputStream
+	private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+	private static final int INPUT_SIZE = 32 * 1024;
+
+	private final InputStream source;
+	private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+	private final CRC32 crc = new CRC32();
+	private final byte[] input = new byte[INPUT_SIZE];
+	private final byte[] trailer = new byte[8];
+	private int headerPosition;
+	// -1 hasta que termina la compresión
+	private int trailerPosition = -1;
+	private boolean sourceDone;
+
+	GzipEncoder(InputStream source) {
+		this.source = source;
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] one = new byte[1];
+		return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] target, int offset, int length) throws IOException {
+		if (length == 0) return 0;
+		if (headerPosition < HEADER.length) {
+			int count = Math.min(length, HEADER.length - headerPosition);
+			System.arraycopy(HEADER, headerPosition, target, offset, count);
+			headerPosition += count;
+			return count;
+		}
+		while (trailerPosition < 0) {
+			int count = deflater.deflate(target, offset, length);
+			if (count > 0) return count;
+			if (deflater.finished()) {
+				writeTrailer();
+			} else if (deflater.needsInput()) {
+				fill();
+			}
+		}
+		if (trailerPosition == trailer.length) return -1;
+		int count = Math.min(length, trailer.length - trailerPosition);
+		System.arraycopy(trailer, trailerPosition, target, offset, count);
+		trailerPosition += count;
+		return count;
+	}
+
+	private void fill() throws IOException {
+		if (sourceDone) return;
+		int read = source.read(input);
+		if (read == -1) {
+			sourceDone = true;
+			deflater.finish();
+			return;
+		}
+		crc.update(input, 0, read);
+		deflater.setInput(input, 0, read);
+	}
+
+	// CRC32 y tamaño original módulo 2^32, en little-endian
+	private void writeTrailer() {
+		long value = crc.getValue();
+		long size = deflater.getBytesRead();
+		for (int i = 0; i < 4; i++) {
+			trailer[i] = (byte) (value >>> (8 * i));
+			trailer[4 + i] = (byte) (size >>> (8 * i));
+		}
+		trailerPosition = 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		deflater.end();
+		source.close();
+	}
+}
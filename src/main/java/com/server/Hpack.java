@@ -0,0 +1,411 @@
+package com.server;
+
+import java.io.ByteArrayOutputStream;
+import java.net.ProtocolException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+// Compresión de cabeceras de HTTP/2 (RFC 7541): tabla estática, una tabla dinámica por sentido de
+// la conexión y códigos Huffman. El decodificador acepta cualquier representación de la RFC; el
+// codificador guarda en la tabla dinámica las cabeceras de respuesta que se repiten (content-type,
+// cache-control, vary...), que a partir de la segunda respuesta ocupan un solo byte.
+final class Hpack {
+	static final int DEFAULT_TABLE_SIZE = 4096;
+	// Cada entrada cuenta 32 bytes además del nombre y el valor
+	private static final int ENTRY_OVERHEAD = 32;
+
+	private static final String[][] STATIC_TABLE = {
+		{ ":authority", "" }, { ":method", "GET" }, { ":method", "POST" }, { ":path", "/" },
+		{ ":path", "/index.html" }, { ":scheme", "http" }, { ":scheme", "https" }, { ":status", "200" },
+		{ ":status", "204" }, { ":status", "206" }, { ":status", "304" }, { ":status", "400" },
+		{ ":status", "404" }, { ":status", "500" }, { "accept-charset", "" }, { "accept-encoding", "gzip, deflate" },
+		{ "accept-language", "" }, { "accept-ranges", "" }, { "accept", "" }, { "access-control-allow-origin", "" },
+		{ "age", "" }, { "allow", "" }, { "authorization", "" }, { "cache-control", "" },
+		{ "content-disposition", "" }, { "content-encoding", "" }, { "content-language", "" }, { "content-length", "" },
+		{ "content-location", "" }, { "content-range", "" }, { "content-type", "" }, { "cookie", "" },
+		{ "date", "" }, { "etag", "" }, { "expect", "" }, { "expires", "" },
+		{ "from", "" }, { "host", "" }, { "if-match", "" }, { "if-modified-since", "" },
+		{ "if-none-match", "" }, { "if-range", "" }, { "if-unmodified-since", "" }, { "last-modified", "" },
+		{ "link", "" }, { "location", "" }, { "max-forwards", "" }, { "proxy-authenticate", "" },
+		{ "proxy-authorization", "" }, { "range", "" }, { "referer", "" }, { "refresh", "" },
+		{ "retry-after", "" }, { "server", "" }, { "set-cookie", "" }, { "strict-transport-security", "" },
+		{ "transfer-encoding", "" }, { "user-agent", "" }, { "vary", "" }, { "via", "" },
+		{ "www-authenticate", "" }
+	};
+	// Índice (desde 1) del primer nombre y de cada par nombre/valor de la tabla estática
+	private static final Map<String, Integer> STATIC_NAMES = new HashMap<>();
+	private static final Map<String, Integer> STATIC_PAIRS = new HashMap<>();
+
+	// Código y longitud en bits de cada byte y del fin de cadena (256), RFC 7541 apéndice B
+	private static final int[] HUFFMAN_CODES = {
+		0x1ff8, 0x7fffd8, 0xfffffe2, 0xfffffe3, 0xfffffe4, 0xfffffe5, 0xfffffe6, 0xfffffe7,
+		0xfffffe8, 0xffffea, 0x3ffffffc, 0xfffffe9, 0xfffffea, 0x3ffffffd, 0xfffffeb, 0xfffffec,
+		0xfffffed, 0xfffffee, 0xfffffef, 0xffffff0, 0xffffff1, 0xffffff2, 0x3ffffffe, 0xffffff3,
+		0xffffff4, 0xffffff5, 0xffffff6, 0xffffff7, 0xffffff8, 0xffffff9, 0xffffffa, 0xffffffb,
+		0x14, 0x3f8, 0x3f9, 0xffa, 0x1ff9, 0x15, 0xf8, 0x7fa,
+		0x3fa, 0x3fb, 0xf9, 0x7fb, 0xfa, 0x16, 0x17, 0x18,
+		0x0, 0x1, 0x2, 0x19, 0x1a, 0x1b, 0x1c, 0x1d,
+		0x1e, 0x1f, 0x5c, 0xfb, 0x7ffc, 0x20, 0xffb, 0x3fc,
+		0x1ffa, 0x21, 0x5d, 0x5e, 0x5f, 0x60, 0x61, 0x62,
+		0x63, 0x64, 0x65, 0x66, 0x67, 0x68, 0x69, 0x6a,
+		0x6b, 0x6c, 0x6d, 0x6e, 0x6f, 0x70, 0x71, 0x72,
+		0xfc, 0x73, 0xfd, 0x1ffb, 0x7fff0, 0x1ffc, 0x3ffc, 0x22,
+		0x7ffd, 0x3, 0x23, 0x4, 0x24, 0x5, 0x25, 0x26,
+		0x27, 0x6, 0x74, 0x75, 0x28, 0x29, 0x2a, 0x7,
+		0x2b, 0x76, 0x2c, 0x8, 0x9, 0x2d, 0x77, 0x78,
+		0x79, 0x7a, 0x7b, 0x7ffe, 0x7fc, 0x3ffd, 0x1ffd, 0xffffffc,
+		0xfffe6, 0x3fffd2, 0xfffe7, 0xfffe8, 0x3fffd3, 0x3fffd4, 0x3fffd5, 0x7fffd9,
+		0x3fffd6, 0x7fffda, 0x7fffdb, 0x7fffdc, 0x7fffdd, 0x7fffde, 0xffffeb, 0x7fffdf,
+		0xffffec, 0xffffed, 0x3fffd7, 0x7fffe0, 0xffffee, 0x7fffe1, 0x7fffe2, 0x7fffe3,
+		0x7fffe4, 0x1fffdc, 0x3fffd8, 0x7fffe5, 0x3fffd9, 0x7fffe6, 0x7fffe7, 0xffffef,
+		0x3fffda, 0x1fffdd, 0xfffe9, 0x3fffdb, 0x3fffdc, 0x7fffe8, 0x7fffe9, 0x1fffde,
+		0x7fffea, 0x3fffdd, 0x3fffde, 0xfffff0, 0x1fffdf, 0x3fffdf, 0x7fffeb, 0x7fffec,
+		0x1fffe0, 0x1fffe1, 0x3fffe0, 0x1fffe2, 0x7fffed, 0x3fffe1, 0x7fffee, 0x7fffef,
+		0xfffea, 0x3fffe2, 0x3fffe3, 0x3fffe4, 0x7ffff0, 0x3fffe5, 0x3fffe6, 0x7ffff1,
+		0x3ffffe0, 0x3ffffe1, 0xfffeb, 0x7fff1, 0x3fffe7, 0x7ffff2, 0x3fffe8, 0x1ffffec,
+		0x3ffffe2, 0x3ffffe3, 0x3ffffe4, 0x7ffffde, 0x7ffffdf, 0x3ffffe5, 0xfffff1, 0x1ffffed,
+		0x7fff2, 0x1fffe3, 0x3ffffe6, 0x7ffffe0, 0x7ffffe1, 0x3ffffe7, 0x7ffffe2, 0xfffff2,
+		0x1fffe4, 0x1fffe5, 0x3ffffe8, 0x3ffffe9, 0xffffffd, 0x7ffffe3, 0x7ffffe4, 0x7ffffe5,
+		0xfffec, 0xfffff3, 0xfffed, 0x1fffe6, 0x3fffe9, 0x1fffe7, 0x1fffe8, 0x7ffff3,
+		0x3fffea, 0x3fffeb, 0x1ffffee, 0x1ffffef, 0xfffff4, 0xfffff5, 0x3ffffea, 0x7ffff4,
+		0x3ffffeb, 0x7ffffe6, 0x3ffffec, 0x3ffffed, 0x7ffffe7, 0x7ffffe8, 0x7ffffe9, 0x7ffffea,
+		0x7ffffeb, 0xffffffe, 0x7ffffec, 0x7ffffed, 0x7ffffee, 0x7ffffef, 0x7fffff0, 0x3ffffee,
+		0x3fffffff
+	};
+	private static final byte[] HUFFMAN_LENGTHS = {
+		13, 23, 28, 28, 28, 28, 28, 28, 28, 24, 30, 28, 28, 30, 28, 28,
+		28, 28, 28, 28, 28, 28, 30, 28, 28, 28, 28, 28, 28, 28, 28, 28,
+		6, 10, 10, 12, 13, 6, 8, 11, 10, 10, 8, 11, 8, 6, 6, 6,
+		5, 5, 5, 6, 6, 6, 6, 6, 6, 6, 7, 8, 15, 6, 12, 10,
+		13, 6, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7,
+		7, 7, 7, 7, 7, 7, 7, 7, 8, 7, 8, 13, 19, 13, 14, 6,
+		15, 5, 6, 5, 6, 5, 6, 6, 6, 5, 7, 7, 6, 6, 6, 5,
+		6, 7, 6, 5, 5, 6, 7, 7, 7, 7, 7, 15, 11, 14, 13, 28,
+		20, 22, 20, 20, 22, 22, 22, 23, 22, 23, 23, 23, 23, 23, 24, 23,
+		24, 24, 22, 23, 24, 23, 23, 23, 23, 21, 22, 23, 22, 23, 23, 24,
+		22, 21, 20, 22, 22, 23, 23, 21, 23, 22, 22, 24, 21, 22, 23, 23,
+		21, 21, 22, 21, 23, 22, 23, 23, 20, 22, 22, 22, 23, 22, 22, 23,
+		26, 26, 20, 19, 22, 23, 22, 25, 26, 26, 26, 27, 27, 26, 24, 25,
+		19, 21, 26, 27, 27, 26, 27, 24, 21, 21, 26, 26, 28, 27, 27, 27,
+		20, 24, 20, 21, 22, 21, 21, 23, 22, 22, 25, 25, 24, 24, 26, 23,
+		26, 27, 26, 26, 27, 27, 27, 27, 27, 28, 27, 27, 27, 27, 27, 26,
+		30
+	};
+	// Árbol de decodificación: dos hijos por nodo interno; una hoja es -(símbolo + 1)
+	private static final int[] HUFFMAN_TREE;
+
+	static {
+		for (int i = STATIC_TABLE.length - 1; i >= 0; i--) {
+			STATIC_NAMES.put(STATIC_TABLE[i][0], i + 1);
+			STATIC_PAIRS.put(STATIC_TABLE[i][0] + '\0' + STATIC_TABLE[i][1], i + 1);
+		}
+		int[] tree = new int[2 * 256];
+		int nodes = 1;
+		for (int symbol = 0; symbol < HUFFMAN_CODES.length; symbol++) {
+			int node = 0;
+			for (int bit = HUFFMAN_LENGTHS[symbol] - 1; bit > 0; bit--) {
+				int child = 2 * node + ((HUFFMAN_CODES[symbol] >>> bit) & 1);
+				if (tree[child] == 0) tree[child] = nodes++;
+				node = tree[child];
+			}
+			tree[2 * node + (HUFFMAN_CODES[symbol] & 1)] = -(symbol + 1);
+		}
+		HUFFMAN_TREE = tree;
+	}
+
+	private Hpack() {
+	}
+
+	// Error de compresión: la conexión entera queda inservible (COMPRESSION_ERROR)
+	static class CompressionException extends ProtocolException {
+		private static final long serialVersionUID = 1L;
+
+		CompressionException(String message) {
+			super(message);
+		}
+	}
+
+	interface HeaderSink {
+		void header(String name, String value) throws ProtocolException;
+	}
+
+	static final class Decoder {
+		private final DynamicTable table = new DynamicTable(DEFAULT_TABLE_SIZE);
+		private byte[] block;
+		private int position;
+		private int end;
+
+		// Decodifica un bloque de cabeceras completo (HEADERS + CONTINUATION) en orden
+		void decode(byte[] block, int offset, int length, HeaderSink sink) throws ProtocolException {
+			this.block = block;
+			this.position = offset;
+			this.end = offset + length;
+			while (position < end) {
+				int b = block[position] & 0xff;
+				if ((b & 0x80) != 0) {
+					int index = readInt(7);
+					sink.header(name(index), value(index));
+				} else if ((b & 0x40) != 0) {
+					int index = readInt(6);
+					String name = index == 0 ? readString() : name(index);
+					String value = readString();
+					table.add(name, value);
+					sink.header(name, value);
+				} else if ((b & 0x20) != 0) {
+					int size = readInt(5);
+					if (size > DEFAULT_TABLE_SIZE) throw new CompressionException("Tabla dinámica demasiado grande");
+					table.setMaxSize(size);
+				} else {
+					// Literal sin indexar o nunca indexado: no cambia la tabla
+					int index = readInt(4);
+					String name = index == 0 ? readString() : name(index);
+					sink.header(name, readString());
+				}
+			}
+			this.block = null;
+		}
+
+		private String name(int index) throws CompressionException {
+			return entry(index)[0];
+		}
+
+		private String value(int index) throws CompressionException {
+			return entry(index)[1];
+		}
+
+		private String[] entry(int index) throws CompressionException {
+			if (index <= 0) throw new CompressionException("Índice 0");
+			if (index <= STATIC_TABLE.length) return STATIC_TABLE[index - 1];
+			String[] entry = table.get(index - STATIC_TABLE.length - 1);
+			if (entry == null) throw new CompressionException("Índice fuera de la tabla: " + index);
+			return entry;
+		}
+
+		// Entero con prefijo de n bits (RFC 7541 5.1)
+		private int readInt(int prefixBits) throws CompressionException {
+			int mask = (1 << prefixBits) - 1;
+			int value = block[position++] & mask;
+			if (value < mask) return value;
+			int shift = 0;
+			while (true) {
+				if (position >= end) throw new CompressionException("Entero incompleto");
+				int b = block[position++] & 0xff;
+				value += (b & 0x7f) << shift;
+				if ((b & 0x80) == 0) return value;
+				shift += 7;
+				if (shift > 21) throw new CompressionException("Entero demasiado grande");
+			}
+		}
+
+		private String readString() throws CompressionException {
+			if (position >= end) throw new CompressionException("Cadena incompleta");
+			boolean huffman = (block[position] & 0x80) != 0;
+			int length = readInt(7);
+			if (length > end - position) throw new CompressionException("Cadena incompleta");
+			String value = huffman ? decodeHuffman(block, position, length) : new String(block, position, length, StandardCharsets.ISO_8859_1);
+			position += length;
+			return value;
+		}
+	}
+
+	static final class Encoder {
+		private final DynamicTable table = new DynamicTable(DEFAULT_TABLE_SIZE);
+		// Cambio de tamaño pendiente de anunciar al principio del siguiente bloque
+		private int pendingSizeUpdate = -1;
+
+		// SETTINGS_HEADER_TABLE_SIZE del otro extremo; nunca se usa más de DEFAULT_TABLE_SIZE
+		void setMaxTableSize(int size) {
+			size = Math.min(size, DEFAULT_TABLE_SIZE);
+			if (size == table.maxSize) return;
+			table.setMaxSize(size);
+			pendingSizeUpdate = size;
+		}
+
+		// Cabeceras que cambian en cada respuesta: indexarlas solo desalojaría las que se repiten
+		private static boolean isVolatile(String name) {
+			return name.equals("content-length") || name.equals("etag") || name.equals("last-modified")
+				|| name.equals("content-range") || name.equals("date");
+		}
+
+		void encode(ByteArrayOutputStream out, String name, String value) {
+			if (pendingSizeUpdate >= 0) {
+				writeInt(out, 0x20, 5, pendingSizeUpdate);
+				pendingSizeUpdate = -1;
+			}
+			Integer exact = STATIC_PAIRS.get(name + '\0' + value);
+			if (exact != null) {
+				writeInt(out, 0x80, 7, exact);
+				return;
+			}
+			int dynamic = table.indexOf(name, value);
+			if (dynamic >= 0) {
+				writeInt(out, 0x80, 7, STATIC_TABLE.length + 1 + dynamic);
+				return;
+			}
+			Integer nameIndex = STATIC_NAMES.get(name);
+			if (nameIndex == null) {
+				int dynamicName = table.indexOfName(name);
+				if (dynamicName >= 0) nameIndex = STATIC_TABLE.length + 1 + dynamicName;
+			}
+			boolean index = !isVolatile(name);
+			if (index) {
+				writeInt(out, 0x40, 6, nameIndex != null ? nameIndex : 0);
+			} else {
+				writeInt(out, 0x00, 4, nameIndex != null ? nameIndex : 0);
+			}
+			if (nameIndex == null) writeString(out, name);
+			writeString(out, value);
+			if (index) table.add(name, value);
+		}
+
+		private static void writeInt(ByteArrayOutputStream out, int pattern, int prefixBits, int value) {
+			int mask = (1 << prefixBits) - 1;
+			if (value < mask) {
+				out.write(pattern | value);
+				return;
+			}
+			out.write(pattern | mask);
+			value -= mask;
+			while (value >= 0x80) {
+				out.write((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			out.write(value);
+		}
+
+		// Huffman solo si el resultado es más corto
+		private static void writeString(ByteArrayOutputStream out, String value) {
+			byte[] raw = value.getBytes(StandardCharsets.ISO_8859_1);
+			long bits = 0;
+			for (byte b : raw) {
+				bits += HUFFMAN_LENGTHS[b & 0xff];
+			}
+			int huffmanLength = (int) ((bits + 7) / 8);
+			if (huffmanLength >= raw.length) {
+				writeInt(out, 0x00, 7, raw.length);
+				out.write(raw, 0, raw.length);
+				return;
+			}
+			writeInt(out, 0x80, 7, huffmanLength);
+			long buffer = 0;
+			int buffered = 0;
+			for (byte b : raw) {
+				int symbol = b & 0xff;
+				buffer = (buffer << HUFFMAN_LENGTHS[symbol]) | HUFFMAN_CODES[symbol];
+				buffered += HUFFMAN_LENGTHS[symbol];
+				while (buffered >= 8) {
+					buffered -= 8;
+					out.write((int) (buffer >>> buffered));
+				}
+			}
+			if (buffered > 0) {
+				// Relleno con el prefijo del fin de cadena (todo unos)
+				out.write((int) ((buffer << (8 - buffered)) | (0xff >>> buffered)));
+			}
+		}
+	}
+
+	static String decodeHuffman(byte[] data, int offset, int length) throws CompressionException {
+		StringBuilder decoded = new StringBuilder(length + length / 2);
+		int node = 0;
+		int bitsSinceSymbol = 0;
+		boolean allOnes = true;
+		for (int i = offset; i < offset + length; i++) {
+			int b = data[i] & 0xff;
+			for (int bit = 7; bit >= 0; bit--) {
+				int one = (b >>> bit) & 1;
+				int next = HUFFMAN_TREE[2 * node + one];
+				bitsSinceSymbol++;
+				allOnes &= one == 1;
+				if (next < 0) {
+					int symbol = -next - 1;
+					if (symbol == 256) throw new CompressionException("Fin de cadena dentro de la cadena");
+					decoded.append((char) symbol);
+					node = 0;
+					bitsSinceSymbol = 0;
+					allOnes = true;
+				} else if (next == 0) {
+					throw new CompressionException("Código Huffman inválido");
+				} else {
+					node = next;
+				}
+			}
+		}
+		// El relleno final son como mucho 7 bits a uno
+		if (bitsSinceSymbol > 7 || !allOnes) throw new CompressionException("Relleno Huffman inválido");
+		return decoded.toString();
+	}
+
+	// Tabla dinámica como anillo: el índice 0 es la entrada más reciente
+	private static final class DynamicTable {
+		private String[][] entries = new String[16][];
+		private int head;
+		private int count;
+		private int size;
+		private int maxSize;
+
+		DynamicTable(int maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		String[] get(int index) {
+			if (index >= count) return null;
+			return entries[(head + index) & (entries.length - 1)];
+		}
+
+		int indexOf(String name, String value) {
+			for (int i = 0; i < count; i++) {
+				String[] entry = get(i);
+				if (entry[0].equals(name) && entry[1].equals(value)) return i;
+			}
+			return -1;
+		}
+
+		int indexOfName(String name) {
+			for (int i = 0; i < count; i++) {
+				if (get(i)[0].equals(name)) return i;
+			}
+			return -1;
+		}
+
+		void add(String name, String value) {
+			int entrySize = name.length() + value.length() + ENTRY_OVERHEAD;
+			if (entrySize > maxSize) {
+				// Una entrada mayor que la tabla la vacía y no se guarda
+				evictTo(0);
+				return;
+			}
+			evictTo(maxSize - entrySize);
+			if (count == entries.length) grow();
+			head = (head - 1) & (entries.length - 1);
+			entries[head] = new String[] { name, value };
+			count++;
+			size += entrySize;
+		}
+
+		void setMaxSize(int maxSize) {
+			this.maxSize = maxSize;
+			evictTo(maxSize);
+		}
+
+		private void evictTo(int target) {
+			while (size > target && count > 0) {
+				int last = (head + count - 1) & (entries.length - 1);
+				String[] entry = entries[last];
+				entries[last] = null;
+				count--;
+				size -= entry[0].length() + entry[1].length() + ENTRY_OVERHEAD;
+			}
+		}
+
+		private void grow() {
+			String[][] larger = new String[entries.length * 2][];
+			for (int i = 0; i < count; i++) {
+				larger[i] = get(i);
+			}
+			entries = larger;
+			head = 0;
+		}
+	}
+}
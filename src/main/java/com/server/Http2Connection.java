@@ -0,0 +1,851 @@
+package com.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.ProtocolException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Conexión HTTP/2 sin TLS (h2c, RFC 9113) atendida por un solo hilo sobre el socket bloqueante.
+// Todas las solicitudes de la página llegan por la misma conexión: cada stream se enruta con
+// MyServer.respond en cuanto se reciben sus cabeceras y los cuerpos de las respuestas se reparten
+// en frames DATA por turnos entre los streams, respetando las ventanas de control de flujo del
+// cliente. Mientras haya algo que enviar solo se lee del socket lo que ya ha llegado, para atender
+// WINDOW_UPDATE y solicitudes nuevas sin bloquear la escritura.
+final class Http2Connection {
+	static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+	// Lo que queda del prefacio después de leer "PRI * HTTP/2.0" como una solicitud HTTP/1.1
+	static final int PREFACE_TAIL = 6;
+	// Respuesta a un prefacio por encima de ServerConfig.maxHttp2Connections: SETTINGS vacío y
+	// GOAWAY sin streams procesados (REFUSED_STREAM), el cliente puede reintentar más tarde
+	static final byte[] REFUSAL = {
+		0, 0, 0, 0x4, 0, 0, 0, 0, 0,
+		0, 0, 8, 0x7, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0x7
+	};
+
+	private static final int DATA = 0x0;
+	private static final int HEADERS = 0x1;
+	private static final int PRIORITY = 0x2;
+	private static final int RST_STREAM = 0x3;
+	private static final int SETTINGS = 0x4;
+	private static final int PUSH_PROMISE = 0x5;
+	private static final int PING = 0x6;
+	private static final int GOAWAY = 0x7;
+	private static final int WINDOW_UPDATE = 0x8;
+	private static final int CONTINUATION = 0x9;
+
+	private static final int FLAG_END_STREAM = 0x1;
+	private static final int FLAG_ACK = 0x1;
+	private static final int FLAG_END_HEADERS = 0x4;
+	private static final int FLAG_PADDED = 0x8;
+	private static final int FLAG_PRIORITY = 0x20;
+
+	private static final int NO_ERROR = 0x0;
+	private static final int PROTOCOL_ERROR = 0x1;
+	private static final int FLOW_CONTROL_ERROR = 0x3;
+	private static final int STREAM_CLOSED = 0x5;
+	private static final int FRAME_SIZE_ERROR = 0x6;
+	private static final int REFUSED_STREAM = 0x7;
+	private static final int COMPRESSION_ERROR = 0x9;
+	private static final int ENHANCE_YOUR_CALM = 0xb;
+
+	private static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+	private static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+	private static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+	private static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+	private static final int SETTINGS_MAX_HEADER_LIST_SIZE = 0x6;
+
+	private static final int DEFAULT_WINDOW = 65535;
+	private static final int MAX_FRAME_SIZE = 16384;
+	private static final int MAX_CONCURRENT_STREAMS = 100;
+	// Anunciado en SETTINGS_MAX_HEADER_LIST_SIZE; acota también el bloque comprimido mientras se
+	// acumulan los CONTINUATION
+	private static final int MAX_HEADER_LIST_SIZE = HttpRequest.MAX_HEADER_BYTES;
+	// Ventana de recepción de la conexión: los cuerpos se acotan por la ventana de cada stream
+	private static final int CONNECTION_WINDOW = 1024 * 1024;
+
+	private final MyServer server;
+	private final ServerConfig config;
+	private final InputStream in;
+	private final OutputStream out;
+	private final Hpack.Decoder decoder = new Hpack.Decoder();
+	private final Hpack.Encoder encoder = new Hpack.Encoder();
+	private final Map<Integer, Stream> streams = new HashMap<>();
+	// Streams con las cabeceras completas esperando respuesta
+	private final ArrayDeque<Stream> ready = new ArrayDeque<>();
+	// Streams con cuerpo de respuesta pendiente, en turno
+	private final ArrayDeque<Stream> sending = new ArrayDeque<>();
+	private final HttpRequest request = new HttpRequest();
+
+	private final byte[] frameHeader = new byte[9];
+	private final byte[] payload = new byte[MAX_FRAME_SIZE];
+	private final ByteArrayOutputStream headerBlock = new ByteArrayOutputStream(1024);
+	private final ByteArrayOutputStream encodedHeaders = new ByteArrayOutputStream(512);
+	private byte[] dataBuffer = new byte[MAX_FRAME_SIZE];
+
+	// Ajustes del cliente
+	private int peerInitialWindow = DEFAULT_WINDOW;
+	private int peerMaxFrameSize = MAX_FRAME_SIZE;
+
+	private long connectionSendWindow = DEFAULT_WINDOW;
+	private int connectionReceived;
+	private int lastStreamId;
+	// Stream cuyas cabeceras siguen en frames CONTINUATION
+	private Stream continuing;
+	// Tamaño de la lista decodificada hasta ahora (RFC 7541 4.1: nombre + valor + 32)
+	private int headerListSize;
+	private boolean goingAway;
+	// Error de conexión detectado mientras una ruta leía un cuerpo
+	private IOException failure;
+
+	Http2Connection(MyServer server, ServerConfig config, InputStream in, OutputStream out) {
+		this.server = server;
+		this.config = config;
+		this.in = in;
+		this.out = out;
+	}
+
+	// "PRI * HTTP/2.0" leído como solicitud HTTP/1.1: el cliente empieza directamente en HTTP/2
+	static boolean isPreface(HttpRequest request) {
+		return "PRI".equals(request.getMethod()) && "HTTP/2.0".equals(request.getVersion()) && "*".equals(request.getPath());
+	}
+
+	// GET con "Upgrade: h2c" y HTTP2-Settings. Las solicitudes con cuerpo siguen en HTTP/1.1.
+	static boolean isUpgrade(HttpRequest request) {
+		if (!"GET".equals(request.getMethod()) || !request.hasHeader("http2-settings")) return false;
+		String upgrade = request.getHeader("upgrade");
+		if (upgrade == null) return false;
+		for (String token : upgrade.split(",")) {
+			if (token.trim().equalsIgnoreCase("h2c")) return true;
+		}
+		return false;
+	}
+
+	// Conexión que empezó con el prefacio (prior knowledge); "PRI * HTTP/2.0" ya se leyó
+	void serveAfterPreface() throws IOException {
+		expect(PREFACE, PREFACE.length - PREFACE_TAIL);
+		writeSettings();
+		serve();
+	}
+
+	// Conexión que pidió "Upgrade: h2c": la solicitud original es el stream 1, ya cerrado por el
+	// cliente, y su respuesta se envía por HTTP/2 después del 101
+	void serveUpgrade(HttpRequest upgrade) throws IOException {
+		String settings = upgrade.getHeader("http2-settings");
+		out.write(("HTTP/1.1 101 Switching Protocols\r\n" +
+			"Connection: Upgrade\r\n" +
+			"Upgrade: h2c\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+		writeSettings();
+		if (settings != null) {
+			try {
+				byte[] decoded = Base64.getUrlDecoder().decode(settings.trim());
+				applySettings(decoded, decoded.length);
+			} catch (IllegalArgumentException e) {
+				throw new ConnectionException(PROTOCOL_ERROR, "HTTP2-Settings inválido");
+			}
+		}
+		Stream stream = new Stream(1);
+		stream.remoteClosed = true;
+		streams.put(1, stream);
+		lastStreamId = 1;
+		HttpResponse response;
+		try {
+			response = server.respond(upgrade, null);
+		} catch (IOException e) {
+			response = HttpResponse.text("500 Internal Server Error", "Error interno");
+		}
+		startResponse(stream, response);
+		out.flush();
+		expect(PREFACE, 0);
+		serve();
+	}
+
+	private void serve() throws IOException {
+		try {
+			while (true) {
+				while (!ready.isEmpty()) {
+					dispatch(ready.poll());
+				}
+				boolean wrote = writeData();
+				if (goingAway && streams.isEmpty()) {
+					writeGoAway(NO_ERROR);
+					break;
+				}
+				if (wrote && in.available() == 0) continue;
+				try {
+					readFrame();
+				} catch (SocketTimeoutException e) {
+					// Sin actividad: se despide y libera el hilo
+					writeGoAway(NO_ERROR);
+					break;
+				}
+			}
+		} catch (ConnectionException e) {
+			writeGoAway(e.error);
+		} catch (EOFException e) {
+			// El cliente cerró la conexión
+		} finally {
+			for (Stream stream : streams.values()) {
+				stream.closeFile();
+			}
+			streams.clear();
+			try {
+				out.flush();
+			} catch (IOException ignored) {
+			}
+		}
+	}
+
+	// Enruta una solicitud completa y empieza su respuesta
+	private void dispatch(Stream stream) throws IOException {
+		if (stream.reset) return;
+		byte[] head = stream.requestHead.toString().getBytes(StandardCharsets.ISO_8859_1);
+		stream.requestHead = null;
+		HttpResponse response;
+		try {
+			if (head.length > HttpRequest.MAX_HEADER_BYTES) {
+				throw new HttpRequest.HeaderTooLargeException("Cabeceras demasiado grandes");
+			}
+			request.parse(head, 0, head.length);
+			if ("POST".equals(request.getMethod())) {
+				HttpResponse invalid = server.checkBodyLimits(request);
+				response = invalid != null ? invalid : server.respondWithBody(request, new StreamBody(stream));
+			} else {
+				response = server.respond(request, null);
+			}
+		} catch (ProtocolException e) {
+			response = MyServer.malformedRequest(e);
+		} catch (IOException e) {
+			if (failure != null) throw failure;
+			response = HttpResponse.text("500 Internal Server Error", "Error interno");
+		}
+		if (failure != null) throw failure;
+		if (!stream.reset) startResponse(stream, response);
+	}
+
+	// Cabeceras de la respuesta en HEADERS (+ CONTINUATION); el cuerpo queda en turno
+	private void startResponse(Stream stream, HttpResponse response) throws IOException {
+		if (response.getEarlyHints() != null) {
+			writeHeaders(stream.id, response.getEarlyHints().encodeHead(), false);
+		}
+		stream.segments = response.getSegments();
+		stream.remaining = response.getContentLength();
+		boolean endStream = stream.remaining == 0;
+		writeHeaders(stream.id, response.encodeHead(), endStream);
+		if (endStream) {
+			finishResponse(stream);
+		} else {
+			sending.add(stream);
+		}
+	}
+
+	// Convierte la cabecera HTTP/1.1 codificada a HPACK y la envía en HEADERS (+ CONTINUATION)
+	private void writeHeaders(int streamId, byte[] head, boolean endStream) throws IOException {
+		encodedHeaders.reset();
+		int lineEnd = indexOf(head, 0, '\r');
+		encoder.encode(encodedHeaders, ":status", new String(head, 9, 3, StandardCharsets.ISO_8859_1));
+		int position = lineEnd + 2;
+		while (position < head.length) {
+			int end = indexOf(head, position, '\r');
+			int colon = indexOf(head, position, ':');
+			String name = new String(head, position, colon - position, StandardCharsets.ISO_8859_1).toLowerCase(Locale.ROOT);
+			int valueStart = colon + 1;
+			while (valueStart < end && head[valueStart] == ' ') valueStart++;
+			// Las cabeceras propias de la conexión no existen en HTTP/2
+			if (!name.equals("connection") && !name.equals("keep-alive") && !name.equals("transfer-encoding")) {
+				encoder.encode(encodedHeaders, name, new String(head, valueStart, end - valueStart, StandardCharsets.ISO_8859_1));
+			}
+			position = end + 2;
+		}
+
+		byte[] block = encodedHeaders.toByteArray();
+		int offset = 0;
+		int type = HEADERS;
+		do {
+			int length = Math.min(peerMaxFrameSize, block.length - offset);
+			boolean last = offset + length == block.length;
+			int flags = (last ? FLAG_END_HEADERS : 0) | (type == HEADERS && endStream ? FLAG_END_STREAM : 0);
+			writeFrame(type, flags, streamId, block, offset, length);
+			offset += length;
+			type = CONTINUATION;
+		} while (offset < block.length);
+	}
+
+	// Una vuelta por los streams con cuerpo pendiente: un frame DATA para cada uno que tenga
+	// ventana. Devuelve false si no se pudo escribir nada.
+	private boolean writeData() throws IOException {
+		boolean wrote = false;
+		int turns = sending.size();
+		for (int i = 0; i < turns && connectionSendWindow > 0; i++) {
+			Stream stream = sending.poll();
+			if (stream.reset) {
+				stream.closeFile();
+				continue;
+			}
+			// remaining < 0: cuerpo de longitud desconocida, que termina cuando se agota
+			long remaining = stream.remaining < 0 ? Integer.MAX_VALUE : stream.remaining;
+			int length = (int) Math.min(Math.min(peerMaxFrameSize, remaining),
+				Math.min(connectionSendWindow, stream.sendWindow));
+			if (length <= 0) {
+				// Sin ventana en este stream: espera su WINDOW_UPDATE
+				sending.add(stream);
+				continue;
+			}
+			if (dataBuffer.length < length) dataBuffer = new byte[length];
+			length = stream.read(dataBuffer, length);
+			if (stream.remaining > 0) stream.remaining -= length;
+			stream.sendWindow -= length;
+			connectionSendWindow -= length;
+			boolean last = stream.remaining == 0 || stream.segment == stream.segments.size();
+			writeFrame(DATA, last ? FLAG_END_STREAM : 0, stream.id, dataBuffer, 0, length);
+			wrote = true;
+			if (last) {
+				finishResponse(stream);
+			} else {
+				sending.add(stream);
+			}
+		}
+		return wrote;
+	}
+
+	private void finishResponse(Stream stream) throws IOException {
+		stream.closeFile();
+		stream.responded = true;
+		if (!stream.remoteClosed) {
+			// La ruta respondió sin leer todo el cuerpo: el cliente puede dejar de enviarlo
+			writeRstStream(stream.id, NO_ERROR);
+			stream.reset = true;
+		}
+		streams.remove(stream.id);
+	}
+
+	private void readFrame() throws IOException {
+		if (in.available() == 0) out.flush();
+		readFully(frameHeader, 9);
+		int length = ((frameHeader[0] & 0xff) << 16) | ((frameHeader[1] & 0xff) << 8) | (frameHeader[2] & 0xff);
+		int type = frameHeader[3] & 0xff;
+		int flags = frameHeader[4] & 0xff;
+		int streamId = readInt(frameHeader, 5) & 0x7fffffff;
+		if (length > MAX_FRAME_SIZE) throw new ConnectionException(FRAME_SIZE_ERROR, "Frame de " + length + " bytes");
+		readFully(payload, length);
+		if (continuing != null && (type != CONTINUATION || streamId != continuing.id)) {
+			throw new ConnectionException(PROTOCOL_ERROR, "Se esperaba CONTINUATION");
+		}
+
+		switch (type) {
+			case DATA:
+				onData(streamId, flags, length);
+				break;
+			case HEADERS:
+				onHeaders(streamId, flags, length);
+				break;
+			case CONTINUATION:
+				if (continuing == null) throw new ConnectionException(PROTOCOL_ERROR, "CONTINUATION inesperado");
+				appendHeaderBlock(0, length);
+				if ((flags & FLAG_END_HEADERS) != 0) endHeaders();
+				break;
+			case PRIORITY:
+				if (length != 5) throw new ConnectionException(FRAME_SIZE_ERROR, "PRIORITY inválido");
+				break;
+			case RST_STREAM:
+				if (length != 4) throw new ConnectionException(FRAME_SIZE_ERROR, "RST_STREAM inválido");
+				if (streamId == 0) throw new ConnectionException(PROTOCOL_ERROR, "RST_STREAM en el stream 0");
+				onReset(streamId);
+				break;
+			case SETTINGS:
+				if (streamId != 0) throw new ConnectionException(PROTOCOL_ERROR, "SETTINGS en un stream");
+				if ((flags & FLAG_ACK) != 0) break;
+				if (length % 6 != 0) throw new ConnectionException(FRAME_SIZE_ERROR, "SETTINGS inválido");
+				applySettings(payload, length);
+				writeFrame(SETTINGS, FLAG_ACK, 0, payload, 0, 0);
+				break;
+			case PING:
+				if (length != 8) throw new ConnectionException(FRAME_SIZE_ERROR, "PING inválido");
+				if ((flags & FLAG_ACK) == 0) writeFrame(PING, FLAG_ACK, 0, payload, 0, 8);
+				break;
+			case GOAWAY:
+				// El cliente no abrirá más streams: se terminan los que hay y se cierra
+				goingAway = true;
+				break;
+			case WINDOW_UPDATE:
+				onWindowUpdate(streamId, length);
+				break;
+			case PUSH_PROMISE:
+				throw new ConnectionException(PROTOCOL_ERROR, "PUSH_PROMISE de un cliente");
+			default:
+				// Los tipos desconocidos se ignoran
+		}
+	}
+
+	private void onHeaders(int streamId, int flags, int length) throws IOException {
+		if (streamId == 0 || (streamId & 1) == 0) throw new ConnectionException(PROTOCOL_ERROR, "Stream inválido " + streamId);
+		int offset = 0;
+		int padding = 0;
+		if ((flags & FLAG_PADDED) != 0) {
+			padding = payload[0] & 0xff;
+			offset = 1;
+		}
+		if ((flags & FLAG_PRIORITY) != 0) offset += 5;
+		if (offset + padding > length) throw new ConnectionException(PROTOCOL_ERROR, "Relleno inválido");
+
+		Stream stream = streams.get(streamId);
+		if (stream == null) {
+			if (streamId <= lastStreamId) throw new ConnectionException(STREAM_CLOSED, "Stream cerrado " + streamId);
+			lastStreamId = streamId;
+			stream = new Stream(streamId);
+			// Por encima del límite el bloque se decodifica igual (estado HPACK) y el stream se rechaza
+			stream.refused = goingAway || streams.size() >= MAX_CONCURRENT_STREAMS;
+			streams.put(streamId, stream);
+		} else if (stream.remoteClosed) {
+			throw new ConnectionException(STREAM_CLOSED, "HEADERS en un stream cerrado");
+		} else {
+			// Trailers de un cuerpo: deben cerrar el stream
+			if ((flags & FLAG_END_STREAM) == 0) throw new ConnectionException(PROTOCOL_ERROR, "Trailers sin END_STREAM");
+			stream.trailers = true;
+		}
+		stream.endStreamPending = (flags & FLAG_END_STREAM) != 0;
+		headerBlock.reset();
+		appendHeaderBlock(offset, length - offset - padding);
+		continuing = stream;
+		if ((flags & FLAG_END_HEADERS) != 0) endHeaders();
+	}
+
+	// Sin límite, un cliente podría enviar CONTINUATION sin fin antes de END_HEADERS
+	private void appendHeaderBlock(int offset, int length) throws ConnectionException {
+		if (headerBlock.size() + length > MAX_HEADER_LIST_SIZE) {
+			throw new ConnectionException(ENHANCE_YOUR_CALM, "Bloque de cabeceras demasiado grande");
+		}
+		headerBlock.write(payload, offset, length);
+	}
+
+	// Se corta en cuanto la lista supera el límite anunciado: unas pocas referencias a la tabla
+	// dinámica pueden expandirse a megabytes
+	private void decodeHeaderBlock(Hpack.HeaderSink sink) throws ConnectionException {
+		headerListSize = 0;
+		try {
+			decoder.decode(headerBlock.toByteArray(), 0, headerBlock.size(), (name, value) -> {
+				headerListSize += name.length() + value.length() + 32;
+				if (headerListSize > MAX_HEADER_LIST_SIZE) {
+					throw new ConnectionException(ENHANCE_YOUR_CALM, "Lista de cabeceras demasiado grande");
+				}
+				sink.header(name, value);
+			});
+		} catch (ConnectionException e) {
+			throw e;
+		} catch (ProtocolException e) {
+			throw new ConnectionException(COMPRESSION_ERROR, e.getMessage());
+		}
+	}
+
+	private void endHeaders() throws IOException {
+		Stream stream = continuing;
+		continuing = null;
+		if (stream.trailers) {
+			decodeHeaderBlock((name, value) -> { });
+			stream.remoteClosed = true;
+			return;
+		}
+		RequestHead head = new RequestHead();
+		decodeHeaderBlock(head);
+		stream.remoteClosed = stream.endStreamPending;
+		if (stream.refused) {
+			writeRstStream(stream.id, REFUSED_STREAM);
+			streams.remove(stream.id);
+			return;
+		}
+		if (head.method == null || head.path == null || head.invalid) {
+			writeRstStream(stream.id, PROTOCOL_ERROR);
+			streams.remove(stream.id);
+			return;
+		}
+		stream.requestHead = head.toHttp1();
+		ready.add(stream);
+	}
+
+	private void onData(int streamId, int flags, int length) throws IOException {
+		if (streamId == 0) throw new ConnectionException(PROTOCOL_ERROR, "DATA en el stream 0");
+		int offset = 0;
+		int padding = 0;
+		if ((flags & FLAG_PADDED) != 0) {
+			if (length == 0) throw new ConnectionException(PROTOCOL_ERROR, "Relleno inválido");
+			padding = payload[0] & 0xff;
+			offset = 1;
+			if (offset + padding > length) throw new ConnectionException(PROTOCOL_ERROR, "Relleno inválido");
+		}
+		// La ventana de la conexión se repone en cuanto llega el frame
+		connectionReceived += length;
+		if (connectionReceived >= CONNECTION_WINDOW / 2) {
+			writeWindowUpdate(0, connectionReceived);
+			connectionReceived = 0;
+		}
+
+		Stream stream = streams.get(streamId);
+		if (stream == null) {
+			if (streamId > lastStreamId) throw new ConnectionException(PROTOCOL_ERROR, "DATA en un stream inactivo");
+			// Stream ya terminado o reiniciado por el servidor: los datos en vuelo se descartan
+			return;
+		}
+		if (stream.remoteClosed) throw new ConnectionException(STREAM_CLOSED, "DATA en un stream cerrado");
+		stream.receiveWindow -= length;
+		if (stream.receiveWindow < 0) throw new ConnectionException(FLOW_CONTROL_ERROR, "Ventana del stream excedida");
+		if ((flags & FLAG_END_STREAM) != 0) stream.remoteClosed = true;
+		if (stream.reset || stream.responded) return;
+		stream.append(payload, offset, length - offset - padding);
+		// El relleno no llega a la ruta: su ventana se devuelve ya
+		stream.consumed += offset + padding;
+	}
+
+	private void onReset(int streamId) throws ConnectionException {
+		Stream stream = streams.remove(streamId);
+		if (stream == null) {
+			if (streamId > lastStreamId) throw new ConnectionException(PROTOCOL_ERROR, "RST_STREAM en un stream inactivo");
+			return;
+		}
+		stream.reset = true;
+		stream.remoteClosed = true;
+		stream.closeFile();
+		sending.remove(stream);
+	}
+
+	private void onWindowUpdate(int streamId, int length) throws IOException {
+		if (length != 4) throw new ConnectionException(FRAME_SIZE_ERROR, "WINDOW_UPDATE inválido");
+		int increment = readInt(payload, 0) & 0x7fffffff;
+		if (streamId == 0) {
+			if (increment == 0) throw new ConnectionException(PROTOCOL_ERROR, "Incremento 0");
+			connectionSendWindow += increment;
+			if (connectionSendWindow > Integer.MAX_VALUE) throw new ConnectionException(FLOW_CONTROL_ERROR, "Ventana desbordada");
+			return;
+		}
+		Stream stream = streams.get(streamId);
+		if (stream == null) return;
+		if (increment == 0 || (long) stream.sendWindow + increment > Integer.MAX_VALUE) {
+			writeRstStream(streamId, increment == 0 ? PROTOCOL_ERROR : FLOW_CONTROL_ERROR);
+			onReset(streamId);
+			return;
+		}
+		stream.sendWindow += increment;
+	}
+
+	private void applySettings(byte[] settings, int length) throws IOException {
+		for (int i = 0; i + 6 <= length; i += 6) {
+			int id = ((settings[i] & 0xff) << 8) | (settings[i + 1] & 0xff);
+			int value = readInt(settings, i + 2);
+			switch (id) {
+				case SETTINGS_HEADER_TABLE_SIZE:
+					encoder.setMaxTableSize(value < 0 ? Integer.MAX_VALUE : value);
+					break;
+				case SETTINGS_INITIAL_WINDOW_SIZE:
+					if (value < 0) throw new ConnectionException(FLOW_CONTROL_ERROR, "Ventana inicial inválida");
+					int delta = value - peerInitialWindow;
+					peerInitialWindow = value;
+					for (Stream stream : streams.values()) {
+						if ((long) stream.sendWindow + delta > Integer.MAX_VALUE) {
+							throw new ConnectionException(FLOW_CONTROL_ERROR, "Ventana desbordada");
+						}
+						stream.sendWindow += delta;
+					}
+					break;
+				case SETTINGS_MAX_FRAME_SIZE:
+					if (value < MAX_FRAME_SIZE || value > 0xffffff) throw new ConnectionException(PROTOCOL_ERROR, "Tamaño de frame inválido");
+					peerMaxFrameSize = value;
+					break;
+				default:
+					// ENABLE_PUSH, MAX_CONCURRENT_STREAMS y desconocidos: el servidor no los necesita
+			}
+		}
+	}
+
+	private void writeSettings() throws IOException {
+		byte[] settings = new byte[18];
+		putSetting(settings, 0, SETTINGS_MAX_CONCURRENT_STREAMS, MAX_CONCURRENT_STREAMS);
+		putSetting(settings, 6, SETTINGS_MAX_FRAME_SIZE, MAX_FRAME_SIZE);
+		putSetting(settings, 12, SETTINGS_MAX_HEADER_LIST_SIZE, MAX_HEADER_LIST_SIZE);
+		writeFrame(SETTINGS, 0, 0, settings, 0, settings.length);
+		writeWindowUpdate(0, CONNECTION_WINDOW - DEFAULT_WINDOW);
+	}
+
+	private static void putSetting(byte[] settings, int offset, int id, int value) {
+		settings[offset] = (byte) (id >>> 8);
+		settings[offset + 1] = (byte) id;
+		putInt(settings, offset + 2, value);
+	}
+
+	private void writeWindowUpdate(int streamId, int increment) throws IOException {
+		byte[] update = new byte[4];
+		putInt(update, 0, increment);
+		writeFrame(WINDOW_UPDATE, 0, streamId, update, 0, 4);
+	}
+
+	private void writeRstStream(int streamId, int error) throws IOException {
+		byte[] code = new byte[4];
+		putInt(code, 0, error);
+		writeFrame(RST_STREAM, 0, streamId, code, 0, 4);
+	}
+
+	private void writeGoAway(int error) throws IOException {
+		byte[] goAway = new byte[8];
+		putInt(goAway, 0, lastStreamId);
+		putInt(goAway, 4, error);
+		writeFrame(GOAWAY, 0, 0, goAway, 0, 8);
+		out.flush();
+	}
+
+	private void writeFrame(int type, int flags, int streamId, byte[] data, int offset, int length) throws IOException {
+		frameHeader[0] = (byte) (length >>> 16);
+		frameHeader[1] = (byte) (length >>> 8);
+		frameHeader[2] = (byte) length;
+		frameHeader[3] = (byte) type;
+		frameHeader[4] = (byte) flags;
+		putInt(frameHeader, 5, streamId);
+		out.write(frameHeader, 0, 9);
+		out.write(data, offset, length);
+	}
+
+	private void expect(byte[] expected, int from) throws IOException {
+		byte[] received = new byte[expected.length - from];
+		readFully(received, received.length);
+		for (int i = 0; i < received.length; i++) {
+			if (received[i] != expected[from + i]) throw new ConnectionException(PROTOCOL_ERROR, "Prefacio HTTP/2 inválido");
+		}
+	}
+
+	private void readFully(byte[] buffer, int length) throws IOException {
+		int read = 0;
+		while (read < length) {
+			int count = in.read(buffer, read, length - read);
+			if (count == -1) throw new EOFException("Conexión cerrada");
+			read += count;
+		}
+	}
+
+	private static int readInt(byte[] buffer, int offset) {
+		return ((buffer[offset] & 0xff) << 24) | ((buffer[offset + 1] & 0xff) << 16)
+			| ((buffer[offset + 2] & 0xff) << 8) | (buffer[offset + 3] & 0xff);
+	}
+
+	private static void putInt(byte[] buffer, int offset, int value) {
+		buffer[offset] = (byte) (value >>> 24);
+		buffer[offset + 1] = (byte) (value >>> 16);
+		buffer[offset + 2] = (byte) (value >>> 8);
+		buffer[offset + 3] = (byte) value;
+	}
+
+	private static int indexOf(byte[] buffer, int from, char c) {
+		for (int i = from; i < buffer.length; i++) {
+			if (buffer[i] == c) return i;
+		}
+		return buffer.length;
+	}
+
+	static class ConnectionException extends ProtocolException {
+		private static final long serialVersionUID = 1L;
+		final int error;
+
+		ConnectionException(int error, String message) {
+			super(message);
+			this.error = error;
+		}
+	}
+
+	// Pseudo-cabeceras y cabeceras de una solicitud, reescritas como cabecera HTTP/1.1 para que
+	// HttpRequest y el enrutado sean los mismos en las dos versiones del protocolo
+	private static final class RequestHead implements Hpack.HeaderSink {
+		String method;
+		String path;
+		String authority;
+		boolean invalid;
+		final StringBuilder fields = new StringBuilder(256);
+
+		@Override
+		public void header(String name, String value) {
+			if (value.indexOf('\r') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\0') >= 0) {
+				invalid = true;
+				return;
+			}
+			if (name.startsWith(":")) {
+				if (name.equals(":method")) method = value;
+				else if (name.equals(":path")) path = value;
+				else if (name.equals(":authority")) authority = value;
+				else if (!name.equals(":scheme")) invalid = true;
+				return;
+			}
+			if (name.equals("connection") || name.equals("keep-alive") || name.equals("transfer-encoding")
+				|| name.equals("upgrade") || name.equals("host")) {
+				if (name.equals("host") && authority == null) authority = value;
+				return;
+			}
+			fields.append(name).append(": ").append(value).append("\r\n");
+		}
+
+		StringBuilder toHttp1() {
+			StringBuilder head = new StringBuilder(fields.length() + 64);
+			head.append(method).append(' ').append(path).append(" HTTP/1.1\r\n");
+			if (authority != null) head.append("host: ").append(authority).append("\r\n");
+			return head.append(fields).append("\r\n");
+		}
+	}
+
+	private final class Stream {
+		final int id;
+		int sendWindow = peerInitialWindow;
+		int receiveWindow = DEFAULT_WINDOW;
+		boolean remoteClosed;
+		boolean endStreamPending;
+		boolean trailers;
+		boolean refused;
+		boolean responded;
+		boolean reset;
+		StringBuilder requestHead;
+
+		// Cuerpo recibido que la ruta aún no ha leído; como mucho una ventana
+		byte[] body;
+		int bodyStart;
+		int bodyEnd;
+		// Bytes leídos por la ruta cuya ventana aún no se devolvió al cliente
+		int consumed;
+
+		List<Object> segments;
+		int segment;
+		long segmentOffset;
+		long remaining;
+		RandomAccessFile file;
+		InputStream input;
+
+		Stream(int id) {
+			this.id = id;
+		}
+
+		void append(byte[] data, int offset, int length) {
+			if (body == null) body = new byte[Math.max(length, 8192)];
+			if (bodyEnd + length > body.length) {
+				int pending = bodyEnd - bodyStart;
+				byte[] target = pending + length > body.length ? new byte[Math.max(body.length * 2, pending + length)] : body;
+				System.arraycopy(body, bodyStart, target, 0, pending);
+				body = target;
+				bodyStart = 0;
+				bodyEnd = pending;
+			}
+			System.arraycopy(data, offset, body, bodyEnd, length);
+			bodyEnd += length;
+		}
+
+		// Copia los siguientes length bytes del cuerpo de la respuesta; menos si se agota un
+		// StreamedBody, que no tiene longitud conocida
+		int read(byte[] target, int length) throws IOException {
+			int copied = 0;
+			while (copied < length && segment < segments.size()) {
+				Object current = segments.get(segment);
+				long size;
+				int count;
+				if (current instanceof HttpResponse.StreamedBody) {
+					if (input == null) input = ((HttpResponse.StreamedBody) current).open();
+					count = MyServer.readChunk(input, target, copied, length - copied);
+					copied += count;
+					if (copied < length) {
+						closeFile();
+						segment++;
+					}
+					continue;
+				}
+				if (current instanceof HttpResponse.FileRegion) {
+					HttpResponse.FileRegion region = (HttpResponse.FileRegion) current;
+					size = region.length;
+					count = (int) Math.min(length - copied, size - segmentOffset);
+					if (file == null) file = new RandomAccessFile(region.file, "r");
+					file.seek(region.offset + segmentOffset);
+					file.readFully(target, copied, count);
+				} else {
+					byte[] bytes = (byte[]) current;
+					size = bytes.length;
+					count = (int) Math.min(length - copied, size - segmentOffset);
+					System.arraycopy(bytes, (int) segmentOffset, target, copied, count);
+				}
+				copied += count;
+				segmentOffset += count;
+				if (segmentOffset == size) {
+					closeFile();
+					segment++;
+					segmentOffset = 0;
+				}
+			}
+			return copied;
+		}
+
+		void closeFile() {
+			if (file != null) {
+				try {
+					file.close();
+				} catch (IOException ignored) {
+				}
+				file = null;
+			}
+			if (input != null) {
+				try {
+					input.close();
+				} catch (IOException ignored) {
+				}
+				input = null;
+			}
+		}
+	}
+
+	// Cuerpo de un stream tal como lo lee la ruta: entrega lo ya recibido y, si falta, sigue
+	// leyendo frames de la conexión (los de otros streams se guardan para después). La ventana del
+	// stream se devuelve al cliente a medida que la ruta consume los datos.
+	private final class StreamBody extends InputStream {
+		private final Stream stream;
+		private long total;
+
+		StreamBody(Stream stream) {
+			this.stream = stream;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] one = new byte[1];
+			return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] target, int offset, int length) throws IOException {
+			if (length == 0) return 0;
+			while (stream.bodyEnd == stream.bodyStart) {
+				if (stream.reset) throw new EOFException("Stream cancelado por el cliente");
+				if (stream.remoteClosed) return -1;
+				if (stream.consumed > 0) {
+					writeWindowUpdate(stream.id, stream.consumed);
+					stream.receiveWindow += stream.consumed;
+					stream.consumed = 0;
+				}
+				try {
+					readFrame();
+				} catch (IOException e) {
+					failure = e;
+					throw e;
+				}
+			}
+			int count = Math.min(length, stream.bodyEnd - stream.bodyStart);
+			System.arraycopy(stream.body, stream.bodyStart, target, offset, count);
+			stream.bodyStart += count;
+			stream.consumed += count;
+			total += count;
+			if (total > config.maxUploadBytes) throw new RequestBody.TooLargeException();
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return stream.bodyEnd - stream.bodyStart;
+		}
+	}
+}
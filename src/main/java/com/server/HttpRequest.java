@@ -0,0 +1,466 @@
+package com.server;
+
+import java.net.ProtocolException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Solicitud HTTP/1.1 interpretada a nivel de bytes. Cada conexión reutiliza la misma instancia
+// y su buffer: la línea de solicitud y las cabeceras se guardan como posiciones dentro del
+// buffer, el método y las cabeceras conocidas se reconocen sin crear Strings, y los valores solo
+// se convierten a String cuando alguien los pide.
+public class HttpRequest {
+	static final int MAX_HEADER_BYTES = 16 * 1024;
+	private static final int MAX_HEADERS = 100;
+	private static final int MAX_RANGES = 16;
+	private static final int INITIAL_BUFFER_SIZE = 1024;
+
+	private static final String[] METHODS = { "GET", "POST", "OPTIONS", "HEAD", "PUT", "DELETE", "PATCH" };
+	private static final byte[][] METHOD_BYTES = ascii(METHODS);
+	private static final String HTTP_1_1 = "HTTP/1.1";
+	private static final String HTTP_1_0 = "HTTP/1.0";
+	private static final byte[] HTTP_1_1_BYTES = HTTP_1_1.getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] HTTP_1_0_BYTES = HTTP_1_0.getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] CONNECTION = ascii("connection");
+	private static final byte[] CONTENT_LENGTH = ascii("content-length");
+	private static final byte[] TRANSFER_ENCODING = ascii("transfer-encoding");
+	private static final byte[] ACCEPT_ENCODING = ascii("accept-encoding");
+	private static final byte[] CLOSE = ascii("close");
+	private static final byte[] KEEP_ALIVE = ascii("keep-alive");
+	private static final byte[] CHUNKED = ascii("chunked");
+	private static final byte[] BR = ascii("br");
+	private static final byte[] GZIP = ascii("gzip");
+	private static final byte[] X_GZIP = ascii("x-gzip");
+	private static final byte[] IDENTITY = ascii("identity");
+
+	private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+	private int length;
+
+	private String method;
+	private int targetStart;
+	private int pathEnd;
+	private int targetEnd;
+	private String path;
+	private String version;
+
+	// Posiciones de nombre y valor (sin espacios alrededor) de cada cabecera
+	private final int[] nameStart = new int[MAX_HEADERS];
+	private final int[] nameEnd = new int[MAX_HEADERS];
+	private final int[] valueStart = new int[MAX_HEADERS];
+	private final int[] valueEnd = new int[MAX_HEADERS];
+	private int headerCount;
+
+	// Índice de las cabeceras que el servidor consulta en cada solicitud, o -1
+	private int connectionHeader;
+	private int contentLengthHeader;
+	private int transferEncodingHeader;
+	private int acceptEncodingHeader;
+
+	// Cabeceras demasiado grandes o numerosas: se responde 431
+	static class HeaderTooLargeException extends ProtocolException {
+		private static final long serialVersionUID = 1L;
+
+		HeaderTooLargeException(String message) {
+			super(message);
+		}
+	}
+
+	// Interpreta un bloque de cabeceras completo (hasta la línea vacía incluida, ver
+	// findHeaderEnd). Devuelve false si el bloque solo contenía líneas vacías.
+	boolean parse(byte[] source, int offset, int count) throws ProtocolException {
+		if (count > MAX_HEADER_BYTES) throw new HeaderTooLargeException("Cabeceras demasiado grandes");
+		if (buffer.length < count) {
+			buffer = new byte[Math.min(MAX_HEADER_BYTES, Math.max(count, buffer.length * 2))];
+		}
+		System.arraycopy(source, offset, buffer, 0, count);
+		length = count;
+		path = null;
+		headerCount = 0;
+		connectionHeader = -1;
+		contentLengthHeader = -1;
+		transferEncodingHeader = -1;
+		acceptEncodingHeader = -1;
+
+		// RFC 7230 3.5: se ignoran líneas vacías antes de la línea de solicitud
+		int position = 0;
+		while (position < length && (buffer[position] == '\r' || buffer[position] == '\n')) {
+			position++;
+		}
+		if (position == length) return false;
+
+		int lineEnd = lineEnd(position);
+		int contentEnd = trimLineEnd(position, lineEnd);
+		int methodEnd = indexOf(' ', position, contentEnd);
+		if (methodEnd <= position) throw new ProtocolException("Línea de solicitud inválida");
+		method = method(position, methodEnd);
+
+		targetStart = methodEnd + 1;
+		targetEnd = indexOf(' ', targetStart, contentEnd);
+		if (targetEnd < 0) targetEnd = contentEnd;
+		if (targetEnd == targetStart) throw new ProtocolException("Línea de solicitud inválida");
+		int query = indexOf('?', targetStart, targetEnd);
+		pathEnd = query >= 0 ? query : targetEnd;
+		version = targetEnd < contentEnd ? version(targetEnd + 1, contentEnd) : HTTP_1_0;
+
+		position = lineEnd + 1;
+		while (position < length) {
+			lineEnd = lineEnd(position);
+			contentEnd = trimLineEnd(position, lineEnd);
+			if (contentEnd == position) break;
+			addHeader(position, contentEnd);
+			position = lineEnd + 1;
+		}
+		return true;
+	}
+
+	// Posición siguiente al final de las cabeceras (línea vacía), o -1 si aún no se recibió completa
+	public static int findHeaderEnd(byte[] buffer, int offset, int length) {
+		int end = offset + length;
+		for (int i = offset; i < end; i++) {
+			if (buffer[i] != '\n') continue;
+			int next = i + 1;
+			if (next < end && buffer[next] == '\r') next++;
+			if (next < end && buffer[next] == '\n') return next + 1;
+		}
+		return -1;
+	}
+
+	private void addHeader(int start, int end) throws ProtocolException {
+		int colon = indexOf(':', start, end);
+		// Las líneas sin ":" se ignoran
+		if (colon <= start) return;
+		if (headerCount == MAX_HEADERS) throw new HeaderTooLargeException("Demasiadas cabeceras");
+		int index = headerCount++;
+		nameStart[index] = start;
+		nameEnd[index] = trimEnd(start, colon);
+		valueStart[index] = trimStart(colon + 1, end);
+		valueEnd[index] = trimEnd(valueStart[index], end);
+
+		int nameLength = nameEnd[index] - start;
+		if (nameLength == CONNECTION.length && nameEquals(index, CONNECTION)) connectionHeader = index;
+		else if (nameLength == CONTENT_LENGTH.length && nameEquals(index, CONTENT_LENGTH)) addContentLength(index);
+		else if (nameLength == TRANSFER_ENCODING.length && nameEquals(index, TRANSFER_ENCODING)) transferEncodingHeader = index;
+		else if (nameLength == ACCEPT_ENCODING.length && nameEquals(index, ACCEPT_ENCODING)) acceptEncodingHeader = index;
+	}
+
+	// Varios Content-Length solo se aceptan si dicen lo mismo (RFC 9112 6.3); si no, no se sabe
+	// dónde acaba el cuerpo y cada intermediario podría cortar en un sitio distinto
+	private void addContentLength(int index) throws ProtocolException {
+		if (contentLengthHeader >= 0 && !regionEquals(valueStart[index], valueEnd[index],
+			valueStart[contentLengthHeader], valueEnd[contentLengthHeader])) {
+			throw new ProtocolException("Content-Length duplicado");
+		}
+		contentLengthHeader = index;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	// Ruta sin query string; se crea una vez por solicitud
+	public String getPath() {
+		if (path == null) {
+			path = new String(buffer, targetStart, pathEnd - targetStart, StandardCharsets.ISO_8859_1);
+		}
+		return path;
+	}
+
+	// Texto tras "?" en el destino, o null si no hay
+	public String getQuery() {
+		if (pathEnd == targetEnd) return null;
+		return new String(buffer, pathEnd + 1, targetEnd - pathEnd - 1, StandardCharsets.ISO_8859_1);
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	// Valor de la cabecera (nombre en minúsculas); si se repite, los valores se unen con ", "
+	public String getHeader(String name) {
+		String value = null;
+		for (int i = 0; i < headerCount; i++) {
+			if (!nameEquals(i, name)) continue;
+			String current = new String(buffer, valueStart[i], valueEnd[i] - valueStart[i], StandardCharsets.ISO_8859_1);
+			value = value == null ? current : value + ", " + current;
+		}
+		return value;
+	}
+
+	public boolean hasHeader(String name) {
+		for (int i = 0; i < headerCount; i++) {
+			if (nameEquals(i, name)) return true;
+		}
+		return false;
+	}
+
+	// Comparación sin distinguir mayúsculas y sin crear el String del valor
+	public boolean headerEqualsIgnoreCase(String name, String expected) {
+		for (int i = 0; i < headerCount; i++) {
+			if (nameEquals(i, name)) {
+				return regionEqualsIgnoreCase(valueStart[i], valueEnd[i], expected);
+			}
+		}
+		return false;
+	}
+
+	public long getContentLength() {
+		if (contentLengthHeader < 0) return -1;
+		int start = valueStart[contentLengthHeader];
+		int end = valueEnd[contentLengthHeader];
+		if (start == end || end - start > 18) return -1;
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			int digit = buffer[i] - '0';
+			if (digit < 0 || digit > 9) return -1;
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	// Con Content-Length o Transfer-Encoding la solicitud trae cuerpo, aunque la ruta no lo use
+	public boolean hasBody() {
+		return contentLengthHeader >= 0 || transferEncodingHeader >= 0;
+	}
+
+	public boolean isChunked() {
+		return transferEncodingHeader >= 0 && containsToken(transferEncodingHeader, CHUNKED);
+	}
+
+	public boolean isKeepAlive() {
+		if (connectionHeader >= 0) {
+			if (containsToken(connectionHeader, CLOSE)) return false;
+			if (containsToken(connectionHeader, KEEP_ALIVE)) return true;
+		}
+		// HTTP/1.1 mantiene la conexión por defecto; HTTP/1.0 solo si lo pide
+		return HTTP_1_1.equals(version);
+	}
+
+	// Rangos de "Range: bytes=..." ajustados al tamaño del recurso, como pares {inicio, fin} inclusivos.
+	// Devuelve null si no hay cabecera o no es válida (se ignora) y una lista vacía si ningún rango es satisfacible.
+	public List<long[]> getRanges(long length) {
+		String value = getHeader("range");
+		if (value == null || !value.startsWith("bytes=")) return null;
+
+		String[] specs = value.substring(6).split(",");
+		if (specs.length > MAX_RANGES) return null;
+		List<long[]> ranges = new ArrayList<>(specs.length);
+		for (String spec : specs) {
+			String range = spec.trim();
+			int dash = range.indexOf('-');
+			if (dash < 0) return null;
+			long start;
+			long end;
+			try {
+				if (dash == 0) {
+					// Sufijo: los últimos N bytes
+					long suffix = Long.parseLong(range.substring(1));
+					if (suffix <= 0) continue;
+					start = Math.max(0, length - suffix);
+					end = length - 1;
+				} else {
+					start = Long.parseLong(range.substring(0, dash));
+					end = dash == range.length() - 1 ? Long.MAX_VALUE : Long.parseLong(range.substring(dash + 1));
+					if (end < start) return null;
+					end = Math.min(end, length - 1);
+				}
+			} catch (NumberFormatException e) {
+				return null;
+			}
+			if (start < length) {
+				ranges.add(new long[] { start, end });
+			}
+		}
+		return ranges;
+	}
+
+	// Mejor codificación aceptada según Accept-Encoding y sus q-values: "br", "gzip" o null (sin comprimir).
+	// Ante igual preferencia se elige br, luego gzip; identity solo gana si el cliente la prefiere explícitamente.
+	public String negotiateEncoding(boolean brotliAvailable, boolean gzipAvailable) {
+		if (acceptEncodingHeader < 0) return null;
+
+		float brotli = -1;
+		float gzip = -1;
+		float identity = -1;
+		float wildcard = -1;
+		int position = valueStart[acceptEncodingHeader];
+		int end = valueEnd[acceptEncodingHeader];
+		while (position < end) {
+			int tokenEnd = indexOf(',', position, end);
+			if (tokenEnd < 0) tokenEnd = end;
+			int semicolon = indexOf(';', position, tokenEnd);
+			int codingStart = trimStart(position, semicolon >= 0 ? semicolon : tokenEnd);
+			int codingEnd = trimEnd(codingStart, semicolon >= 0 ? semicolon : tokenEnd);
+			float quality = semicolon >= 0 ? parseQuality(semicolon + 1, tokenEnd) : 1;
+
+			int codingLength = codingEnd - codingStart;
+			if (codingLength == 1 && buffer[codingStart] == '*') wildcard = quality;
+			else if (regionEqualsIgnoreCase(codingStart, codingEnd, BR)) brotli = quality;
+			else if (regionEqualsIgnoreCase(codingStart, codingEnd, GZIP) || regionEqualsIgnoreCase(codingStart, codingEnd, X_GZIP)) gzip = quality;
+			else if (regionEqualsIgnoreCase(codingStart, codingEnd, IDENTITY)) identity = quality;
+			position = tokenEnd + 1;
+		}
+		if (brotli < 0) brotli = Math.max(wildcard, 0);
+		if (gzip < 0) gzip = Math.max(wildcard, 0);
+		if (!brotliAvailable) brotli = 0;
+		if (!gzipAvailable) gzip = 0;
+
+		String best = null;
+		float bestQuality = 0;
+		if (brotli > bestQuality) {
+			best = "br";
+			bestQuality = brotli;
+		}
+		if (gzip > bestQuality) {
+			best = "gzip";
+			bestQuality = gzip;
+		}
+		if (best != null && identity > bestQuality) return null;
+		return best;
+	}
+
+	// Valor de "q=" entre los parámetros de un elemento (por defecto 1); mal formado cuenta como 0
+	private float parseQuality(int start, int end) {
+		int position = start;
+		while (position < end) {
+			int parameterEnd = indexOf(';', position, end);
+			if (parameterEnd < 0) parameterEnd = end;
+			int nameStart = trimStart(position, parameterEnd);
+			if (nameStart + 1 < parameterEnd && toLower(buffer[nameStart]) == 'q' && buffer[nameStart + 1] == '=') {
+				return parseQValue(trimStart(nameStart + 2, parameterEnd), trimEnd(nameStart + 2, parameterEnd));
+			}
+			position = parameterEnd + 1;
+		}
+		return 1;
+	}
+
+	// qvalue = ( "0" [ "." 0*3DIGIT ] ) / ( "1" [ "." 0*3("0") ] )
+	private float parseQValue(int start, int end) {
+		if (start >= end) return 0;
+		int integer = buffer[start] - '0';
+		if (integer < 0 || integer > 1) return 0;
+		float value = integer;
+		if (start + 1 < end) {
+			if (buffer[start + 1] != '.') return 0;
+			float scale = 0.1f;
+			for (int i = start + 2; i < end; i++) {
+				int digit = buffer[i] - '0';
+				if (digit < 0 || digit > 9) return 0;
+				value += digit * scale;
+				scale /= 10;
+			}
+		}
+		return Math.min(value, 1);
+	}
+
+	private String method(int start, int end) {
+		for (int i = 0; i < METHOD_BYTES.length; i++) {
+			if (regionEquals(start, end, METHOD_BYTES[i])) return METHODS[i];
+		}
+		return new String(buffer, start, end - start, StandardCharsets.ISO_8859_1);
+	}
+
+	private String version(int start, int end) {
+		if (regionEquals(start, end, HTTP_1_1_BYTES)) return HTTP_1_1;
+		if (regionEquals(start, end, HTTP_1_0_BYTES)) return HTTP_1_0;
+		return new String(buffer, start, end - start, StandardCharsets.ISO_8859_1);
+	}
+
+	// true si alguno de los elementos separados por comas del valor es el token indicado
+	private boolean containsToken(int header, byte[] token) {
+		int position = valueStart[header];
+		int end = valueEnd[header];
+		while (position < end) {
+			int tokenEnd = indexOf(',', position, end);
+			if (tokenEnd < 0) tokenEnd = end;
+			int start = trimStart(position, tokenEnd);
+			if (regionEqualsIgnoreCase(start, trimEnd(start, tokenEnd), token)) return true;
+			position = tokenEnd + 1;
+		}
+		return false;
+	}
+
+	private boolean nameEquals(int header, byte[] lowerName) {
+		return regionEqualsIgnoreCase(nameStart[header], nameEnd[header], lowerName);
+	}
+
+	private boolean nameEquals(int header, String lowerName) {
+		return regionEqualsIgnoreCase(nameStart[header], nameEnd[header], lowerName);
+	}
+
+	private boolean regionEquals(int start, int end, byte[] expected) {
+		if (end - start != expected.length) return false;
+		for (int i = 0; i < expected.length; i++) {
+			if (buffer[start + i] != expected[i]) return false;
+		}
+		return true;
+	}
+
+	private boolean regionEquals(int start, int end, int otherStart, int otherEnd) {
+		if (end - start != otherEnd - otherStart) return false;
+		for (int i = 0; i < end - start; i++) {
+			if (buffer[start + i] != buffer[otherStart + i]) return false;
+		}
+		return true;
+	}
+
+	// expected debe estar en minúsculas
+	private boolean regionEqualsIgnoreCase(int start, int end, byte[] expected) {
+		if (end - start != expected.length) return false;
+		for (int i = 0; i < expected.length; i++) {
+			if (toLower(buffer[start + i]) != (expected[i] & 0xff)) return false;
+		}
+		return true;
+	}
+
+	private boolean regionEqualsIgnoreCase(int start, int end, String expected) {
+		if (end - start != expected.length()) return false;
+		for (int i = 0; i < expected.length(); i++) {
+			if (toLower(buffer[start + i]) != Character.toLowerCase(expected.charAt(i))) return false;
+		}
+		return true;
+	}
+
+	// Solo A-Z: un OR 0x20 sin más convertiría también \r en "-" o "@" en "`"
+	private static int toLower(byte b) {
+		return b >= 'A' && b <= 'Z' ? b | 0x20 : b & 0xff;
+	}
+
+	private int lineEnd(int from) {
+		int end = indexOf('\n', from, length);
+		return end >= 0 ? end : length;
+	}
+
+	private int trimLineEnd(int start, int lineEnd) {
+		return lineEnd > start && buffer[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+	}
+
+	private int indexOf(char c, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (buffer[i] == c) return i;
+		}
+		return -1;
+	}
+
+	private int trimStart(int start, int end) {
+		while (start < end && (buffer[start] == ' ' || buffer[start] == '\t')) start++;
+		return start;
+	}
+
+	private int trimEnd(int start, int end) {
+		while (end > start && (buffer[end - 1] == ' ' || buffer[end - 1] == '\t')) end--;
+		return end;
+	}
+
+	private static byte[] ascii(String value) {
+		return value.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static byte[][] ascii(String[] values) {
+		byte[][] bytes = new byte[values.length][];
+		for (int i = 0; i < values.length; i++) {
+			bytes[i] = ascii(values[i]);
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,243 @@
+package com.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class HttpResponse {
+	private String status;
+	private final StringBuilder headers = new StringBuilder();
+	// Trozos del cuerpo, en orden: byte[] en memoria, FileRegion leído desde disco o StreamedBody
+	// producido mientras se envía
+	private final List<Object> segments = new ArrayList<>(2);
+	private boolean close;
+	// Línea de estado y cabeceras ya codificadas (respuestas fijas y entradas de la caché)
+	private byte[] head;
+	// Respuesta 103 que el motor envía antes que esta, si el cliente la admite
+	private HttpResponse earlyHints;
+
+	public HttpResponse(String status) {
+		this.status = status;
+	}
+
+	public static HttpResponse text(String status, String message) {
+		return new HttpResponse(status)
+			.header("Access-Control-Allow-Origin", "*")
+			.header("Content-Type", "text/plain; charset=utf-8")
+			.body(message.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public HttpResponse header(String name, String value) {
+		checkMutable();
+		headers.append(name).append(": ").append(value).append("\r\n");
+		return this;
+	}
+
+	public HttpResponse body(byte[] body) {
+		checkMutable();
+		segments.clear();
+		return append(body);
+	}
+
+	// El cuerpo se envía directamente desde el archivo, sin copiarlo al heap
+	public HttpResponse file(File file, long offset, long length) {
+		checkMutable();
+		segments.clear();
+		return append(file, offset, length);
+	}
+
+	public HttpResponse append(byte[] part) {
+		checkMutable();
+		if (part.length > 0) segments.add(part);
+		return this;
+	}
+
+	public HttpResponse append(File file, long offset, long length) {
+		checkMutable();
+		segments.add(new FileRegion(file, offset, length));
+		return this;
+	}
+
+	// Cuerpo de longitud desconocida: en HTTP/1.1 se envía con Transfer-Encoding: chunked, así
+	// que solo vale para clientes HTTP/1.1 (y HTTP/2, donde lo delimitan los frames)
+	public HttpResponse stream(StreamedBody body) {
+		checkMutable();
+		segments.clear();
+		segments.add(body);
+		return this;
+	}
+
+	// Reutiliza las cabeceras ya preparadas con otro estado (p. ej. 304); descarta el cuerpo
+	public HttpResponse withStatus(String status) {
+		checkMutable();
+		this.status = status;
+		segments.clear();
+		return this;
+	}
+
+	public HttpResponse earlyHints(HttpResponse hints) {
+		checkMutable();
+		this.earlyHints = hints;
+		return this;
+	}
+
+	// Obliga a cerrar la conexión después de enviar la respuesta
+	public HttpResponse close() {
+		checkMutable();
+		this.close = true;
+		return this;
+	}
+
+	// Codifica la cabecera una sola vez. Desde aquí la respuesta no cambia y se puede enviar
+	// tal cual en cada solicitud (respuestas fijas y entradas de la caché).
+	public HttpResponse prebuild() {
+		head = encodeHead();
+		return this;
+	}
+
+	private void checkMutable() {
+		if (head != null) throw new IllegalStateException("Respuesta ya codificada: " + status);
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	// Código numérico de la línea de estado ("404 Not Found" -> 404)
+	public int getStatusCode() {
+		if (status.length() < 3) return -1;
+		int code = 0;
+		for (int i = 0; i < 3; i++) {
+			int digit = status.charAt(i) - '0';
+			if (digit < 0 || digit > 9) return -1;
+			code = code * 10 + digit;
+		}
+		return code;
+	}
+
+	public HttpResponse getEarlyHints() {
+		return earlyHints;
+	}
+
+	public List<Object> getSegments() {
+		return segments;
+	}
+
+	// -1 si el cuerpo se produce mientras se envía
+	public long getContentLength() {
+		long length = 0;
+		for (Object segment : segments) {
+			if (segment instanceof StreamedBody) return -1;
+			length += segment instanceof FileRegion ? ((FileRegion) segment).length : ((byte[]) segment).length;
+		}
+		return length;
+	}
+
+	// Cabeceras añadidas con header(), sin Content-Length; los nombres repetidos se unen con ", "
+	public Map<String, String> getHeaders() {
+		Map<String, String> fields = new LinkedHashMap<>();
+		int position = 0;
+		while (position < headers.length()) {
+			int end = headers.indexOf("\r\n", position);
+			int colon = headers.indexOf(":", position);
+			String name = headers.substring(position, colon);
+			String value = headers.substring(colon + 2, end);
+			String previous = fields.get(name);
+			fields.put(name, previous == null ? value : previous + ", " + value);
+			position = end + 2;
+		}
+		return fields;
+	}
+
+	// El cuerpo como flujo, para respuestas que no se escriben en un socket (ver WebViewInterceptor):
+	// los byte[] se leen sin copiarlos y las FileRegion directamente del archivo
+	public InputStream openBody() throws IOException {
+		List<InputStream> parts = new ArrayList<>(segments.size());
+		try {
+			for (Object segment : segments) {
+				if (segment instanceof FileRegion) {
+					FileRegion region = (FileRegion) segment;
+					// El archivo se cierra con el flujo, cuando el WebView termina de leerlo
+					FileInputStream in = new FileInputStream(region.file);
+					parts.add(new LimitedInputStream(in, region.length, Long.MAX_VALUE, true));
+					in.getChannel().position(region.offset);
+				} else if (segment instanceof StreamedBody) {
+					parts.add(((StreamedBody) segment).open());
+				} else {
+					parts.add(new ByteArrayInputStream((byte[]) segment));
+				}
+			}
+		} catch (IOException e) {
+			for (InputStream part : parts) {
+				try {
+					part.close();
+				} catch (IOException ignored) {
+				}
+			}
+			throw e;
+		}
+		if (parts.isEmpty()) return new ByteArrayInputStream(new byte[0]);
+		return parts.size() == 1 ? parts.get(0) : new SequenceInputStream(Collections.enumeration(parts));
+	}
+
+	public boolean isClose() {
+		return close;
+	}
+
+	// Línea de estado + cabeceras, con Content-Length calculado a partir del cuerpo (o
+	// Transfer-Encoding: chunked si su longitud no se conoce). No incluye
+	// las cabeceras de conexión ni la línea vacía final, que el motor envía a continuación.
+	public byte[] encodeHead() {
+		if (head != null) return head;
+		StringBuilder encoded = new StringBuilder(64 + headers.length());
+		encoded.append("HTTP/1.1 ").append(status).append("\r\n");
+		encoded.append(headers);
+		if (status.charAt(0) != '1' && !status.startsWith("204") && !status.startsWith("304")) {
+			long length = getContentLength();
+			if (length < 0) {
+				encoded.append("Transfer-Encoding: chunked\r\n");
+			} else {
+				encoded.append("Content-Length: ").append(length).append("\r\n");
+			}
+		}
+		return encoded.toString().getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	public static class FileRegion {
+		public final File file;
+		public final long offset;
+		public final long length;
+
+		FileRegion(File file, long offset, long length) {
+			this.file = file;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	// El motor abre el cuerpo al empezar a enviarlo y lo cierra al terminar o si la conexión falla
+	public static class StreamedBody {
+		public interface Opener {
+			InputStream open() throws IOException;
+		}
+
+		private final Opener opener;
+
+		public StreamedBody(Opener opener) {
+			this.opener = opener;
+		}
+
+		public InputStream open() throws IOException {
+			return opener.open();
+		}
+	}
+}
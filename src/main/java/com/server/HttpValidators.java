@@ -0,0 +1,118 @@
+package com.server;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+// ETag, Last-Modified y evaluación de If-None-Match / If-Modified-Since (RFC 7232)
+final class HttpValidators {
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	// 96 bits del SHA-256 bastan para distinguir versiones de un archivo
+	private static final int ETAG_BYTES = 12;
+	private static final long FULL_HASH_MAX_BYTES = 8 * 1024 * 1024;
+
+	private static final ThreadLocal<SimpleDateFormat> HTTP_DATE = new ThreadLocal<SimpleDateFormat>() {
+		@Override
+		protected SimpleDateFormat initialValue() {
+			SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+			format.setTimeZone(TimeZone.getTimeZone("GMT"));
+			return format;
+		}
+	};
+
+	private HttpValidators() {
+	}
+
+	// ETag fuerte a partir del contenido exacto que se envía
+	static String etag(byte[] content) {
+		MessageDigest digest = sha256();
+		digest.update(content);
+		return quote(digest.digest());
+	}
+
+	static String etag(File file) throws IOException {
+		// Leer un archivo enorme (vídeo) entero solo para el ETag no compensa: se deriva de
+		// tamaño y fecha, como hacen nginx o Apache
+		if (file.length() > FULL_HASH_MAX_BYTES) {
+			return etag(file.length(), file.lastModified());
+		}
+		MessageDigest digest = sha256();
+		byte[] buffer = new byte[16 * 1024];
+		try (InputStream in = new FileInputStream(file)) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return quote(digest.digest());
+	}
+
+	static String etag(long size, long lastModified) {
+		return "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+	}
+
+	// ETag de una codificación del mismo contenido ("abc" -> "abc-gzip"): cada variante tiene el suyo
+	static String variant(String etag, String encoding) {
+		return etag.substring(0, etag.length() - 1) + "-" + encoding + "\"";
+	}
+
+	static String formatDate(long millis) {
+		return HTTP_DATE.get().format(new Date(millis));
+	}
+
+	static long parseDate(String value) {
+		try {
+			return HTTP_DATE.get().parse(value).getTime();
+		} catch (ParseException e) {
+			return -1;
+		}
+	}
+
+	// true si la copia del cliente sigue siendo válida y basta con un 304
+	static boolean isNotModified(HttpRequest request, String etag, long lastModified) {
+		String ifNoneMatch = request.getHeader("if-none-match");
+		if (ifNoneMatch != null) {
+			// If-None-Match tiene prioridad; se compara de forma débil (se ignora W/)
+			for (String candidate : ifNoneMatch.split(",")) {
+				String tag = candidate.trim();
+				if (tag.startsWith("W/")) tag = tag.substring(2);
+				if ("*".equals(tag) || tag.equals(etag)) return true;
+			}
+			return false;
+		}
+		String ifModifiedSince = request.getHeader("if-modified-since");
+		if (ifModifiedSince != null) {
+			long since = parseDate(ifModifiedSince);
+			// Las fechas HTTP tienen resolución de segundos
+			return since >= 0 && lastModified / 1000 <= since / 1000;
+		}
+		return false;
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String quote(byte[] hash) {
+		char[] chars = new char[ETAG_BYTES * 2 + 2];
+		chars[0] = '"';
+		for (int i = 0; i < ETAG_BYTES; i++) {
+			chars[1 + i * 2] = HEX[(hash[i] >> 4) & 0xf];
+			chars[2 + i * 2] = HEX[hash[i] & 0xf];
+		}
+		chars[chars.length - 1] = '"';
+		return new String(chars);
+	}
+}
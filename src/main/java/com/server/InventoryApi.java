@@ -0,0 +1,213 @@
+package com.server;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Consultas GET sobre InventoryIndex, con respuesta JSON. Rutas bajo ServerConfig.inventoryApiPath:
+//   ?from=&to=&location=&cursor=&limit=                   inventarios, del más reciente al más antiguo
+//   /{id}/lines?cursor=&limit=                            líneas de un inventario
+//   /products/{sku}?from=&to=&location=&cursor=&limit=    historial de un producto
+//   /totals?from=&to=&location=&after=&limit=             suma y número de inventarios por producto
+// from y to aceptan milisegundos o una fecha yyyy-MM-dd (hora local; to incluye todo el día). Cada
+// respuesta es una página con el cursor "next" de la siguiente (null en la última).
+final class InventoryApi {
+	private static final int DEFAULT_LIMIT = 50;
+	private static final int MAX_LIMIT = 500;
+	private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+	private final InventoryIndex index;
+	private final String prefix;
+
+	InventoryApi(InventoryIndex index, String prefix) {
+		this.index = index;
+		this.prefix = prefix.endsWith("/") ? prefix.substring(0, prefix.length() - 1) : prefix;
+	}
+
+	boolean matches(String path) {
+		return path.startsWith(prefix) && (path.length() == prefix.length() || path.charAt(prefix.length()) == '/');
+	}
+
+	HttpResponse respond(HttpRequest request) throws IOException {
+		String route = request.getPath().substring(prefix.length());
+		Map<String, String> query;
+		long from;
+		long to;
+		int limit;
+		try {
+			query = parseQuery(request.getQuery());
+			from = parseDate(query.get("from"), false);
+			to = parseDate(query.get("to"), true);
+			limit = Math.min(MAX_LIMIT, (int) parseNumber(query.get("limit"), DEFAULT_LIMIT));
+			if (limit <= 0) throw new IllegalArgumentException("limit");
+		} catch (IllegalArgumentException e) {
+			return HttpResponse.text("400 Bad Request", "Parámetro inválido: " + e.getMessage());
+		}
+		String location = query.get("location");
+
+		StringBuilder json = new StringBuilder(256);
+		if (route.isEmpty() || route.equals("/")) {
+			long cursor = parseCursor(query.get("cursor"));
+			if (cursor == -2) return badCursor();
+			InventoryIndex.Page<InventoryIndex.Inventory> page = index.inventories(from, to, location, cursor, limit);
+			json.append("{\"items\":[");
+			for (int i = 0; i < page.items.size(); i++) {
+				InventoryIndex.Inventory inventory = page.items.get(i);
+				if (i > 0) json.append(',');
+				json.append("{\"id\":").append(inventory.id)
+					.append(",\"timestamp\":").append(inventory.timestamp)
+					.append(",\"name\":").append(quote(inventory.name))
+					.append(",\"location\":").append(quote(inventory.location))
+					.append(",\"lines\":").append(inventory.lines)
+					.append(",\"quantity\":").append(number(inventory.quantity)).append('}');
+			}
+			return page(json, page.next);
+		}
+		if (route.equals("/totals")) {
+			InventoryIndex.Page<InventoryIndex.Totals> page = index.totals(location, from, to, query.get("after"), limit);
+			json.append("{\"items\":[");
+			for (int i = 0; i < page.items.size(); i++) {
+				InventoryIndex.Totals totals = page.items.get(i);
+				if (i > 0) json.append(',');
+				json.append("{\"sku\":").append(quote(totals.sku))
+					.append(",\"sum\":").append(number(totals.sum))
+					.append(",\"count\":").append(totals.count)
+					.append(",\"last\":").append(number(totals.last))
+					.append(",\"lastTimestamp\":").append(totals.lastTimestamp).append('}');
+			}
+			return page(json, page.next);
+		}
+		if (route.startsWith("/products/") && route.length() > "/products/".length()) {
+			String sku;
+			try {
+				sku = URLDecoder.decode(route.substring("/products/".length()).replace("+", "%2B"), "UTF-8");
+			} catch (IllegalArgumentException | UnsupportedEncodingException e) {
+				return HttpResponse.text("400 Bad Request", "Código inválido");
+			}
+			long cursor = parseCursor(query.get("cursor"));
+			if (cursor == -2) return badCursor();
+			return lines(json, index.history(sku, from, to, location, cursor, limit));
+		}
+		if (route.endsWith("/lines")) {
+			long id;
+			try {
+				id = Long.parseLong(route.substring(1, route.length() - "/lines".length()));
+			} catch (NumberFormatException e) {
+				return HttpResponse.text("404 Not Found", "Inventario no encontrado");
+			}
+			long cursor = parseCursor(query.get("cursor"));
+			if (cursor == -2) return badCursor();
+			InventoryIndex.Page<InventoryIndex.Line> page = index.lines(id, cursor, limit);
+			if (page == null) return HttpResponse.text("404 Not Found", "Inventario no encontrado");
+			return lines(json, page);
+		}
+		return HttpResponse.text("404 Not Found", "Ruta no encontrada");
+	}
+
+	private static HttpResponse lines(StringBuilder json, InventoryIndex.Page<InventoryIndex.Line> page) {
+		json.append("{\"items\":[");
+		List<InventoryIndex.Line> lines = page.items;
+		for (int i = 0; i < lines.size(); i++) {
+			InventoryIndex.Line line = lines.get(i);
+			if (i > 0) json.append(',');
+			json.append("{\"inventory\":").append(line.inventory)
+				.append(",\"timestamp\":").append(line.timestamp)
+				.append(",\"sku\":").append(quote(line.sku))
+				.append(",\"location\":").append(quote(line.location))
+				.append(",\"quantity\":").append(number(line.quantity)).append('}');
+		}
+		return page(json, page.next);
+	}
+
+	private static HttpResponse page(StringBuilder json, String next) {
+		json.append("],\"next\":").append(quote(next)).append('}');
+		return new HttpResponse("200 OK")
+			.header("Content-Type", "application/json; charset=utf-8")
+			.header("Access-Control-Allow-Origin", "*")
+			.header("Cache-Control", "no-store")
+			.body(json.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static HttpResponse badCursor() {
+		return HttpResponse.text("400 Bad Request", "Parámetro inválido: cursor");
+	}
+
+	// -1 sin cursor, -2 si no es válido
+	private static long parseCursor(String value) {
+		if (value == null) return -1;
+		try {
+			long cursor = Long.parseLong(value);
+			return cursor >= 0 ? cursor : -2;
+		} catch (NumberFormatException e) {
+			return -2;
+		}
+	}
+
+	private static long parseNumber(String value, long defaultValue) {
+		if (value == null) return defaultValue;
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(value);
+		}
+	}
+
+	// Milisegundos o yyyy-MM-dd; sin valor, el rango queda abierto por ese lado
+	private static long parseDate(String value, boolean endOfDay) {
+		if (value == null) return endOfDay ? Long.MAX_VALUE : Long.MIN_VALUE;
+		if (value.indexOf('-') < 0) return parseNumber(value, 0);
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+		format.setLenient(false);
+		try {
+			long start = format.parse(value).getTime();
+			return endOfDay ? start + DAY_MS - 1 : start;
+		} catch (ParseException e) {
+			throw new IllegalArgumentException(value);
+		}
+	}
+
+	private static Map<String, String> parseQuery(String query) {
+		Map<String, String> parameters = new HashMap<>();
+		if (query == null || query.isEmpty()) return parameters;
+		for (String pair : query.split("&")) {
+			if (pair.isEmpty()) continue;
+			int equals = pair.indexOf('=');
+			String name = equals >= 0 ? pair.substring(0, equals) : pair;
+			String value = equals >= 0 ? pair.substring(equals + 1) : "";
+			try {
+				parameters.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+			} catch (UnsupportedEncodingException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return parameters;
+	}
+
+	// Las cantidades enteras se escriben sin decimales
+	private static String number(double value) {
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) return Long.toString((long) value);
+		return Double.toString(value);
+	}
+
+	private static String quote(String value) {
+		if (value == null) return "null";
+		StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				quoted.append('\\').append(c);
+			} else if (c < 0x20) {
+				quoted.append(String.format("\\u%04x", (int) c));
+			} else {
+				quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+}
@@ -0,0 +1,912 @@
+package com.server;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Índice de los inventarios recibidos en /upload, para consultarlos sin volver a leer los archivos.
+// Cada subida se analiza en streaming mientras se guarda (JsonScanner) y sus líneas se añaden a
+// archivos de filas de tamaño fijo:
+// - inventories.dat: una fila por inventario, en orden de llegada. Las fechas quedan ordenadas y
+//   un rango de fechas se localiza con búsqueda binaria; cada fila enlaza con la anterior de la
+//   misma ubicación.
+// - items.dat: una fila por producto y ubicación de cada inventario, contiguas por inventario y
+//   enlazadas con la fila anterior del mismo producto.
+// - terms.dat y names.dat: los códigos, las ubicaciones y los nombres de archivo.
+// En memoria solo quedan los diccionarios, la cabeza de cada cadena y los totales por producto,
+// que se reconstruyen al abrir. Una consulta lee una página de filas: su coste no crece con el
+// número de inventarios guardados.
+public class InventoryIndex implements Closeable {
+	// fecha, primera línea, nombre, cantidad total, anterior en la ubicación, líneas, ubicación
+	private static final int INVENTORY_ROW = 8 + 8 + 8 + 8 + 8 + 4 + 4;
+	// inventario, producto, ubicación, (reservado), cantidad, anterior del producto
+	private static final int ITEM_ROW = 4 + 4 + 4 + 4 + 8 + 8;
+	private static final byte TERM_PRODUCT = 'P';
+	private static final byte TERM_LOCATION = 'L';
+	private static final int MAX_TERM_BYTES = 1024;
+	// Límite de líneas de una subida (las líneas se agrupan en memoria antes de añadirse)
+	private static final int MAX_LINES = 1_000_000;
+	private static final int READ_BUFFER_BYTES = 64 * 1024;
+	private static final int NONE = -1;
+
+	private final FileChannel inventories;
+	private final FileChannel items;
+	private final FileChannel terms;
+	private final FileChannel names;
+	private final String[] skuFields;
+	private final String[] quantityFields;
+	private final String[] locationFields;
+
+	// Una sola subida se añade a la vez; las consultas solo esperan mientras se publica en memoria
+	private final Object commitLock = new Object();
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// Estado en memoria, protegido por lock
+	private final Dictionary products = new Dictionary();
+	private final Dictionary locations = new Dictionary();
+	// Última línea de cada producto y último inventario de cada ubicación (NONE si no hay)
+	private long[] productHeads = new long[0];
+	private long[] locationHeads = new long[0];
+	private final TreeMap<String, Totals> totals = new TreeMap<>();
+	private final Map<Integer, TreeMap<String, Totals>> totalsByLocation = new HashMap<>();
+	private long inventoryCount;
+	private long itemCount;
+	private long lastTimestamp;
+
+	// Final de terms.dat y names.dat, protegidos por commitLock
+	private long termsSize;
+	private long namesSize;
+
+	public InventoryIndex(File dir, ServerConfig config) throws IOException {
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("No se pudo crear el índice: " + dir);
+		}
+		this.skuFields = lowerCase(config.inventorySkuFields);
+		this.quantityFields = lowerCase(config.inventoryQuantityFields);
+		this.locationFields = lowerCase(config.inventoryLocationFields);
+		this.inventories = open(new File(dir, "inventories.dat"));
+		this.items = open(new File(dir, "items.dat"));
+		this.terms = open(new File(dir, "terms.dat"));
+		this.names = open(new File(dir, "names.dat"));
+		try {
+			recover();
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	// Inventario tal como lo devuelven las consultas
+	public static class Inventory {
+		public final long id;
+		public final long timestamp;
+		public final String name;
+		public final String location;
+		public final int lines;
+		public final double quantity;
+
+		Inventory(long id, long timestamp, String name, String location, int lines, double quantity) {
+			this.id = id;
+			this.timestamp = timestamp;
+			this.name = name;
+			this.location = location;
+			this.lines = lines;
+			this.quantity = quantity;
+		}
+	}
+
+	// Cantidad de un producto en una ubicación de un inventario
+	public static class Line {
+		public final long inventory;
+		public final long timestamp;
+		public final String sku;
+		public final String location;
+		public final double quantity;
+
+		Line(long inventory, long timestamp, String sku, String location, double quantity) {
+			this.inventory = inventory;
+			this.timestamp = timestamp;
+			this.sku = sku;
+			this.location = location;
+			this.quantity = quantity;
+		}
+	}
+
+	// Agregado de un producto: suma y número de inventarios en que aparece, y el último valor
+	public static class Totals {
+		public final String sku;
+		public double sum;
+		public long count;
+		public double last;
+		public long lastTimestamp;
+		long lastInventory = NONE;
+
+		Totals(String sku) {
+			this.sku = sku;
+		}
+
+		void add(long inventory, long timestamp, double quantity) {
+			sum += quantity;
+			if (inventory != lastInventory) {
+				count++;
+				last = 0;
+			}
+			last += quantity;
+			lastInventory = inventory;
+			lastTimestamp = timestamp;
+		}
+
+		Totals copy() {
+			Totals copy = new Totals(sku);
+			copy.sum = sum;
+			copy.count = count;
+			copy.last = last;
+			copy.lastTimestamp = lastTimestamp;
+			copy.lastInventory = lastInventory;
+			return copy;
+		}
+	}
+
+	// Una página de resultados; next es el cursor de la siguiente, o null si no hay más
+	public static class Page<T> {
+		public final List<T> items;
+		public final String next;
+
+		Page(List<T> items, String next) {
+			this.items = items;
+			this.next = next;
+		}
+	}
+
+	// Envuelve el almacenamiento: la subida se guarda igual que antes y, si es un inventario JSON,
+	// se indexa con los bytes que ya pasan hacia el almacenamiento, sin leerla otra vez
+	InventoryStore indexing(InventoryStore store, MyServer.ServerLogCallback log) {
+		return (content, filename) -> {
+			Ingest ingest = new Ingest();
+			ScanningInputStream scanning = new ScanningInputStream(content, ingest);
+			boolean saved = store.save(scanning, filename);
+			if (!saved) return false;
+			try {
+				scanning.finish();
+				add(filename, ingest);
+			} catch (IOException e) {
+				log.log("Inventario no indexado: " + e.getMessage());
+			}
+			return true;
+		};
+	}
+
+	public long getInventoryCount() {
+		lock.readLock().lock();
+		try {
+			return inventoryCount;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Inventarios entre from y to (milisegundos, incluidos), del más reciente al más antiguo
+	public Page<Inventory> inventories(long from, long to, String location, long cursor, int limit) throws IOException {
+		lock.readLock().lock();
+		try {
+			List<Inventory> page = new ArrayList<>();
+			long row;
+			if (location != null) {
+				int id = locations.id(location);
+				if (id == NONE) return new Page<>(page, null);
+				row = cursor >= 0 ? Math.min(cursor, inventoryCount - 1) : head(locationHeads, id);
+			} else {
+				row = cursor >= 0 ? Math.min(cursor, inventoryCount - 1) : firstAfter(to) - 1;
+			}
+			ByteBuffer buffer = ByteBuffer.allocate(INVENTORY_ROW);
+			while (row >= 0) {
+				readFully(inventories, buffer, row * INVENTORY_ROW);
+				long timestamp = buffer.getLong(0);
+				if (timestamp < from) break;
+				if (page.size() == limit) return new Page<>(page, Long.toString(row));
+				long previous = location != null ? buffer.getLong(32) : row - 1;
+				if (timestamp <= to) page.add(inventory(row, buffer));
+				row = previous;
+			}
+			return new Page<>(page, null);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Líneas de un inventario en el orden en que se añadieron
+	public Page<Line> lines(long inventory, long cursor, int limit) throws IOException {
+		lock.readLock().lock();
+		try {
+			if (inventory < 0 || inventory >= inventoryCount) return null;
+			ByteBuffer row = ByteBuffer.allocate(INVENTORY_ROW);
+			readFully(inventories, row, inventory * INVENTORY_ROW);
+			long timestamp = row.getLong(0);
+			long first = row.getLong(8);
+			int count = row.getInt(40);
+			long start = Math.max(0, cursor);
+			long end = Math.min(count, start + limit);
+			List<Line> page = new ArrayList<>();
+			if (start < end) {
+				ByteBuffer buffer = ByteBuffer.allocate((int) (end - start) * ITEM_ROW);
+				readFully(items, buffer, (first + start) * ITEM_ROW);
+				for (int i = 0; i < end - start; i++) {
+					int offset = i * ITEM_ROW;
+					page.add(new Line(inventory, timestamp, products.value(buffer.getInt(offset + 4)),
+						locations.value(buffer.getInt(offset + 8)), buffer.getDouble(offset + 16)));
+				}
+			}
+			return new Page<>(page, end < count ? Long.toString(end) : null);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Historial de un producto, del inventario más reciente al más antiguo
+	public Page<Line> history(String sku, long from, long to, String location, long cursor, int limit) throws IOException {
+		lock.readLock().lock();
+		try {
+			List<Line> page = new ArrayList<>();
+			int product = products.id(sku);
+			int locationId = location != null ? locations.id(location) : NONE;
+			if (product == NONE || (location != null && locationId == NONE)) return new Page<>(page, null);
+			long row = cursor >= 0 ? Math.min(cursor, itemCount - 1) : head(productHeads, product);
+			ByteBuffer item = ByteBuffer.allocate(ITEM_ROW);
+			ByteBuffer inventory = ByteBuffer.allocate(INVENTORY_ROW);
+			long inventoryRow = NONE;
+			while (row >= 0) {
+				readFully(items, item, row * ITEM_ROW);
+				// Las líneas del mismo inventario son contiguas: se relee su fila solo al cambiar
+				long owner = item.getInt(0);
+				if (owner != inventoryRow) {
+					readFully(inventories, inventory, owner * INVENTORY_ROW);
+					inventoryRow = owner;
+				}
+				long timestamp = inventory.getLong(0);
+				if (timestamp < from) break;
+				if (page.size() == limit) return new Page<>(page, Long.toString(row));
+				int itemLocation = item.getInt(8);
+				if (timestamp <= to && (location == null || itemLocation == locationId)) {
+					page.add(new Line(owner, timestamp, sku, locations.value(itemLocation), item.getDouble(16)));
+				}
+				row = item.getLong(24);
+			}
+			return new Page<>(page, null);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Suma y número de inventarios por producto, ordenados por código, a partir de after. Sin
+	// fechas sale de los totales en memoria; con fechas se recorren solo las líneas de los
+	// inventarios de ese rango, que son contiguas.
+	public Page<Totals> totals(String location, long from, long to, String after, int limit) throws IOException {
+		lock.readLock().lock();
+		try {
+			TreeMap<String, Totals> source;
+			int locationId = location != null ? locations.id(location) : NONE;
+			if (location != null && locationId == NONE) {
+				source = new TreeMap<>();
+			} else if (from == Long.MIN_VALUE && to == Long.MAX_VALUE) {
+				source = location != null ? totalsByLocation.get(locationId) : totals;
+			} else {
+				source = totalsInRange(locationId, from, to);
+			}
+			List<Totals> page = new ArrayList<>();
+			Map<String, Totals> tail = after != null ? source.tailMap(after, false) : source;
+			for (Totals entry : tail.values()) {
+				if (page.size() == limit) return new Page<>(page, page.get(limit - 1).sku);
+				page.add(entry.copy());
+			}
+			return new Page<>(page, null);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private TreeMap<String, Totals> totalsInRange(int locationId, long from, long to) throws IOException {
+		TreeMap<String, Totals> range = new TreeMap<>();
+		long first = from == Long.MIN_VALUE ? 0 : firstAfter(from - 1);
+		long end = firstAfter(to);
+		if (first >= end) return range;
+		RowReader rows = new RowReader(inventories, INVENTORY_ROW, first, end);
+		while (rows.hasNext()) {
+			ByteBuffer row = rows.next();
+			long inventory = rows.row();
+			long timestamp = row.getLong();
+			long firstItem = row.getLong();
+			row.position(row.position() + 24);
+			int lineCount = row.getInt();
+			row.getInt();
+			RowReader lines = new RowReader(items, ITEM_ROW, firstItem, firstItem + lineCount);
+			while (lines.hasNext()) {
+				ByteBuffer line = lines.next();
+				line.getInt();
+				int product = line.getInt();
+				int itemLocation = line.getInt();
+				line.getInt();
+				double quantity = line.getDouble();
+				line.getLong();
+				if (locationId != NONE && itemLocation != locationId) continue;
+				String sku = products.value(product);
+				Totals entry = range.get(sku);
+				if (entry == null) {
+					entry = new Totals(sku);
+					range.put(sku, entry);
+				}
+				entry.add(inventory, timestamp, quantity);
+			}
+		}
+		return range;
+	}
+
+	// Primera fila con fecha posterior a timestamp (búsqueda binaria: las fechas están ordenadas)
+	private long firstAfter(long timestamp) throws IOException {
+		long low = 0;
+		long high = inventoryCount;
+		ByteBuffer buffer = ByteBuffer.allocate(8);
+		while (low < high) {
+			long middle = (low + high) >>> 1;
+			readFully(inventories, buffer, middle * INVENTORY_ROW);
+			if (buffer.getLong(0) <= timestamp) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private Inventory inventory(long row, ByteBuffer buffer) throws IOException {
+		return new Inventory(row, buffer.getLong(0), readName(buffer.getLong(16)),
+			locations.value(buffer.getInt(44)), buffer.getInt(40), buffer.getDouble(24));
+	}
+
+	private String readName(long offset) throws IOException {
+		ByteBuffer length = ByteBuffer.allocate(2);
+		readFully(names, length, offset);
+		ByteBuffer name = ByteBuffer.allocate(length.getShort(0) & 0xffff);
+		readFully(names, name, offset + 2);
+		return new String(name.array(), StandardCharsets.UTF_8);
+	}
+
+	// Añade una subida ya analizada: primero los textos nuevos, luego las líneas y por último la
+	// fila del inventario, que es la que hace visible lo anterior al reabrir
+	private void add(String filename, Ingest ingest) throws IOException {
+		Map<String, Pending> merged = ingest.merge();
+		if (merged.isEmpty()) throw new IOException("sin líneas de producto en " + filename);
+		synchronized (commitLock) {
+			// Solo este hilo modifica el estado: se puede leer sin el lock de lectura
+			long inventoryRow = inventoryCount;
+			long firstItem = itemCount;
+			long timestamp = Math.max(System.currentTimeMillis(), lastTimestamp);
+			NewTerms newProducts = new NewTerms(products, TERM_PRODUCT);
+			NewTerms newLocations = new NewTerms(locations, TERM_LOCATION);
+
+			int documentLocation = newLocations.id(ingest.documentLocation);
+			ByteBuffer lines = ByteBuffer.allocate(merged.size() * ITEM_ROW);
+			Map<Integer, Long> previousRows = new HashMap<>();
+			double quantity = 0;
+			long row = firstItem;
+			for (Pending line : merged.values()) {
+				int product = newProducts.id(line.sku);
+				int location = line.location != null ? newLocations.id(line.location) : documentLocation;
+				Long previous = previousRows.get(product);
+				if (previous == null) previous = head(productHeads, product);
+				lines.putInt((int) inventoryRow).putInt(product).putInt(location).putInt(0)
+					.putDouble(line.quantity).putLong(previous);
+				previousRows.put(product, row++);
+				quantity += line.quantity;
+			}
+
+			byte[] name = truncate(filename);
+			ByteBuffer nameRecord = ByteBuffer.allocate(2 + name.length).putShort((short) name.length).put(name);
+			long previousAtLocation = head(locationHeads, documentLocation);
+			ByteBuffer inventory = ByteBuffer.allocate(INVENTORY_ROW)
+				.putLong(timestamp).putLong(firstItem).putLong(namesSize).putDouble(quantity)
+				.putLong(previousAtLocation).putInt(merged.size()).putInt(documentLocation);
+
+			ByteBuffer termRecords = ByteBuffer.allocate(newProducts.bytes + newLocations.bytes);
+			newProducts.writeTo(termRecords);
+			newLocations.writeTo(termRecords);
+			termRecords.flip();
+			nameRecord.flip();
+			lines.flip();
+			inventory.flip();
+			writeFully(terms, termRecords, termsSize);
+			writeFully(names, nameRecord, namesSize);
+			writeFully(items, lines, firstItem * ITEM_ROW);
+			terms.force(false);
+			names.force(false);
+			items.force(false);
+			writeFully(inventories, inventory, inventoryRow * INVENTORY_ROW);
+			inventories.force(false);
+			termsSize += termRecords.limit();
+			namesSize += nameRecord.limit();
+
+			lock.writeLock().lock();
+			try {
+				newProducts.publish();
+				newLocations.publish();
+				lines.rewind();
+				for (long item = firstItem; item < row; item++) {
+					lines.getInt();
+					int product = lines.getInt();
+					int location = lines.getInt();
+					lines.getInt();
+					double lineQuantity = lines.getDouble();
+					lines.getLong();
+					publishLine(inventoryRow, timestamp, item, product, location, lineQuantity);
+				}
+				publishInventory(inventoryRow, documentLocation);
+				itemCount = row;
+				inventoryCount = inventoryRow + 1;
+				lastTimestamp = timestamp;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+	}
+
+	// Requiere el lock de escritura (o estar abriendo el índice)
+	private void publishLine(long inventory, long timestamp, long row, int product, int location, double quantity) {
+		productHeads = setHead(productHeads, product, row);
+		String sku = products.value(product);
+		totalsFor(totals, sku).add(inventory, timestamp, quantity);
+		if (location != NONE) {
+			TreeMap<String, Totals> byLocation = totalsByLocation.get(location);
+			if (byLocation == null) {
+				byLocation = new TreeMap<>();
+				totalsByLocation.put(location, byLocation);
+			}
+			totalsFor(byLocation, sku).add(inventory, timestamp, quantity);
+		}
+	}
+
+	private void publishInventory(long row, int location) {
+		if (location != NONE) locationHeads = setHead(locationHeads, location, row);
+	}
+
+	private static long head(long[] heads, int id) {
+		return id >= 0 && id < heads.length ? heads[id] : NONE;
+	}
+
+	private static long[] setHead(long[] heads, int id, long row) {
+		if (id >= heads.length) {
+			int length = heads.length;
+			heads = Arrays.copyOf(heads, Math.max(id + 1, Math.max(16, length * 2)));
+			Arrays.fill(heads, length, heads.length, NONE);
+		}
+		heads[id] = row;
+		return heads;
+	}
+
+	private static Totals totalsFor(TreeMap<String, Totals> map, String sku) {
+		Totals entry = map.get(sku);
+		if (entry == null) {
+			entry = new Totals(sku);
+			map.put(sku, entry);
+		}
+		return entry;
+	}
+
+	// Lee los archivos al abrir: descarta lo que quedó a medias (un inventario sin su fila, o un
+	// texto incompleto) y reconstruye las cadenas y los totales en memoria
+	private void recover() throws IOException {
+		termsSize = recoverTerms();
+		namesSize = names.size();
+		long itemRows = items.size() / ITEM_ROW;
+		long rows = inventories.size() / INVENTORY_ROW;
+		ByteBuffer row = ByteBuffer.allocate(INVENTORY_ROW);
+		// Solo la última fila puede ser de una subida interrumpida
+		while (rows > 0) {
+			readFully(inventories, row, (rows - 1) * INVENTORY_ROW);
+			long end = row.getLong(8) + row.getInt(40);
+			if (end <= itemRows && row.getLong(16) < namesSize) {
+				itemRows = end;
+				break;
+			}
+			rows--;
+		}
+		if (rows == 0) itemRows = 0;
+		inventories.truncate(rows * INVENTORY_ROW);
+		items.truncate(itemRows * ITEM_ROW);
+
+		RowReader reader = new RowReader(inventories, INVENTORY_ROW, 0, rows);
+		while (reader.hasNext()) {
+			ByteBuffer inventory = reader.next();
+			long id = reader.row();
+			long timestamp = inventory.getLong();
+			long firstItem = inventory.getLong();
+			inventory.position(inventory.position() + 24);
+			int lineCount = inventory.getInt();
+			int location = inventory.getInt();
+			RowReader lines = new RowReader(items, ITEM_ROW, firstItem, firstItem + lineCount);
+			while (lines.hasNext()) {
+				ByteBuffer line = lines.next();
+				line.getInt();
+				int product = line.getInt();
+				int lineLocation = line.getInt();
+				line.getInt();
+				double quantity = line.getDouble();
+				line.getLong();
+				if (product >= products.size() || lineLocation >= locations.size()) {
+					throw new IOException("Índice de inventarios dañado (línea " + lines.row() + ")");
+				}
+				publishLine(id, timestamp, lines.row(), product, lineLocation, quantity);
+			}
+			publishInventory(id, location);
+			lastTimestamp = timestamp;
+		}
+		inventoryCount = rows;
+		itemCount = itemRows;
+	}
+
+	// Registros "tipo, longitud, UTF-8"; devuelve el final del último registro completo
+	private long recoverTerms() throws IOException {
+		long size = terms.size();
+		long position = 0;
+		ByteBuffer header = ByteBuffer.allocate(3);
+		while (position + 3 <= size) {
+			readFully(terms, header, position);
+			int length = header.getShort(1) & 0xffff;
+			if (position + 3 + length > size) break;
+			ByteBuffer value = ByteBuffer.allocate(length);
+			readFully(terms, value, position + 3);
+			String text = new String(value.array(), StandardCharsets.UTF_8);
+			byte type = header.get(0);
+			if (type == TERM_PRODUCT) {
+				products.add(text);
+			} else if (type == TERM_LOCATION) {
+				locations.add(text);
+			} else {
+				break;
+			}
+			position += 3 + length;
+		}
+		terms.truncate(position);
+		return position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (commitLock) {
+			IOException failure = null;
+			for (FileChannel channel : new FileChannel[] { inventories, items, terms, names }) {
+				if (channel == null) continue;
+				try {
+					channel.close();
+				} catch (IOException e) {
+					failure = e;
+				}
+			}
+			if (failure != null) throw failure;
+		}
+	}
+
+	private static FileChannel open(File file) throws IOException {
+		return new RandomAccessFile(file, "rw").getChannel();
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		buffer.clear();
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + buffer.position());
+			if (read < 0) throw new IOException("Índice de inventarios truncado");
+		}
+		buffer.flip();
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, position + buffer.position());
+		}
+	}
+
+	private static byte[] truncate(String text) {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		return bytes.length > MAX_TERM_BYTES ? Arrays.copyOf(bytes, MAX_TERM_BYTES) : bytes;
+	}
+
+	private static String[] lowerCase(String[] fields) {
+		String[] lower = new String[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			lower[i] = fields[i].toLowerCase(Locale.ROOT);
+		}
+		return lower;
+	}
+
+	// Texto <-> id, en el orden en que aparecieron
+	private static final class Dictionary {
+		private final Map<String, Integer> ids = new HashMap<>();
+		private final List<String> values = new ArrayList<>();
+
+		int id(String value) {
+			Integer id = ids.get(value);
+			return id != null ? id : NONE;
+		}
+
+		String value(int id) {
+			return id == NONE ? null : values.get(id);
+		}
+
+		int size() {
+			return values.size();
+		}
+
+		void add(String value) {
+			ids.put(value, values.size());
+			values.add(value);
+		}
+	}
+
+	// Términos que aparecen por primera vez en una subida: reciben id al analizarla y solo se
+	// publican en el diccionario cuando ya están en disco
+	private static final class NewTerms {
+		private final Dictionary dictionary;
+		private final byte type;
+		private final Map<String, Integer> added = new LinkedHashMap<>();
+		int bytes;
+
+		NewTerms(Dictionary dictionary, byte type) {
+			this.dictionary = dictionary;
+			this.type = type;
+		}
+
+		int id(String value) {
+			if (value == null) return NONE;
+			int id = dictionary.id(value);
+			if (id != NONE) return id;
+			Integer pending = added.get(value);
+			if (pending != null) return pending;
+			id = dictionary.size() + added.size();
+			added.put(value, id);
+			bytes += 3 + truncate(value).length;
+			return id;
+		}
+
+		void writeTo(ByteBuffer out) {
+			for (String value : added.keySet()) {
+				byte[] encoded = truncate(value);
+				out.put(type).putShort((short) encoded.length).put(encoded);
+			}
+		}
+
+		void publish() {
+			for (String value : added.keySet()) {
+				dictionary.add(value);
+			}
+		}
+	}
+
+	// Lectura secuencial de filas [first, end) con un buffer de 64 KB
+	private static final class RowReader {
+		private final FileChannel channel;
+		private final int rowSize;
+		private final ByteBuffer buffer;
+		private long next;
+		private long loaded;
+		private final long end;
+
+		RowReader(FileChannel channel, int rowSize, long first, long end) {
+			this.channel = channel;
+			this.rowSize = rowSize;
+			this.buffer = ByteBuffer.allocate(READ_BUFFER_BYTES / rowSize * rowSize);
+			this.next = first - 1;
+			this.loaded = first;
+			this.end = end;
+			buffer.limit(0);
+		}
+
+		boolean hasNext() {
+			return next + 1 < end;
+		}
+
+		// Fila siguiente: el buffer queda al principio de la fila y el llamante lee la fila entera
+		ByteBuffer next() throws IOException {
+			next++;
+			if (buffer.remaining() < rowSize) {
+				long rows = Math.min(buffer.capacity() / rowSize, end - loaded);
+				buffer.clear();
+				buffer.limit((int) rows * rowSize);
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer, loaded * rowSize + buffer.position()) < 0) {
+						throw new IOException("Índice de inventarios truncado");
+					}
+				}
+				buffer.flip();
+				loaded += rows;
+			}
+			return buffer;
+		}
+
+		long row() {
+			return next;
+		}
+	}
+
+	// Línea pendiente de una subida, ya agrupada por producto y ubicación
+	private static final class Pending {
+		final String sku;
+		final String location;
+		double quantity;
+
+		Pending(String sku, String location) {
+			this.sku = sku;
+			this.location = location;
+		}
+	}
+
+	// Recoge las líneas de una subida mientras JsonScanner la recorre. Una línea es cualquier
+	// objeto con un campo de código (inventorySkuFields); la cantidad y la ubicación salen de sus
+	// propios campos, y la ubicación de las líneas que no la tienen, del objeto raíz.
+	private final class Ingest implements JsonScanner.Handler {
+		// null en los niveles que son arrays
+		private final List<Fields> stack = new ArrayList<>();
+		private final List<Pending> lines = new ArrayList<>();
+		String documentLocation;
+
+		@Override
+		public void startObject() {
+			stack.add(new Fields());
+		}
+
+		@Override
+		public void endObject() {
+			Fields fields = stack.remove(stack.size() - 1);
+			if (fields.sku != null && lines.size() < MAX_LINES) {
+				Pending line = new Pending(fields.sku, fields.location);
+				line.quantity = parseQuantity(fields.quantity);
+				lines.add(line);
+			}
+			if (stack.isEmpty()) documentLocation = fields.location;
+		}
+
+		@Override
+		public void startArray() {
+			stack.add(null);
+		}
+
+		@Override
+		public void endArray() {
+			stack.remove(stack.size() - 1);
+		}
+
+		@Override
+		public void name(String name) {
+			Fields fields = stack.get(stack.size() - 1);
+			fields.name = name.toLowerCase(Locale.ROOT);
+		}
+
+		@Override
+		public void scalar(String text, boolean string) {
+			if (stack.isEmpty()) return;
+			Fields fields = stack.get(stack.size() - 1);
+			if (fields == null || fields.name == null || "null".equals(text) && !string) return;
+			text = text.trim();
+			if (text.isEmpty()) return;
+			int rank = rank(skuFields, fields.name);
+			if (rank < fields.skuRank) {
+				fields.sku = text;
+				fields.skuRank = rank;
+			}
+			rank = rank(quantityFields, fields.name);
+			if (rank < fields.quantityRank) {
+				fields.quantity = text;
+				fields.quantityRank = rank;
+			}
+			rank = rank(locationFields, fields.name);
+			if (rank < fields.locationRank) {
+				fields.location = text;
+				fields.locationRank = rank;
+			}
+		}
+
+		// Agrupa las líneas repetidas (mismo código y ubicación) sumando sus cantidades
+		Map<String, Pending> merge() {
+			Map<String, Pending> merged = new LinkedHashMap<>();
+			for (Pending line : lines) {
+				String location = line.location != null ? line.location : documentLocation;
+				String key = line.sku + '\n' + (location != null ? location : "");
+				Pending entry = merged.get(key);
+				if (entry == null) {
+					entry = new Pending(line.sku, line.location);
+					merged.put(key, entry);
+				}
+				entry.quantity += line.quantity;
+			}
+			return merged;
+		}
+	}
+
+	// Campos reconocidos de un objeto; el rango es la posición del nombre en la lista de config
+	private static final class Fields {
+		String name;
+		String sku;
+		String quantity;
+		String location;
+		int skuRank = Integer.MAX_VALUE;
+		int quantityRank = Integer.MAX_VALUE;
+		int locationRank = Integer.MAX_VALUE;
+	}
+
+	private static int rank(String[] names, String name) {
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].equals(name)) return i;
+		}
+		return Integer.MAX_VALUE;
+	}
+
+	// Sin cantidad (o con una que no es un número) la línea cuenta como una unidad
+	private static double parseQuantity(String text) {
+		if (text == null) return 1;
+		try {
+			double quantity = Double.parseDouble(text.replace(',', '.'));
+			return Double.isNaN(quantity) || Double.isInfinite(quantity) ? 1 : quantity;
+		} catch (NumberFormatException e) {
+			return 1;
+		}
+	}
+
+	// Pasa los bytes al almacenamiento y, por el camino, al analizador. Un JSON inválido solo
+	// deja la subida sin indexar; nunca interrumpe el guardado.
+	private static final class ScanningInputStream extends FilterInputStream {
+		private final JsonScanner scanner;
+		private IOException failure;
+
+		ScanningInputStream(InputStream in, JsonScanner.Handler handler) {
+			super(in);
+			this.scanner = new JsonScanner(handler);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) scan(new byte[] { (byte) b }, 0, 1);
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int read = super.read(buffer, offset, length);
+			if (read > 0) scan(buffer, offset, read);
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			// Saltar bytes dejaría el documento incompleto
+			failure = new IOException("subida leída parcialmente");
+			return super.skip(n);
+		}
+
+		private void scan(byte[] buffer, int offset, int length) {
+			if (failure != null) return;
+			try {
+				scanner.feed(buffer, offset, length);
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+
+		void finish() throws IOException {
+			if (failure != null) throw failure;
+			scanner.finish();
+		}
+	}
+}
@@ -0,0 +1,475 @@
+package com.server;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Diario de inventarios: cada subida se añade como un registro (cabecera con longitud y CRC,
+// nombre y contenido, opcionalmente gzip) al final de un segmento de log. No hay inserciones en
+// MediaStore ni nombres que colisionen; los fsync de subidas simultáneas se agrupan en uno solo
+// (group commit). export() materializa los registros como archivos y borra los segmentos ya
+// exportados.
+public class InventoryJournal implements InventoryStore, Closeable {
+	private static final int MAGIC = 0x494e5631; // "INV1"
+	// magic, longitud, crc, secuencia, fecha, flags, longitud del nombre
+	private static final int HEADER_BYTES = 4 + 4 + 4 + 8 + 8 + 1 + 2;
+	private static final int FLAG_GZIP = 1;
+	private static final int MAX_NAME_BYTES = 1024;
+	private static final int SPOOL_MEMORY_BYTES = 256 * 1024;
+	private static final int BUFFER_SIZE = 16 * 1024;
+	private static final String SEGMENT_PREFIX = "journal-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final String EXPORTED_FILE = "exported";
+
+	private final File dir;
+	private final long segmentBytes;
+	private final boolean compress;
+
+	private final Object appendLock = new Object();
+	private final Object syncLock = new Object();
+	private final Object exportLock = new Object();
+
+	// Estado del segmento activo, protegido por appendLock
+	private FileChannel channel;
+	private File segment;
+	private long segmentSize;
+	private long nextSequence;
+	private long recordCount;
+	// Bytes añadidos desde la apertura (posición lógica) y cuántos están ya en disco
+	private long appended;
+	private volatile long synced;
+
+	private long exportedSequence;
+
+	public InventoryJournal(File dir, long segmentBytes, boolean compress) throws IOException {
+		this.dir = dir;
+		this.segmentBytes = segmentBytes;
+		this.compress = compress;
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("No se pudo crear el diario: " + dir);
+		}
+		exportedSequence = readExportedSequence();
+		recover();
+	}
+
+	// Registro del diario tal como lo ve export()
+	public static class Record {
+		public final long sequence;
+		public final long timestamp;
+		public final String name;
+
+		Record(long sequence, long timestamp, String name) {
+			this.sequence = sequence;
+			this.timestamp = timestamp;
+			this.name = name;
+		}
+	}
+
+	public interface RecordSink {
+		// Recibe el contenido ya descomprimido; false detiene la exportación
+		boolean accept(Record record, InputStream content) throws IOException;
+	}
+
+	@Override
+	public boolean save(InputStream content, String filename) throws IOException {
+		byte[] name = filename.getBytes(StandardCharsets.UTF_8);
+		if (name.length > MAX_NAME_BYTES) {
+			name = Arrays.copyOf(name, MAX_NAME_BYTES);
+		}
+
+		// El cuerpo se copia primero a un spool (memoria o temporal) para no retener el log
+		// mientras llega un cliente lento; solo se bloquea para añadir el registro completo
+		Spool spool = new Spool(dir);
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			OutputStream out = compress ? new GZIPOutputStream(spool, BUFFER_SIZE) : spool;
+			int read;
+			while ((read = content.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			out.close();
+		} catch (Spool.WriteException e) {
+			spool.delete();
+			return false;
+		} catch (IOException e) {
+			spool.delete();
+			throw e;
+		}
+
+		try {
+			long end = append(name, spool, System.currentTimeMillis());
+			sync(end);
+			return true;
+		} catch (IOException e) {
+			return false;
+		} finally {
+			spool.delete();
+		}
+	}
+
+	private long append(byte[] name, Spool spool, long timestamp) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + name.length);
+		synchronized (appendLock) {
+			if (channel == null) throw new ClosedChannelException();
+			long recordSize = header.capacity() + spool.length();
+			if (segmentSize > 0 && segmentSize + recordSize > segmentBytes) {
+				roll();
+			}
+			header.putInt(MAGIC)
+				.putInt((int) spool.length())
+				.putInt((int) spool.crc())
+				.putLong(nextSequence)
+				.putLong(timestamp)
+				.put((byte) (compress ? FLAG_GZIP : 0))
+				.putShort((short) name.length)
+				.put(name);
+			header.flip();
+			try {
+				while (header.hasRemaining()) {
+					channel.write(header);
+				}
+				spool.writeTo(channel);
+			} catch (IOException e) {
+				// Un registro a medias dejaría ilegible el resto del segmento
+				channel.truncate(segmentSize);
+				throw e;
+			}
+			segmentSize += recordSize;
+			appended += recordSize;
+			nextSequence++;
+			recordCount++;
+			return appended;
+		}
+	}
+
+	// Group commit: quien llega primero hace el fsync de todo lo añadido hasta ese momento;
+	// los demás esperan y, si su registro quedó cubierto, vuelven sin tocar el disco
+	private void sync(long target) throws IOException {
+		synchronized (syncLock) {
+			if (synced >= target) return;
+			FileChannel current;
+			long covered;
+			synchronized (appendLock) {
+				current = channel;
+				covered = appended;
+			}
+			if (current == null) {
+				// close() ya forzó el segmento
+				if (synced >= target) return;
+				throw new ClosedChannelException();
+			}
+			try {
+				current.force(false);
+			} catch (ClosedChannelException e) {
+				// roll() ya forzó el segmento antes de cerrarlo
+				if (synced >= target) return;
+				throw e;
+			}
+			if (covered > synced) synced = covered;
+		}
+	}
+
+	// Cierra el segmento activo (ya en disco) y empieza uno nuevo; requiere appendLock
+	private void roll() throws IOException {
+		channel.force(false);
+		channel.close();
+		synced = appended;
+		openSegment(new File(dir, segmentName(nextSequence)));
+	}
+
+	private void openSegment(File file) throws IOException {
+		segment = file;
+		channel = new FileOutputStream(file, true).getChannel();
+		segmentSize = channel.size();
+	}
+
+	// Recorre los segmentos al abrir: cuenta registros y descarta la cola de un registro a medias
+	private void recover() throws IOException {
+		List<File> segments = listSegments();
+		long sequence = 0;
+		for (int i = 0; i < segments.size(); i++) {
+			File file = segments.get(i);
+			boolean last = i == segments.size() - 1;
+			// Solo el último segmento puede tener escrituras sin fsync: se comprueba su CRC
+			ScanResult result = scan(file, last, null);
+			if (result.validBytes < file.length()) {
+				try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+					raf.setLength(result.validBytes);
+				}
+			}
+			recordCount += result.records;
+			if (result.lastSequence >= 0) sequence = result.lastSequence + 1;
+		}
+		nextSequence = Math.max(sequence, exportedSequence + 1);
+		openSegment(segments.isEmpty() ? new File(dir, segmentName(nextSequence)) : segments.get(segments.size() - 1));
+	}
+
+	// Exporta los registros pendientes en orden y borra los segmentos exportados por completo.
+	// Devuelve cuántos registros se exportaron.
+	public int export(RecordSink sink) throws IOException {
+		synchronized (exportLock) {
+			List<File> sealed;
+			synchronized (appendLock) {
+				if (channel == null) throw new ClosedChannelException();
+				if (segmentSize > 0) roll();
+				sealed = listSegments();
+				sealed.remove(segment);
+			}
+
+			int exported = 0;
+			try {
+				for (File file : sealed) {
+					ScanResult result = scan(file, false, sink);
+					exported += result.exported;
+					if (!result.complete) break;
+					if (file.delete()) {
+						synchronized (appendLock) {
+							recordCount -= result.records;
+						}
+					}
+				}
+			} finally {
+				writeExportedSequence();
+			}
+			return exported;
+		}
+	}
+
+	public long getRecordCount() {
+		synchronized (appendLock) {
+			return recordCount;
+		}
+	}
+
+	public long getSizeBytes() {
+		long size = 0;
+		for (File file : listSegments()) {
+			size += file.length();
+		}
+		return size;
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (appendLock) {
+			if (channel == null) return;
+			channel.force(false);
+			channel.close();
+			channel = null;
+			synced = appended;
+		}
+	}
+
+	private static class ScanResult {
+		long validBytes;
+		long records;
+		long lastSequence = -1;
+		int exported;
+		boolean complete = true;
+	}
+
+	// Lee un segmento registro a registro. Con sink, entrega los registros aún no exportados;
+	// con verify, comprueba el CRC y se detiene en el primer registro dañado o incompleto.
+	private ScanResult scan(File file, boolean verify, RecordSink sink) throws IOException {
+		ScanResult result = new ScanResult();
+		long fileLength = file.length();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			while (result.validBytes + HEADER_BYTES <= fileLength) {
+				if (in.readInt() != MAGIC) break;
+				int length = in.readInt();
+				int crc = in.readInt();
+				long sequence = in.readLong();
+				long timestamp = in.readLong();
+				int flags = in.readByte();
+				int nameLength = in.readUnsignedShort();
+				long recordSize = HEADER_BYTES + nameLength + (long) length;
+				if (length < 0 || nameLength > MAX_NAME_BYTES || result.validBytes + recordSize > fileLength) break;
+				byte[] name = new byte[nameLength];
+				in.readFully(name);
+
+				InputStream payload = new LimitedInputStream(in, length, Long.MAX_VALUE);
+				if (sink != null && sequence > exportedSequence) {
+					InputStream content = (flags & FLAG_GZIP) != 0 ? new GZIPInputStream(payload, BUFFER_SIZE) : payload;
+					Record record = new Record(sequence, timestamp, new String(name, StandardCharsets.UTF_8));
+					if (!sink.accept(record, content)) {
+						result.complete = false;
+						return result;
+					}
+					exportedSequence = sequence;
+					result.exported++;
+				}
+				if (verify) {
+					CRC32 checksum = new CRC32();
+					int read;
+					while ((read = payload.read(buffer)) != -1) {
+						checksum.update(buffer, 0, read);
+					}
+					if ((int) checksum.getValue() != crc) break;
+				} else {
+					skipFully(payload, buffer);
+				}
+				result.validBytes += recordSize;
+				result.records++;
+				result.lastSequence = sequence;
+			}
+		} catch (EOFException e) {
+			// Registro incompleto al final: se descarta
+		}
+		return result;
+	}
+
+	private static void skipFully(InputStream in, byte[] buffer) throws IOException {
+		while (in.read(buffer) != -1) {
+			// Solo se consume
+		}
+	}
+
+	private List<File> listSegments() {
+		List<File> segments = new ArrayList<>();
+		File[] files = dir.listFiles();
+		if (files == null) return segments;
+		for (File file : files) {
+			String name = file.getName();
+			if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+				segments.add(file);
+			}
+		}
+		// El número de secuencia en hexadecimal de ancho fijo ordena los segmentos por nombre
+		segments.sort((a, b) -> a.getName().compareTo(b.getName()));
+		return segments;
+	}
+
+	private static String segmentName(long firstSequence) {
+		return SEGMENT_PREFIX + String.format(Locale.US, "%016x", firstSequence) + SEGMENT_SUFFIX;
+	}
+
+	private long readExportedSequence() {
+		File file = new File(dir, EXPORTED_FILE);
+		if (!file.isFile()) return -1;
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			return in.readLong();
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	// Marca de exportación: evita duplicar registros si una exportación se interrumpe a medias
+	private void writeExportedSequence() throws IOException {
+		File temp = new File(dir, EXPORTED_FILE + ".tmp");
+		try (FileOutputStream out = new FileOutputStream(temp)) {
+			out.write(ByteBuffer.allocate(8).putLong(exportedSequence).array());
+			out.getFD().sync();
+		}
+		if (!temp.renameTo(new File(dir, EXPORTED_FILE))) {
+			throw new IOException("No se pudo actualizar " + EXPORTED_FILE);
+		}
+	}
+
+	// Cuerpo comprimido a la espera de añadirse: en memoria hasta SPOOL_MEMORY_BYTES y en un
+	// temporal a partir de ahí, para que la memoria por subida quede acotada
+	private static class Spool extends OutputStream {
+		private final File dir;
+		private final CRC32 crc = new CRC32();
+		private ByteArrayOutputStream memory = new ByteArrayOutputStream(BUFFER_SIZE);
+		private File file;
+		private OutputStream fileOut;
+		private long length;
+
+		Spool(File dir) {
+			this.dir = dir;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] buffer, int offset, int count) throws IOException {
+			try {
+				if (memory != null && memory.size() + count > SPOOL_MEMORY_BYTES) {
+					file = File.createTempFile("upload", ".spool", dir);
+					fileOut = new FileOutputStream(file);
+					memory.writeTo(fileOut);
+					memory = null;
+				}
+				if (memory != null) {
+					memory.write(buffer, offset, count);
+				} else {
+					fileOut.write(buffer, offset, count);
+				}
+			} catch (IOException e) {
+				throw new WriteException(e);
+			}
+			crc.update(buffer, offset, count);
+			length += count;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (fileOut != null) fileOut.close();
+		}
+
+		long length() {
+			return length;
+		}
+
+		long crc() {
+			return crc.getValue();
+		}
+
+		void writeTo(FileChannel target) throws IOException {
+			if (memory != null) {
+				ByteBuffer buffer = ByteBuffer.wrap(memory.toByteArray());
+				while (buffer.hasRemaining()) {
+					target.write(buffer);
+				}
+				return;
+			}
+			try (FileChannel source = new FileInputStream(file).getChannel()) {
+				long position = 0;
+				while (position < length) {
+					position += source.transferTo(position, length - position, target);
+				}
+			}
+		}
+
+		void delete() {
+			try {
+				close();
+			} catch (IOException ignored) {
+			}
+			if (file != null) file.delete();
+		}
+
+		// Fallo al escribir en el spool (almacenamiento), distinto de un fallo al leer la subida
+		static class WriteException extends IOException {
+			private static final long serialVersionUID = 1L;
+
+			WriteException(IOException cause) {
+				super(cause);
+			}
+		}
+	}
+}
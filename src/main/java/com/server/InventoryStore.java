@@ -0,0 +1,13 @@
+package com.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Destino de los inventarios recibidos en /upload: MediaStore (un archivo por subida) o el
+// diario de InventoryJournal
+public interface InventoryStore {
+
+	// Guarda el inventario leído del flujo. Los errores al leer el flujo se propagan para que el
+	// servidor decida la respuesta; los errores del almacenamiento devuelven false.
+	boolean save(InputStream content, String filename) throws IOException;
+}
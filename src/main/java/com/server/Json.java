@@ -0,0 +1,166 @@
+package com.server;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Lector JSON mínimo para los archivos que el servidor interpreta él mismo (manifiesto de Vite).
+// Devuelve Map (en orden), List, String, Double, Boolean o null.
+final class Json {
+	private final String text;
+	private int position;
+
+	private Json(String text) {
+		this.text = text;
+	}
+
+	static Object parse(String text) throws IOException {
+		Json reader = new Json(text);
+		Object value = reader.value();
+		reader.skipWhitespace();
+		if (reader.position != text.length()) throw reader.error("Contenido después del valor");
+		return value;
+	}
+
+	private Object value() throws IOException {
+		skipWhitespace();
+		if (position >= text.length()) throw error("JSON incompleto");
+		char c = text.charAt(position);
+		switch (c) {
+			case '{': return object();
+			case '[': return array();
+			case '"': return string();
+			case 't': return literal("true", Boolean.TRUE);
+			case 'f': return literal("false", Boolean.FALSE);
+			case 'n': return literal("null", null);
+			default:
+				if (c == '-' || (c >= '0' && c <= '9')) return number();
+				throw error("Carácter inesperado '" + c + "'");
+		}
+	}
+
+	private Map<String, Object> object() throws IOException {
+		Map<String, Object> object = new LinkedHashMap<>();
+		position++;
+		skipWhitespace();
+		if (peek() == '}') {
+			position++;
+			return object;
+		}
+		while (true) {
+			skipWhitespace();
+			if (peek() != '"') throw error("Se esperaba un nombre");
+			String name = string();
+			skipWhitespace();
+			expect(':');
+			object.put(name, value());
+			skipWhitespace();
+			if (peek() == ',') {
+				position++;
+			} else {
+				expect('}');
+				return object;
+			}
+		}
+	}
+
+	private List<Object> array() throws IOException {
+		List<Object> array = new ArrayList<>();
+		position++;
+		skipWhitespace();
+		if (peek() == ']') {
+			position++;
+			return array;
+		}
+		while (true) {
+			array.add(value());
+			skipWhitespace();
+			if (peek() == ',') {
+				position++;
+			} else {
+				expect(']');
+				return array;
+			}
+		}
+	}
+
+	private String string() throws IOException {
+		position++;
+		StringBuilder value = null;
+		int start = position;
+		while (true) {
+			if (position >= text.length()) throw error("Cadena sin cerrar");
+			char c = text.charAt(position++);
+			if (c == '"') {
+				if (value == null) return text.substring(start, position - 1);
+				return value.toString();
+			}
+			if (c != '\\') {
+				if (value != null) value.append(c);
+				continue;
+			}
+			// Primer escape: a partir de aquí se construye la cadena
+			if (value == null) value = new StringBuilder(text.substring(start, position - 1));
+			if (position >= text.length()) throw error("Cadena sin cerrar");
+			char escaped = text.charAt(position++);
+			switch (escaped) {
+				case 'b': value.append('\b'); break;
+				case 'f': value.append('\f'); break;
+				case 'n': value.append('\n'); break;
+				case 'r': value.append('\r'); break;
+				case 't': value.append('\t'); break;
+				case 'u':
+					if (position + 4 > text.length()) throw error("Escape incompleto");
+					try {
+						value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+					} catch (NumberFormatException e) {
+						throw error("Escape inválido");
+					}
+					position += 4;
+					break;
+				default: value.append(escaped);
+			}
+		}
+	}
+
+	private Double number() throws IOException {
+		int start = position;
+		while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+			position++;
+		}
+		try {
+			return Double.valueOf(text.substring(start, position));
+		} catch (NumberFormatException e) {
+			throw error("Número inválido");
+		}
+	}
+
+	private Object literal(String word, Object value) throws IOException {
+		if (!text.startsWith(word, position)) throw error("Literal inválido");
+		position += word.length();
+		return value;
+	}
+
+	private void skipWhitespace() {
+		while (position < text.length()) {
+			char c = text.charAt(position);
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r') return;
+			position++;
+		}
+	}
+
+	private char peek() {
+		return position < text.length() ? text.charAt(position) : '\0';
+	}
+
+	private void expect(char c) throws IOException {
+		if (peek() != c) throw error("Se esperaba '" + c + "'");
+		position++;
+	}
+
+	private IOException error(String message) {
+		return new IOException(message + " en la posición " + position);
+	}
+}
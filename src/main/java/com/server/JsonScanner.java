@@ -0,0 +1,269 @@
+package com.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// Analizador JSON incremental: recibe el documento por trozos, tal como llega la subida, y
+// notifica su estructura a un Handler sin construirlo en memoria. Solo guarda la pila de
+// contenedores y el valor escalar en curso.
+final class JsonScanner {
+	private static final int MAX_DEPTH = 256;
+	// Cadenas y números más largos no son datos de un inventario
+	private static final int MAX_SCALAR_BYTES = 64 * 1024;
+
+	interface Handler {
+		void startObject();
+
+		void endObject();
+
+		void startArray();
+
+		void endArray();
+
+		void name(String name);
+
+		// Cadena ya decodificada, texto del número o "true"/"false"/"null"
+		void scalar(String text, boolean string);
+	}
+
+	private static final int VALUE = 0;
+	private static final int AFTER_VALUE = 1;
+	private static final int FIRST_NAME = 2;
+	private static final int NAME = 3;
+	private static final int COLON = 4;
+	private static final int STRING = 5;
+	private static final int ESCAPE = 6;
+	private static final int UNICODE = 7;
+	private static final int NUMBER = 8;
+	private static final int LITERAL = 9;
+	private static final int FIRST_VALUE = 10;
+	private static final int DONE = 11;
+
+	private final Handler handler;
+	// true: objeto; false: array
+	private final boolean[] containers = new boolean[MAX_DEPTH];
+	private int depth;
+	private int state = VALUE;
+	private boolean readingName;
+	private final ByteArrayOutputStream scalar = new ByteArrayOutputStream(64);
+	private int unicode;
+	private int unicodeDigits;
+	private char highSurrogate;
+	private String literal;
+	private int literalPosition;
+	private long position;
+
+	JsonScanner(Handler handler) {
+		this.handler = handler;
+	}
+
+	void feed(byte[] buffer, int offset, int length) throws IOException {
+		for (int i = offset; i < offset + length; i++) {
+			int b = buffer[i] & 0xff;
+			// Un número termina con el primer byte que no le pertenece, que se vuelve a procesar
+			if (state == NUMBER && !isNumberByte(b)) {
+				endNumber();
+			}
+			step(b);
+			position++;
+		}
+	}
+
+	// Fin del documento: falla si quedó incompleto
+	void finish() throws IOException {
+		if (state == NUMBER && depth == 0) {
+			endNumber();
+		}
+		if (state != DONE) throw error("Documento JSON incompleto");
+	}
+
+	private void step(int b) throws IOException {
+		switch (state) {
+			case STRING:
+				if (b == '"') {
+					endString();
+				} else if (b == '\\') {
+					state = ESCAPE;
+				} else if (b < 0x20) {
+					throw error("Carácter de control en una cadena");
+				} else {
+					appendScalar(b);
+				}
+				return;
+			case ESCAPE:
+				escape(b);
+				return;
+			case UNICODE:
+				int digit = Character.digit(b, 16);
+				if (digit < 0) throw error("Escape \\u inválido");
+				unicode = unicode << 4 | digit;
+				if (++unicodeDigits == 4) {
+					appendChar((char) unicode);
+					state = STRING;
+				}
+				return;
+			case NUMBER:
+				appendScalar(b);
+				return;
+			case LITERAL:
+				if (b != literal.charAt(literalPosition)) throw error("Literal inválido");
+				if (++literalPosition == literal.length()) {
+					handler.scalar(literal, false);
+					endValue();
+				}
+				return;
+			default:
+				break;
+		}
+		if (b == ' ' || b == '\t' || b == '\n' || b == '\r') return;
+		switch (state) {
+			case VALUE:
+			case FIRST_VALUE:
+				if (state == FIRST_VALUE && b == ']') {
+					close(false);
+				} else {
+					startValue(b);
+				}
+				return;
+			case AFTER_VALUE:
+				if (depth == 0) throw error("Contenido después del documento");
+				if (b == ',') {
+					state = containers[depth - 1] ? NAME : VALUE;
+				} else if (b == '}' || b == ']') {
+					close(b == '}');
+				} else {
+					throw error("Se esperaba ',' o fin de contenedor");
+				}
+				return;
+			case FIRST_NAME:
+			case NAME:
+				if (state == FIRST_NAME && b == '}') {
+					close(true);
+				} else if (b == '"') {
+					readingName = true;
+					startScalar(STRING);
+				} else {
+					throw error("Se esperaba un nombre");
+				}
+				return;
+			case COLON:
+				if (b != ':') throw error("Se esperaba ':'");
+				state = VALUE;
+				return;
+			default:
+				throw error("Contenido después del documento");
+		}
+	}
+
+	private void startValue(int b) throws IOException {
+		if (b == '{' || b == '[') {
+			if (depth == MAX_DEPTH) throw error("Anidamiento excesivo");
+			boolean object = b == '{';
+			containers[depth++] = object;
+			if (object) {
+				handler.startObject();
+				state = FIRST_NAME;
+			} else {
+				handler.startArray();
+				state = FIRST_VALUE;
+			}
+		} else if (b == '"') {
+			readingName = false;
+			startScalar(STRING);
+		} else if (b == '-' || (b >= '0' && b <= '9')) {
+			startScalar(NUMBER);
+			appendScalar(b);
+		} else if (b == 't' || b == 'f' || b == 'n') {
+			literal = b == 't' ? "true" : b == 'f' ? "false" : "null";
+			literalPosition = 1;
+			state = LITERAL;
+		} else {
+			throw error("Valor inesperado");
+		}
+	}
+
+	private void close(boolean object) throws IOException {
+		if (depth == 0 || containers[depth - 1] != object) throw error("Cierre sin abrir");
+		depth--;
+		if (object) {
+			handler.endObject();
+		} else {
+			handler.endArray();
+		}
+		endValue();
+	}
+
+	private void endValue() {
+		state = depth == 0 ? DONE : AFTER_VALUE;
+	}
+
+	private void escape(int b) throws IOException {
+		state = STRING;
+		switch (b) {
+			case '"': case '\\': case '/': appendScalar(b); break;
+			case 'b': appendScalar('\b'); break;
+			case 'f': appendScalar('\f'); break;
+			case 'n': appendScalar('\n'); break;
+			case 'r': appendScalar('\r'); break;
+			case 't': appendScalar('\t'); break;
+			case 'u':
+				unicode = 0;
+				unicodeDigits = 0;
+				state = UNICODE;
+				break;
+			default: throw error("Escape inválido");
+		}
+	}
+
+	// Los pares sustitutos (caracteres fuera del BMP, como los emojis) se unen antes de pasar a UTF-8
+	private void appendChar(char c) throws IOException {
+		if (Character.isHighSurrogate(c)) {
+			highSurrogate = c;
+			return;
+		}
+		String text = highSurrogate != 0 && Character.isLowSurrogate(c)
+			? new String(new char[] { highSurrogate, c })
+			: String.valueOf(c);
+		highSurrogate = 0;
+		byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+		for (byte e : encoded) {
+			appendScalar(e & 0xff);
+		}
+	}
+
+	private void startScalar(int type) {
+		scalar.reset();
+		highSurrogate = 0;
+		state = type;
+	}
+
+	private void appendScalar(int b) throws IOException {
+		if (scalar.size() >= MAX_SCALAR_BYTES) throw error("Valor demasiado largo");
+		scalar.write(b);
+	}
+
+	private void endString() {
+		String text = new String(scalar.toByteArray(), StandardCharsets.UTF_8);
+		if (readingName) {
+			handler.name(text);
+			state = COLON;
+		} else {
+			handler.scalar(text, true);
+			endValue();
+		}
+	}
+
+	private void endNumber() {
+		handler.scalar(new String(scalar.toByteArray(), StandardCharsets.ISO_8859_1), false);
+		endValue();
+	}
+
+	private static boolean isNumberByte(int b) {
+		return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E';
+	}
+
+	private IOException error(String message) {
+		return new IOException(message + " (byte " + position + ")");
+	}
+}
@@ -0,0 +1,92 @@
+package com.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Histograma de duraciones sin bloqueos, con cubetas log-lineales al estilo HdrHistogram: cada
+// potencia de 2 de microsegundos se divide en 8 cubetas iguales, así que cualquier percentil se
+// conoce con un error máximo de 1/8 en unas 300 posiciones fijas. Registrar es un incremento
+// atómico; no se guarda ninguna muestra.
+public final class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// Los valores menores que esto tienen una cubeta cada uno
+	private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+	// Hasta 2^36 µs (unas 19 horas); los valores mayores caen en la última cubeta
+	private static final int MAX_MAGNITUDE = 36;
+	private static final int BUCKET_COUNT = LINEAR_LIMIT + (MAX_MAGNITUDE - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sumMicros = new AtomicLong();
+	private final AtomicLong maxMicros = new AtomicLong();
+
+	public void recordNanos(long nanos) {
+		recordMicros(nanos / 1000);
+	}
+
+	public void recordMicros(long micros) {
+		if (micros < 0) micros = 0;
+		counts.incrementAndGet(bucketIndex(micros));
+		count.incrementAndGet();
+		sumMicros.addAndGet(micros);
+		long max = maxMicros.get();
+		while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+			max = maxMicros.get();
+		}
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getSumMicros() {
+		return sumMicros.get();
+	}
+
+	public long getMaxMicros() {
+		return maxMicros.get();
+	}
+
+	public double getMeanMicros() {
+		long total = count.get();
+		return total == 0 ? 0 : (double) sumMicros.get() / total;
+	}
+
+	// Valor (en µs) por debajo del cual queda la fracción quantile de las muestras, redondeado al
+	// límite superior de su cubeta; 0 si no hay muestras
+	public long getPercentileMicros(double quantile) {
+		long total = 0;
+		long[] snapshot = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) return 0;
+		long rank = Math.max(1, (long) Math.ceil(quantile * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) return Math.min(upperBound(i), maxMicros.get());
+		}
+		return maxMicros.get();
+	}
+
+	static int bucketIndex(long micros) {
+		if (micros < LINEAR_LIMIT) return (int) micros;
+		int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+		if (magnitude >= MAX_MAGNITUDE) return BUCKET_COUNT - 1;
+		int shift = magnitude - SUB_BUCKET_BITS;
+		int subBucket = (int) (micros >>> shift) - SUB_BUCKETS;
+		return LINEAR_LIMIT + (magnitude - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+	}
+
+	// Mayor valor que cae en la cubeta
+	static long upperBound(int index) {
+		if (index < LINEAR_LIMIT) return index;
+		int offset = index - LINEAR_LIMIT;
+		int shift = offset / SUB_BUCKETS + 1;
+		long subBucket = offset % SUB_BUCKETS + SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,59 @@
+package com.server;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Lee exactamente length bytes (o hasta EOF si length < 0) y falla al pasar de maxBytes.
+// Delimita cuerpos de solicitudes y registros del diario dentro de un flujo compartido.
+class LimitedInputStream extends FilterInputStream {
+	private long remaining;
+	private long allowance;
+	// true: el flujo de debajo es solo de este (un archivo abierto para él) y se cierra con él
+	private final boolean ownsSource;
+
+	LimitedInputStream(InputStream in, long length, long maxBytes) {
+		this(in, length, maxBytes, false);
+	}
+
+	LimitedInputStream(InputStream in, long length, long maxBytes, boolean ownsSource) {
+		super(in);
+		this.remaining = length;
+		this.allowance = maxBytes;
+		this.ownsSource = ownsSource;
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] one = new byte[1];
+		return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		if (remaining == 0) return -1;
+		if (remaining > 0) length = (int) Math.min(length, remaining);
+		int read = in.read(buffer, offset, length);
+		if (read == -1) {
+			if (remaining > 0) throw new EOFException("Cuerpo incompleto");
+			remaining = 0;
+			return -1;
+		}
+		if (remaining > 0) remaining -= read;
+		allowance -= read;
+		if (allowance < 0) throw new RequestBody.TooLargeException();
+		return read;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return remaining == 0 ? 0 : (int) Math.min(in.available(), remaining < 0 ? Integer.MAX_VALUE : remaining);
+	}
+
+	@Override
+	public void close() throws IOException {
+		// Si no, el flujo de debajo pertenece a quien lo creó (socket o segmento del diario)
+		if (ownsSource) in.close();
+	}
+}
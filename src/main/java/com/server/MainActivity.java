@@ -23,6 +23,7 @@ import android.webkit.ValueCallback;
 import android.webkit.WebChromeClient;
 import android.webkit.WebResourceError;
 import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
@@ -50,8 +51,21 @@ public class MainActivity extends AppCompatActivity {
 
 	private static final String TAG = "MainActivity";
 	private static final int REQUEST_CODE_PERMISSIONS = 101;
+	private static final int ASSET_SYNC_THREADS = 4;
+	// Access log del servidor: 4 archivos de 1 MB en files/logs
+	private static final long SERVER_LOG_FILE_BYTES = 1024 * 1024;
+	private static final int SERVER_LOG_FILES = 4;
+	// Como máximo 3 avisos del servidor cada 10 segundos
+	private static final long TOAST_WINDOW_MS = 10_000;
+	private static final int TOASTS_PER_WINDOW = 3;
+	// El WebView obtiene la página y sus assets sin pasar por el socket; el servidor TCP queda
+	// para los clientes de la red local y las subidas
+	private static final boolean SERVE_WEBVIEW_IN_PROCESS = true;
 
 	private MyServer myServer;
+	private AsyncLog serverLog;
+	// Lo consulta el hilo de red del WebView
+	private volatile WebViewInterceptor interceptor;
 	private boolean isServerRunning = false;
 
 	private WebView webView;
@@ -184,6 +198,16 @@ public class MainActivity extends AppCompatActivity {
 			return true;
 		}
 
+		if (id == R.id.action_export_inventories) {
+			exportInventories();
+			return true;
+		}
+
+		if (id == R.id.action_server_metrics) {
+			showServerMetrics();
+			return true;
+		}
+
 		return super.onOptionsItemSelected(item);
 	}
 
@@ -193,6 +217,23 @@ public class MainActivity extends AppCompatActivity {
 		stopServer();
 	}
 
+	@Override
+	public void onTrimMemory(int level) {
+		super.onTrimMemory(level);
+		if (myServer == null)
+			return;
+
+		// Liberamos la caché del servidor según la presión de memoria del sistema
+		if (level >= TRIM_MEMORY_COMPLETE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+			myServer.getCache().clear();
+		} else if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_LOW) {
+			myServer.getCache().trimToFraction(0.25f);
+		} else if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_MODERATE) {
+			myServer.getCache().trimToFraction(0.5f);
+		}
+		Log.d(TAG, "onTrimMemory(" + level + "): " + myServer.getCache().getStats());
+	}
+
 	private void setupWebView() {
 		WebSettings settings = webView.getSettings();
 		settings.setJavaScriptEnabled(true);
@@ -202,6 +243,12 @@ public class MainActivity extends AppCompatActivity {
 		settings.setMediaPlaybackRequiresUserGesture(false);
 
 		webView.setWebViewClient(new WebViewClient() {
+			@Override
+			public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+				WebViewInterceptor current = interceptor;
+				return current != null ? current.intercept(request) : null;
+			}
+
 			@Override
 			public void onReceivedError(WebView view, WebResourceRequest request, WebResourceError error) {
 				logAndToast("Error al cargar página");
@@ -248,12 +295,31 @@ public class MainActivity extends AppCompatActivity {
 
 		try {
 			copyAssetsToStats();
-			myServer = new MyServer(this, staticDir, this::logAndToast);
+			ServerConfig config = new ServerConfig();
+			// Con storage = JOURNAL las subidas se añaden al diario y se exportan desde el menú
+			config.journalDir = new File(getFilesDir(), "inventarios");
+			// Índice local de los inventarios subidos, consultable en /api/inventories
+			config.inventoryIndexDir = new File(getFilesDir(), "indice-inventarios");
+			// Los hilos del servidor solo encolan; logcat, archivo y toasts se atienden en segundo plano
+			RateLimitedLog toasts = new RateLimitedLog(this::showToast, TOAST_WINDOW_MS, TOASTS_PER_WINDOW);
+			serverLog = new AsyncLog(new File(getFilesDir(), "logs"), SERVER_LOG_FILE_BYTES, SERVER_LOG_FILES, message -> {
+				Log.d(TAG, message);
+				toasts.log(message);
+			});
+			myServer = new MyServer(this, staticDir, serverLog, config);
 			myServer.start();
+			if (SERVE_WEBVIEW_IN_PROCESS) {
+				interceptor = new WebViewInterceptor(myServer, config.port);
+			}
+			precompressStats(myServer);
 			isServerRunning = true;
 			logAndToast("Servidor iniciado");
 			webView.loadUrl("http://127.0.0.1:8080/index.html");
 		} catch (IOException e) {
+			if (serverLog != null) {
+				serverLog.close();
+				serverLog = null;
+			}
 			logAndToast("Error al iniciar servidor");
 			Log.e(TAG, "Error iniciando servidor", e);
 		}
@@ -261,18 +327,25 @@ public class MainActivity extends AppCompatActivity {
 
 	private void stopServer() {
 		if (myServer != null) {
+			interceptor = null;
 			myServer.stopServer();
 			myServer = null;
+			serverLog.close();
+			serverLog = null;
 			isServerRunning = false;
 			logAndToast("Servidor detenido");
 		}
 	}
 
 	private void logAndToast(final String message) {
-		runOnUiThread(() -> Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show());
+		showToast(message);
 		Log.d(TAG, message);
 	}
 
+	private void showToast(final String message) {
+		runOnUiThread(() -> Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show());
+	}
+
 	private void requestStoragePermissions() {
 		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
 			if (ContextCompat.checkSelfPermission(this,
@@ -298,13 +371,64 @@ public class MainActivity extends AppCompatActivity {
 
 	private void copyAssetsToStats() {
 		try {
-			copyAssetFolder(getAssets(), "", staticDir);
+			// Con manifiesto solo se copia lo que cambió desde la última instalación
+			AssetSync.Result result = AssetSync.sync(getAssets()::open, staticDir,
+					new File(getFilesDir(), "stats-manifest.txt"), ASSET_SYNC_THREADS);
+			if (result != null) {
+				Log.d(TAG, "Assets sincronizados: " + result);
+			} else {
+				copyAssetFolder(getAssets(), "", staticDir);
+			}
 		} catch (IOException e) {
 			logAndToast("Error copiando archivos");
 			Log.e(TAG, "Error copiando assets", e);
 		}
 	}
 
+	// Vuelca el diario de inventarios a Documents/inventarios sin bloquear la interfaz
+	private void exportInventories() {
+		if (myServer == null || myServer.getJournal() == null) {
+			logAndToast("Los inventarios ya se guardan en Documentos");
+			return;
+		}
+		MyServer server = myServer;
+		new Thread(() -> {
+			try {
+				server.exportJournal();
+			} catch (IOException e) {
+				logAndToast("Error exportando inventarios");
+				Log.e(TAG, "Error exportando inventarios", e);
+			}
+		}, "export-journal").start();
+	}
+
+	// Resumen de latencias, caché y conexiones; el detalle completo queda en el log
+	private void showServerMetrics() {
+		if (myServer == null) {
+			logAndToast("El servidor no está en marcha");
+			return;
+		}
+		ServerMetrics metrics = myServer.getMetrics();
+		Log.d(TAG, "Métricas: " + metrics.toJson() + " logDescartados=" + serverLog.getDropped());
+		logAndToast(metrics.toString());
+	}
+
+	// Variantes .gz a máxima compresión en segundo plano; mientras no existan el servidor comprime
+	// al vuelo. Al terminar se reconstruye el índice del servidor para que las use.
+	private void precompressStats(MyServer server) {
+		new Thread(() -> {
+			try {
+				int count = Precompressor.precompress(staticDir);
+				Log.d(TAG, "Variantes .gz generadas: " + count);
+				if (count > 0) {
+					server.reloadStatic();
+				}
+			} catch (IOException e) {
+				Log.e(TAG, "Error precomprimiendo assets", e);
+			}
+		}, "precompress").start();
+	}
+
 	private void copyAssetFolder(android.content.res.AssetManager assetManager, String assetPath, File destDir)
 			throws IOException {
 		String[] files = assetManager.list(assetPath);
@@ -332,7 +456,7 @@ public class MainActivity extends AppCompatActivity {
 	private void copyAssetFile(android.content.res.AssetManager assetManager, String assetPath, File outFile) {
 		try (InputStream in = assetManager.open(assetPath); OutputStream out = new FileOutputStream(outFile)) {
 
-			byte[] buffer = new byte[1024];
+			byte[] buffer = new byte[64 * 1024];
 			int read;
 			while ((read = in.read(buffer)) != -1) {
 				out.write(buffer, 0, read);
@@ -5,36 +5,147 @@ import android.os.Environment;
 import android.provider.MediaStore;
 
 import java.io.*;
+import java.net.ProtocolException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.zip.GZIPOutputStream;
 
 public class MyServer extends Thread {
-	private final File staticDir;
+	private final StaticSource staticSource;
+	private volatile StaticIndex staticIndex;
+	private final RouteManifest routes;
 	private final ServerSocket serverSocket;
-	private boolean running = true;
+	private final NioEngine nioEngine;
+	private volatile boolean running = true;
 	private final ServerLogCallback logCallback;
-	private final Map<String, CachedFile> cache = new ConcurrentHashMap<>();
+	private final FileCache cache;
 	private final Context context;
+	private final ServerConfig config;
+	private final ConnectionExecutor connectionExecutor;
+	// Conexiones h2c abiertas, hasta config.maxHttp2Connections
+	private final AtomicInteger http2Connections = new AtomicInteger();
+	private final InventoryStore inventoryStore;
+	private final InventoryJournal journal;
+	private final InventoryIndex inventoryIndex;
+	private final InventoryApi inventoryApi;
+	// null si el contenido no está en un directorio o config.watchStatic es false
+	private final StaticWatcher staticWatcher;
+	private final Object staticLock = new Object();
+	private final ServerMetrics metrics;
+	
+	// Nombre-hash.ext o nombre.hash.ext, como los genera Vite
+	private static final Pattern FINGERPRINT = Pattern.compile("[-.]([A-Za-z0-9_-]{6,})\\.[A-Za-z0-9]+$");
+	
+	static final byte[] SERVICE_UNAVAILABLE = (
+		"HTTP/1.1 503 Service Unavailable\r\n" +
+		"Access-Control-Allow-Origin: *\r\n" +
+		"Retry-After: 1\r\n" +
+		"Content-Length: 0\r\n" +
+		"Connection: close\r\n\r\n").getBytes();
+	
+	// Respuestas fijas: la cabecera y el cuerpo se codifican una sola vez
+	private static final HttpResponse OPTIONS_RESPONSE = new HttpResponse("204 No Content")
+		.header("Access-Control-Allow-Origin", "*")
+		.header("Access-Control-Allow-Methods", "GET, POST, OPTIONS")
+		.header("Access-Control-Allow-Headers", "Content-Type")
+		.header("Access-Control-Max-Age", "86400")
+		.prebuild();
+	private static final HttpResponse ROUTE_NOT_FOUND = HttpResponse.text("404 Not Found", "Ruta no encontrada").prebuild();
+	private static final HttpResponse FILE_NOT_FOUND = HttpResponse.text("404 Not Found", "Archivo no encontrado").prebuild();
+	static final byte[] CRLF = { '\r', '\n' };
+	// Último trozo de un cuerpo chunked, sin trailers
+	static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+	// Datos comprimidos por trozo de un cuerpo StreamedBody
+	static final int STREAM_CHUNK_BYTES = 16 * 1024;
+	private static final byte[] CLOSE_HEADERS = "Connection: close\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+	// Intervalo en que una conexión inactiva comprueba si hay otras esperando hilo
+	private static final int IDLE_POLL_MS = 200;
+	// Cabeceras de conexión persistente con los límites de config, más la línea vacía final
+	private final byte[] keepAliveHeaders;
 	
 	public MyServer(Context context, File staticDir, ServerLogCallback logCallback) throws IOException {
+		this(context, staticDir, logCallback, new ServerConfig());
+	}
+	
+	public MyServer(Context context, File staticDir, ServerLogCallback logCallback, ServerConfig config) throws IOException {
+		this(context, new DirectoryStaticSource(staticDir), logCallback, config);
+	}
+	
+	public MyServer(Context context, StaticSource staticSource, ServerLogCallback logCallback, ServerConfig config) throws IOException {
 		this.context = context;
-		this.staticDir = staticDir;
+		this.staticSource = staticSource;
+		this.staticIndex = staticSource.buildIndex();
+		this.routes = new RouteManifest(config.spaRoutes, config.assetDirectories);
 		this.logCallback = logCallback;
-		this.serverSocket = new ServerSocket(8080);
+		this.config = config;
+		this.keepAliveHeaders = ("Connection: keep-alive\r\n" +
+			"Keep-Alive: timeout=" + (config.keepAliveTimeoutMs / 1000) + ", max=" + config.maxRequestsPerConnection + "\r\n\r\n")
+			.getBytes(StandardCharsets.ISO_8859_1);
+		this.connectionExecutor = new ConnectionExecutor(config, logCallback);
+		this.cache = new FileCache(config.cacheMaxBytes);
+		this.metrics = new ServerMetrics(connectionExecutor, cache);
+		InventoryStore store;
+		if (config.storage == ServerConfig.Storage.JOURNAL) {
+			if (config.journalDir == null) throw new IOException("journalDir no configurado");
+			this.journal = new InventoryJournal(config.journalDir, config.journalSegmentBytes, config.journalCompress);
+			store = journal;
+		} else {
+			this.journal = null;
+			store = (content, filename) -> FileUtil.saveJsonToPublicDocuments(context, content, filename);
+		}
+		// Con índice, cada subida se analiza mientras se guarda y se puede consultar por la API
+		if (config.inventoryIndexDir != null) {
+			this.inventoryIndex = new InventoryIndex(config.inventoryIndexDir, config);
+			store = inventoryIndex.indexing(store, logCallback);
+		} else {
+			this.inventoryIndex = null;
+		}
+		this.inventoryStore = store;
+		this.inventoryApi = inventoryIndex != null && config.inventoryApiPath != null
+			? new InventoryApi(inventoryIndex, config.inventoryApiPath) : null;
+		this.staticWatcher = config.watchStatic && staticSource instanceof DirectoryStaticSource
+			? new StaticWatcher(((DirectoryStaticSource) staticSource).getRoot(), config.staticSweepMs, this::refreshStatic, logCallback)
+			: null;
+		if (config.engine == ServerConfig.Engine.NIO) {
+			this.serverSocket = null;
+			this.nioEngine = new NioEngine(this, config, logCallback);
+		} else {
+			this.serverSocket = new ServerSocket(config.port);
+			this.nioEngine = null;
+		}
 	}
 	
 	@Override
 	public void run() {
-		logCallback.log("Servidor escuchando en puerto 8080");
+		logCallback.log("Servidor escuchando en puerto " + config.port);
+		if (staticWatcher != null) {
+			staticWatcher.start();
+		}
+		if (nioEngine != null) {
+			nioEngine.run();
+			return;
+		}
 		while (running) {
 			try {
 				Socket client = serverSocket.accept();
-				handleClient(client);
+				if (!connectionExecutor.submit(() -> handleClient(client))) {
+					rejectClient(client);
+				}
 			} catch (IOException e) {
 				if (running) {
 					logCallback.log("Error en el servidor: " + e.getMessage());
@@ -43,128 +154,491 @@ public class MyServer extends Thread {
 		}
 	}
 	
+	public ConnectionExecutor getConnectionExecutor() {
+		return connectionExecutor;
+	}
+	
+	// Reserva un hueco para una conexión h2c; false si ya están todos ocupados. Cada reserva
+	// se libera con http2Closed() cuando la conexión termina
+	boolean openHttp2() {
+		while (true) {
+			int open = http2Connections.get();
+			if (open >= config.maxHttp2Connections) return false;
+			if (http2Connections.compareAndSet(open, open + 1)) return true;
+		}
+	}
+	
+	void http2Closed() {
+		http2Connections.decrementAndGet();
+	}
+	
+	public FileCache getCache() {
+		return cache;
+	}
+	
+	public ServerMetrics getMetrics() {
+		return metrics;
+	}
+	
+	// Reconstruye el índice del contenido estático y lo sustituye de una vez; las solicitudes
+	// en curso terminan con el índice anterior
+	public void reloadStatic() throws IOException {
+		refreshStatic(Collections.<String>emptySet(), false);
+	}
+	
+	// Además de lo que cambió de tamaño o fecha, changed trae las rutas que StaticWatcher vio
+	// escribirse aunque los conserven. Sus entradas de la caché, y las de sus variantes, se
+	// descartan; las demás siguen valiendo sin comprobar nada en disco.
+	private void refreshStatic(Set<String> changed, boolean overflow) throws IOException {
+		synchronized (staticLock) {
+			StaticIndex previous = staticIndex;
+			StaticIndex index = staticSource.buildIndex();
+			Set<String> affected = new HashSet<>(changed);
+			affected.addAll(index.changedSince(previous));
+			if (affected.isEmpty() && !overflow) return;
+			if (!overflow) index.inheritETags(previous, affected);
+			staticIndex = index;
+			if (overflow) {
+				// Se perdieron eventos: no se sabe qué entradas siguen al día
+				cache.clear();
+				return;
+			}
+			boolean pagesAffected = false;
+			for (String path : affected) {
+				evictCached(path);
+				if (path.endsWith(".gz") || path.endsWith(".br")) {
+					evictCached(path.substring(0, path.length() - 3));
+				}
+				// La cabecera Link de los HTML sale de sus hojas de estilo y del manifiesto de Vite
+				pagesAffected |= path.endsWith(".css") || path.endsWith("manifest.json");
+			}
+			if (pagesAffected) {
+				cache.removeIf(key -> key.contains(".html_"));
+			}
+		}
+	}
+	
+	private void evictCached(String path) {
+		cache.remove(cacheKey(path, null));
+		cache.remove(cacheKey(path, "gzip"));
+		cache.remove(cacheKey(path, "br"));
+	}
+	
+	private static String cacheKey(String path, String encoding) {
+		return path + "_" + (encoding != null ? encoding : "plain");
+	}
+	
+	// null si las subidas se guardan directamente en MediaStore
+	public InventoryJournal getJournal() {
+		return journal;
+	}
+	
+	// null si config.inventoryIndexDir no está configurado
+	public InventoryIndex getInventoryIndex() {
+		return inventoryIndex;
+	}
+	
+	// Materializa los registros pendientes del diario como archivos en Documents/inventarios.
+	// El número de secuencia en el nombre evita colisiones entre subidas del mismo minuto.
+	public int exportJournal() throws IOException {
+		if (journal == null) return 0;
+		int count = journal.export((record, content) -> {
+			String name = record.name.endsWith(".json")
+				? record.name.substring(0, record.name.length() - 5) + "-" + record.sequence + ".json"
+				: record.name + "-" + record.sequence;
+			return FileUtil.saveJsonToPublicDocuments(context, content, name);
+		});
+		logCallback.log("Inventarios exportados: " + count);
+		return count;
+	}
+	
+	// Sin capacidad para atender: se responde 503 desde el hilo de accept y se cierra
+	private void rejectClient(Socket client) {
+		try {
+			client.getOutputStream().write(SERVICE_UNAVAILABLE);
+			client.getOutputStream().flush();
+		} catch (IOException ignored) {
+		} finally {
+			try {
+				client.close();
+			} catch (IOException ignored) {
+			}
+		}
+	}
+	
 	private void handleClient(Socket client) {
-		new Thread(() -> {
-			try (
-				BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream()));
-				OutputStream rawOutput = client.getOutputStream()
-			) {
-				String requestLine = reader.readLine();
-				if (requestLine == null) return;
-				
-				if (requestLine.startsWith("OPTIONS ")) {
-					String response =
-						"HTTP/1.1 204 No Content\r\n" +
-						"Access-Control-Allow-Origin: *\r\n" +
-						"Access-Control-Allow-Methods: GET, POST, OPTIONS\r\n" +
-						"Access-Control-Allow-Headers: Content-Type\r\n" +
-						"Access-Control-Max-Age: 86400\r\n" +
-						"Connection: close\r\n\r\n";
-					rawOutput.write(response.getBytes());
+		metrics.connectionOpened();
+		try (
+			RequestInput input = new RequestInput(client.getInputStream());
+			OutputStream rawOutput = new BufferedOutputStream(client.getOutputStream(), 8192)
+		) {
+			client.setTcpNoDelay(true);
+			int served = 0;
+			// Se reutiliza en todas las solicitudes de la conexión
+			HttpRequest request = new HttpRequest();
+			
+			while (running) {
+				try {
+					if (!readNextRequest(client, input, request)) break;
+				} catch (ProtocolException e) {
+					writeResponse(rawOutput, malformedRequest(e), false);
 					rawOutput.flush();
-					return;
+					break;
 				}
 				
-				if (requestLine.startsWith("POST ")) {
-					String path = requestLine.split(" ")[1];
-					if ("/upload".equals(path)) {
-						handleFileUpload(reader, rawOutput);
+				if (config.http2 && Http2Connection.isPreface(request)) {
+					if (!openHttp2()) {
+						rawOutput.write(Http2Connection.REFUSAL);
+						rawOutput.flush();
+						break;
 					}
-				} else if (requestLine.startsWith("GET ")) {
-					String[] parts = requestLine.split(" ");
-					String path = parts.length > 1 ? parts[1] : "/index.html";
-					String sanitizedPath = path.startsWith("/") ? path.substring(1) : path;
-					File requestedFile = new File(staticDir, sanitizedPath);
-					
-					boolean acceptGzip = false;
-					String line;
-					while (!(line = reader.readLine()).isEmpty()) {
-						if (line.toLowerCase().startsWith("accept-encoding:") && line.contains("gzip")) {
-							acceptGzip = true;
-						}
+					try {
+						new Http2Connection(this, config, input, rawOutput).serveAfterPreface();
+					} finally {
+						http2Closed();
 					}
-					
-					//logCallback.log("Solicitud: " + requestedFile.getAbsolutePath());
-					
-					if (requestedFile.exists() && requestedFile.isFile()) {
-						processFileRequest(rawOutput, requestedFile, sanitizedPath, acceptGzip);
-					} else {
-						File fallbackFile = new File(staticDir, "index.html");
-						if (fallbackFile.exists()) {
-							//logCallback.log("Archivo no encontrado, redirigiendo a index.html");
-							processFileRequest(rawOutput, fallbackFile, "index.html", acceptGzip);
-						} else {
-							String response = "HTTP/1.1 404 Not Found\r\n" +
-								"Access-Control-Allow-Origin: *\r\n" +
-								"Content-Type: text/plain\r\n\r\nArchivo no encontrado";
-							rawOutput.write(response.getBytes());
-							rawOutput.flush();
-							//logCallback.log("Archivo no encontrado: " + requestedFile.getAbsolutePath());
-						}
+					break;
+				}
+				// Sin hueco para otra conexión h2c el Upgrade se ignora y se responde en HTTP/1.1
+				if (config.http2 && Http2Connection.isUpgrade(request) && openHttp2()) {
+					try {
+						new Http2Connection(this, config, input, rawOutput).serveUpgrade(request);
+					} finally {
+						http2Closed();
 					}
+					break;
 				}
-			} catch (IOException e) {
-				logCallback.log("Error al manejar cliente: " + e.getMessage());
-			} finally {
-				try {
-					client.close();
-				} catch (IOException e) {
-					logCallback.log("Error al cerrar conexión: " + e.getMessage());
+				
+				served++;
+				// Si hay conexiones esperando en la cola, se cierra esta para ceder el hilo
+				boolean keepAlive = request.isKeepAlive()
+					&& served < config.maxRequestsPerConnection
+					&& connectionExecutor.getQueueDepth() == 0;
+				
+				HttpResponse response;
+				if ("POST".equals(request.getMethod())) {
+					HttpResponse invalid = checkBody(request);
+					response = invalid != null ? invalid : respondWithBody(request, input);
+				} else {
+					response = respond(request, null);
+					// Un cuerpo que la ruta no lee no puede quedar en la entrada como siguiente solicitud
+					if (keepAlive && request.hasBody() && !RequestBody.discard(request, input, config)) {
+						keepAlive = false;
+					}
+				}
+				keepAlive = keepAlive && !response.isClose();
+				
+				if (response.getEarlyHints() != null && acceptsEarlyHints(request)) {
+					writeEarlyHints(rawOutput, response.getEarlyHints());
+				}
+				writeResponse(rawOutput, response, keepAlive);
+				
+				// Con pipelining se agrupan las respuestas: solo se vacía el buffer
+				// cuando no quedan solicitudes pendientes en la entrada
+				if (!keepAlive || input.available() == 0) {
+					rawOutput.flush();
 				}
+				if (!keepAlive) break;
+			}
+		} catch (IOException e) {
+			logCallback.log("Error al manejar cliente: " + e.getMessage());
+		} finally {
+			metrics.connectionClosed();
+			try {
+				client.close();
+			} catch (IOException e) {
+				logCallback.log("Error al cerrar conexión: " + e.getMessage());
 			}
-		}).start();
+		}
 	}
 	
-	private void handleFileUpload(BufferedReader reader, OutputStream rawOutput) {
+	// Espera la siguiente solicitud en intervalos cortos. false si el cliente cerró, si venció
+	// keepAliveTimeoutMs o si, sin nada recibido, hay conexiones en la cola: una conexión inactiva
+	// no retiene un hilo del pool mientras otros clientes esperan
+	private boolean readNextRequest(Socket client, RequestInput input, HttpRequest request) throws IOException {
+		long deadline = System.currentTimeMillis() + config.keepAliveTimeoutMs;
+		client.setSoTimeout(Math.min(IDLE_POLL_MS, config.keepAliveTimeoutMs));
 		try {
-			String contentType = null;
-			int contentLength = 0;
-			String line;
-			
-			while (!(line = reader.readLine()).isEmpty()) {
-				if (line.startsWith("Content-Type:")) {
-					contentType = line.split(":")[1].trim();
-				}
-				if (line.startsWith("Content-Length:")) {
-					contentLength = Integer.parseInt(line.split(":")[1].trim());
+			while (true) {
+				try {
+					return input.readRequest(request);
+				} catch (SocketTimeoutException e) {
+					if (System.currentTimeMillis() >= deadline) return false;
+					if (input.available() == 0 && connectionExecutor.getQueueDepth() > 0) return false;
 				}
 			}
-			
-			char[] buffer = new char[contentLength];
-			reader.read(buffer, 0, contentLength);
-			String jsonContent = new String(buffer);
-			
-			// Generamos el nombre del archivo con la fecha y hora
-			String filename = generateFileName();
-			
-			// Guardamos el archivo JSON en la carpeta public/documents/inventarios
-			boolean success = FileUtil.saveJsonToPublicDocuments(context, jsonContent, filename);
-			
-			String response;
-			if (success) {
-				response = "HTTP/1.1 200 OK\r\n" +
-					"Access-Control-Allow-Origin: *\r\n" +
-					"Content-Type: text/plain\r\n\r\nArchivo JSON recibido y guardado.";
+		} finally {
+			// Los cuerpos se leen con el plazo completo
+			client.setSoTimeout(config.keepAliveTimeoutMs);
+		}
+	}
+	
+	// Cabeceras que no se pudieron interpretar: 431 si exceden el límite, 400 en otro caso
+	static HttpResponse malformedRequest(ProtocolException e) {
+		if (e instanceof HttpRequest.HeaderTooLargeException) {
+			return HttpResponse.text("431 Request Header Fields Too Large", "Cabeceras demasiado grandes").close();
+		}
+		return HttpResponse.text("400 Bad Request", "Solicitud inválida").close();
+	}
+	
+	// Las respuestas 1xx solo existen desde HTTP/1.1
+	static boolean acceptsEarlyHints(HttpRequest request) {
+		return "HTTP/1.1".equals(request.getVersion());
+	}
+	
+	// Transfer-Encoding: chunked no existe en HTTP/1.0 (las solicitudes HTTP/2 llegan como HTTP/1.1)
+	static boolean acceptsChunked(HttpRequest request) {
+		return "HTTP/1.1".equals(request.getVersion());
+	}
+	
+	// El 103 sale en cuanto está listo, sin esperar a la respuesta final
+	private static void writeEarlyHints(OutputStream rawOutput, HttpResponse hints) throws IOException {
+		rawOutput.write(hints.encodeHead());
+		rawOutput.write(CRLF);
+		rawOutput.flush();
+	}
+	
+	private void writeResponse(OutputStream rawOutput, HttpResponse response, boolean keepAlive) throws IOException {
+		rawOutput.write(response.encodeHead());
+		rawOutput.write(connectionHeaders(keepAlive));
+		for (Object segment : response.getSegments()) {
+			if (segment instanceof HttpResponse.FileRegion) {
+				writeFileRegion(rawOutput, (HttpResponse.FileRegion) segment);
+			} else if (segment instanceof HttpResponse.StreamedBody) {
+				writeChunked(rawOutput, (HttpResponse.StreamedBody) segment);
 			} else {
-				response = "HTTP/1.1 500 Internal Server Error\r\n" +
-					"Access-Control-Allow-Origin: *\r\n" +
-					"Content-Type: text/plain\r\n\r\nError al guardar el archivo JSON.";
+				rawOutput.write((byte[]) segment);
 			}
-			
-			rawOutput.write(response.getBytes());
-			rawOutput.flush();
-			
-			if (success) {
-				logCallback.log("Archivo JSON guardado exitosamente.");
-			} else {
-				logCallback.log("Error al guardar el archivo JSON.");
+		}
+	}
+	
+	// Un Socket bloqueante no expone canal: transferTo copia por bloques sin cargar el archivo entero
+	private static void writeFileRegion(OutputStream rawOutput, HttpResponse.FileRegion region) throws IOException {
+		try (FileInputStream in = new FileInputStream(region.file)) {
+			FileChannel source = in.getChannel();
+			WritableByteChannel target = Channels.newChannel(rawOutput);
+			long position = region.offset;
+			long remaining = region.length;
+			while (remaining > 0) {
+				long sent = source.transferTo(position, remaining, target);
+				if (sent <= 0) throw new EOFException("Archivo truncado: " + region.file.getName());
+				position += sent;
+				remaining -= sent;
 			}
+		}
+	}
+	
+	// Las cabeceras salen antes de empezar a comprimir; después, un trozo por cada
+	// STREAM_CHUNK_BYTES de salida, que BufferedOutputStream escribe sin copiarlo
+	private static void writeChunked(OutputStream rawOutput, HttpResponse.StreamedBody body) throws IOException {
+		rawOutput.flush();
+		try (InputStream in = body.open()) {
+			byte[] chunk = new byte[STREAM_CHUNK_BYTES];
+			int length;
+			while ((length = readChunk(in, chunk, 0, chunk.length)) > 0) {
+				rawOutput.write(chunkHeader(length));
+				rawOutput.write(chunk, 0, length);
+				rawOutput.write(CRLF);
+			}
+		}
+		rawOutput.write(LAST_CHUNK);
+	}
+	
+	// Llena el trozo salvo al final del cuerpo; 0 cuando ya no queda nada
+	static int readChunk(InputStream in, byte[] chunk, int offset, int length) throws IOException {
+		int filled = 0;
+		while (filled < length) {
+			int read = in.read(chunk, offset + filled, length - filled);
+			if (read == -1) break;
+			filled += read;
+		}
+		return filled;
+	}
+	
+	static byte[] chunkHeader(int length) {
+		return (Integer.toHexString(length) + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+	}
+	
+	// Valida el cuerpo de un POST antes de leerlo; devuelve la respuesta de error o null si es aceptable
+	HttpResponse checkBody(HttpRequest request) {
+		if (!request.isChunked() && request.getContentLength() < 0) {
+			// Sin Content-Length ni chunked no se puede delimitar el cuerpo dentro de la conexión
+			return HttpResponse.text("411 Length Required", "Se requiere Content-Length").close();
+		}
+		return checkBodyLimits(request);
+	}
+	
+	// Límites del cuerpo que no dependen de cómo se delimita (en HTTP/2 lo delimitan los frames)
+	HttpResponse checkBodyLimits(HttpRequest request) {
+		if (request.getContentLength() > config.maxUploadBytes) {
+			return HttpResponse.text("413 Payload Too Large", "Archivo demasiado grande").close();
+		}
+		if (!RequestBody.isSupportedEncoding(request)) {
+			return HttpResponse.text("415 Unsupported Media Type", "Content-Encoding no soportado").close();
+		}
+		return null;
+	}
+	
+	// El cuerpo se lee en streaming desde la conexión mientras la ruta lo procesa; lo que la
+	// ruta no consuma se descarta para poder reutilizar la conexión
+	HttpResponse respondWithBody(HttpRequest request, InputStream input) throws IOException {
+		RequestBody body;
+		try {
+			body = RequestBody.open(request, input, config);
 		} catch (IOException e) {
-			logCallback.log("Error al recibir el archivo JSON: " + e.getMessage());
+			return HttpResponse.text("400 Bad Request", "Cuerpo inválido").close();
+		}
+		try {
+			long start = System.nanoTime();
+			HttpResponse response = respond(request, body);
+			if ("/upload".equals(request.getPath())) {
+				metrics.recordUpload(body.getBytesRead(), System.nanoTime() - start, response.getStatusCode() == 200);
+			}
+			if (!response.isClose()) {
+				try {
+					body.skipRemaining();
+				} catch (IOException e) {
+					response.close();
+				}
+			}
+			return response;
+		} finally {
+			body.close();
 		}
 	}
 	
-	private String generateFileName() {
+	// Enrutado común a los dos motores; body solo se usa en POST
+	HttpResponse respond(HttpRequest request, InputStream body) throws IOException {
+		return respond(request, body, true);
+	}
+	
+	// Para el bucle NIO: solo lo que no toca el disco ni comprime (respuestas fijas, aciertos de
+	// caché, envíos desde disco con el ETag ya calculado). Devuelve null si la solicitud necesita
+	// un hilo del pool, sin registrarla todavía en las métricas.
+	HttpResponse respondWithoutBlocking(HttpRequest request) throws IOException {
+		return respond(request, null, false);
+	}
+	
+	private HttpResponse respond(HttpRequest request, InputStream body, boolean mayBlock) throws IOException {
+		long start = System.nanoTime();
+		String method = request.getMethod();
+		String path = request.getPath();
+		
+		if ("OPTIONS".equals(method)) {
+			return timed(ServerMetrics.Route.OPTIONS, start, request, OPTIONS_RESPONSE);
+		}
+		
+		if ("POST".equals(method)) {
+			if ("/upload".equals(path)) {
+				return timed(ServerMetrics.Route.UPLOAD, start, request, handleFileUpload(body));
+			}
+			return timed(ServerMetrics.Route.OTHER, start, request, ROUTE_NOT_FOUND);
+		}
+		
+		if (!"GET".equals(method)) {
+			return timed(ServerMetrics.Route.OTHER, start, request, HttpResponse.text("501 Not Implemented", "Método no soportado").close());
+		}
+		
+		if (path.equals(config.metricsPath)) {
+			return timed(ServerMetrics.Route.METRICS, start, request, metricsResponse(request));
+		}
+		
+		if (inventoryApi != null && inventoryApi.matches(path)) {
+			if (!mayBlock) return null;
+			return timed(ServerMetrics.Route.QUERY, start, request, inventoryApi.respond(request));
+		}
+		
+		String sanitizedPath = StaticIndex.normalize(path);
+		if (sanitizedPath == null) {
+			return timed(ServerMetrics.Route.OTHER, start, request, HttpResponse.text("400 Bad Request", "Ruta inválida"));
+		}
+		
+		// Búsqueda en el índice en memoria: ni exists() ni isFile() por solicitud. Las rutas
+		// declaradas de la SPA van directo a index.html
+		StaticIndex index = staticIndex;
+		StaticEntry entry = routes.isSpaRoute(sanitizedPath) ? null : index.get(sanitizedPath);
+		
+		//logCallback.log("Solicitud: " + sanitizedPath);
+		
+		if (entry != null) {
+			HttpResponse response = processFileRequest(entry, request, mayBlock);
+			return response != null ? timed(ServerMetrics.Route.STATIC, start, request, response) : null;
+		}
+		StaticEntry fallback = routes.fallsBack(sanitizedPath) ? index.get("index.html") : null;
+		if (fallback != null) {
+			//logCallback.log("Archivo no encontrado, redirigiendo a index.html");
+			HttpResponse response = processFileRequest(fallback, request, mayBlock);
+			return response != null ? timed(ServerMetrics.Route.FALLBACK, start, request, response) : null;
+		}
+		//logCallback.log("Archivo no encontrado: " + sanitizedPath);
+		return timed(ServerMetrics.Route.OTHER, start, request, FILE_NOT_FOUND);
+	}
+	
+	// GET del WebView de la propia app (ver WebViewInterceptor): mismo enrutado, caché y métricas
+	// que por el socket, sin conexión, hilo del pool ni respuesta que codificar
+	HttpResponse respondLocal(String target, Map<String, String> headers) throws IOException {
+		StringBuilder head = new StringBuilder(256).append("GET ").append(target).append(" HTTP/1.1\r\n");
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+		}
+		byte[] bytes = head.append("\r\n").toString().getBytes(StandardCharsets.UTF_8);
+		HttpRequest request = new HttpRequest();
+		try {
+			request.parse(bytes, 0, bytes.length);
+		} catch (ProtocolException e) {
+			return malformedRequest(e);
+		}
+		return respond(request, null);
+	}
+	
+	private HttpResponse timed(ServerMetrics.Route route, long start, HttpRequest request, HttpResponse response) {
+		long elapsed = System.nanoTime() - start;
+		metrics.recordRequest(route, response, elapsed);
+		logCallback.access(request.getMethod(), request.getPath(), response.getStatusCode(), response.getContentLength(), elapsed);
+		return response;
+	}
+	
+	// Prometheus por defecto; JSON con ?format=json o Accept: application/json
+	private HttpResponse metricsResponse(HttpRequest request) {
+		String accept = request.getHeader("accept");
+		boolean json = "format=json".equals(request.getQuery())
+			|| (accept != null && accept.contains("application/json"));
+		return new HttpResponse("200 OK")
+			.header("Content-Type", json ? "application/json; charset=utf-8" : "text/plain; version=0.0.4; charset=utf-8")
+			.header("Cache-Control", "no-store")
+			.body((json ? metrics.toJson() : metrics.toPrometheus()).getBytes(StandardCharsets.UTF_8));
+	}
+	
+	// Cabeceras de conexión y línea vacía que cierran la cabecera de cada respuesta
+	byte[] connectionHeaders(boolean keepAlive) {
+		return keepAlive ? keepAliveHeaders : CLOSE_HEADERS;
+	}
+	
+	private HttpResponse handleFileUpload(InputStream body) {
+		// Generamos el nombre del archivo con la fecha y hora
+		String filename = generateFileName();
+		
+		// Los bytes se copian del socket a Documents/inventarios (o al diario) sin pasar por memoria
+		boolean success;
+		try {
+			success = inventoryStore.save(body, filename);
+		} catch (RequestBody.TooLargeException e) {
+			logCallback.log("Subida rechazada: " + e.getMessage());
+			return HttpResponse.text("413 Payload Too Large", "Archivo demasiado grande").close();
+		} catch (IOException e) {
+			logCallback.log("Subida incompleta: " + e.getMessage());
+			return HttpResponse.text("400 Bad Request", "Cuerpo inválido").close();
+		}
+		
+		if (success) {
+			logCallback.log("Archivo JSON guardado exitosamente.");
+			return HttpResponse.text("200 OK", "Archivo JSON recibido y guardado.");
+		}
+		logCallback.log("Error al guardar el archivo JSON.");
+		return HttpResponse.text("500 Internal Server Error", "Error al guardar el archivo JSON.").close();
+	}
+	
+	static String generateFileName() {
 		// Formato: IPV_dd-MM-yyyy-HH:mm.json
 		SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy");
 		SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm");
@@ -174,56 +648,322 @@ public class MyServer extends Thread {
 		return "IPV_" + date + "-" + time + ".json";
 	}
 	
-	private void processFileRequest(OutputStream rawOutput, File requestedFile, String sanitizedPath, boolean acceptGzip) throws IOException {
-		String contentType = getContentType(sanitizedPath);
-		boolean compressible = isCompressible(sanitizedPath);
-		boolean shouldCompress = compressible && acceptGzip;
+	// null si !mayBlock y la respuesta requiere leer o comprimir el archivo
+	private HttpResponse processFileRequest(StaticEntry entry, HttpRequest request, boolean mayBlock) throws IOException {
+		long lastModified = entry.lastModified;
+		File file = staticSource.getFile(entry);
 		
-		String cacheKey = sanitizedPath + (shouldCompress ? "_gzip" : "_plain");
+		// Los rangos se sirven sobre el archivo sin comprimir, directamente desde disco
+		if (file != null && request.hasHeader("range")) {
+			if (!mayBlock && entry.etag == null) return null;
+			HttpResponse partial = processRangeRequest(entry, file, request);
+			if (partial != null) return partial;
+		}
 		
-		CachedFile cached = cache.get(cacheKey);
-		if (cached == null || cached.lastModified != requestedFile.lastModified()) {
-			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-			try (InputStream in = new FileInputStream(requestedFile);
-				OutputStream out = shouldCompress ? new GZIPOutputStream(buffer) : buffer) {
-				
-				byte[] chunk = new byte[4096];
-				int bytesRead;
-				while ((bytesRead = in.read(chunk)) != -1) {
-					out.write(chunk, 0, bytesRead);
+		// Se prefieren las variantes precomprimidas (.br/.gz); si no hay .gz se comprime al vuelo
+		String encoding = null;
+		StaticEntry source = entry;
+		if (entry.compressible) {
+			StaticEntry brotli = precompressed(entry.brotli, lastModified);
+			StaticEntry gzip = precompressed(entry.gzip, lastModified);
+			encoding = request.negotiateEncoding(brotli != null, true);
+			if ("br".equals(encoding)) {
+				source = brotli;
+			} else if ("gzip".equals(encoding) && gzip != null) {
+				source = gzip;
+			}
+		}
+		boolean compressOnTheFly = encoding != null && source == entry;
+		File sourceFile = source == entry ? file : staticSource.getFile(source);
+		
+		// Archivos grandes que no hay que comprimir (imágenes, fuentes, variantes ya comprimidas)
+		// se envían desde disco sin pasar por la caché
+		boolean fromDisk = sourceFile != null && !compressOnTheFly && source.size >= config.zeroCopyMinBytes;
+		if (!fromDisk) {
+			String cacheKey = cacheKey(entry.path, encoding);
+			CachedFile cached = cache.get(cacheKey, lastModified, mayBlock);
+			if (cached == null && !mayBlock) return null;
+			metrics.recordCacheLookup(encoding, cached != null);
+			if (cached == null) {
+				// Un archivo grande no se comprime entero en memoria antes del primer byte: se
+				// comprime mientras se envía
+				if (compressOnTheFly && source.size >= config.streamingMinBytes && acceptsChunked(request)) {
+					return streamCompressed(entry, file, cacheKey, request);
 				}
+				cached = loadCached(entry, source, encoding, compressOnTheFly, file != null, cacheKey);
 			}
+			// Acierto en caché: la respuesta completa ya está codificada, no se construye nada
+			if (HttpValidators.isNotModified(request, cached.etag, lastModified)) return cached.notModified;
+			metrics.recordBytesServed(encoding, cached.content.length);
+			return cached.response;
+		}
+		
+		if (!mayBlock && source.etag == null) return null;
+		String etag = fileETag(source, sourceFile);
+		HttpResponse response = fileHeaders(entry, file != null, etag);
+		if (HttpValidators.isNotModified(request, etag, lastModified)) {
+			return response.withStatus("304 Not Modified");
+		}
+		if (encoding != null) {
+			response.header("Content-Encoding", encoding);
+		}
+		metrics.recordBytesServed(encoding, source.size);
+		return response.file(sourceFile, 0, source.size);
+	}
+	
+	// Cabeceras comunes de una respuesta 200 de archivo, sin Content-Encoding ni cuerpo
+	private HttpResponse fileHeaders(StaticEntry entry, boolean rangeable, String etag) {
+		HttpResponse response = new HttpResponse("200 OK")
+			.header("Content-Type", entry.contentType)
+			.header("Access-Control-Allow-Origin", "*");
+		if (rangeable) {
+			response.header("Accept-Ranges", "bytes");
+		}
+		response.header("Cache-Control", cacheControl(entry.path))
+			.header("Last-Modified", HttpValidators.formatDate(entry.lastModified));
+		if (entry.compressible) {
+			response.header("Vary", "Accept-Encoding");
+		}
+		return response.header("ETag", etag);
+	}
+	
+	private CachedFile loadCached(StaticEntry entry, StaticEntry source, String encoding, boolean compressOnTheFly, boolean rangeable, String cacheKey) throws IOException {
+		long start = System.nanoTime();
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(source.size > 0 ? (int) Math.min(source.size, Integer.MAX_VALUE - 8) : 4096);
+		try (InputStream in = staticSource.open(source);
+			OutputStream out = compressOnTheFly ? new GZIPOutputStream(buffer) : buffer) {
 			
-			byte[] body = buffer.toByteArray();
-			cached = new CachedFile(body, requestedFile.lastModified());
+			byte[] chunk = new byte[4096];
+			int bytesRead;
+			while ((bytesRead = in.read(chunk)) != -1) {
+				out.write(chunk, 0, bytesRead);
+			}
+		}
+		if (compressOnTheFly) {
+			metrics.recordCompression(System.nanoTime() - start);
+		}
+		
+		CachedFile cached = new CachedFile(buffer.toByteArray(), entry.lastModified);
+		cached.links = preloadLinks(entry);
+		prebuildCached(cached, entry, encoding, rangeable);
+		cache.put(cacheKey, cached);
+		//logCallback.log("Archivo procesado y cacheado: " + source.path + (encoding != null ? " (" + encoding + ")" : ""));
+		return cached;
+	}
+	
+	// Respuestas 200 y 304 de una entrada de la caché, codificadas una sola vez
+	private void prebuildCached(CachedFile cached, StaticEntry entry, String encoding, boolean rangeable) {
+		HttpResponse hints = earlyHints(cached.links);
+		// 103 solo delante del 200: un 304 no carga la página de nuevo y no hay nada que precargar
+		cached.notModified = fileHeaders(entry, rangeable, cached.etag).withStatus("304 Not Modified").prebuild();
+		HttpResponse response = fileHeaders(entry, rangeable, cached.etag);
+		if (encoding != null) {
+			response.header("Content-Encoding", encoding);
+		}
+		if (cached.links != null) {
+			response.header("Link", cached.links);
+		}
+		cached.response = response.earlyHints(hints).body(cached.content).prebuild();
+	}
+	
+	private String preloadLinks(StaticEntry entry) throws IOException {
+		return config.preloadHints && entry.path.endsWith(".html") ? PreloadHints.links(staticIndex, staticSource, entry) : null;
+	}
+	
+	private HttpResponse earlyHints(String links) {
+		return links != null && config.earlyHints
+			? new HttpResponse("103 Early Hints").header("Link", links).prebuild()
+			: null;
+	}
+	
+	// Fallo en caché de un archivo grande: gzip mientras se envía, en trozos chunked. El ETag no
+	// puede salir de los bytes comprimidos, que aún no existen; se deriva del tamaño y la fecha del
+	// original, y la copia que CacheTee guarda en la caché al terminar conserva ese mismo ETag.
+	private HttpResponse streamCompressed(StaticEntry entry, File file, String cacheKey, HttpRequest request) throws IOException {
+		// El mismo ETag que el archivo sin comprimir (rangos, envíos desde disco) con el sufijo de
+		// la codificación: una reescritura con el mismo tamaño dentro de la resolución de la fecha
+		// no deja pasar un 304 falso. Los assets del APK solo cambian al actualizar la app.
+		String etag = HttpValidators.variant(file != null
+			? fileETag(entry, file)
+			: HttpValidators.etag(entry.size, entry.lastModified), "gzip");
+		boolean rangeable = file != null;
+		String links = preloadLinks(entry);
+		HttpResponse response = fileHeaders(entry, rangeable, etag);
+		if (HttpValidators.isNotModified(request, etag, entry.lastModified)) {
+			return response.withStatus("304 Not Modified");
+		}
+		response.earlyHints(earlyHints(links));
+		response.header("Content-Encoding", "gzip");
+		if (links != null) {
+			response.header("Link", links);
+		}
+		return response.stream(new HttpResponse.StreamedBody(
+			() -> new CacheTee(new GzipEncoder(staticSource.open(entry)), entry, rangeable, cacheKey, etag, links)));
+	}
+	
+	// Copia lo que se envía de un cuerpo comprimido al vuelo y, si llega al final y cabe en la
+	// caché, lo guarda en ella: la siguiente solicitud ya es un acierto. Si deja de caber, la
+	// copia se descarta y el envío sigue sin ella.
+	private final class CacheTee extends FilterInputStream {
+		private final StaticEntry entry;
+		private final boolean rangeable;
+		private final String cacheKey;
+		private final String etag;
+		private final String links;
+		private ByteArrayOutputStream copy = new ByteArrayOutputStream(64 * 1024);
+		private long sent;
+		private long compressionNanos;
+		private boolean finished;
+		
+		CacheTee(InputStream in, StaticEntry entry, boolean rangeable, String cacheKey, String etag, String links) {
+			super(in);
+			this.entry = entry;
+			this.rangeable = rangeable;
+			this.cacheKey = cacheKey;
+			this.etag = etag;
+			this.links = links;
+		}
+		
+		@Override
+		public int read() throws IOException {
+			byte[] one = new byte[1];
+			return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+		}
+		
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			long start = System.nanoTime();
+			int read = in.read(buffer, offset, length);
+			compressionNanos += System.nanoTime() - start;
+			if (read > 0) {
+				sent += read;
+				if (copy != null && cache.fits(copy.size() + read)) {
+					copy.write(buffer, offset, read);
+				} else {
+					copy = null;
+				}
+			} else if (read == -1 && !finished) {
+				finished = true;
+				finish();
+			}
+			return read;
+		}
+		
+		private void finish() {
+			metrics.recordCompression(compressionNanos);
+			metrics.recordBytesServed("gzip", sent);
+			if (copy == null) return;
+			CachedFile cached = new CachedFile(copy.toByteArray(), entry.lastModified, etag);
+			copy = null;
+			cached.links = links;
+			prebuildCached(cached, entry, "gzip", rangeable);
 			cache.put(cacheKey, cached);
-			
-			//logCallback.log("Archivo procesado y cacheado: " + requestedFile.getName() + (shouldCompress ? " (gzip)" : ""));
-		} //else {
-			//logCallback.log("Archivo servido desde caché: " + requestedFile.getName() + (shouldCompress ? " (gzip)" : ""));
-		//}
+		}
+	}
+	
+	// Devuelve null si hay que ignorar el Range y enviar el archivo completo
+	private HttpResponse processRangeRequest(StaticEntry entry, File file, HttpRequest request) throws IOException {
+		long length = entry.size;
+		long lastModified = entry.lastModified;
+		String etag = fileETag(entry, file);
 		
-		StringBuilder headers = new StringBuilder();
-		headers.append("HTTP/1.1 200 OK\r\n");
-		headers.append("Content-Type: ").append(contentType).append("\r\n");
-		headers.append("Access-Control-Allow-Origin: *\r\n");
-		if (shouldCompress) {
-			headers.append("Content-Encoding: gzip\r\n");
-		}
-		headers.append("Content-Length: ").append(cached.content.length).append("\r\n");
-		headers.append("Connection: close\r\n");
-		headers.append("\r\n");
+		// If-Range: si la copia parcial del cliente es de otra versión, se envía el archivo completo
+		String ifRange = request.getHeader("if-range");
+		if (ifRange != null) {
+			boolean current = ifRange.startsWith("\"")
+				? ifRange.equals(etag)
+				: !ifRange.startsWith("W/") && HttpValidators.parseDate(ifRange) / 1000 == lastModified / 1000;
+			if (!current) return null;
+		}
 		
-		rawOutput.write(headers.toString().getBytes());
-		rawOutput.write(cached.content);
-		rawOutput.flush();
+		List<long[]> ranges = request.getRanges(length);
+		if (ranges == null) return null;
+		
+		String contentType = entry.contentType;
+		HttpResponse response = new HttpResponse("206 Partial Content")
+			.header("Access-Control-Allow-Origin", "*")
+			.header("Accept-Ranges", "bytes")
+			.header("Cache-Control", cacheControl(entry.path))
+			.header("Last-Modified", HttpValidators.formatDate(lastModified));
+		// La misma URL también se sirve comprimida: igual que en fileHeaders
+		if (entry.compressible) {
+			response.header("Vary", "Accept-Encoding");
+		}
+		response.header("ETag", etag);
+		
+		if (HttpValidators.isNotModified(request, etag, lastModified)) {
+			return response.withStatus("304 Not Modified");
+		}
+		if (ranges.isEmpty()) {
+			return response.withStatus("416 Range Not Satisfiable")
+				.header("Content-Range", "bytes */" + length);
+		}
+		
+		if (ranges.size() == 1) {
+			long[] range = ranges.get(0);
+			return response
+				.header("Content-Type", contentType)
+				.header("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + length)
+				.file(file, range[0], range[1] - range[0] + 1);
+		}
+		
+		// Varios rangos: multipart/byteranges, cada parte leída del archivo sin pasar por la caché
+		String boundary = Long.toHexString(System.nanoTime()) + Long.toHexString(lastModified);
+		response.header("Content-Type", "multipart/byteranges; boundary=" + boundary);
+		for (long[] range : ranges) {
+			String partHeader = "\r\n--" + boundary + "\r\n" +
+				"Content-Type: " + contentType + "\r\n" +
+				"Content-Range: bytes " + range[0] + "-" + range[1] + "/" + length + "\r\n\r\n";
+			response.append(partHeader.getBytes(StandardCharsets.ISO_8859_1));
+			response.append(file, range[0], range[1] - range[0] + 1);
+		}
+		response.append(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1));
+		return response;
+	}
+	
+	// ETag de los archivos servidos desde disco: se calcula una vez por versión del archivo y
+	// se guarda en la entrada del índice
+	private static String fileETag(StaticEntry entry, File file) throws IOException {
+		String etag = entry.etag;
+		if (etag == null) {
+			etag = HttpValidators.etag(file);
+			entry.etag = etag;
+		}
+		return etag;
+	}
+	
+	// Los archivos con hash de contenido en el nombre (assets/index-abc123.js) no cambian nunca;
+	// el resto, incluido index.html, se revalida en cada uso con ETag/Last-Modified
+	private String cacheControl(String path) {
+		if (isFingerprinted(path)) {
+			return "public, max-age=31536000, immutable";
+		}
+		return "no-cache";
+	}
+	
+	private boolean isFingerprinted(String path) {
+		if (config.immutablePathPrefix == null || !path.startsWith(config.immutablePathPrefix)) return false;
+		Matcher matcher = FINGERPRINT.matcher(path);
+		if (!matcher.find()) return false;
+		// Un hash lleva dígitos o mayúsculas; evita tomar por hash nombres como "react-router"
+		String hash = matcher.group(1);
+		for (int i = 0; i < hash.length(); i++) {
+			char c = hash.charAt(i);
+			if (Character.isDigit(c) || Character.isUpperCase(c)) return true;
+		}
+		return false;
 	}
 	
-	private boolean isCompressible(String path) {
+	// Variante precomprimida del archivo, solo si está al día con el original
+	private static StaticEntry precompressed(StaticEntry variant, long lastModified) {
+		return variant != null && variant.lastModified >= lastModified ? variant : null;
+	}
+	
+	static boolean isCompressible(String path) {
 		return path.endsWith(".html") || path.endsWith(".js") || path.endsWith(".css") || path.endsWith(".json");
 	}
 	
-	private String getContentType(String path) {
+	static String getContentType(String path) {
 		if (path.endsWith(".css")) return "text/css";
 		if (path.endsWith(".js")) return "application/javascript";
 		if (path.endsWith(".json")) return "application/json";
@@ -235,27 +975,47 @@ public class MyServer extends Thread {
 		return "text/html";
 	}
 	
+	boolean isRunning() {
+		return running;
+	}
+	
 	public void stopServer() {
 		running = false;
+		if (staticWatcher != null) {
+			staticWatcher.close();
+		}
+		connectionExecutor.shutdown();
 		cache.clear();
 		try {
-			serverSocket.close();
+			if (nioEngine != null) {
+				nioEngine.stop();
+			} else {
+				serverSocket.close();
+			}
 		} catch (IOException e) {
 			logCallback.log("Error al detener servidor: " + e.getMessage());
 		}
-	}
-	
-	private static class CachedFile {
-		byte[] content;
-		long lastModified;
-		
-		CachedFile(byte[] content, long lastModified) {
-			this.content = content;
-			this.lastModified = lastModified;
+		if (journal != null) {
+			try {
+				journal.close();
+			} catch (IOException e) {
+				logCallback.log("Error al cerrar el diario: " + e.getMessage());
+			}
+		}
+		if (inventoryIndex != null) {
+			try {
+				inventoryIndex.close();
+			} catch (IOException e) {
+				logCallback.log("Error al cerrar el índice de inventarios: " + e.getMessage());
+			}
 		}
 	}
 	
 	public interface ServerLogCallback {
 		void log(String message);
+		
+		// Una línea por solicitud atendida; por defecto no se registra
+		default void access(String method, String path, int status, long bytes, long nanos) {
+		}
 	}
 }
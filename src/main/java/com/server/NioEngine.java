@@ -0,0 +1,767 @@
+package com.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Motor no bloqueante: un ServerSocketChannel y unos pocos hilos con Selector que leen,
+// interpretan y escriben todas las conexiones. Las subidas se leen en streaming con E/S
+// bloqueante hacia MediaStore: la conexión sale del selector y pasa al ConnectionExecutor.
+class NioEngine {
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+	private static final long SWEEP_INTERVAL_MS = 1000;
+
+	private final MyServer server;
+	private final ServerConfig config;
+	private final MyServer.ServerLogCallback logCallback;
+	private final ServerSocketChannel serverChannel;
+	private final EventLoop[] loops;
+	private volatile boolean running = true;
+	private int nextLoop;
+
+	NioEngine(MyServer server, ServerConfig config, MyServer.ServerLogCallback logCallback) throws IOException {
+		this.server = server;
+		this.config = config;
+		this.logCallback = logCallback;
+		this.serverChannel = ServerSocketChannel.open();
+		serverChannel.socket().setReuseAddress(true);
+		serverChannel.socket().bind(new InetSocketAddress(config.port));
+		serverChannel.configureBlocking(false);
+
+		loops = new EventLoop[Math.max(1, config.nioEventLoops)];
+		for (int i = 0; i < loops.length; i++) {
+			loops[i] = new EventLoop();
+		}
+	}
+
+	// Se ejecuta en el hilo de MyServer, que actúa como bucle 0 y además acepta conexiones
+	void run() {
+		for (int i = 1; i < loops.length; i++) {
+			Thread thread = new Thread(loops[i], "nio-loop-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+		try {
+			serverChannel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+		} catch (ClosedChannelException e) {
+			return;
+		}
+		loops[0].run();
+	}
+
+	void stop() throws IOException {
+		running = false;
+		serverChannel.close();
+		for (EventLoop loop : loops) {
+			loop.selector.wakeup();
+		}
+	}
+
+	private void accept() {
+		SocketChannel channel;
+		try {
+			while ((channel = serverChannel.accept()) != null) {
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+				EventLoop loop = loops[nextLoop];
+				nextLoop = (nextLoop + 1) % loops.length;
+				SocketChannel accepted = channel;
+				loop.execute(() -> loop.register(accepted));
+			}
+		} catch (IOException e) {
+			if (running) {
+				logCallback.log("Error en el servidor: " + e.getMessage());
+			}
+		}
+	}
+
+	private class EventLoop implements Runnable {
+		final Selector selector;
+		private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+		// Buffer de lectura compartido por todas las conexiones del bucle
+		private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+		private long lastSweep = System.currentTimeMillis();
+
+		EventLoop() throws IOException {
+			this.selector = Selector.open();
+		}
+
+		void execute(Runnable task) {
+			tasks.add(task);
+			selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			while (running) {
+				try {
+					selector.select(SWEEP_INTERVAL_MS);
+					Runnable task;
+					while ((task = tasks.poll()) != null) {
+						task.run();
+					}
+					Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while (keys.hasNext()) {
+						SelectionKey key = keys.next();
+						keys.remove();
+						if (!key.isValid()) continue;
+						if (key.isAcceptable()) {
+							accept();
+							continue;
+						}
+						Connection connection = (Connection) key.attachment();
+						try {
+							if (key.isWritable()) connection.onWritable();
+							if (key.isValid() && key.isReadable()) connection.read();
+						} catch (IOException e) {
+							connection.close();
+						}
+					}
+					sweepIdle();
+				} catch (IOException e) {
+					if (running) {
+						logCallback.log("Error en el bucle NIO: " + e.getMessage());
+					}
+				}
+			}
+			for (SelectionKey key : selector.keys()) {
+				if (key.attachment() instanceof Connection) {
+					((Connection) key.attachment()).close();
+				}
+			}
+			try {
+				selector.close();
+			} catch (IOException ignored) {
+			}
+		}
+
+		void register(SocketChannel channel) {
+			try {
+				SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+				key.attach(new Connection(this, channel, key));
+			} catch (IOException e) {
+				try {
+					channel.close();
+				} catch (IOException ignored) {
+				}
+			}
+		}
+
+		// Cierra conexiones inactivas, que no terminan de enviar la cabecera o cuyo cliente dejó
+		// de leer una respuesta (sin progreso al escribir durante el mismo plazo)
+		private void sweepIdle() {
+			long now = System.currentTimeMillis();
+			if (now - lastSweep < SWEEP_INTERVAL_MS) return;
+			lastSweep = now;
+			for (SelectionKey key : selector.keys()) {
+				Object attachment = key.attachment();
+				if (attachment instanceof Connection) {
+					Connection connection = (Connection) attachment;
+					boolean waiting = connection.busy && connection.output.isEmpty();
+					if (!waiting && now - connection.lastActivity > config.keepAliveTimeoutMs) {
+						connection.close();
+					}
+				}
+			}
+		}
+	}
+
+	private class Connection {
+		private final EventLoop loop;
+		private final SocketChannel channel;
+		private final SelectionKey key;
+		// ByteBuffer (cabeceras y cuerpos en memoria) o Transfer (cuerpos desde disco o comprimidos al vuelo)
+		private final ArrayDeque<Object> output = new ArrayDeque<>();
+
+		// Bytes recibidos aún sin procesar, desde pendingStart; null mientras la conexión está inactiva
+		private byte[] pending;
+		private int pendingStart;
+		private int pendingLength;
+		// Bytes pendientes ya revisados sin encontrar el final de las cabeceras
+		private int scanned;
+		// Se reutiliza en todas las solicitudes de la conexión
+		private final HttpRequest request = new HttpRequest();
+
+		private int served;
+		// Bytes del cuerpo de la última solicitud que aún hay que saltar antes de la siguiente
+		private long discarding;
+		private boolean keepAlive = true;
+		// Un hilo del pool tiene la conexión (subida, HTTP/2) o está preparando su siguiente
+		// respuesta; mientras tanto no se leen más solicitudes
+		private boolean busy;
+		// Subida o conexión HTTP/2 que pasa a un hilo del pool cuando se vacíe la salida
+		private Runnable handOff;
+		private boolean handOffHttp2;
+		// Última lectura o escritura con progreso
+		private long lastActivity = System.currentTimeMillis();
+		private boolean closed;
+
+		Connection(EventLoop loop, SocketChannel channel, SelectionKey key) {
+			this.loop = loop;
+			this.channel = channel;
+			this.key = key;
+			server.getMetrics().connectionOpened();
+		}
+
+		// Una lectura por evento: reparte el hilo de forma justa entre conexiones
+		void read() throws IOException {
+			ByteBuffer buffer = loop.readBuffer;
+			buffer.clear();
+			int read = channel.read(buffer);
+			if (read == -1) {
+				close();
+				return;
+			}
+			if (read == 0) return;
+			buffer.flip();
+			append(buffer);
+			lastActivity = System.currentTimeMillis();
+			process();
+		}
+
+		void onWritable() throws IOException {
+			if (flush()) {
+				finishWrite();
+				process();
+			}
+		}
+
+		private void append(ByteBuffer buffer) {
+			int length = buffer.remaining();
+			if (pending == null) {
+				pending = new byte[Math.max(length, 4096)];
+			} else if (pendingStart + pendingLength + length > pending.length) {
+				// Lo ya consumido se descarta aquí, no en cada solicitud encadenada
+				byte[] target = pendingLength + length > pending.length
+					? new byte[Math.max(pendingLength + length, pending.length * 2)]
+					: pending;
+				System.arraycopy(pending, pendingStart, target, 0, pendingLength);
+				pending = target;
+				pendingStart = 0;
+			}
+			buffer.get(pending, pendingStart + pendingLength, length);
+			pendingLength += length;
+		}
+
+		private void consume(int count) {
+			pendingStart += count;
+			pendingLength -= count;
+			scanned = 0;
+			if (pendingLength == 0) {
+				pending = null;
+				pendingStart = 0;
+			}
+		}
+
+		// Interpreta todas las solicitudes completas del buffer, en orden (pipelining), y
+		// envía las respuestas acumuladas en una sola escritura agrupada
+		private void process() throws IOException {
+			while (!busy && keepAlive && key.isValid() && pendingLength > 0) {
+				if (discarding > 0) {
+					int skipped = (int) Math.min(discarding, pendingLength);
+					consume(skipped);
+					discarding -= skipped;
+					continue;
+				}
+				// La línea vacía puede empezar en los últimos bytes ya revisados
+				int from = Math.max(0, scanned - 3);
+				int headerEnd = HttpRequest.findHeaderEnd(pending, pendingStart + from, pendingLength - from);
+				if (headerEnd < 0) {
+					scanned = pendingLength;
+					if (pendingLength > HttpRequest.MAX_HEADER_BYTES) {
+						send(MyServer.malformedRequest(new HttpRequest.HeaderTooLargeException("Cabeceras demasiado grandes")));
+					}
+					break;
+				}
+				int headerLength = headerEnd - pendingStart;
+				boolean parsed;
+				try {
+					parsed = request.parse(pending, pendingStart, headerLength);
+				} catch (ProtocolException e) {
+					consume(pendingLength);
+					send(MyServer.malformedRequest(e));
+					break;
+				}
+				consume(headerLength);
+				if (!parsed) continue;
+
+				boolean preface = config.http2 && Http2Connection.isPreface(request);
+				if (preface || (config.http2 && Http2Connection.isUpgrade(request))) {
+					if (server.openHttp2()) {
+						handOff(request, true);
+						return;
+					}
+					if (preface) {
+						keepAlive = false;
+						output.add(ByteBuffer.wrap(Http2Connection.REFUSAL));
+						break;
+					}
+					// Sin hueco para otra conexión h2c el Upgrade se ignora y se responde en HTTP/1.1
+				}
+
+				if ("POST".equals(request.getMethod())) {
+					HttpResponse invalid = server.checkBody(request);
+					if (invalid != null) {
+						send(invalid);
+						break;
+					}
+					handOff(request, false);
+					return;
+				}
+				dispatch(request);
+			}
+			if (key.isValid() && flush()) {
+				finishWrite();
+			}
+		}
+
+		// En el bucle solo se responde lo que no bloquea (aciertos de caché, respuestas ya
+		// construidas); lo que necesita leer el archivo, calcular el ETag o comprimir va al pool
+		private void dispatch(HttpRequest request) throws IOException {
+			served++;
+			keepAlive = request.isKeepAlive() && served < config.maxRequestsPerConnection;
+			if (request.hasBody()) {
+				// El cuerpo se salta a medida que llega; chunked no se decodifica en el bucle, así
+				// que se responde y se cierra
+				long length = RequestBody.discardLength(request, config);
+				if (length < 0) {
+					keepAlive = false;
+				} else {
+					discarding = length;
+				}
+			}
+			HttpResponse response;
+			try {
+				response = server.respondWithoutBlocking(request);
+			} catch (IOException e) {
+				logCallback.log("Error al manejar cliente: " + e.getMessage());
+				response = HttpResponse.text("500 Internal Server Error", "Error interno").close();
+			}
+			if (response == null) {
+				offload(request);
+			} else {
+				queue(request, response);
+			}
+		}
+
+		private void queue(HttpRequest request, HttpResponse response) throws IOException {
+			if (response.getEarlyHints() != null && MyServer.acceptsEarlyHints(request)) {
+				output.add(ByteBuffer.wrap(response.getEarlyHints().encodeHead()));
+				output.add(ByteBuffer.wrap(MyServer.CRLF));
+			}
+			send(response);
+		}
+
+		// La respuesta se construye en un hilo del pool y se encola de vuelta en el bucle. La
+		// conexión no interpreta más solicitudes hasta entonces (el objeto request se reutiliza
+		// y el pipelining exige el orden); las respuestas anteriores se siguen enviando.
+		private void offload(HttpRequest request) throws IOException {
+			busy = true;
+			boolean submitted = server.getConnectionExecutor().submit(() -> {
+				HttpResponse response;
+				try {
+					response = server.respond(request, null);
+				} catch (IOException e) {
+					logCallback.log("Error al manejar cliente: " + e.getMessage());
+					response = HttpResponse.text("500 Internal Server Error", "Error interno").close();
+				}
+				HttpResponse ready = response;
+				loop.execute(() -> resume(request, ready));
+			});
+			if (!submitted) {
+				busy = false;
+				send(HttpResponse.text("503 Service Unavailable", "Servidor ocupado").close());
+			}
+		}
+
+		private void resume(HttpRequest request, HttpResponse response) {
+			if (closed) return;
+			busy = false;
+			try {
+				queue(request, response);
+				process();
+			} catch (IOException e) {
+				close();
+			}
+		}
+
+		// Las subidas no se acumulan en memoria: la conexión sale del selector, pasa a modo
+		// bloqueante y un hilo del pool copia el cuerpo del socket a MediaStore. Los bytes ya
+		// recibidos se leen primero. La conexión se cierra después de responder. Las conexiones
+		// HTTP/2 siguen el mismo camino y las atiende Http2Connection hasta que se cierran.
+		private void handOff(HttpRequest request, boolean http2) throws IOException {
+			byte[] received = pending != null ? Arrays.copyOfRange(pending, pendingStart, pendingStart + pendingLength) : new byte[0];
+			consume(pendingLength);
+			busy = true;
+			keepAlive = false;
+			handOff = () -> toBlocking(request, http2, received);
+			handOffHttp2 = http2;
+			// Las respuestas anteriores (pipelining) terminan de enviarse desde el bucle: un trozo
+			// que se está comprimiendo en el pool no puede cambiar de modo a mitad. Mientras
+			// tanto no se lee (flush deja OP_WRITE o nada).
+			if (flush()) finishWrite();
+		}
+
+		private void toBlocking(HttpRequest request, boolean http2, byte[] received) {
+			key.cancel();
+			// El canal solo puede volver a modo bloqueante cuando el selector ha liberado la
+			// clave, es decir, después del próximo select()
+			loop.execute(() -> {
+				try {
+					channel.configureBlocking(true);
+				} catch (IOException e) {
+					if (http2) server.http2Closed();
+					close();
+					return;
+				}
+				boolean submitted = server.getConnectionExecutor().submit(
+					http2 ? () -> serveHttp2(request, received) : () -> serveUpload(request, received));
+				if (!submitted) {
+					if (http2) server.http2Closed();
+					output.add(ByteBuffer.wrap(MyServer.SERVICE_UNAVAILABLE));
+					try {
+						flush();
+					} catch (IOException ignored) {
+					}
+					close();
+				}
+			});
+		}
+
+		// Se ejecuta en un hilo del pool con el canal en modo bloqueante
+		private void serveUpload(HttpRequest upload, byte[] received) {
+			try {
+				channel.socket().setSoTimeout(config.keepAliveTimeoutMs);
+				InputStream input = new BufferedInputStream(new SequenceInputStream(
+					new ByteArrayInputStream(received), channel.socket().getInputStream()), READ_BUFFER_SIZE);
+				served++;
+				HttpResponse response;
+				try {
+					response = server.respondWithBody(upload, input);
+				} catch (IOException e) {
+					logCallback.log("Error al manejar cliente: " + e.getMessage());
+					response = HttpResponse.text("500 Internal Server Error", "Error interno").close();
+				}
+				send(response);
+				flush();
+			} catch (IOException e) {
+				logCallback.log("Error al manejar cliente: " + e.getMessage());
+			} finally {
+				close();
+			}
+		}
+
+		private void serveHttp2(HttpRequest start, byte[] received) {
+			try {
+				channel.socket().setSoTimeout(config.keepAliveTimeoutMs);
+				InputStream input = new BufferedInputStream(new SequenceInputStream(
+					new ByteArrayInputStream(received), channel.socket().getInputStream()), READ_BUFFER_SIZE);
+				OutputStream output = new BufferedOutputStream(channel.socket().getOutputStream(), 8192);
+				Http2Connection connection = new Http2Connection(server, config, input, output);
+				if (Http2Connection.isPreface(start)) {
+					connection.serveAfterPreface();
+				} else {
+					connection.serveUpgrade(start);
+				}
+			} catch (IOException e) {
+				logCallback.log("Error al manejar cliente: " + e.getMessage());
+			} finally {
+				server.http2Closed();
+				close();
+			}
+		}
+
+		// Encola la respuesta; se escribe al final de process()
+		private void send(HttpResponse response) throws IOException {
+			keepAlive = keepAlive && !response.isClose() && running;
+			// Cabecera, conexión y cuerpo van a la cola como buffers separados: flush() los envía
+			// juntos con una sola escritura agrupada, sin copiarlos a un buffer intermedio
+			output.add(ByteBuffer.wrap(response.encodeHead()));
+			output.add(ByteBuffer.wrap(server.connectionHeaders(keepAlive)));
+			for (Object segment : response.getSegments()) {
+				if (segment instanceof HttpResponse.FileRegion) {
+					output.add(new FileTransfer((HttpResponse.FileRegion) segment));
+				} else if (segment instanceof HttpResponse.StreamedBody) {
+					output.add(new ChunkedTransfer((HttpResponse.StreamedBody) segment));
+				} else {
+					output.add(ByteBuffer.wrap((byte[]) segment));
+				}
+			}
+		}
+
+		// Escritura agrupada de todo lo pendiente; si el socket se llena se espera a OP_WRITE
+		private boolean flush() throws IOException {
+			while (!output.isEmpty()) {
+				Object first = output.peek();
+				long written;
+				if (first instanceof Transfer) {
+					Transfer transfer = (Transfer) first;
+					if (transfer instanceof ChunkedTransfer && ((ChunkedTransfer) transfer).needsFill()) {
+						ChunkedTransfer chunked = (ChunkedTransfer) transfer;
+						if (chunked.isFilling() || (key.isValid() && fillInBackground(chunked))) return false;
+						// Pool saturado, o la conexión ya está en un hilo del pool (modo bloqueante)
+						chunked.fill();
+					}
+					written = transfer.transferTo(channel);
+					if (transfer.isDone()) {
+						transfer.close();
+						output.poll();
+					}
+				} else {
+					written = channel.write(bufferRun());
+					while (output.peek() instanceof ByteBuffer && !((ByteBuffer) output.peek()).hasRemaining()) {
+						output.poll();
+					}
+				}
+				if (written == 0 && !output.isEmpty()) {
+					key.interestOps(SelectionKey.OP_WRITE);
+					return false;
+				}
+				lastActivity = System.currentTimeMillis();
+			}
+			return true;
+		}
+
+		// El siguiente trozo se comprime en el pool; el bucle sigue con las demás conexiones y
+		// vuelve a escribir cuando está listo
+		private boolean fillInBackground(ChunkedTransfer chunked) {
+			chunked.startFill();
+			boolean submitted = server.getConnectionExecutor().submit(() -> {
+				IOException error = null;
+				try {
+					chunked.fill();
+				} catch (IOException e) {
+					error = e;
+				}
+				boolean open = chunked.endFill();
+				IOException failure = error;
+				if (open) {
+					loop.execute(() -> {
+						if (closed) return;
+						if (failure != null || !key.isValid()) {
+							close();
+						} else {
+							key.interestOps(SelectionKey.OP_WRITE);
+						}
+					});
+				}
+			});
+			if (!submitted) {
+				chunked.endFill();
+				return false;
+			}
+			key.interestOps(0);
+			return true;
+		}
+
+		// Buffers consecutivos al inicio de la cola, hasta la siguiente transferencia de archivo
+		private ByteBuffer[] bufferRun() {
+			int count = 0;
+			for (Object item : output) {
+				if (!(item instanceof ByteBuffer)) break;
+				count++;
+			}
+			ByteBuffer[] buffers = new ByteBuffer[count];
+			Iterator<Object> items = output.iterator();
+			for (int i = 0; i < count; i++) {
+				buffers[i] = (ByteBuffer) items.next();
+			}
+			return buffers;
+		}
+
+		private void finishWrite() {
+			lastActivity = System.currentTimeMillis();
+			if (handOff != null) {
+				Runnable next = handOff;
+				handOff = null;
+				next.run();
+				return;
+			}
+			// Con una respuesta aún en el pool, el cierre espera a que se envíe
+			if (!keepAlive && !busy) {
+				close();
+				return;
+			}
+			key.interestOps(busy ? 0 : SelectionKey.OP_READ);
+		}
+
+		void close() {
+			if (!closed) {
+				closed = true;
+				server.getMetrics().connectionClosed();
+			}
+			if (handOff != null) {
+				handOff = null;
+				if (handOffHttp2) server.http2Closed();
+			}
+			key.cancel();
+			try {
+				channel.close();
+			} catch (IOException ignored) {
+			}
+			pending = null;
+			pendingStart = 0;
+			pendingLength = 0;
+			for (Object item : output) {
+				if (item instanceof Transfer) {
+					((Transfer) item).close();
+				}
+			}
+			output.clear();
+		}
+	}
+
+	private interface Transfer {
+		// Bytes escritos; 0 si el socket está lleno
+		long transferTo(SocketChannel target) throws IOException;
+
+		boolean isDone();
+
+		void close();
+	}
+
+	// Cuerpo servido con FileChannel.transferTo: el kernel copia del archivo al socket (sendfile)
+	private static class FileTransfer implements Transfer {
+		private final FileChannel file;
+		private long position;
+		private long remaining;
+
+		FileTransfer(HttpResponse.FileRegion region) throws IOException {
+			this.file = new FileInputStream(region.file).getChannel();
+			this.position = region.offset;
+			this.remaining = region.length;
+		}
+
+		@Override
+		public long transferTo(SocketChannel target) throws IOException {
+			long sent = file.transferTo(position, remaining, target);
+			if (sent == 0 && position >= file.size()) {
+				throw new EOFException("Archivo truncado");
+			}
+			position += sent;
+			remaining -= sent;
+			return sent;
+		}
+
+		@Override
+		public boolean isDone() {
+			return remaining <= 0;
+		}
+
+		@Override
+		public void close() {
+			try {
+				file.close();
+			} catch (IOException ignored) {
+			}
+		}
+	}
+
+	// Cuerpo de longitud desconocida con Transfer-Encoding: chunked. Cada trozo se produce cuando
+	// el anterior ya salió por completo, así que solo hay uno en memoria. fill() puede ejecutarse
+	// en un hilo del pool; si la conexión se cierra mientras tanto, el cierre del archivo espera
+	// a que termine.
+	private static class ChunkedTransfer implements Transfer {
+		private final HttpResponse.StreamedBody body;
+		private InputStream in;
+		// Tamaño en hexadecimal + CRLF, datos, CRLF y, tras el último, el trozo vacío final
+		private final ByteBuffer chunk = ByteBuffer.allocate(MyServer.STREAM_CHUNK_BYTES + 16);
+		private boolean ended;
+		private boolean filling;
+		private boolean closed;
+
+		ChunkedTransfer(HttpResponse.StreamedBody body) {
+			this.body = body;
+			chunk.flip();
+		}
+
+		boolean needsFill() {
+			return !chunk.hasRemaining() && !ended;
+		}
+
+		synchronized boolean isFilling() {
+			return filling;
+		}
+
+		synchronized void startFill() {
+			filling = true;
+		}
+
+		// false si se cerró durante el relleno
+		synchronized boolean endFill() {
+			filling = false;
+			if (closed) closeInput();
+			return !closed;
+		}
+
+		@Override
+		public long transferTo(SocketChannel target) throws IOException {
+			return target.write(chunk);
+		}
+
+		// El tamaño va justo delante de los datos, en el hueco reservado para el más largo
+		void fill() throws IOException {
+			if (in == null) in = body.open();
+			byte[] data = chunk.array();
+			int reserved = Integer.toHexString(MyServer.STREAM_CHUNK_BYTES).length() + 2;
+			int length = MyServer.readChunk(in, data, reserved, MyServer.STREAM_CHUNK_BYTES);
+			int start = reserved;
+			int end = reserved;
+			if (length > 0) {
+				byte[] header = MyServer.chunkHeader(length);
+				start -= header.length;
+				System.arraycopy(header, 0, data, start, header.length);
+				end += length;
+				System.arraycopy(MyServer.CRLF, 0, data, end, MyServer.CRLF.length);
+				end += MyServer.CRLF.length;
+			}
+			if (length < MyServer.STREAM_CHUNK_BYTES) {
+				System.arraycopy(MyServer.LAST_CHUNK, 0, data, end, MyServer.LAST_CHUNK.length);
+				end += MyServer.LAST_CHUNK.length;
+				ended = true;
+			}
+			chunk.clear();
+			chunk.limit(end);
+			chunk.position(start);
+		}
+
+		@Override
+		public boolean isDone() {
+			return ended && !chunk.hasRemaining();
+		}
+
+		@Override
+		public synchronized void close() {
+			closed = true;
+			if (!filling) closeInput();
+		}
+
+		private void closeInput() {
+			if (in == null) return;
+			try {
+				in.close();
+			} catch (IOException ignored) {
+			}
+		}
+	}
+}
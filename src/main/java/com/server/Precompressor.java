@@ -0,0 +1,80 @@
+package com.server;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+// Genera junto a cada archivo comprimible una variante .gz con compresión máxima, para que
+// el servidor la envíe tal cual sin gastar CPU en cada solicitud. Las variantes .br no se
+// pueden generar aquí (no hay codificador Brotli en Android); si el build web las incluye
+// se copian con los assets y el servidor las usa igualmente.
+public class Precompressor {
+	private static final int BUFFER_SIZE = 64 * 1024;
+	// Marca vacía junto a un archivo cuya variante .gz no ganaba nada, para no volver a
+	// comprimirlo en cada arranque mientras no cambie
+	static final String NO_GAIN_SUFFIX = ".gz.skip";
+	// Variante a medio escribir; si queda alguna (proceso interrumpido) se borra
+	static final String TEMP_SUFFIX = ".gz.tmp";
+
+	// Devuelve cuántas variantes se generaron; las que ya están al día se omiten
+	public static int precompress(File root) throws IOException {
+		int count = 0;
+		File[] files = root.listFiles();
+		if (files == null) return 0;
+
+		byte[] buffer = new byte[BUFFER_SIZE];
+		for (File file : files) {
+			if (file.isDirectory()) {
+				count += precompress(file);
+			} else if (file.getName().endsWith(TEMP_SUFFIX)) {
+				file.delete();
+			} else if (MyServer.isCompressible(file.getName()) && compress(file, buffer)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static boolean compress(File file, byte[] buffer) throws IOException {
+		File target = new File(file.getPath() + ".gz");
+		if (target.isFile() && target.lastModified() >= file.lastModified()) return false;
+		File noGain = new File(file.getPath() + NO_GAIN_SUFFIX);
+		if (noGain.isFile() && noGain.lastModified() >= file.lastModified()) return false;
+
+		// Se escribe en un temporal y se renombra para no servir nunca un .gz a medias
+		File temp = new File(file.getPath() + TEMP_SUFFIX);
+		try (InputStream in = new FileInputStream(file);
+			OutputStream out = new MaxGzipOutputStream(new FileOutputStream(temp))) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+		}
+
+		// Si no se gana nada comprimiendo no merece la pena guardar la variante
+		if (temp.length() >= file.length()) {
+			temp.delete();
+			target.delete();
+			new FileOutputStream(noGain).close();
+			return false;
+		}
+		if (!temp.renameTo(target)) {
+			temp.delete();
+			return false;
+		}
+		noGain.delete();
+		return true;
+	}
+
+	private static class MaxGzipOutputStream extends GZIPOutputStream {
+		MaxGzipOutputStream(OutputStream out) throws IOException {
+			super(out, BUFFER_SIZE);
+			def.setLevel(Deflater.BEST_COMPRESSION);
+		}
+	}
+}
@@ -0,0 +1,232 @@
+package com.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Grafo de precarga de una página: los módulos, hojas de estilo y fuentes que el navegador va a
+// pedir nada más leer el HTML. Se extrae de las etiquetas del propio HTML, del manifiesto de Vite
+// (los chunks que importa la entrada, que el navegador solo descubriría al ejecutarla) y de las
+// fuentes woff2 de esas hojas de estilo. Solo se anuncian archivos que existen en el índice.
+final class PreloadHints {
+	// Vite 5 escribe el manifiesto en .vite/; Vite 4, en la raíz de la salida
+	private static final String[] VITE_MANIFESTS = { ".vite/manifest.json", "manifest.json" };
+	// Los archivos más grandes no se analizan (no son una página ni un manifiesto normales)
+	private static final long MAX_PARSE_BYTES = 1024 * 1024;
+	// Límite de enlaces para que la cabecera no crezca sin control
+	private static final int MAX_LINKS = 24;
+
+	private static final Pattern TAG = Pattern.compile("<(script|link)\\b([^>]*)>", Pattern.CASE_INSENSITIVE);
+	private static final Pattern ATTRIBUTE = Pattern.compile("([A-Za-z-]+)\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s\"'>]+))");
+	private static final Pattern FONT_URL = Pattern.compile("url\\(\\s*[\"']?([^\"')?#]+\\.woff2)");
+
+	private final StaticIndex index;
+	private final StaticSource source;
+	// Ruta -> parámetros del enlace, en el orden en que se descubren
+	private final Map<String, String> links = new LinkedHashMap<>();
+	private final Set<String> styles = new LinkedHashSet<>();
+
+	private PreloadHints(StaticIndex index, StaticSource source) {
+		this.index = index;
+		this.source = source;
+	}
+
+	// Valor de la cabecera Link para el HTML, o null si no hay nada que anunciar
+	static String links(StaticIndex index, StaticSource source, StaticEntry html) throws IOException {
+		String page = read(source, html);
+		if (page == null) return null;
+		PreloadHints hints = new PreloadHints(index, source);
+		hints.parseHtml(page, directory(html.path));
+		hints.addViteEntry(html.path);
+		hints.addFonts();
+		return hints.format();
+	}
+
+	private void parseHtml(String page, String directory) {
+		Matcher tag = TAG.matcher(page);
+		while (tag.find()) {
+			Map<String, String> attributes = attributes(tag.group(2));
+			if (tag.group(1).equalsIgnoreCase("script")) {
+				String src = attributes.get("src");
+				if (src == null) continue;
+				add(resolve(directory, src), "module".equalsIgnoreCase(attributes.get("type")) ? "rel=modulepreload" : "rel=preload; as=script");
+				continue;
+			}
+			String rel = attributes.get("rel");
+			String href = attributes.get("href");
+			if (rel == null || href == null) continue;
+			rel = rel.toLowerCase(Locale.ROOT);
+			if (rel.equals("stylesheet")) {
+				addStyle(resolve(directory, href));
+			} else if (rel.equals("modulepreload")) {
+				add(resolve(directory, href), "rel=modulepreload");
+			} else if (rel.equals("preload") && attributes.get("as") != null) {
+				String as = attributes.get("as");
+				if (as.equalsIgnoreCase("font")) {
+					addFont(resolve(directory, href));
+				} else if (as.matches("[A-Za-z]+")) {
+					add(resolve(directory, href), "rel=preload; as=" + as.toLowerCase(Locale.ROOT));
+				}
+			}
+		}
+	}
+
+	// Chunks que importa estáticamente la entrada del HTML, con su CSS y sus fuentes. Los imports
+	// dinámicos (rutas cargadas bajo demanda) no se anuncian.
+	private void addViteEntry(String htmlPath) {
+		Map<?, ?> manifest = readViteManifest();
+		if (manifest != null) addChunk(manifest, htmlPath, new HashSet<>());
+	}
+
+	private Map<?, ?> readViteManifest() {
+		for (String path : VITE_MANIFESTS) {
+			StaticEntry entry = index.get(path);
+			if (entry == null) continue;
+			try {
+				String text = read(source, entry);
+				Object manifest = text != null ? Json.parse(text) : null;
+				// manifest.json también puede ser el de la PWA: el de Vite tiene chunks con "file"
+				if (manifest instanceof Map && isViteManifest((Map<?, ?>) manifest)) return (Map<?, ?>) manifest;
+			} catch (IOException ignored) {
+				// Un manifiesto ilegible solo deja sin los chunks importados
+			}
+		}
+		return null;
+	}
+
+	private static boolean isViteManifest(Map<?, ?> manifest) {
+		for (Object chunk : manifest.values()) {
+			if (!(chunk instanceof Map) || !(((Map<?, ?>) chunk).get("file") instanceof String)) return false;
+		}
+		return !manifest.isEmpty();
+	}
+
+	private void addChunk(Map<?, ?> manifest, String key, Set<String> visited) {
+		if (!visited.add(key)) return;
+		Object value = manifest.get(key);
+		if (!(value instanceof Map)) return;
+		Map<?, ?> chunk = (Map<?, ?>) value;
+		Object file = chunk.get("file");
+		if (file instanceof String && ((String) file).endsWith(".js")) {
+			add(resolve("", (String) file), "rel=modulepreload");
+		}
+		for (Object css : list(chunk.get("css"))) {
+			if (css instanceof String) addStyle(resolve("", (String) css));
+		}
+		for (Object asset : list(chunk.get("assets"))) {
+			if (asset instanceof String && ((String) asset).endsWith(".woff2")) addFont(resolve("", (String) asset));
+		}
+		for (Object imported : list(chunk.get("imports"))) {
+			if (imported instanceof String) addChunk(manifest, (String) imported, visited);
+		}
+	}
+
+	// Fuentes woff2 de las hojas de estilo encontradas; sin precarga el navegador no las pide
+	// hasta aplicar el CSS a la página
+	private void addFonts() {
+		for (String path : styles.toArray(new String[0])) {
+			StaticEntry css = index.get(path);
+			if (css == null) continue;
+			String text;
+			try {
+				text = read(source, css);
+			} catch (IOException e) {
+				continue;
+			}
+			if (text == null) continue;
+			Matcher url = FONT_URL.matcher(text);
+			while (url.find()) {
+				addFont(resolve(directory(path), url.group(1)));
+			}
+		}
+	}
+
+	private void addStyle(String path) {
+		if (add(path, "rel=preload; as=style")) styles.add(path);
+	}
+
+	private void addFont(String path) {
+		add(path, "rel=preload; as=font; type=\"" + MyServer.getContentType(path) + "\"; crossorigin");
+	}
+
+	private boolean add(String path, String parameters) {
+		if (path == null || links.containsKey(path) || links.size() >= MAX_LINKS) return false;
+		if (index.get(path) == null || !isLinkSafe(path)) return false;
+		links.put(path, parameters);
+		return true;
+	}
+
+	private String format() {
+		if (links.isEmpty()) return null;
+		StringBuilder value = new StringBuilder();
+		for (Map.Entry<String, String> link : links.entrySet()) {
+			if (value.length() > 0) value.append(", ");
+			value.append("</").append(link.getKey()).append(">; ").append(link.getValue());
+		}
+		return value.toString();
+	}
+
+	// Referencia del HTML o del CSS a clave del índice; null si apunta a otro origen
+	private static String resolve(String directory, String url) {
+		if (url.isEmpty() || url.startsWith("//") || url.indexOf(':') >= 0) return null;
+		int end = url.length();
+		int query = url.indexOf('?');
+		if (query >= 0) end = query;
+		int fragment = url.indexOf('#');
+		if (fragment >= 0 && fragment < end) end = fragment;
+		url = url.substring(0, end);
+		return StaticIndex.normalize(url.startsWith("/") ? url : directory + url);
+	}
+
+	// La ruta va tal cual dentro de <...>: solo ASCII visible sin caracteres de la sintaxis de Link
+	private static boolean isLinkSafe(String path) {
+		for (int i = 0; i < path.length(); i++) {
+			char c = path.charAt(i);
+			if (c <= ' ' || c >= 0x7f || c == '<' || c == '>' || c == ',' || c == ';' || c == '"') return false;
+		}
+		return true;
+	}
+
+	private static String directory(String path) {
+		return path.substring(0, path.lastIndexOf('/') + 1);
+	}
+
+	private static Map<String, String> attributes(String tag) {
+		Map<String, String> attributes = new LinkedHashMap<>();
+		Matcher attribute = ATTRIBUTE.matcher(tag);
+		while (attribute.find()) {
+			String value = attribute.group(2) != null ? attribute.group(2)
+				: attribute.group(3) != null ? attribute.group(3) : attribute.group(4);
+			attributes.put(attribute.group(1).toLowerCase(Locale.ROOT), value.trim());
+		}
+		return attributes;
+	}
+
+	private static List<?> list(Object value) {
+		return value instanceof List ? (List<?>) value : Collections.emptyList();
+	}
+
+	private static String read(StaticSource source, StaticEntry entry) throws IOException {
+		if (entry.size > MAX_PARSE_BYTES) return null;
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream((int) entry.size);
+		try (InputStream in = source.open(entry)) {
+			byte[] chunk = new byte[4096];
+			int read;
+			while ((read = in.read(chunk)) != -1) {
+				buffer.write(chunk, 0, read);
+			}
+		}
+		return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
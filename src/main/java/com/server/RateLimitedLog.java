@@ -0,0 +1,49 @@
+package com.server;
+
+// Limita los avisos que llegan al usuario (toasts): como máximo maxPerWindow mensajes por
+// ventana y sin repetir el mismo mensaje dentro de ella. Lo omitido se resume en el siguiente
+// aviso que sí se muestra.
+public class RateLimitedLog implements MyServer.ServerLogCallback {
+	private final MyServer.ServerLogCallback delegate;
+	private final long windowMs;
+	private final int maxPerWindow;
+
+	private long windowStart;
+	private int shownInWindow;
+	private String lastMessage;
+	private long lastShownAt;
+	private int suppressed;
+
+	public RateLimitedLog(MyServer.ServerLogCallback delegate, long windowMs, int maxPerWindow) {
+		this.delegate = delegate;
+		this.windowMs = windowMs;
+		this.maxPerWindow = maxPerWindow;
+	}
+
+	@Override
+	public void log(String message) {
+		String shown;
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			if (now - windowStart >= windowMs) {
+				windowStart = now;
+				shownInWindow = 0;
+			}
+			boolean repeated = message.equals(lastMessage) && now - lastShownAt < windowMs;
+			if (repeated || shownInWindow >= maxPerWindow) {
+				suppressed++;
+				return;
+			}
+			shownInWindow++;
+			lastMessage = message;
+			lastShownAt = now;
+			shown = suppressed > 0 ? message + " (+" + suppressed + " avisos omitidos)" : message;
+			suppressed = 0;
+		}
+		delegate.log(shown);
+	}
+
+	public synchronized int getSuppressed() {
+		return suppressed;
+	}
+}
@@ -0,0 +1,212 @@
+package com.server;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ProtocolException;
+import java.util.zip.GZIPInputStream;
+
+// Cuerpo de una solicitud leído directamente del socket: delimita Content-Length o decodifica
+// Transfer-Encoding: chunked, descomprime Content-Encoding: gzip y corta la lectura al superar
+// los límites de ServerConfig. Nunca cierra el socket, que sigue siendo de la conexión.
+final class RequestBody extends FilterInputStream {
+	private static final int SKIP_BUFFER_SIZE = 8192;
+
+	// Flujo delimitado tal como llega por la red (antes de descomprimir)
+	private final InputStream framed;
+	// Bytes entregados a la ruta, ya descomprimidos
+	private long bytesRead;
+
+	private RequestBody(InputStream decoded, InputStream framed) {
+		super(decoded);
+		this.framed = framed;
+	}
+
+	static RequestBody open(HttpRequest request, InputStream input, ServerConfig config) throws IOException {
+		InputStream framed = request.isChunked()
+			? new ChunkedInputStream(input, config.maxUploadBytes)
+			: new LimitedInputStream(input, request.getContentLength(), Long.MAX_VALUE);
+		InputStream decoded = framed;
+		if (isGzip(request)) {
+			// El límite tras descomprimir evita que un cuerpo pequeño se expanda sin control. El
+			// GZIPInputStream es solo de este cuerpo: cerrarlo libera el Inflater y no llega al socket.
+			decoded = new LimitedInputStream(new GZIPInputStream(framed, SKIP_BUFFER_SIZE), -1, config.maxUploadDecodedBytes, true);
+		}
+		return new RequestBody(decoded, framed);
+	}
+
+	static boolean isGzip(HttpRequest request) {
+		return request.headerEqualsIgnoreCase("content-encoding", "gzip");
+	}
+
+	// Codificaciones de cuerpo que el servidor sabe leer
+	static boolean isSupportedEncoding(HttpRequest request) {
+		return !request.hasHeader("content-encoding") || isGzip(request)
+			|| request.headerEqualsIgnoreCase("content-encoding", "identity");
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = in.read();
+		if (b != -1) bytesRead++;
+		return b;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		int read = in.read(buffer, offset, length);
+		if (read > 0) bytesRead += read;
+		return read;
+	}
+
+	long getBytesRead() {
+		return bytesRead;
+	}
+
+	// Descarta lo que la ruta no haya leído para que la siguiente solicitud empiece alineada
+	void skipRemaining() throws IOException {
+		drain(framed);
+	}
+
+	// Bytes que ocupa el cuerpo según Content-Length, o -1 si no se puede delimitar así: chunked,
+	// Transfer-Encoding desconocido, Content-Length inválido o mayor que el límite de subida
+	static long discardLength(HttpRequest request, ServerConfig config) {
+		if (request.hasHeader("transfer-encoding")) return -1;
+		long length = request.getContentLength();
+		return length <= config.maxUploadBytes ? length : -1;
+	}
+
+	// Cualquier método puede traer cuerpo. Si la ruta no lo lee se descarta sin descomprimirlo,
+	// para que no se interprete como la siguiente solicitud. false si no se pudo delimitar o
+	// descartar: la conexión se cierra después de responder.
+	static boolean discard(HttpRequest request, InputStream input, ServerConfig config) {
+		long length = discardLength(request, config);
+		InputStream framed;
+		if (length >= 0) {
+			framed = new LimitedInputStream(input, length, Long.MAX_VALUE);
+		} else if (request.isChunked()) {
+			framed = new ChunkedInputStream(input, config.maxUploadBytes);
+		} else {
+			return false;
+		}
+		try {
+			drain(framed);
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static void drain(InputStream framed) throws IOException {
+		byte[] buffer = new byte[SKIP_BUFFER_SIZE];
+		while (framed.read(buffer) != -1) {
+			// Solo se consume
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		// Libera el Inflater si el cuerpo va comprimido; los flujos delimitados no cierran el socket
+		in.close();
+	}
+
+	// El cuerpo supera el máximo configurado: se responde 413
+	static class TooLargeException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		TooLargeException() {
+			super("Cuerpo demasiado grande");
+		}
+	}
+
+	// Decodifica Transfer-Encoding: chunked (RFC 7230 4.1); las extensiones y trailers se ignoran
+	private static class ChunkedInputStream extends InputStream {
+		private static final int MAX_LINE_LENGTH = 4096;
+
+		private final InputStream in;
+		private long allowance;
+		private long chunkRemaining;
+		private boolean finished;
+
+		ChunkedInputStream(InputStream in, long maxBytes) {
+			this.in = in;
+			this.allowance = maxBytes;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] one = new byte[1];
+			return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (finished) return -1;
+			if (chunkRemaining == 0) {
+				nextChunk();
+				if (finished) return -1;
+			}
+			int read = in.read(buffer, offset, (int) Math.min(length, chunkRemaining));
+			if (read == -1) throw new EOFException("Cuerpo incompleto");
+			chunkRemaining -= read;
+			if (chunkRemaining == 0) {
+				expectLineEnd();
+			}
+			return read;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return finished ? 0 : (int) Math.min(in.available(), chunkRemaining);
+		}
+
+		@Override
+		public void close() {
+			// El flujo de debajo es el del socket
+		}
+
+		private void nextChunk() throws IOException {
+			String line = readLine();
+			int extension = line.indexOf(';');
+			if (extension >= 0) line = line.substring(0, extension);
+			long size;
+			try {
+				size = Long.parseLong(line.trim(), 16);
+			} catch (NumberFormatException e) {
+				throw new ProtocolException("Tamaño de bloque inválido");
+			}
+			if (size < 0) throw new ProtocolException("Tamaño de bloque inválido");
+			if (size == 0) {
+				// Trailers hasta la línea vacía
+				while (!readLine().isEmpty()) {
+					// Se ignoran
+				}
+				finished = true;
+				return;
+			}
+			allowance -= size;
+			if (allowance < 0) throw new TooLargeException();
+			chunkRemaining = size;
+		}
+
+		private void expectLineEnd() throws IOException {
+			if (!readLine().isEmpty()) throw new ProtocolException("Falta CRLF tras el bloque");
+		}
+
+		private String readLine() throws IOException {
+			StringBuilder line = new StringBuilder();
+			int b;
+			while ((b = in.read()) != -1) {
+				if (b == '\n') {
+					int length = line.length();
+					if (length > 0 && line.charAt(length - 1) == '\r') line.setLength(length - 1);
+					return line.toString();
+				}
+				if (line.length() >= MAX_LINE_LENGTH) throw new ProtocolException("Línea de bloque demasiado larga");
+				line.append((char) b);
+			}
+			throw new EOFException("Cuerpo incompleto");
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package com.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Entrada de una conexión del motor bloqueante: un único buffer reutilizado en el que se buscan
+// las cabeceras de cada solicitud sin leer byte a byte. Lo que sigue a las cabeceras (cuerpo o
+// solicitudes encadenadas) se entrega primero desde el buffer y después desde el socket.
+final class RequestInput extends InputStream {
+	private static final int BUFFER_SIZE = 8192;
+
+	private final InputStream in;
+	private byte[] buffer = new byte[BUFFER_SIZE];
+	private int position;
+	private int limit;
+
+	RequestInput(InputStream in) {
+		this.in = in;
+	}
+
+	// Lee las cabeceras de la siguiente solicitud en request. Devuelve false si el cliente cerró la
+	// conexión sin enviar nada; el cuerpo, si lo hay, queda pendiente en este flujo.
+	boolean readRequest(HttpRequest request) throws IOException {
+		int searched = position;
+		while (true) {
+			int headerEnd = HttpRequest.findHeaderEnd(buffer, searched, limit - searched);
+			if (headerEnd >= 0) {
+				int start = position;
+				position = headerEnd;
+				if (request.parse(buffer, start, headerEnd - start)) return true;
+				// Solo líneas vacías: se sigue esperando la línea de solicitud
+				searched = position;
+				continue;
+			}
+			if (limit - position >= HttpRequest.MAX_HEADER_BYTES) {
+				throw new HttpRequest.HeaderTooLargeException("Cabeceras demasiado grandes");
+			}
+			// La línea vacía puede empezar en los últimos bytes ya revisados
+			searched = Math.max(position, limit - 3);
+			int shift = compact();
+			searched -= shift;
+			int read = in.read(buffer, limit, buffer.length - limit);
+			if (read == -1) {
+				if (limit == position || isBlank()) return false;
+				throw new EOFException("Conexión cerrada a mitad de la solicitud");
+			}
+			limit += read;
+		}
+	}
+
+	// Mueve lo pendiente al principio y, si el buffer está lleno, lo amplía hasta el límite de
+	// cabeceras. Devuelve cuántas posiciones se desplazó el contenido.
+	private int compact() {
+		int shift = position;
+		if (shift > 0) {
+			System.arraycopy(buffer, position, buffer, 0, limit - position);
+			limit -= position;
+			position = 0;
+		}
+		if (limit == buffer.length) {
+			byte[] larger = new byte[Math.min(HttpRequest.MAX_HEADER_BYTES + 4, buffer.length * 2)];
+			System.arraycopy(buffer, 0, larger, 0, limit);
+			buffer = larger;
+		}
+		return shift;
+	}
+
+	private boolean isBlank() {
+		for (int i = position; i < limit; i++) {
+			if (buffer[i] != '\r' && buffer[i] != '\n') return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (position < limit) return buffer[position++] & 0xff;
+		return in.read();
+	}
+
+	@Override
+	public int read(byte[] target, int offset, int length) throws IOException {
+		if (length == 0) return 0;
+		if (position < limit) {
+			int count = Math.min(length, limit - position);
+			System.arraycopy(buffer, position, target, offset, count);
+			position += count;
+			return count;
+		}
+		// Los cuerpos grandes van directo del socket al destino
+		if (length >= buffer.length) return in.read(target, offset, length);
+		position = 0;
+		limit = 0;
+		int read = in.read(buffer, 0, buffer.length);
+		if (read <= 0) return read;
+		limit = read;
+		int count = Math.min(length, read);
+		System.arraycopy(buffer, 0, target, offset, count);
+		position = count;
+		return count;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return (limit - position) + in.available();
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -0,0 +1,56 @@
+package com.server;
+
+// Decide qué hacer con las rutas que no son archivos del índice. Las rutas de la SPA reciben
+// index.html; los directorios de assets, y cualquier ruta cuyo último segmento parece un nombre de
+// archivo (lleva un punto), responden 404. Así un chunk que falta no se sirve como HTML y los
+// escaneos de bots (/wp-login.php, /.env) no pasan por la caché de index.html.
+final class RouteManifest {
+	private final String[] spaRoutes;
+	private final String[] assetDirectories;
+
+	// Prefijos sin "/" inicial, como las claves del índice (ver ServerConfig.spaRoutes)
+	RouteManifest(String[] spaRoutes, String[] assetDirectories) {
+		this.spaRoutes = trim(spaRoutes);
+		this.assetDirectories = trim(assetDirectories);
+	}
+
+	// Declarada como ruta de la SPA: se sirve index.html sin consultar el índice
+	boolean isSpaRoute(String path) {
+		return matches(spaRoutes, path);
+	}
+
+	// Una ruta que no está en el índice, ¿se sirve con index.html?
+	boolean fallsBack(String path) {
+		if (matches(assetDirectories, path)) return false;
+		if (isSpaRoute(path)) return true;
+		// Con prefijos declarados solo esas rutas son de la SPA
+		if (spaRoutes != null) return false;
+		return path.indexOf('.', path.lastIndexOf('/') + 1) < 0;
+	}
+
+	private static boolean matches(String[] prefixes, String path) {
+		if (prefixes == null) return false;
+		for (String prefix : prefixes) {
+			if (path.startsWith(prefix)
+				&& (path.length() == prefix.length() || path.charAt(prefix.length()) == '/')) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// "/dashboard/" -> "dashboard"
+	private static String[] trim(String[] prefixes) {
+		if (prefixes == null) return null;
+		String[] trimmed = new String[prefixes.length];
+		for (int i = 0; i < prefixes.length; i++) {
+			String prefix = prefixes[i];
+			int start = 0;
+			int end = prefix.length();
+			while (start < end && prefix.charAt(start) == '/') start++;
+			while (end > start && prefix.charAt(end - 1) == '/') end--;
+			trimmed[i] = prefix.substring(start, end);
+		}
+		return trimmed;
+	}
+}
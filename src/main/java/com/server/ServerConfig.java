@@ -0,0 +1,113 @@
+package com.server;
+
+import java.io.File;
+
+public class ServerConfig {
+
+	public enum Engine {
+		// ServerSocket bloqueante, un hilo del pool por conexión (por defecto)
+		BLOCKING,
+		// Selector NIO: pocos hilos de eventos atienden todas las conexiones
+		NIO
+	}
+
+	public enum ExecutionMode {
+		// Pool acotado de hilos con cola (por defecto)
+		POOL,
+		// Un hilo virtual por conexión, si el runtime lo soporta (si no, se usa POOL)
+		VIRTUAL
+	}
+
+	public enum Storage {
+		// Un archivo JSON por subida en Documents/inventarios (por defecto)
+		MEDIASTORE,
+		// Registros añadidos a un diario en journalDir; se exportan a Documents/inventarios bajo demanda
+		JOURNAL
+	}
+
+	public int port = 8080;
+	public Engine engine = Engine.BLOCKING;
+	// Hilos de eventos del motor NIO
+	public int nioEventLoops = 2;
+
+	// Ejecución de conexiones
+	public ExecutionMode executionMode = ExecutionMode.POOL;
+	public int workerThreads = 16;
+	public int queueCapacity = 64;
+	// Máximo de peticiones en curso (en cola + ejecutándose); por encima se responde 503
+	public int maxInFlight = 128;
+
+	// Conexiones persistentes (HTTP/1.1 keep-alive)
+	public int keepAliveTimeoutMs = 5000;
+	public int maxRequestsPerConnection = 100;
+
+	// HTTP/2 sin TLS (h2c) en el mismo puerto, con prefacio directo o "Upgrade: h2c": todas las
+	// solicitudes de la página comparten una conexión
+	public boolean http2 = true;
+	// Una conexión h2c ocupa un hilo del pool mientras dura (en los dos motores) y atiende sus
+	// streams en ese hilo. Por encima de este número, "Upgrade: h2c" se ignora y la conexión sigue
+	// en HTTP/1.1, y un prefacio directo recibe GOAWAY sin procesar ningún stream. El límite deja
+	// workerThreads - maxHttp2Connections hilos para subidas, HTTP/1.1 y compresión
+	public int maxHttp2Connections = 4;
+
+	// Presupuesto de memoria de la caché de archivos (1/8 del heap, máximo 32 MB)
+	public long cacheMaxBytes = Math.min(32L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 8);
+
+	// Archivos servidos sin comprimir a partir de este tamaño se envían desde disco
+	// (FileChannel.transferTo) en lugar de guardarse en la caché
+	public long zeroCopyMinBytes = 64 * 1024;
+	// Archivos que hay que comprimir al vuelo a partir de este tamaño se comprimen mientras se
+	// envían (Transfer-Encoding: chunked) en lugar de enteros en memoria; el resultado se guarda en
+	// la caché si cabe. Long.MAX_VALUE lo desactiva
+	public long streamingMinBytes = 256 * 1024;
+
+	// Vigila el directorio estático y actualiza el índice y la caché en cuanto cambia un archivo,
+	// sin esperar a reloadStatic(). Además, sin eventos, una pasada de consistencia cada
+	// staticSweepMs (0 la desactiva) por si se perdió alguno
+	public boolean watchStatic = true;
+	public long staticSweepMs = 60_000;
+
+	// Directorio de salida de Vite: los archivos con hash en el nombre se cachean como immutable
+	public String immutablePathPrefix = "assets/";
+
+	// Cabecera Link (preload/modulepreload) en los HTML con los módulos, estilos y fuentes que
+	// cargan, sacados del propio HTML y del manifiesto de Vite
+	public boolean preloadHints = true;
+	// Además, una respuesta 103 Early Hints con los mismos enlaces antes de la respuesta final.
+	// Chromium solo la tiene en cuenta sobre HTTP/2, así que el WebView la ignora
+	public boolean earlyHints = false;
+
+	// Manifiesto de rutas para las que no existen en el índice. Bajo estos directorios un archivo
+	// que falta es un 404, nunca index.html
+	public String[] assetDirectories = { "assets/" };
+	// Prefijos que siempre son rutas de la SPA ("dashboard/", "items/"): se sirven con index.html
+	// sin buscar en el índice, y solo ellos caen en index.html. null: cae cualquier ruta
+	// inexistente cuyo último segmento no tenga punto
+	public String[] spaRoutes;
+
+	// Tamaño máximo del cuerpo de /upload tal como llega por la red (Content-Length o chunked)
+	public long maxUploadBytes = 16 * 1024 * 1024;
+	// Tamaño máximo tras descomprimir un cuerpo con Content-Encoding: gzip
+	public long maxUploadDecodedBytes = 64 * 1024 * 1024;
+
+	// Ruta de las métricas (Prometheus, o JSON con ?format=json); null la desactiva
+	public String metricsPath = "/__metrics";
+
+	// Almacenamiento de las subidas
+	public Storage storage = Storage.MEDIASTORE;
+	public File journalDir;
+	// Tamaño a partir del cual el diario empieza un segmento nuevo
+	public long journalSegmentBytes = 8 * 1024 * 1024;
+	// Comprime cada registro con gzip (los inventarios JSON se reducen mucho)
+	public boolean journalCompress = true;
+
+	// Índice de consulta de los inventarios subidos (ver InventoryIndex); null lo desactiva
+	public File inventoryIndexDir;
+	// Ruta de la API de consulta sobre el índice
+	public String inventoryApiPath = "/api/inventories";
+	// Nombres de campo (sin distinguir mayúsculas) que identifican una línea de inventario, su
+	// cantidad y su ubicación. Si un objeto tiene varios, cuenta el primero de la lista
+	public String[] inventorySkuFields = { "sku", "codigo", "code", "barcode", "producto", "product" };
+	public String[] inventoryQuantityFields = { "cantidad", "quantity", "qty", "existencia", "stock" };
+	public String[] inventoryLocationFields = { "ubicacion", "location", "almacen", "warehouse", "tienda", "store" };
+}
@@ -0,0 +1,320 @@
+package com.server;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Métricas del servidor con coste mínimo por solicitud: contadores atómicos e histogramas sin
+// bloqueos. Se publican en /__metrics (texto de Prometheus o JSON) y MainActivity las consulta
+// con MyServer.getMetrics().
+public final class ServerMetrics {
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+	private static final int STATUS_CODES = 600;
+
+	public enum Route {
+		// Archivo encontrado en el índice
+		STATIC,
+		// Ruta de la SPA servida con index.html
+		FALLBACK,
+		UPLOAD,
+		OPTIONS,
+		METRICS,
+		// API de consulta de inventarios
+		QUERY,
+		// Rutas inexistentes, métodos no soportados y rutas inválidas
+		OTHER;
+
+		final String label = name().toLowerCase(Locale.ROOT);
+	}
+
+	public enum Encoding {
+		IDENTITY, GZIP, BR;
+
+		final String label = name().toLowerCase(Locale.ROOT);
+
+		static Encoding of(String encoding) {
+			if (encoding == null) return IDENTITY;
+			return "br".equals(encoding) ? BR : GZIP;
+		}
+	}
+
+	private final ConnectionExecutor executor;
+	private final FileCache cache;
+	private final long startedAt = System.currentTimeMillis();
+
+	// Un histograma por ruta y código de estado, creado con el primer uso
+	private final AtomicReferenceArray<LatencyHistogram> requests =
+		new AtomicReferenceArray<>(Route.values().length * STATUS_CODES);
+	private final LatencyHistogram allRequests = new LatencyHistogram();
+
+	private final AtomicLong[] cacheHits = counters(Encoding.values().length);
+	private final AtomicLong[] cacheMisses = counters(Encoding.values().length);
+	private final AtomicLong[] bytesServed = counters(Encoding.values().length);
+	private final LatencyHistogram compression = new LatencyHistogram();
+
+	private final AtomicInteger openConnections = new AtomicInteger();
+	private final AtomicLong acceptedConnections = new AtomicLong();
+
+	private final LatencyHistogram uploads = new LatencyHistogram();
+	private final AtomicLong uploadBytes = new AtomicLong();
+	private final AtomicLong uploadFailures = new AtomicLong();
+
+	ServerMetrics(ConnectionExecutor executor, FileCache cache) {
+		this.executor = executor;
+		this.cache = cache;
+	}
+
+	void recordRequest(Route route, HttpResponse response, long nanos) {
+		int status = response.getStatusCode();
+		if (status < 0 || status >= STATUS_CODES) status = 0;
+		int index = route.ordinal() * STATUS_CODES + status;
+		LatencyHistogram histogram = requests.get(index);
+		if (histogram == null) {
+			requests.compareAndSet(index, null, new LatencyHistogram());
+			histogram = requests.get(index);
+		}
+		histogram.recordNanos(nanos);
+		allRequests.recordNanos(nanos);
+	}
+
+	void recordCacheLookup(String encoding, boolean hit) {
+		(hit ? cacheHits : cacheMisses)[Encoding.of(encoding).ordinal()].incrementAndGet();
+	}
+
+	void recordBytesServed(String encoding, long bytes) {
+		bytesServed[Encoding.of(encoding).ordinal()].addAndGet(bytes);
+	}
+
+	// Tiempo de compresión gzip al vuelo de una entrada de la caché
+	void recordCompression(long nanos) {
+		compression.recordNanos(nanos);
+	}
+
+	void connectionOpened() {
+		acceptedConnections.incrementAndGet();
+		openConnections.incrementAndGet();
+	}
+
+	void connectionClosed() {
+		openConnections.decrementAndGet();
+	}
+
+	void recordUpload(long bytes, long nanos, boolean success) {
+		uploads.recordNanos(nanos);
+		uploadBytes.addAndGet(bytes);
+		if (!success) uploadFailures.incrementAndGet();
+	}
+
+	// Histograma de una ruta y código de estado, o null si aún no hubo solicitudes
+	public LatencyHistogram getHistogram(Route route, int status) {
+		return requests.get(route.ordinal() * STATUS_CODES + status);
+	}
+
+	public LatencyHistogram getAllRequests() {
+		return allRequests;
+	}
+
+	public LatencyHistogram getCompression() {
+		return compression;
+	}
+
+	public LatencyHistogram getUploads() {
+		return uploads;
+	}
+
+	public long getCacheHits(Encoding encoding) {
+		return cacheHits[encoding.ordinal()].get();
+	}
+
+	public long getCacheMisses(Encoding encoding) {
+		return cacheMisses[encoding.ordinal()].get();
+	}
+
+	public long getBytesServed(Encoding encoding) {
+		return bytesServed[encoding.ordinal()].get();
+	}
+
+	public int getOpenConnections() {
+		return openConnections.get();
+	}
+
+	public long getAcceptedConnections() {
+		return acceptedConnections.get();
+	}
+
+	public long getUploadBytes() {
+		return uploadBytes.get();
+	}
+
+	public long getUploadFailures() {
+		return uploadFailures.get();
+	}
+
+	// Bytes por segundo de las subidas, contando solo el tiempo que duraron
+	public double getUploadThroughput() {
+		long micros = uploads.getSumMicros();
+		return micros == 0 ? 0 : uploadBytes.get() * 1_000_000.0 / micros;
+	}
+
+	public String toPrometheus() {
+		StringBuilder out = new StringBuilder(4096);
+		out.append("# HELP myserver_request_duration_seconds Tiempo de respuesta por ruta y estado\n");
+		out.append("# TYPE myserver_request_duration_seconds summary\n");
+		for (Route route : Route.values()) {
+			for (int status = 0; status < STATUS_CODES; status++) {
+				LatencyHistogram histogram = getHistogram(route, status);
+				if (histogram == null) continue;
+				String labels = "route=\"" + route.label + "\",status=\"" + status + "\"";
+				summary(out, "myserver_request_duration_seconds", labels, histogram);
+			}
+		}
+
+		out.append("# HELP myserver_cache_lookups_total Búsquedas en la caché por codificación\n");
+		out.append("# TYPE myserver_cache_lookups_total counter\n");
+		for (Encoding encoding : Encoding.values()) {
+			sample(out, "myserver_cache_lookups_total", "encoding=\"" + encoding.label + "\",result=\"hit\"", getCacheHits(encoding));
+			sample(out, "myserver_cache_lookups_total", "encoding=\"" + encoding.label + "\",result=\"miss\"", getCacheMisses(encoding));
+		}
+		out.append("# HELP myserver_served_bytes_total Bytes de cuerpo enviados por codificación\n");
+		out.append("# TYPE myserver_served_bytes_total counter\n");
+		for (Encoding encoding : Encoding.values()) {
+			sample(out, "myserver_served_bytes_total", "encoding=\"" + encoding.label + "\"", getBytesServed(encoding));
+		}
+		FileCache.Stats stats = cache.getStats();
+		gauge(out, "myserver_cache_bytes", "Bytes ocupados por la caché", stats.bytes);
+		gauge(out, "myserver_cache_entries", "Entradas en la caché", stats.entries);
+		counter(out, "myserver_cache_evictions_total", "Entradas desalojadas de la caché", stats.evictions);
+
+		out.append("# HELP myserver_gzip_duration_seconds Compresión gzip al vuelo\n");
+		out.append("# TYPE myserver_gzip_duration_seconds summary\n");
+		summary(out, "myserver_gzip_duration_seconds", null, compression);
+
+		gauge(out, "myserver_connections_open", "Conexiones abiertas", openConnections.get());
+		counter(out, "myserver_connections_total", "Conexiones aceptadas", acceptedConnections.get());
+		gauge(out, "myserver_workers_active", "Hilos del pool ocupados", executor.getActiveCount());
+		gauge(out, "myserver_workers_queued", "Tareas esperando en la cola del pool", executor.getQueueDepth());
+		counter(out, "myserver_rejected_total", "Conexiones rechazadas con 503", executor.getRejectedCount());
+
+		out.append("# HELP myserver_upload_duration_seconds Duración de las subidas\n");
+		out.append("# TYPE myserver_upload_duration_seconds summary\n");
+		summary(out, "myserver_upload_duration_seconds", null, uploads);
+		counter(out, "myserver_upload_bytes_total", "Bytes recibidos en subidas", uploadBytes.get());
+		counter(out, "myserver_upload_failures_total", "Subidas fallidas", uploadFailures.get());
+		gauge(out, "myserver_uptime_seconds", "Tiempo desde el arranque", (System.currentTimeMillis() - startedAt) / 1000);
+		return out.toString();
+	}
+
+	public String toJson() {
+		StringBuilder out = new StringBuilder(2048);
+		out.append("{\"uptimeSeconds\":").append((System.currentTimeMillis() - startedAt) / 1000);
+		out.append(",\"requests\":[");
+		boolean first = true;
+		for (Route route : Route.values()) {
+			for (int status = 0; status < STATUS_CODES; status++) {
+				LatencyHistogram histogram = getHistogram(route, status);
+				if (histogram == null) continue;
+				if (!first) out.append(',');
+				first = false;
+				out.append("{\"route\":\"").append(route.label).append("\",\"status\":").append(status).append(',');
+				jsonHistogram(out, histogram);
+				out.append('}');
+			}
+		}
+		out.append("],\"cache\":{");
+		for (Encoding encoding : Encoding.values()) {
+			out.append('"').append(encoding.label).append("\":{\"hits\":").append(getCacheHits(encoding))
+				.append(",\"misses\":").append(getCacheMisses(encoding))
+				.append(",\"bytesServed\":").append(getBytesServed(encoding)).append("},");
+		}
+		FileCache.Stats stats = cache.getStats();
+		out.append("\"bytes\":").append(stats.bytes)
+			.append(",\"entries\":").append(stats.entries)
+			.append(",\"evictions\":").append(stats.evictions)
+			.append(",\"hitRatio\":").append(format(stats.hitRatio()))
+			.append("},\"gzip\":{");
+		jsonHistogram(out, compression);
+		out.append("},\"connections\":{\"open\":").append(openConnections.get())
+			.append(",\"accepted\":").append(acceptedConnections.get())
+			.append(",\"activeWorkers\":").append(executor.getActiveCount())
+			.append(",\"queued\":").append(executor.getQueueDepth())
+			.append(",\"rejected\":").append(executor.getRejectedCount())
+			.append("},\"uploads\":{");
+		jsonHistogram(out, uploads);
+		out.append(",\"bytes\":").append(uploadBytes.get())
+			.append(",\"failures\":").append(uploadFailures.get())
+			.append(",\"bytesPerSecond\":").append(format(getUploadThroughput()))
+			.append("}}");
+		return out.toString();
+	}
+
+	// Resumen de una línea para el log de la aplicación
+	@Override
+	public String toString() {
+		long hits = 0;
+		long misses = 0;
+		for (Encoding encoding : Encoding.values()) {
+			hits += getCacheHits(encoding);
+			misses += getCacheMisses(encoding);
+		}
+		return "solicitudes=" + allRequests.getCount()
+			+ " p50=" + allRequests.getPercentileMicros(0.5) + "µs"
+			+ " p99=" + allRequests.getPercentileMicros(0.99) + "µs"
+			+ " caché=" + hits + "/" + (hits + misses)
+			+ " conexiones=" + openConnections.get()
+			+ " cola=" + executor.getQueueDepth()
+			+ " subidas=" + uploads.getCount();
+	}
+
+	private static void summary(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+		String prefix = labels != null ? labels + "," : "";
+		for (double quantile : QUANTILES) {
+			out.append(name).append('{').append(prefix).append("quantile=\"").append(quantile).append("\"} ")
+				.append(seconds(histogram.getPercentileMicros(quantile))).append('\n');
+		}
+		String suffix = labels != null ? "{" + labels + "}" : "";
+		out.append(name).append("_sum").append(suffix).append(' ').append(seconds(histogram.getSumMicros())).append('\n');
+		out.append(name).append("_count").append(suffix).append(' ').append(histogram.getCount()).append('\n');
+	}
+
+	private static void sample(StringBuilder out, String name, String labels, long value) {
+		out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+	}
+
+	private static void gauge(StringBuilder out, String name, String help, long value) {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(" gauge\n");
+		out.append(name).append(' ').append(value).append('\n');
+	}
+
+	private static void counter(StringBuilder out, String name, String help, long value) {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(" counter\n");
+		out.append(name).append(' ').append(value).append('\n');
+	}
+
+	private static void jsonHistogram(StringBuilder out, LatencyHistogram histogram) {
+		out.append("\"count\":").append(histogram.getCount())
+			.append(",\"meanMicros\":").append(format(histogram.getMeanMicros()))
+			.append(",\"p50Micros\":").append(histogram.getPercentileMicros(0.5))
+			.append(",\"p90Micros\":").append(histogram.getPercentileMicros(0.9))
+			.append(",\"p99Micros\":").append(histogram.getPercentileMicros(0.99))
+			.append(",\"maxMicros\":").append(histogram.getMaxMicros());
+	}
+
+	private static String seconds(long micros) {
+		return format(micros / 1_000_000.0);
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.6f", value);
+	}
+
+	private static AtomicLong[] counters(int count) {
+		AtomicLong[] counters = new AtomicLong[count];
+		for (int i = 0; i < count; i++) {
+			counters[i] = new AtomicLong();
+		}
+		return counters;
+	}
+}
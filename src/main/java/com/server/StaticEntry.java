@@ -0,0 +1,33 @@
+package com.server;
+
+// Metadatos de un archivo estático tal como estaban al construir el índice. Las variantes
+// precomprimidas (.br/.gz) cuelgan del archivo original.
+public final class StaticEntry {
+	public final String path;
+	public final long size;
+	public final long lastModified;
+	public final String contentType;
+	public final boolean compressible;
+	public final StaticEntry brotli;
+	public final StaticEntry gzip;
+	// Referencia propia del backend (File, ruta del asset, entrada del zip)
+	final Object handle;
+	// ETag del contenido en disco, calculado la primera vez que se necesita
+	volatile String etag;
+
+	StaticEntry(String path, long size, long lastModified, Object handle, StaticEntry brotli, StaticEntry gzip) {
+		this.path = path;
+		this.size = size;
+		this.lastModified = lastModified;
+		this.contentType = MyServer.getContentType(path);
+		this.compressible = MyServer.isCompressible(path);
+		this.handle = handle;
+		this.brotli = brotli;
+		this.gzip = gzip;
+	}
+
+	// Misma versión del contenido (para conservar el ETag al reconstruir el índice)
+	boolean isSameVersion(StaticEntry other) {
+		return other != null && other.size == size && other.lastModified == lastModified;
+	}
+}
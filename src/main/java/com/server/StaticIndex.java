@@ -0,0 +1,150 @@
+package com.server;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Índice inmutable ruta -> StaticEntry de una StaticSource. Resolver una solicitud es una
+// búsqueda en memoria, sin llamadas al sistema de archivos; cuando el contenido cambia se
+// construye un índice nuevo y se sustituye entero. Las variantes .br/.gz de un archivo
+// comprimible solo se alcanzan desde el original, no por su propia ruta.
+public final class StaticIndex {
+	private final Map<String, StaticEntry> entries;
+
+	private StaticIndex(Map<String, StaticEntry> entries) {
+		this.entries = Collections.unmodifiableMap(entries);
+	}
+
+	public StaticEntry get(String path) {
+		return entries.get(path);
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	// Copia los ETag ya calculados de las entradas que no han cambiado. changed: rutas que se
+	// reescribieron aunque conserven tamaño y fecha (la fecha puede tener resolución de segundos)
+	void inheritETags(StaticIndex previous, Set<String> changed) {
+		Map<String, StaticEntry> previousEntries = previous.withVariants();
+		for (StaticEntry entry : withVariants().values()) {
+			StaticEntry old = previousEntries.get(entry.path);
+			if (entry.isSameVersion(old) && old.etag != null && !changed.contains(entry.path)) {
+				entry.etag = old.etag;
+			}
+		}
+	}
+
+	// Rutas nuevas, borradas o con otro tamaño o fecha respecto a previous
+	Set<String> changedSince(StaticIndex previous) {
+		Map<String, StaticEntry> current = withVariants();
+		Map<String, StaticEntry> previousEntries = previous.withVariants();
+		Set<String> changed = new HashSet<>();
+		for (StaticEntry entry : current.values()) {
+			if (!entry.isSameVersion(previousEntries.get(entry.path))) changed.add(entry.path);
+		}
+		for (String path : previousEntries.keySet()) {
+			if (!current.containsKey(path)) changed.add(path);
+		}
+		return changed;
+	}
+
+	// Entradas servibles más sus variantes, para comparar índices
+	private Map<String, StaticEntry> withVariants() {
+		Map<String, StaticEntry> all = new HashMap<>(entries);
+		for (StaticEntry entry : entries.values()) {
+			if (entry.brotli != null) all.put(entry.brotli.path, entry.brotli);
+			if (entry.gzip != null) all.put(entry.gzip.path, entry.gzip);
+		}
+		return all;
+	}
+
+	// Ruta de la URL a clave del índice: decodifica %XX (UTF-8), elimina "." y segmentos vacíos
+	// y resuelve "..". Devuelve null si la ruta es inválida o intenta salir de la raíz.
+	public static String normalize(String rawPath) {
+		String decoded = decode(rawPath);
+		if (decoded == null || decoded.indexOf('\0') >= 0) return null;
+		Deque<String> segments = new ArrayDeque<>();
+		for (String segment : decoded.split("/")) {
+			if (segment.isEmpty() || ".".equals(segment)) continue;
+			if ("..".equals(segment)) {
+				if (segments.isEmpty()) return null;
+				segments.removeLast();
+			} else {
+				segments.addLast(segment);
+			}
+		}
+		if (segments.isEmpty()) return "index.html";
+		return String.join("/", segments);
+	}
+
+	private static String decode(String path) {
+		if (path.indexOf('%') < 0) return path;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(path.length());
+		for (int i = 0; i < path.length(); i++) {
+			char c = path.charAt(i);
+			if (c == '%') {
+				if (i + 2 >= path.length()) return null;
+				int high = Character.digit(path.charAt(i + 1), 16);
+				int low = Character.digit(path.charAt(i + 2), 16);
+				if (high < 0 || low < 0) return null;
+				bytes.write((high << 4) | low);
+				i += 2;
+			} else {
+				byte[] encoded = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+				bytes.write(encoded, 0, encoded.length);
+			}
+		}
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	// Los backends añaden cada archivo una vez; build() enlaza las variantes .br/.gz
+	static class Builder {
+		private final Map<String, Object[]> files = new HashMap<>();
+
+		Builder add(String path, long size, long lastModified, Object handle) {
+			// Archivos de trabajo del Precompressor: ni a medias ni marcas
+			if (path.endsWith(".tmp") || path.endsWith(Precompressor.NO_GAIN_SUFFIX)) return this;
+			files.put(path, new Object[] { size, lastModified, handle });
+			return this;
+		}
+
+		StaticIndex build() {
+			Map<String, StaticEntry> entries = new HashMap<>(files.size() * 2);
+			for (Map.Entry<String, Object[]> file : files.entrySet()) {
+				String path = file.getKey();
+				if (isVariant(path)) continue;
+				StaticEntry brotli = null;
+				StaticEntry gzip = null;
+				if (MyServer.isCompressible(path)) {
+					brotli = variant(path + ".br");
+					gzip = variant(path + ".gz");
+				}
+				entries.put(path, entry(path, file.getValue(), brotli, gzip));
+			}
+			return new StaticIndex(entries);
+		}
+
+		// data.json.gz junto a data.json es su variante; un .gz suelto se sirve como archivo
+		private boolean isVariant(String path) {
+			if (!path.endsWith(".gz") && !path.endsWith(".br")) return false;
+			String original = path.substring(0, path.length() - 3);
+			return MyServer.isCompressible(original) && files.containsKey(original);
+		}
+
+		private StaticEntry variant(String path) {
+			Object[] file = files.get(path);
+			return file != null ? entry(path, file, null, null) : null;
+		}
+
+		private static StaticEntry entry(String path, Object[] file, StaticEntry brotli, StaticEntry gzip) {
+			return new StaticEntry(path, (Long) file[0], (Long) file[1], file[2], brotli, gzip);
+		}
+	}
+}
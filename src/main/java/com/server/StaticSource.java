@@ -0,0 +1,19 @@
+package com.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Origen del contenido estático que sirve MyServer: el directorio stats, los assets del APK o
+// un único archivo zip
+public interface StaticSource {
+
+	// Recorre el contenido una vez y devuelve su índice completo
+	StaticIndex buildIndex() throws IOException;
+
+	InputStream open(StaticEntry entry) throws IOException;
+
+	// Archivo en disco con el contenido de la entrada (envío sin copia y rangos), o null si el
+	// backend solo ofrece un flujo
+	File getFile(StaticEntry entry);
+}
@@ -0,0 +1,153 @@
+package com.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Vigila el directorio del contenido estático (inotify a través de WatchService, también en
+// Android) y avisa de las rutas que cambian, agrupando las ráfagas de escrituras (copia de assets,
+// variantes .gz). WatchService no es recursivo: cada subdirectorio se registra aparte, también los
+// que se crean después. Sin actividad, cada sweepMs hace una pasada de consistencia por si se
+// perdió algún evento; si no se puede vigilar el directorio, solo quedan las pasadas.
+final class StaticWatcher extends Thread {
+	// Espera sin eventos nuevos antes de aplicar los cambios acumulados
+	private static final long QUIET_MS = 100;
+	// Con escrituras continuas, los cambios se aplican al menos con esta frecuencia
+	private static final long MAX_BATCH_MS = 2000;
+
+	interface Listener {
+		// changed: rutas del índice afectadas; overflow: se perdieron eventos y no se sabe cuáles.
+		// Una pasada periódica llega con changed vacío.
+		void staticChanged(Set<String> changed, boolean overflow) throws IOException;
+	}
+
+	private final Path root;
+	private final long sweepMs;
+	private final Listener listener;
+	private final MyServer.ServerLogCallback logCallback;
+	private final WatchService watcher;
+	// Directorio vigilado -> prefijo de sus rutas en el índice ("" para la raíz, "assets/"...)
+	private final Map<WatchKey, String> prefixes = new HashMap<>();
+	private volatile boolean running = true;
+
+	StaticWatcher(File root, long sweepMs, Listener listener, MyServer.ServerLogCallback logCallback) {
+		super("static-watcher");
+		setDaemon(true);
+		this.root = root.toPath();
+		this.sweepMs = sweepMs;
+		this.listener = listener;
+		this.logCallback = logCallback;
+		WatchService service = null;
+		try {
+			service = FileSystems.getDefault().newWatchService();
+			register(service, root, "", new HashSet<>());
+		} catch (IOException e) {
+			logCallback.log("No se puede vigilar " + root + ": " + e.getMessage());
+			if (service != null) {
+				try {
+					service.close();
+				} catch (IOException ignored) {
+				}
+			}
+			service = null;
+		}
+		this.watcher = service;
+	}
+
+	@Override
+	public void run() {
+		while (running) {
+			try {
+				if (watcher == null) {
+					if (sweepMs <= 0) return;
+					Thread.sleep(sweepMs);
+					listener.staticChanged(new HashSet<>(), false);
+					continue;
+				}
+				WatchKey key = sweepMs > 0 ? watcher.poll(sweepMs, TimeUnit.MILLISECONDS) : watcher.take();
+				if (key == null) {
+					listener.staticChanged(new HashSet<>(), false);
+					continue;
+				}
+				Set<String> changed = new HashSet<>();
+				boolean overflow = false;
+				long deadline = System.currentTimeMillis() + MAX_BATCH_MS;
+				while (key != null) {
+					overflow |= drain(key, changed);
+					if (System.currentTimeMillis() >= deadline) break;
+					key = watcher.poll(QUIET_MS, TimeUnit.MILLISECONDS);
+				}
+				listener.staticChanged(changed, overflow);
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				break;
+			} catch (IOException e) {
+				logCallback.log("Error al actualizar el contenido estático: " + e.getMessage());
+			}
+		}
+	}
+
+	// Devuelve true si el directorio perdió eventos
+	private boolean drain(WatchKey key, Set<String> changed) {
+		String prefix = prefixes.get(key);
+		boolean overflow = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW || prefix == null) {
+				overflow = true;
+				continue;
+			}
+			String path = prefix + event.context();
+			changed.add(path);
+			File file = root.resolve(path).toFile();
+			if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && file.isDirectory()) {
+				// Lo que se copie dentro antes de registrarlo no genera eventos: se anota entero
+				try {
+					register(watcher, file, path + "/", changed);
+				} catch (IOException e) {
+					overflow = true;
+				}
+			}
+		}
+		if (!key.reset()) {
+			// El directorio ya no existe
+			prefixes.remove(key);
+		}
+		return overflow;
+	}
+
+	private void register(WatchService service, File dir, String prefix, Set<String> found) throws IOException {
+		WatchKey key = dir.toPath().register(service,
+			StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+		prefixes.put(key, prefix);
+		File[] files = dir.listFiles();
+		if (files == null) return;
+		for (File file : files) {
+			String path = prefix + file.getName();
+			if (file.isDirectory()) {
+				register(service, file, path + "/", found);
+			} else {
+				found.add(path);
+			}
+		}
+	}
+
+	void close() {
+		running = false;
+		interrupt();
+		if (watcher == null) return;
+		try {
+			watcher.close();
+		} catch (IOException ignored) {
+		}
+	}
+}
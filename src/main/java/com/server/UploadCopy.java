@@ -0,0 +1,46 @@
+package com.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// Copia de un cuerpo subido a su destino. El destino solo está completo cuando el cierre termina
+// sin error: MediaStore (como cualquier flujo con búfer) puede fallar justo al cerrar.
+final class UploadCopy {
+	private static final int BUFFER_SIZE = 16 * 1024;
+
+	private UploadCopy() {
+	}
+
+	// Copia content en out y cierra out en cualquier caso. Los errores al leer content se
+	// envuelven en ReadException para distinguirlos de los del destino.
+	static void copyAndClose(InputStream content, OutputStream out) throws IOException {
+		try (OutputStream target = out) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			while (true) {
+				int read;
+				try {
+					read = content.read(buffer);
+				} catch (IOException e) {
+					throw new ReadException(e);
+				}
+				if (read == -1) break;
+				target.write(buffer, 0, read);
+			}
+			target.flush();
+		}
+	}
+
+	// Error del flujo de origen (el cliente), no del destino
+	static final class ReadException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		ReadException(IOException cause) {
+			super(cause.getMessage(), cause);
+		}
+
+		IOException getReadError() {
+			return (IOException) getCause();
+		}
+	}
+}
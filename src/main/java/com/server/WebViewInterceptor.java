@@ -0,0 +1,76 @@
+package com.server;
+
+import android.net.Uri;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Atiende dentro del proceso las solicitudes GET que el WebView de la app hace a su propio
+// servidor (shouldInterceptRequest): pasan por el mismo enrutado, índice y caché que las del
+// socket, pero sin conexión TCP por loopback, hilo del pool ni cabeceras que codificar y volver a
+// leer. El origen de la página no cambia. Las subidas (POST) y lo que no se puede expresar como
+// WebResourceResponse siguen por la red, igual que los clientes de la LAN.
+final class WebViewInterceptor {
+	private final MyServer server;
+	private final int port;
+
+	WebViewInterceptor(MyServer server, int port) {
+		this.server = server;
+		this.port = port;
+	}
+
+	// null: la solicitud sigue su camino normal por el socket
+	WebResourceResponse intercept(WebResourceRequest request) {
+		Uri url = request.getUrl();
+		if (!"GET".equals(request.getMethod()) || !isOwnServer(url)) return null;
+
+		Map<String, String> headers = new LinkedHashMap<>();
+		for (Map.Entry<String, String> header : request.getRequestHeaders().entrySet()) {
+			String name = header.getKey().toLowerCase(Locale.ROOT);
+			// Sin red de por medio comprimir no ahorra nada, y la caché HTTP del WebView no
+			// interviene en estas respuestas: no tiene sentido revalidar
+			if (name.equals("accept-encoding") || name.equals("if-none-match") || name.equals("if-modified-since")) continue;
+			headers.put(name, header.getValue());
+		}
+		String query = url.getEncodedQuery();
+		String target = url.getEncodedPath() + (query != null ? "?" + query : "");
+
+		HttpResponse response;
+		try {
+			response = server.respondLocal(target, headers);
+		} catch (IOException e) {
+			return null;
+		}
+		// WebResourceResponse no admite redirecciones ni respuestas 1xx
+		int code = response.getStatusCode();
+		if (code < 200 || (code >= 300 && code < 400)) return null;
+
+		Map<String, String> responseHeaders = response.getHeaders();
+		String contentType = responseHeaders.remove("Content-Type");
+		String mimeType = null;
+		String charset = null;
+		if (contentType != null) {
+			int semicolon = contentType.indexOf(';');
+			mimeType = (semicolon >= 0 ? contentType.substring(0, semicolon) : contentType).trim();
+			int charsetStart = contentType.indexOf("charset=");
+			if (charsetStart >= 0) charset = contentType.substring(charsetStart + "charset=".length()).trim();
+		}
+		String status = response.getStatus();
+		String reason = status.length() > 4 ? status.substring(4) : "OK";
+		try {
+			return new WebResourceResponse(mimeType, charset, code, reason, responseHeaders, response.openBody());
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private boolean isOwnServer(Uri url) {
+		String host = url.getHost();
+		return "http".equals(url.getScheme()) && url.getPort() == port
+			&& ("127.0.0.1".equals(host) || "localhost".equals(host));
+	}
+}
@@ -0,0 +1,62 @@
+package com.server;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+// Contenido estático empaquetado en un solo zip (por ejemplo el dist de Vite descargado como
+// bundle): se sirve sin descomprimirlo a disco
+public class ZipStaticSource implements StaticSource, Closeable {
+	private final File zip;
+	private volatile ZipFile zipFile;
+
+	public ZipStaticSource(File zip) {
+		this.zip = zip;
+	}
+
+	@Override
+	public StaticIndex buildIndex() throws IOException {
+		// Cada índice usa su propio ZipFile: las lecturas en curso del índice anterior no se
+		// cortan; el ZipFile anterior se libera cuando deja de usarse
+		ZipFile opened = new ZipFile(zip);
+		StaticIndex.Builder builder = new StaticIndex.Builder();
+		Enumeration<? extends ZipEntry> entries = opened.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
+			if (entry.isDirectory()) continue;
+			builder.add(entry.getName(), entry.getSize(), entry.getTime(), new Handle(opened, entry));
+		}
+		zipFile = opened;
+		return builder.build();
+	}
+
+	@Override
+	public InputStream open(StaticEntry entry) throws IOException {
+		Handle handle = (Handle) entry.handle;
+		return handle.zipFile.getInputStream(handle.entry);
+	}
+
+	@Override
+	public File getFile(StaticEntry entry) {
+		return null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (zipFile != null) zipFile.close();
+	}
+
+	private static class Handle {
+		final ZipFile zipFile;
+		final ZipEntry entry;
+
+		Handle(ZipFile zipFile, ZipEntry entry) {
+			this.zipFile = zipFile;
+			this.entry = entry;
+		}
+	}
+}